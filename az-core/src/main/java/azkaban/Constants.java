@@ -87,6 +87,9 @@ public class Constants {
   // The flow exec id for a flow trigger instance unable to trigger a flow yet
   public static final int FAILED_EXEC_ID = -2;
 
+  // Bytes buffered for a connection following a log before it's closed for not keeping up
+  public static final long DEFAULT_LOG_FOLLOW_MAX_BUFFER_BYTES = 4 * 1024 * 1024;
+
 
   public static class ConfigurationKeys {
 
@@ -220,6 +223,82 @@ public class Constants {
     public static final String EXECUTOR_SELECTOR_COMPARATOR_PREFIX =
         "azkaban.executorselector.comparator.";
     public static final String QUEUEPROCESSING_ENABLED = "azkaban.queueprocessing.enabled";
+    // Number of threads dispatching queued flows. With more than one, flows are dispatched to
+    // different executors in parallel.
+    public static final String QUEUEPROCESSING_DISPATCH_THREADS =
+        "azkaban.queueprocessing.dispatch.threads";
+
+    // Settings of the pooled HTTP client the web server uses to call executors.
+    public static final String EXECUTOR_CLIENT_MAX_TOTAL_CONNECTIONS =
+        "azkaban.executor.client.max.total.connections";
+    public static final String EXECUTOR_CLIENT_MAX_CONNECTIONS_PER_ROUTE =
+        "azkaban.executor.client.max.connections.per.route";
+    public static final String EXECUTOR_CLIENT_CONNECTION_REQUEST_TIMEOUT_MS =
+        "azkaban.executor.client.connection.request.timeout.ms";
+    public static final String EXECUTOR_CLIENT_CONNECT_TIMEOUT_MS =
+        "azkaban.executor.client.connect.timeout.ms";
+    public static final String EXECUTOR_CLIENT_SOCKET_TIMEOUT_MS =
+        "azkaban.executor.client.socket.timeout.ms";
+    public static final String EXECUTOR_CLIENT_KEEP_ALIVE_MS =
+        "azkaban.executor.client.keep.alive.ms";
+    public static final String EXECUTOR_CLIENT_MAX_IDLE_MS = "azkaban.executor.client.max.idle.ms";
+
+    // If true, the web server long-polls executors for flow updates instead of polling every 500 ms.
+    // The timeout must be lower than azkaban.executor.client.socket.timeout.ms.
+    public static final String EXECUTOR_UPDATE_STREAMING_ENABLED =
+        "azkaban.executor.update.streaming.enabled";
+    public static final String EXECUTOR_UPDATE_STREAMING_TIMEOUT_MS =
+        "azkaban.executor.update.streaming.timeout.ms";
+
+    // The executors are polled for flow updates in parallel, each poll giving up after the timeout.
+    public static final String EXECUTOR_UPDATE_TIMEOUT_MS = "azkaban.executor.update.timeout.ms";
+
+    // Writes the node transitions of running flows as rows of execution_node_states instead of
+    // rewriting the whole serialized flow. Must be set on the web server and on the executors.
+    public static final String EXECUTION_NODE_STATES_ENABLED =
+        "azkaban.execution.node.states.enabled";
+
+    // Size of the parts of the execution logs stored in the DB, and their encoding: GZIP, or
+    // DEFLATE which is faster but compresses less. PLAIN stores them uncompressed.
+    public static final String EXECUTION_LOGS_CHUNK_SIZE = "azkaban.execution.logs.chunk.size";
+    public static final String EXECUTION_LOGS_ENCODING = "azkaban.execution.logs.encoding";
+
+    // Stores the execution logs as segments in the configured azkaban.storage.type, which must be
+    // LOCAL or HDFS, and only their index in the DB. Must be set on the web server and executors.
+    public static final String EXECUTION_LOGS_STORAGE_ENABLED =
+        "azkaban.execution.logs.storage.enabled";
+
+    // Cap of the bytes buffered for each connection following a running job log, on the web server
+    // and on the executors. A connection which doesn't keep up is closed and has to reconnect.
+    public static final String LOG_FOLLOW_MAX_BUFFER_BYTES = "azkaban.log.follow.max.buffer.bytes";
+
+    // Number of finished executions kept in memory by the web server for the execution pages. The
+    // running executions are always served from memory.
+    public static final String FINISHED_EXECUTIONS_CACHE_SIZE =
+        "azkaban.finished.executions.cache.size";
+
+    // Number of threads running the actions of the fired triggers, e.g. submitting the executions
+    // of the schedules, outside of the trigger scanner.
+    public static final String TRIGGER_ACTION_THREADS = "azkaban.trigger.action.threads";
+
+    // Max delay before the state of the fired triggers is written to the DB, in batches. A trigger
+    // whose state wasn't written before a crash is evaluated again once after restart.
+    public static final String TRIGGER_UPDATE_FLUSH_INTERVAL_MS =
+        "azkaban.trigger.update.flush.interval.ms";
+
+    // Whether several web servers evaluate the triggers, each of them firing the triggers of the
+    // partitions of the trigger ids it leases in the DB. The partitions are spread over the live
+    // web servers, which renew their leases every third of the lease duration.
+    public static final String TRIGGER_MULTINODE_ENABLED = "azkaban.trigger.multinode.enabled";
+    public static final String TRIGGER_PARTITIONS = "azkaban.trigger.partitions";
+    public static final String TRIGGER_LEASE_MS = "azkaban.trigger.lease.ms";
+    // Id of the web server among those evaluating the triggers. Unique per start by default.
+    public static final String TRIGGER_NODE_ID = "azkaban.trigger.node.id";
+
+    // Rate at which the executions fired by the schedules are submitted, per second, and the number
+    // of them which can be submitted at once. No limit if the rate isn't set.
+    public static final String ADMISSION_DISPATCH_RATE = "azkaban.admission.dispatch.rate";
+    public static final String ADMISSION_BURST_SIZE = "azkaban.admission.burst.size";
 
     public static final String SESSION_TIME_TO_LIVE = "session.time.to.live";
   }
@@ -21,6 +21,7 @@ import static azkaban.Constants.ConfigurationKeys.METRICS_SERVER_URL;
 
 import azkaban.utils.Props;
 import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Histogram;
 import com.codahale.metrics.Meter;
 import com.codahale.metrics.MetricRegistry;
 import com.codahale.metrics.jvm.GarbageCollectorMetricSet;
@@ -78,6 +79,22 @@ public class MetricsManager {
     this.registry.register(name, (Gauge<T>) gaugeFunc::get);
   }
 
+  /**
+   * A {@link Histogram} measures the distribution of values (e.g. request latencies). Its
+   * reservoir is biased towards the last 5 minutes. Adding a histogram which already exists
+   * returns the existing one.
+   */
+  public Histogram addHistogram(final String name) {
+    return this.registry.histogram(name);
+  }
+
+  /**
+   * Registers a {@link Histogram} which is updated by its owner.
+   */
+  public void addHistogram(final String name, final Histogram histogram) {
+    this.registry.register(name, histogram);
+  }
+
   /**
    * reporting metrics to remote metrics collector. Note: this method must be synchronized, since
    * both web server and executor will call it during initialization.
@@ -19,6 +19,7 @@ package azkaban.viewer.reportal;
 import azkaban.executor.ExecutableFlow;
 import azkaban.executor.ExecutableNode;
 import azkaban.executor.ExecutionOptions;
+import azkaban.executor.ExecutionSummary;
 import azkaban.executor.ExecutorManagerAdapter;
 import azkaban.executor.ExecutorManagerException;
 import azkaban.flow.Flow;
@@ -489,7 +490,7 @@ public class ReportalServlet extends LoginAbstractAzkabanServlet {
     // List executions and their data
     else {
       page.add("view-executions", true);
-      final ArrayList<ExecutableFlow> exFlows = new ArrayList<>();
+      final ArrayList<ExecutionSummary> exFlows = new ArrayList<>();
 
       int pageNumber = 0;
       boolean hasNextPage = false;
@@ -501,10 +502,10 @@ public class ReportalServlet extends LoginAbstractAzkabanServlet {
       }
       try {
         final Flow flow = project.getFlows().get(0);
-        executorManager.getExecutableFlows(project.getId(), flow.getId(),
+        executorManager.getExecutionSummaries(project.getId(), flow.getId(),
             pageNumber * this.itemsPerPage, this.itemsPerPage, exFlows);
-        final ArrayList<ExecutableFlow> tmp = new ArrayList<>();
-        executorManager.getExecutableFlows(project.getId(), flow.getId(),
+        final ArrayList<ExecutionSummary> tmp = new ArrayList<>();
+        executorManager.getExecutionSummaries(project.getId(), flow.getId(),
             (pageNumber + 1) * this.itemsPerPage, 1, tmp);
         if (!tmp.isEmpty()) {
           hasNextPage = true;
@@ -515,7 +516,7 @@ public class ReportalServlet extends LoginAbstractAzkabanServlet {
 
       if (!exFlows.isEmpty()) {
         final ArrayList<Object> history = new ArrayList<>();
-        for (final ExecutableFlow exFlow : exFlows) {
+        for (final ExecutionSummary exFlow : exFlows) {
           final HashMap<String, Object> flowInfo = new HashMap<>();
           flowInfo.put("execId", exFlow.getExecutionId());
           flowInfo.put("status", exFlow.getStatus().toString());
@@ -25,6 +25,8 @@ public interface ConnectorParams {
   public static final String USER_PARAM = "user";
 
   public static final String UPDATE_ACTION = "update";
+  // long-polling variant of UPDATE_ACTION, returns as soon as a flow on the executor has changed
+  public static final String UPDATE_STREAM_ACTION = "updateStream";
   public static final String STATUS_ACTION = "status";
   public static final String EXECUTE_ACTION = "execute";
   public static final String CANCEL_ACTION = "cancel";
@@ -32,6 +34,12 @@ public interface ConnectorParams {
   public static final String RESUME_ACTION = "resume";
   public static final String PING_ACTION = "ping";
   public static final String LOG_ACTION = "log";
+  // raw bytes of a range of a log, instead of the JSON of LogData
+  public static final String LOG_STREAM_ACTION = "logStream";
+  // bytes appended to a running job log, sent as they are written until the timeout
+  public static final String LOG_FOLLOW_ACTION = "logFollow";
+  // response header of LOG_FOLLOW_ACTION, true once the log was sent to its end
+  public static final String LOG_FINISHED_HEADER = "X-Log-Finished";
   public static final String ATTACHMENTS_ACTION = "attachments";
   public static final String METADATA_ACTION = "metadata";
   public static final String RELOAD_JOBTYPE_PLUGINS_ACTION = "reloadJobTypePlugins";
@@ -71,6 +79,7 @@ public interface ConnectorParams {
 
   public static final String UPDATE_TIME_LIST_PARAM = "updatetime";
   public static final String EXEC_ID_LIST_PARAM = "executionId";
+  public static final String STREAM_TIMEOUT_PARAM = "timeout";
 
   public static final String FORCED_FAILED_MARKER = ".failed";
 
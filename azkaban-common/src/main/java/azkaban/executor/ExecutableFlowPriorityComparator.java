@@ -21,7 +21,8 @@ import java.util.Comparator;
 import org.apache.log4j.Logger;
 
 /**
- * Comparator implicitly used in priority queue for QueuedExecutions.
+ * Order of the flows in QueuedExecutions. QueuedExecutions doesn't call this comparator, it sorts
+ * on keys computed once per flow, in the same order.
  */
 public final class ExecutableFlowPriorityComparator implements
     Comparator<Pair<ExecutionReference, ExecutableFlow>> {
@@ -73,7 +74,7 @@ public final class ExecutableFlowPriorityComparator implements
   }
 
   /* Helper method to fetch flow priority from flow props */
-  private int getPriority(final ExecutableFlow exflow) {
+  static int getPriority(final ExecutableFlow exflow) {
     final ExecutionOptions options = exflow.getExecutionOptions();
     int priority = ExecutionOptions.DEFAULT_FLOW_PRIORITY;
     if (options != null
@@ -0,0 +1,324 @@
+/*
+ * Copyright 2018 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package azkaban.executor;
+
+import azkaban.Constants.ConfigurationKeys;
+import azkaban.metrics.CommonMetrics;
+import azkaban.utils.Props;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import org.apache.log4j.Logger;
+
+/**
+ * Admits the executions fired by the schedules into the {@link ExecutorManager}, smoothing the
+ * bursts of schedules firing at the same time, e.g. at the top of the hour.
+ *
+ * An execution whose schedule declares a jitter window, with {@link
+ * ExecutionOptions#FLOW_JITTER_WINDOW_SECONDS}, is held until a stable offset within the window,
+ * so it never starts before its scheduled time. The released executions are then submitted at the
+ * rate of a token bucket, by descending flow priority, then in the order they were released.
+ * Without a dispatch rate nor a jitter window, an execution is submitted right away.
+ *
+ * No execution is admitted while the queue of the executor manager is full, as the manager would
+ * reject it. A held execution whose submission fails is retried with an exponential backoff until
+ * it's submitted, unless the manager skipped it, e.g. as its flow is already running.
+ *
+ * The held executions are only kept in memory. The executions still held on shutdown are
+ * submitted right away, as their schedules already fired, but if the server stops without shutting
+ * down, e.g. crashes, the executions it held are lost: their schedules fired and moved on, so they
+ * are never submitted.
+ */
+@Singleton
+public class ExecutionAdmission {
+
+  public static final long DEFAULT_SUBMIT_RETRY_DELAY_MS = 10000;
+  public static final long MAX_SUBMIT_RETRY_DELAY_MS = 300000;
+  private static final Logger logger = Logger.getLogger(ExecutionAdmission.class);
+
+  private static final Comparator<HeldExecution> RELEASE_ORDER =
+      Comparator.<HeldExecution>comparingLong(h -> h.releaseTime).thenComparingLong(h -> h.seq);
+  private static final Comparator<HeldExecution> DISPATCH_ORDER =
+      Comparator.<HeldExecution>comparingInt(h -> -h.priority).thenComparing(RELEASE_ORDER);
+
+  private final ExecutorManagerAdapter executorManager;
+  private final CommonMetrics commonMetrics;
+  // executions per second, or 0 for no limit
+  private final double dispatchRate;
+  private final double burstSize;
+  private final long retryDelayMs;
+  private final PriorityQueue<HeldExecution> waiting = new PriorityQueue<>(RELEASE_ORDER);
+  private final PriorityQueue<HeldExecution> released = new PriorityQueue<>(DISPATCH_ORDER);
+  private double tokens;
+  private long lastRefillTime = System.currentTimeMillis();
+  private long seq = 0;
+  private Thread dispatcher = null;
+  private boolean shutdown = false;
+
+  @Inject
+  public ExecutionAdmission(final Props props, final ExecutorManager executorManager,
+      final CommonMetrics commonMetrics) {
+    this(executorManager, commonMetrics,
+        props.getDouble(ConfigurationKeys.ADMISSION_DISPATCH_RATE, 0),
+        props.getDouble(ConfigurationKeys.ADMISSION_BURST_SIZE, 0));
+  }
+
+  ExecutionAdmission(final ExecutorManagerAdapter executorManager,
+      final CommonMetrics commonMetrics, final double dispatchRate, final double burstSize) {
+    this(executorManager, commonMetrics, dispatchRate, burstSize, DEFAULT_SUBMIT_RETRY_DELAY_MS);
+  }
+
+  ExecutionAdmission(final ExecutorManagerAdapter executorManager,
+      final CommonMetrics commonMetrics, final double dispatchRate, final double burstSize,
+      final long retryDelayMs) {
+    this.executorManager = executorManager;
+    this.commonMetrics = commonMetrics;
+    this.dispatchRate = dispatchRate;
+    // a second of executions by default
+    this.burstSize = burstSize > 0 ? burstSize : Math.max(1, dispatchRate);
+    this.tokens = this.burstSize;
+    this.retryDelayMs = retryDelayMs;
+  }
+
+  /**
+   * @return the offset of the execution within the jitter window of its schedule, which is the
+   * same for all the executions of a flow
+   */
+  static long getJitterMs(final ExecutableFlow exflow) {
+    final ExecutionOptions options = exflow.getExecutionOptions();
+    if (options == null || options.getFlowParameters() == null
+        || !options.getFlowParameters().containsKey(ExecutionOptions.FLOW_JITTER_WINDOW_SECONDS)) {
+      return 0;
+    }
+    final long windowMs;
+    try {
+      windowMs = Long.parseLong(
+          options.getFlowParameters().get(ExecutionOptions.FLOW_JITTER_WINDOW_SECONDS)) * 1000;
+    } catch (final NumberFormatException e) {
+      logger.error("Failed to parse the jitter window of flow " + exflow.getFlowId(), e);
+      return 0;
+    }
+    if (windowMs <= 0) {
+      return 0;
+    }
+    return Math.floorMod(Objects.hash(exflow.getProjectId(), exflow.getFlowId()), windowMs);
+  }
+
+  /**
+   * Submits the execution fired by a schedule, now or once admitted. An execution submitted later
+   * is retried if its submission fails.
+   *
+   * @return true if the execution was submitted, false if it is held
+   */
+  public boolean submit(final ExecutableFlow exflow, final String userId)
+      throws ExecutorManagerException {
+    final long jitterMs = getJitterMs(exflow);
+    synchronized (this) {
+      if ((this.dispatchRate > 0 || jitterMs > 0) && !this.shutdown) {
+        final long now = System.currentTimeMillis();
+        this.waiting.add(new HeldExecution(exflow, userId, now, now + jitterMs,
+            ExecutableFlowPriorityComparator.getPriority(exflow), this.seq++));
+        this.commonMetrics.incrementAdmissionBurstSize();
+        if (this.dispatcher == null) {
+          this.dispatcher = new Thread(this::dispatch, "azk-execution-admission");
+          this.dispatcher.setDaemon(true);
+          this.dispatcher.start();
+        }
+        notifyAll();
+        return false;
+      }
+    }
+    this.executorManager.submitExecutableFlow(exflow, userId);
+    return true;
+  }
+
+  /**
+   * @return the number of executions held
+   */
+  public synchronized int getNumHeld() {
+    return this.waiting.size() + this.released.size();
+  }
+
+  /**
+   * Stops the dispatcher, then submits the executions still held, whose schedules already fired.
+   * Called before the executor manager shuts down.
+   */
+  public void shutdown() {
+    final Thread dispatcher;
+    synchronized (this) {
+      this.shutdown = true;
+      dispatcher = this.dispatcher;
+      notifyAll();
+    }
+    if (dispatcher != null) {
+      try {
+        // done once the executions it admitted are submitted
+        dispatcher.join();
+      } catch (final InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+
+    final List<HeldExecution> remaining = new ArrayList<>();
+    synchronized (this) {
+      remaining.addAll(this.released);
+      remaining.addAll(this.waiting);
+      this.released.clear();
+      this.waiting.clear();
+    }
+    remaining.sort(DISPATCH_ORDER);
+    if (!remaining.isEmpty()) {
+      logger.info("Submitting " + remaining.size() + " held executions on shutdown");
+    }
+    for (final HeldExecution held : remaining) {
+      this.commonMetrics.decrementAdmissionBurstSize();
+      try {
+        this.executorManager.submitExecutableFlow(held.exflow, held.userId);
+      } catch (final Exception e) {
+        logger.error("Dropped the scheduled execution of flow " + held.getFlowName()
+            + " on shutdown, as its submission failed", e);
+      }
+    }
+  }
+
+  private void dispatch() {
+    while (true) {
+      final List<HeldExecution> admitted = new ArrayList<>();
+      synchronized (this) {
+        if (this.shutdown) {
+          return;
+        }
+        final long now = System.currentTimeMillis();
+        while (!this.waiting.isEmpty() && this.waiting.peek().releaseTime <= now) {
+          this.released.add(this.waiting.poll());
+        }
+        refillTokens(now);
+        final boolean queueFull = !this.released.isEmpty() && this.executorManager.isQueueFull();
+        while (!queueFull && !this.released.isEmpty()
+            && (this.dispatchRate <= 0 || this.tokens >= 1)) {
+          admitted.add(this.released.poll());
+          this.tokens -= 1;
+        }
+
+        if (admitted.isEmpty()) {
+          long waitMs = Long.MAX_VALUE;
+          if (!this.waiting.isEmpty()) {
+            waitMs = this.waiting.peek().releaseTime - now;
+          }
+          if (queueFull) {
+            waitMs = Math.min(waitMs, this.retryDelayMs);
+          } else if (!this.released.isEmpty()) {
+            waitMs = Math.min(waitMs,
+                (long) Math.ceil((1 - this.tokens) * 1000 / this.dispatchRate));
+          }
+          try {
+            wait(waitMs == Long.MAX_VALUE ? 0 : Math.max(waitMs, 1));
+          } catch (final InterruptedException e) {
+            return;
+          }
+          continue;
+        }
+      }
+
+      for (final HeldExecution held : admitted) {
+        submitAdmitted(held);
+      }
+    }
+  }
+
+  /**
+   * Submits the admitted execution, or holds it again if the queue of the executor manager filled
+   * up meanwhile, or for a retry if its submission failed.
+   */
+  private void submitAdmitted(final HeldExecution held) {
+    if (this.executorManager.isQueueFull()) {
+      synchronized (this) {
+        // admitted again before the executions released after it, once the queue has room
+        this.released.add(held);
+        this.tokens = Math.min(this.burstSize, this.tokens + 1);
+      }
+      return;
+    }
+    try {
+      this.executorManager.submitExecutableFlow(held.exflow, held.userId);
+    } catch (final ExecutorManagerException e) {
+      if (e.getReason() == ExecutorManagerException.Reason.SkippedExecution) {
+        logger.info("Skipped the scheduled execution of flow " + held.getFlowName() + ": "
+            + e.getMessage());
+        this.commonMetrics.decrementAdmissionBurstSize();
+        return;
+      }
+      retryLater(held, e);
+      return;
+    } catch (final Exception e) {
+      retryLater(held, e);
+      return;
+    }
+    this.commonMetrics.decrementAdmissionBurstSize();
+    this.commonMetrics.updateAdmissionSmoothingDelay(System.currentTimeMillis() - held.firedTime);
+  }
+
+  private void retryLater(final HeldExecution held, final Exception e) {
+    held.attempts++;
+    final long delayMs = Math.min(this.retryDelayMs << Math.min(held.attempts - 1, 16),
+        MAX_SUBMIT_RETRY_DELAY_MS);
+    logger.warn("Failed to submit flow " + held.getFlowName() + " " + held.attempts
+        + " times, retrying in " + delayMs + " ms", e);
+    synchronized (this) {
+      // submitted by shutdown if it started meanwhile
+      held.releaseTime = System.currentTimeMillis() + delayMs;
+      this.waiting.add(held);
+    }
+  }
+
+  private void refillTokens(final long now) {
+    if (this.dispatchRate <= 0) {
+      return;
+    }
+    this.tokens = Math.min(this.burstSize,
+        this.tokens + (now - this.lastRefillTime) * this.dispatchRate / 1000);
+    this.lastRefillTime = now;
+  }
+
+  private static class HeldExecution {
+
+    private final ExecutableFlow exflow;
+    private final String userId;
+    private final long firedTime;
+    private final int priority;
+    private final long seq;
+    private long releaseTime;
+    private int attempts = 0;
+
+    private HeldExecution(final ExecutableFlow exflow, final String userId, final long firedTime,
+        final long releaseTime, final int priority, final long seq) {
+      this.exflow = exflow;
+      this.userId = userId;
+      this.firedTime = firedTime;
+      this.releaseTime = releaseTime;
+      this.priority = priority;
+      this.seq = seq;
+    }
+
+    private String getFlowName() {
+      return this.exflow.getProjectName() + "." + this.exflow.getFlowId();
+    }
+  }
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2018 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package azkaban.executor;
+
+import azkaban.db.DatabaseOperator;
+import java.sql.SQLException;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import org.apache.commons.dbutils.ResultSetHandler;
+
+/**
+ * Stores the id of the first YARN application logged by each job attempt, found by the executor
+ * while the job writes its log. So the job link of the web UI doesn't have to search the log.
+ */
+@Singleton
+public class ExecutionApplicationIdDao {
+
+  private static final String INSERT_APPLICATION_ID =
+      "INSERT INTO execution_application_ids "
+          + "(exec_id, name, attempt, application_id, upload_time) VALUES (?,?,?,?,?)";
+  private static final String FETCH_APPLICATION_ID =
+      "SELECT application_id FROM execution_application_ids "
+          + "WHERE exec_id=? AND name=? AND attempt=?";
+  private static final String DELETE_APPLICATION_IDS_BY_TIME =
+      "DELETE FROM execution_application_ids WHERE upload_time < ?";
+
+  private final DatabaseOperator dbOperator;
+
+  @Inject
+  public ExecutionApplicationIdDao(final DatabaseOperator dbOperator) {
+    this.dbOperator = dbOperator;
+  }
+
+  public void uploadApplicationId(final int execId, final String name, final int attempt,
+      final String applicationId) throws ExecutorManagerException {
+    try {
+      this.dbOperator.update(INSERT_APPLICATION_ID, execId, name, attempt, applicationId,
+          System.currentTimeMillis());
+    } catch (final SQLException e) {
+      throw new ExecutorManagerException("Error uploading application id of job " + name
+          + " of execution " + execId, e);
+    }
+  }
+
+  /**
+   * @return the application id, an empty string if the log of the job attempt was searched and
+   * has none, or null if nothing is stored
+   */
+  public String fetchApplicationId(final int execId, final String name, final int attempt)
+      throws ExecutorManagerException {
+    final ResultSetHandler<String> handler = rs -> rs.next() ? rs.getString(1) : null;
+    try {
+      return this.dbOperator.query(FETCH_APPLICATION_ID, handler, execId, name, attempt);
+    } catch (final SQLException e) {
+      throw new ExecutorManagerException("Error fetching application id of job " + name
+          + " of execution " + execId, e);
+    }
+  }
+
+  public int removeApplicationIdsByTime(final long millis) throws ExecutorManagerException {
+    try {
+      return this.dbOperator.update(DELETE_APPLICATION_IDS_BY_TIME, millis);
+    } catch (final SQLException e) {
+      throw new ExecutorManagerException("Error deleting old application ids", e);
+    }
+  }
+}
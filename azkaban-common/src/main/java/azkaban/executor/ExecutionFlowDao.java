@@ -38,6 +38,10 @@ import org.apache.log4j.Logger;
 public class ExecutionFlowDao {
 
   private static final Logger logger = Logger.getLogger(ExecutionFlowDao.class);
+  private static final String UPDATE_EXECUTABLE_FLOW_DATA =
+      "UPDATE execution_flows "
+          + "SET status=?,update_time=?,start_time=?,end_time=?,enc_type=?,flow_data=? "
+          + "WHERE exec_id=?";
   private final DatabaseOperator dbOperator;
 
   @Inject
@@ -88,27 +92,6 @@ public class ExecutionFlowDao {
     }
   }
 
-  List<ExecutableFlow> fetchFlowHistory(final int skip, final int num)
-      throws ExecutorManagerException {
-    try {
-      return this.dbOperator.query(FetchExecutableFlows.FETCH_ALL_EXECUTABLE_FLOW_HISTORY,
-          new FetchExecutableFlows(), skip, num);
-    } catch (final SQLException e) {
-      throw new ExecutorManagerException("Error fetching flow History", e);
-    }
-  }
-
-  List<ExecutableFlow> fetchFlowHistory(final int projectId, final String flowId,
-      final int skip, final int num)
-      throws ExecutorManagerException {
-    try {
-      return this.dbOperator.query(FetchExecutableFlows.FETCH_EXECUTABLE_FLOW_HISTORY,
-          new FetchExecutableFlows(), projectId, flowId, skip, num);
-    } catch (final SQLException e) {
-      throw new ExecutorManagerException("Error fetching flow history", e);
-    }
-  }
-
   public List<Pair<ExecutionReference, ExecutableFlow>> fetchQueuedFlows()
       throws ExecutorManagerException {
     try {
@@ -119,18 +102,6 @@ public class ExecutionFlowDao {
     }
   }
 
-  List<ExecutableFlow> fetchFlowHistory(final int projectId, final String flowId,
-      final int skip, final int num,
-      final Status status)
-      throws ExecutorManagerException {
-    try {
-      return this.dbOperator.query(FetchExecutableFlows.FETCH_EXECUTABLE_FLOW_BY_STATUS,
-          new FetchExecutableFlows(), projectId, flowId, status.getNumVal(), skip, num);
-    } catch (final SQLException e) {
-      throw new ExecutorManagerException("Error fetching active flows", e);
-    }
-  }
-
   List<ExecutableFlow> fetchRecentlyFinishedFlows(final Duration maxAge)
       throws ExecutorManagerException {
     try {
@@ -143,105 +114,41 @@ public class ExecutionFlowDao {
     }
   }
 
-  //获取历史执行flow的信息
-  List<ExecutableFlow> fetchFlowHistory(final String projContain, final String flowContains,
-      final String userNameContains, final int status,
-      final long startTime, final long endTime,
-      final int skip, final int num)
-      throws ExecutorManagerException {
-    //"FETCH_BASE_EXECUTABLE_FLOW_QUERY = SELECT exec_id, enc_type, flow_data(此处加上，cycle_date) FROM execution_flows ";
-    String query = FetchExecutableFlows.FETCH_BASE_EXECUTABLE_FLOW_QUERY;
-    final List<Object> params = new ArrayList<>();
-
-    boolean first = true;
-    if (projContain != null && !projContain.isEmpty()) {
-      //name:projectName
-      query += " ef JOIN projects p ON ef.project_id = p.id WHERE name LIKE ?";
-      params.add('%' + projContain + '%');
-      first = false;
-    }
-
-    // todo kunkun-tang: we don't need the below complicated logics. We should just use a simple way.
-    if (flowContains != null && !flowContains.isEmpty()) {
-      if (first) {
-        query += " WHERE ";
-        first = false;
-      } else {
-        query += " AND ";
-      }
-
-      query += " flow_id LIKE ?";
-      params.add('%' + flowContains + '%');
-    }
-
-    if (userNameContains != null && !userNameContains.isEmpty()) {
-      if (first) {
-        query += " WHERE ";
-        first = false;
-      } else {
-        query += " AND ";
-      }
-      query += " submit_user LIKE ?";
-      params.add('%' + userNameContains + '%');
-    }
-
-    if (status != 0) {
-      if (first) {
-        query += " WHERE ";
-        first = false;
-      } else {
-        query += " AND ";
-      }
-      query += " status = ?";
-      params.add(status);
-    }
+  void updateExecutableFlow(final ExecutableFlow flow) throws ExecutorManagerException {
+    updateExecutableFlow(flow, EncodingType.GZIP);
+  }
 
-    if (startTime > 0) {
-      if (first) {
-        query += " WHERE ";
-        first = false;
-      } else {
-        query += " AND ";
-      }
-      query += " start_time > ?";
-      params.add(startTime);
+  //更新flow_date
+  private void updateExecutableFlow(final ExecutableFlow flow, final EncodingType encType)
+      throws ExecutorManagerException {
+    try {
+      this.dbOperator.update(UPDATE_EXECUTABLE_FLOW_DATA, getUpdateParams(flow, encType));
+    } catch (final SQLException e) {
+      throw new ExecutorManagerException("Error updating flow.", e);
     }
+  }
 
-    if (endTime > 0) {
-      if (first) {
-        query += " WHERE ";
-      } else {
-        query += " AND ";
-      }
-      query += " end_time < ?";
-      params.add(endTime);
+  /**
+   * Updates the given flows with a single JDBC batch.
+   */
+  void updateExecutableFlows(final List<ExecutableFlow> flows) throws ExecutorManagerException {
+    if (flows.isEmpty()) {
+      return;
     }
-
-    if (skip > -1 && num > 0) {
-      query += "  ORDER BY exec_id DESC LIMIT ?, ?";
-      params.add(skip);
-      params.add(num);
+    final Object[][] params = new Object[flows.size()][];
+    for (int i = 0; i < flows.size(); i++) {
+      params[i] = getUpdateParams(flows.get(i), EncodingType.GZIP);
     }
 
     try {
-      return this.dbOperator.query(query, new FetchExecutableFlows(), params.toArray());
+      this.dbOperator.batch(UPDATE_EXECUTABLE_FLOW_DATA, params);
     } catch (final SQLException e) {
-      throw new ExecutorManagerException("Error fetching active flows", e);
+      throw new ExecutorManagerException("Error updating " + flows.size() + " flows.", e);
     }
   }
 
-  void updateExecutableFlow(final ExecutableFlow flow) throws ExecutorManagerException {
-    updateExecutableFlow(flow, EncodingType.GZIP);
-  }
-
-  //更新flow_date
-  private void updateExecutableFlow(final ExecutableFlow flow, final EncodingType encType)
+  private Object[] getUpdateParams(final ExecutableFlow flow, final EncodingType encType)
       throws ExecutorManagerException {
-    final String UPDATE_EXECUTABLE_FLOW_DATA =
-        "UPDATE execution_flows "
-            + "SET status=?,update_time=?,start_time=?,end_time=?,enc_type=?,flow_data=? "
-            + "WHERE exec_id=?";
-
     //将flow对象存为字节数组放到mysql字段类型为flow_date的blob格式
     final String json = JSONUtils.toJSON(flow.toObject());
     byte[] data = null;
@@ -256,13 +163,8 @@ public class ExecutionFlowDao {
       throw new ExecutorManagerException("Error encoding the execution flow.");
     }
 
-    try {
-      this.dbOperator.update(UPDATE_EXECUTABLE_FLOW_DATA, flow.getStatus()
-          .getNumVal(), flow.getUpdateTime(), flow.getStartTime(), flow
-          .getEndTime(), encType.getNumVal(), data, flow.getExecutionId());
-    } catch (final SQLException e) {
-      throw new ExecutorManagerException("Error updating flow.", e);
-    }
+    return new Object[]{flow.getStatus().getNumVal(), flow.getUpdateTime(), flow.getStartTime(),
+        flow.getEndTime(), encType.getNumVal(), data, flow.getExecutionId()};
   }
 
   public ExecutableFlow fetchExecutableFlow(final int execId) throws ExecutorManagerException {
@@ -284,24 +186,10 @@ public class ExecutionFlowDao {
   public static class FetchExecutableFlows implements
       ResultSetHandler<List<ExecutableFlow>> {
 
-    static String FETCH_BASE_EXECUTABLE_FLOW_QUERY =
-        "SELECT exec_id, enc_type, flow_data FROM execution_flows ";
     //根据exec_id查询执行实例
     static String FETCH_EXECUTABLE_FLOW =
         "SELECT exec_id, enc_type, flow_data FROM execution_flows "
             + "WHERE exec_id=?";
-    //分页查询
-    static String FETCH_ALL_EXECUTABLE_FLOW_HISTORY =
-        "SELECT exec_id, enc_type, flow_data FROM execution_flows "
-            + "ORDER BY exec_id DESC LIMIT ?, ?";
-    static String FETCH_EXECUTABLE_FLOW_HISTORY =
-        "SELECT exec_id, enc_type, flow_data FROM execution_flows "
-            + "WHERE project_id=? AND flow_id=? "
-            + "ORDER BY exec_id DESC LIMIT ?, ?";
-    static String FETCH_EXECUTABLE_FLOW_BY_STATUS =
-        "SELECT exec_id, enc_type, flow_data FROM execution_flows "
-            + "WHERE project_id=? AND flow_id=? AND status=? "
-            + "ORDER BY exec_id DESC LIMIT ?, ?";
 
     @Override
     public List<ExecutableFlow> handle(final ResultSet rs) throws SQLException {
@@ -16,27 +16,33 @@
 
 package azkaban.executor;
 
+import azkaban.Constants.ConfigurationKeys;
 import azkaban.db.EncodingType;
 import azkaban.db.DatabaseOperator;
 import azkaban.db.DatabaseTransOperator;
 import azkaban.db.SQLTransaction;
+import azkaban.spi.KeyedStorage;
+import azkaban.spi.Storage;
+import azkaban.spi.StorageException;
 import azkaban.utils.FileIOUtils;
 import azkaban.utils.FileIOUtils.LogData;
-import azkaban.utils.GZIPUtils;
 import azkaban.utils.Pair;
-import java.io.BufferedInputStream;
+import azkaban.utils.Props;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
 import javax.inject.Inject;
 import javax.inject.Singleton;
 import org.apache.commons.dbutils.ResultSetHandler;
-import org.apache.commons.io.IOUtils;
 import org.apache.log4j.Logger;
 import org.joda.time.DateTime;
 
@@ -45,18 +51,58 @@ import org.joda.time.DateTime;
 public class ExecutionLogsDao {
 
   private static final Logger logger = Logger.getLogger(ExecutionLogsDao.class);
+  private static final String INSERT_EXECUTION_LOGS = "INSERT INTO execution_logs "
+      + "(exec_id, name, attempt, enc_type, start_byte, end_byte, "
+      + "log, upload_time) VALUES (?,?,?,?,?,?,?,?)";
+  private static final int DEFAULT_CHUNK_SIZE = 50 * 1024;
+  private static final String INSERT_EXECUTION_LOG_SEGMENT = "INSERT INTO execution_log_segments "
+      + "(exec_id, name, attempt, enc_type, start_byte, end_byte, "
+      + "storage_key, upload_time) VALUES (?,?,?,?,?,?,?,?)";
+  private static final String LOG_SEGMENTS_DIR = "execution_logs";
+  // number of log parts inserted by each JDBC batch, and number of chunks of each log segment
+  private static final int MAX_BATCH_SIZE = 64;
+  // number of log segments deleted by each batch of the retention
+  private static final int MAX_DELETED_SEGMENTS = 1000;
+
   private final DatabaseOperator dbOperator;
-  private final EncodingType defaultEncodingType = EncodingType.GZIP;
+  // null unless the logs are stored as segments
+  private final KeyedStorage storage;
+  private final boolean storageEnabled;
+  private final int chunkSize;
+  private final EncodingType defaultEncodingType;
 
   @Inject
-  ExecutionLogsDao(final DatabaseOperator dbOperator) {
+  ExecutionLogsDao(final DatabaseOperator dbOperator, final Props props, final Storage storage) {
     this.dbOperator = dbOperator;
+    this.storageEnabled = props.getBoolean(ConfigurationKeys.EXECUTION_LOGS_STORAGE_ENABLED, false);
+    if (!this.storageEnabled) {
+      this.storage = null;
+    } else if (storage instanceof KeyedStorage) {
+      this.storage = (KeyedStorage) storage;
+    } else {
+      // checked at startup rather than failing at the first upload
+      throw new IllegalArgumentException(ConfigurationKeys.EXECUTION_LOGS_STORAGE_ENABLED
+          + " requires a " + ConfigurationKeys.AZKABAN_STORAGE_TYPE + " which can put objects by"
+          + " key, but " + storage.getClass().getName() + " can't");
+    }
+    this.chunkSize = props.getInt(ConfigurationKeys.EXECUTION_LOGS_CHUNK_SIZE, DEFAULT_CHUNK_SIZE);
+    this.defaultEncodingType = EncodingType.valueOf(
+        props.getString(ConfigurationKeys.EXECUTION_LOGS_ENCODING, EncodingType.GZIP.name())
+            .toUpperCase());
   }
 
   // TODO kunkun-tang: the interface's parameter is called endByte, but actually is length.
   LogData fetchLogs(final int execId, final String name, final int attempt,
       final int startByte,
       final int length) throws ExecutorManagerException {
+    if (this.storageEnabled) {
+      final LogData logData = fetchLogSegments(execId, name, attempt, startByte, length);
+      if (logData != null) {
+        return logData;
+      }
+      // the log was uploaded to the DB before the segments were enabled
+    }
+
     final FetchLogsHandler handler = new FetchLogsHandler(startByte, length + startByte);
     try {
       return this.dbOperator.query(FetchLogsHandler.FETCH_LOGS, handler,
@@ -67,10 +113,45 @@ public class ExecutionLogsDao {
     }
   }
 
+  /**
+   * Reads the range of the log from the segments which cover it, with one index query.
+   *
+   * @return null if the log has no segments
+   */
+  private LogData fetchLogSegments(final int execId, final String name, final int attempt,
+      final int startByte, final int length) throws ExecutorManagerException {
+    final List<LogSegmentIndex> segments;
+    try {
+      segments = this.dbOperator.query(FetchLogSegmentsHandler.FETCH_LOG_SEGMENTS,
+          new FetchLogSegmentsHandler(), execId, name, attempt, startByte, startByte + length);
+    } catch (final SQLException e) {
+      throw new ExecutorManagerException("Error fetching log segments " + execId
+          + " : " + name, e);
+    }
+    if (segments.isEmpty()) {
+      return null;
+    }
+
+    final ByteArrayOutputStream byteStream = new ByteArrayOutputStream();
+    for (final LogSegmentIndex segment : segments) {
+      try (InputStream in = this.storage.get(segment.storageKey)) {
+        byteStream.write(LogSegment.read(in, segment.encType, segment.startByte, startByte,
+            startByte + length));
+      } catch (final IOException e) {
+        throw new ExecutorManagerException("Error reading log segment " + segment.storageKey, e);
+      }
+    }
+    return toLogData(Math.max(startByte, segments.get(0).startByte), byteStream.toByteArray());
+  }
+
   public void uploadLogFile(final int execId, final String name, final int attempt,
       final File... files) throws ExecutorManagerException {
+    if (this.storageEnabled) {
+      uploadLogSegments(execId, name, attempt, files);
+      return;
+    }
     final SQLTransaction<Integer> transaction = transOperator -> {
-      uploadLogFile(transOperator, execId, name, attempt, files, this.defaultEncodingType);
+      uploadLogFile(transOperator, execId, name, attempt, files);
       transOperator.getConnection().commit();
       return 1;
     };
@@ -82,49 +163,79 @@ public class ExecutionLogsDao {
     }
   }
 
+  /**
+   * Uploads consecutive chunks of a log, the first one starting at startByte, in one batch.
+   */
+  public void uploadLogChunks(final int execId, final String name, final int attempt,
+      final int startByte, final List<byte[]> chunks) throws ExecutorManagerException {
+    if (this.storageEnabled) {
+      try (LogChunkEncoder encoder = new LogChunkEncoder(this.defaultEncodingType)) {
+        this.dbOperator.update(INSERT_EXECUTION_LOG_SEGMENT, putLogSegment(encoder, execId, name,
+            attempt, startByte, chunks, DateTime.now().getMillis()));
+      } catch (final IOException | SQLException | StorageException e) {
+        logger.error("uploadLogChunks failed.", e);
+        throw new ExecutorManagerException(
+            "Error uploading log segment of " + execId + " : " + name, e);
+      }
+      return;
+    }
+    final Object[][] params = new Object[chunks.size()][];
+    final long uploadTime = DateTime.now().getMillis();
+    int chunkStart = startByte;
+    try (LogChunkEncoder encoder = new LogChunkEncoder(this.defaultEncodingType)) {
+      for (int i = 0; i < chunks.size(); i++) {
+        final byte[] chunk = chunks.get(i);
+        params[i] = getLogPartParams(encoder, execId, name, attempt, chunkStart, chunk,
+            chunk.length, uploadTime);
+        chunkStart += chunk.length;
+      }
+      // a partly written batch would make its retry fail on the rows already written
+      this.dbOperator.transaction(transOperator -> transOperator.batch(INSERT_EXECUTION_LOGS,
+          params));
+    } catch (final SQLException e) {
+      logger.error("uploadLogChunks failed.", e);
+      throw new ExecutorManagerException("Error uploading log chunks of " + execId + " : " + name,
+          e);
+    }
+  }
+
   private void uploadLogFile(final DatabaseTransOperator transOperator, final int execId,
-      final String name,
-      final int attempt, final File[] files, final EncodingType encType)
-      throws SQLException {
-    // 50K buffer... if logs are greater than this, we chunk.
+      final String name, final int attempt, final File[] files) throws SQLException {
+    // if logs are greater than the chunk size, we chunk.
     // However, we better prevent large log files from being uploaded somehow
-    final byte[] buffer = new byte[50 * 1024];
+    final byte[] buffer = new byte[this.chunkSize];
+    final List<Object[]> batch = new ArrayList<>();
+    final long uploadTime = DateTime.now().getMillis();
     int pos = 0;
-    int length = buffer.length;
     int startByte = 0;
-    try {
-      for (int i = 0; i < files.length; ++i) {
-        final File file = files[i];
-
-        final BufferedInputStream bufferedStream =
-            new BufferedInputStream(new FileInputStream(file));
-        try {
-          int size = bufferedStream.read(buffer, pos, length);
+    try (LogChunkEncoder encoder = new LogChunkEncoder(this.defaultEncodingType)) {
+      for (final File file : files) {
+        try (InputStream in = new FileInputStream(file)) {
+          int size = in.read(buffer, pos, buffer.length - pos);
           while (size >= 0) {
-            if (pos + size == buffer.length) {
-              // Flush here.
-              uploadLogPart(transOperator, execId, name, attempt, startByte,
-                  startByte + buffer.length, encType, buffer, buffer.length);
-
+            pos += size;
+            if (pos == buffer.length) {
+              batch.add(getLogPartParams(encoder, execId, name, attempt, startByte, buffer, pos,
+                  uploadTime));
+              startByte += pos;
               pos = 0;
-              length = buffer.length;
-              startByte += buffer.length;
-            } else {
-              // Usually end of file.
-              pos += size;
-              length = buffer.length - pos;
+              if (batch.size() == MAX_BATCH_SIZE) {
+                insertLogParts(transOperator, batch);
+                batch.clear();
+              }
             }
-            size = bufferedStream.read(buffer, pos, length);
+            size = in.read(buffer, pos, buffer.length - pos);
           }
-        } finally {
-          IOUtils.closeQuietly(bufferedStream);
         }
       }
 
       // Final commit of buffer.
       if (pos > 0) {
-        uploadLogPart(transOperator, execId, name, attempt, startByte, startByte
-            + pos, encType, buffer, pos);
+        batch.add(getLogPartParams(encoder, execId, name, attempt, startByte, buffer, pos,
+            uploadTime));
+      }
+      if (!batch.isEmpty()) {
+        insertLogParts(transOperator, batch);
       }
     } catch (final SQLException e) {
       logger.error("Error writing log part.", e);
@@ -135,12 +246,101 @@ public class ExecutionLogsDao {
     }
   }
 
+  /**
+   * Uploads the files as segments of MAX_BATCH_SIZE chunks, and inserts the index of the segments
+   * in one batch once they are all in the storage.
+   */
+  private void uploadLogSegments(final int execId, final String name, final int attempt,
+      final File[] files) throws ExecutorManagerException {
+    final byte[] buffer = new byte[this.chunkSize];
+    final List<byte[]> chunks = new ArrayList<>();
+    final List<Object[]> segments = new ArrayList<>();
+    final long uploadTime = DateTime.now().getMillis();
+    int pos = 0;
+    int startByte = 0;
+    try (LogChunkEncoder encoder = new LogChunkEncoder(this.defaultEncodingType)) {
+      for (final File file : files) {
+        try (InputStream in = new FileInputStream(file)) {
+          int size = in.read(buffer, pos, buffer.length - pos);
+          while (size >= 0) {
+            pos += size;
+            if (pos == buffer.length) {
+              chunks.add(buffer.clone());
+              pos = 0;
+              if (chunks.size() == MAX_BATCH_SIZE) {
+                segments.add(
+                    putLogSegment(encoder, execId, name, attempt, startByte, chunks, uploadTime));
+                startByte += chunks.size() * buffer.length;
+                chunks.clear();
+              }
+            }
+            size = in.read(buffer, pos, buffer.length - pos);
+          }
+        }
+      }
+
+      if (pos > 0) {
+        chunks.add(Arrays.copyOf(buffer, pos));
+      }
+      if (!chunks.isEmpty()) {
+        segments.add(putLogSegment(encoder, execId, name, attempt, startByte, chunks, uploadTime));
+      }
+      if (!segments.isEmpty()) {
+        this.dbOperator.batch(INSERT_EXECUTION_LOG_SEGMENT,
+            segments.toArray(new Object[segments.size()][]));
+      }
+    } catch (final IOException | SQLException | StorageException e) {
+      logger.error("uploadLogSegments failed.", e);
+      throw new ExecutorManagerException("Error uploading log segments of " + execId + " : "
+          + name, e);
+    }
+  }
+
+  /**
+   * Puts the chunks in the storage as one segment.
+   *
+   * @return the parameters of the index row of the segment
+   */
+  private Object[] putLogSegment(final LogChunkEncoder encoder, final int execId,
+      final String name, final int attempt, final int startByte, final List<byte[]> chunks,
+      final long uploadTime) throws IOException {
+    final File segmentFile = File.createTempFile("log-segment-", ".tmp");
+    try {
+      final int length = LogSegment.write(encoder, chunks, segmentFile);
+      // the name of the job isn't part of the key, it may contain characters invalid in a path
+      final String storageKey = this.storage.put(
+          LOG_SEGMENTS_DIR + "/" + execId + "/" + UUID.randomUUID() + ".log", segmentFile);
+      return new Object[]{execId, name, attempt, encoder.getEncodingType().getNumVal(), startByte,
+          startByte + length, storageKey, uploadTime};
+    } finally {
+      if (!segmentFile.delete()) {
+        logger.warn("Unable to delete " + segmentFile);
+      }
+    }
+  }
+
+  private void insertLogParts(final DatabaseTransOperator transOperator,
+      final List<Object[]> batch) throws SQLException {
+    transOperator.batch(INSERT_EXECUTION_LOGS, batch.toArray(new Object[batch.size()][]));
+  }
+
+  private Object[] getLogPartParams(final LogChunkEncoder encoder, final int execId,
+      final String name, final int attempt, final int startByte, final byte[] buffer,
+      final int length, final long uploadTime) {
+    return new Object[]{execId, name, attempt, encoder.getEncodingType().getNumVal(), startByte,
+        startByte + length, encoder.encode(buffer, 0, length), uploadTime};
+  }
+
   int removeExecutionLogsByTime(final long millis)
       throws ExecutorManagerException {
     final String DELETE_BY_TIME =
         "DELETE FROM execution_logs WHERE upload_time < ?";
     try {
-      return this.dbOperator.update(DELETE_BY_TIME, millis);
+      int count = this.dbOperator.update(DELETE_BY_TIME, millis);
+      if (this.storageEnabled) {
+        count += removeLogSegmentsByTime(millis);
+      }
+      return count;
     } catch (final SQLException e) {
       logger.error("delete execution logs failed", e);
       throw new ExecutorManagerException(
@@ -148,26 +348,44 @@ public class ExecutionLogsDao {
     }
   }
 
-  private void uploadLogPart(final DatabaseTransOperator transOperator, final int execId,
-      final String name,
-      final int attempt, final int startByte, final int endByte,
-      final EncodingType encType,
-      final byte[] buffer, final int length)
-      throws SQLException, IOException {
-    final String INSERT_EXECUTION_LOGS = "INSERT INTO execution_logs "
-        + "(exec_id, name, attempt, enc_type, start_byte, end_byte, "
-        + "log, upload_time) VALUES (?,?,?,?,?,?,?,?)";
+  /**
+   * Deletes the index rows of the old segments by primary key, a small batch at a time so the index
+   * isn't locked for long, then the segments from the storage. A failure in between leaves
+   * unreferenced objects in the storage rather than index rows pointing to missing segments.
+   */
+  private int removeLogSegmentsByTime(final long millis) throws SQLException {
+    final String DELETE_SEGMENT = "DELETE FROM execution_log_segments "
+        + "WHERE exec_id=? AND name=? AND attempt=? AND start_byte=?";
+    int count = 0;
+    List<LogSegmentIndex> segments;
+    do {
+      segments = this.dbOperator.query(FetchLogSegmentsHandler.FETCH_OLD_LOG_SEGMENTS,
+          new FetchLogSegmentsHandler(), millis, MAX_DELETED_SEGMENTS);
+      final Object[][] params = new Object[segments.size()][];
+      for (int i = 0; i < segments.size(); i++) {
+        final LogSegmentIndex segment = segments.get(i);
+        params[i] = new Object[]{segment.execId, segment.name, segment.attempt,
+            segment.startByte};
+      }
+      if (params.length > 0) {
+        this.dbOperator.batch(DELETE_SEGMENT, params);
+      }
+      for (final LogSegmentIndex segment : segments) {
+        if (!this.storage.delete(segment.storageKey)) {
+          logger.warn("Log segment " + segment.storageKey + " was already deleted.");
+        }
+      }
+      count += segments.size();
+    } while (segments.size() == MAX_DELETED_SEGMENTS);
+    return count;
+  }
 
-    byte[] buf = buffer;
-    if (encType == EncodingType.GZIP) {
-      buf = GZIPUtils.gzipBytes(buf, 0, length);
-    } else if (length < buf.length) {
-      buf = Arrays.copyOf(buffer, length);
-    }
+  private static LogData toLogData(final int startByte, final byte[] buffer) {
+    final Pair<Integer, Integer> result =
+        FileIOUtils.getUtf8Range(buffer, 0, buffer.length);
 
-    transOperator.update(INSERT_EXECUTION_LOGS, execId, name, attempt,
-        encType.getNumVal(), startByte, startByte + length, buf, DateTime.now()
-            .getMillis());
+    return new LogData(startByte + result.getFirst(), result.getSecond(),
+        new String(buffer, result.getFirst(), result.getSecond(), StandardCharsets.UTF_8));
   }
 
   //查询任务运行日志的处理
@@ -211,10 +429,7 @@ public class ExecutionLogsDao {
             this.endByte < endByte ? this.endByte - startByte - offset
                 : endByte - startByte - offset;
         try {
-          byte[] buffer = data;
-          if (encType == EncodingType.GZIP) {
-            buffer = GZIPUtils.unGzipBytes(data);
-          }
+          final byte[] buffer = LogChunkEncoder.decode(encType, data);
 
           byteStream.write(buffer, offset, length);
         } catch (final IOException e) {
@@ -222,12 +437,50 @@ public class ExecutionLogsDao {
         }
       } while (rs.next());
 
-      final byte[] buffer = byteStream.toByteArray();
-      final Pair<Integer, Integer> result =
-          FileIOUtils.getUtf8Range(buffer, 0, buffer.length);
+      return toLogData(this.startByte, byteStream.toByteArray());
+    }
+  }
+
+  private static class LogSegmentIndex {
+
+    private final int execId;
+    private final String name;
+    private final int attempt;
+    private final EncodingType encType;
+    private final int startByte;
+    private final String storageKey;
+
+    private LogSegmentIndex(final int execId, final String name, final int attempt,
+        final EncodingType encType, final int startByte, final String storageKey) {
+      this.execId = execId;
+      this.name = name;
+      this.attempt = attempt;
+      this.encType = encType;
+      this.startByte = startByte;
+      this.storageKey = storageKey;
+    }
+  }
+
+  private static class FetchLogSegmentsHandler implements
+      ResultSetHandler<List<LogSegmentIndex>> {
 
-      return new LogData(this.startByte + result.getFirst(), result.getSecond(),
-          new String(buffer, result.getFirst(), result.getSecond(), StandardCharsets.UTF_8));
+    private static final String FETCH_LOG_SEGMENTS =
+        "SELECT exec_id, name, attempt, enc_type, start_byte, storage_key "
+            + "FROM execution_log_segments "
+            + "WHERE exec_id=? AND name=? AND attempt=? AND end_byte > ? "
+            + "AND start_byte < ? ORDER BY start_byte";
+    private static final String FETCH_OLD_LOG_SEGMENTS =
+        "SELECT exec_id, name, attempt, enc_type, start_byte, storage_key "
+            + "FROM execution_log_segments WHERE upload_time < ? LIMIT ?";
+
+    @Override
+    public List<LogSegmentIndex> handle(final ResultSet rs) throws SQLException {
+      final List<LogSegmentIndex> segments = new ArrayList<>();
+      while (rs.next()) {
+        segments.add(new LogSegmentIndex(rs.getInt(1), rs.getString(2), rs.getInt(3),
+            EncodingType.fromInteger(rs.getInt(4)), rs.getInt(5), rs.getString(6)));
+      }
+      return segments;
     }
   }
 }
@@ -0,0 +1,177 @@
+/*
+ * Copyright 2018 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package azkaban.executor;
+
+import azkaban.Constants.ConfigurationKeys;
+import azkaban.db.DatabaseOperator;
+import azkaban.utils.JSONUtils;
+import azkaban.utils.Pair;
+import azkaban.utils.Props;
+import azkaban.utils.TypedMapWrapper;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import org.apache.commons.dbutils.ResultSetHandler;
+
+/**
+ * Stores the state of the nodes of running flows as one row per node, so that a node transition
+ * doesn't rewrite the whole serialized flow in execution_flows. The serialized flow is only
+ * written when the flow is submitted, when it starts running and when it finishes; in between,
+ * {@link #applyNodeStates(ExecutableFlow)} overlays the node rows on it.
+ *
+ * Enabled by {@link ConfigurationKeys#EXECUTION_NODE_STATES_ENABLED}.
+ */
+@Singleton
+public class ExecutionNodeStateDao {
+
+  // node id of the row holding the state of the flow itself
+  static final String FLOW_NODE_ID = "";
+
+  private static final String UPDATE_FLOW_STATUS =
+      "UPDATE execution_flows SET status=?,update_time=?,start_time=?,end_time=? "
+          + "WHERE exec_id=?";
+  private static final String INSERT_NODE_STATE =
+      "INSERT INTO execution_node_states (exec_id, node_id, status, update_time, node_data) "
+          + "VALUES (?,?,?,?,?) ON DUPLICATE KEY UPDATE status=VALUES(status), "
+          + "update_time=VALUES(update_time), node_data=VALUES(node_data)";
+  private static final String MERGE_NODE_STATE =
+      "MERGE INTO execution_node_states (exec_id, node_id, status, update_time, node_data) "
+          + "KEY (exec_id, node_id) VALUES (?,?,?,?,?)";
+  private static final String FETCH_NODE_STATES =
+      "SELECT node_id, node_data FROM execution_node_states WHERE exec_id=?";
+  private static final String DELETE_NODE_STATES =
+      "DELETE FROM execution_node_states WHERE exec_id=?";
+
+  private final DatabaseOperator dbOperator;
+  private final boolean enabled;
+
+  @Inject
+  public ExecutionNodeStateDao(final DatabaseOperator dbOperator, final Props props) {
+    this.dbOperator = dbOperator;
+    this.enabled = props.getBoolean(ConfigurationKeys.EXECUTION_NODE_STATES_ENABLED, false);
+  }
+
+  public boolean isEnabled() {
+    return this.enabled;
+  }
+
+  /**
+   * Writes the status of the flow, and the state of its nodes which were updated after
+   * lastUpdateTime.
+   */
+  public void updateNodeStates(final ExecutableFlow flow, final long lastUpdateTime)
+      throws ExecutorManagerException {
+    final List<Object[]> rows = new ArrayList<>();
+    rows.add(getRow(flow, FLOW_NODE_ID, flow));
+    addUpdatedNodes(flow, flow, lastUpdateTime, rows);
+
+    final String upsert = this.dbOperator.getDataSource().allowsOnDuplicateKey()
+        ? INSERT_NODE_STATE : MERGE_NODE_STATE;
+    try {
+      this.dbOperator.transaction(transOperator -> {
+        transOperator.update(UPDATE_FLOW_STATUS, flow.getStatus().getNumVal(),
+            flow.getUpdateTime(), flow.getStartTime(), flow.getEndTime(), flow.getExecutionId());
+        transOperator.batch(upsert, rows.toArray(new Object[rows.size()][]));
+        return null;
+      });
+    } catch (final SQLException e) {
+      throw new ExecutorManagerException(
+          "Error updating node states of execution " + flow.getExecutionId(), e);
+    }
+  }
+
+  /**
+   * Applies the stored node states which are newer than the state of the nodes of the flow.
+   */
+  public void applyNodeStates(final ExecutableFlow flow) throws ExecutorManagerException {
+    final List<Pair<String, Map<String, Object>>> nodeStates;
+    try {
+      nodeStates = this.dbOperator
+          .query(FETCH_NODE_STATES, new FetchNodeStates(), flow.getExecutionId());
+    } catch (final SQLException e) {
+      throw new ExecutorManagerException(
+          "Error fetching node states of execution " + flow.getExecutionId(), e);
+    }
+
+    for (final Pair<String, Map<String, Object>> nodeState : nodeStates) {
+      final ExecutableNode node = FLOW_NODE_ID.equals(nodeState.getFirst())
+          ? flow : flow.getExecutableNodePath(nodeState.getFirst());
+      final TypedMapWrapper<String, Object> updateData =
+          new TypedMapWrapper<>(nodeState.getSecond());
+      if (node != null && updateData.getLong(ExecutableNode.UPDATETIME_PARAM)
+          >= node.getUpdateTime()) {
+        node.applyUpdateObject(updateData);
+      }
+    }
+  }
+
+  public void removeNodeStates(final int execId) throws ExecutorManagerException {
+    try {
+      this.dbOperator.update(DELETE_NODE_STATES, execId);
+    } catch (final SQLException e) {
+      throw new ExecutorManagerException("Error deleting node states of execution " + execId, e);
+    }
+  }
+
+  private void addUpdatedNodes(final ExecutableFlow flow, final ExecutableFlowBase parent,
+      final long lastUpdateTime, final List<Object[]> rows) {
+    for (final ExecutableNode node : parent.getExecutableNodes()) {
+      if (node.getUpdateTime() > lastUpdateTime) {
+        rows.add(getRow(flow, node.getNestedId(), node));
+      }
+      if (node instanceof ExecutableFlowBase) {
+        addUpdatedNodes(flow, (ExecutableFlowBase) node, lastUpdateTime, rows);
+      }
+    }
+  }
+
+  private Object[] getRow(final ExecutableFlow flow, final String nodeId,
+      final ExecutableNode node) {
+    final byte[] nodeData = JSONUtils.toJSON(node.toUpdateObject())
+        .getBytes(StandardCharsets.UTF_8);
+    return new Object[]{flow.getExecutionId(), nodeId, node.getStatus().getNumVal(),
+        node.getUpdateTime(), nodeData};
+  }
+
+  private static class FetchNodeStates implements
+      ResultSetHandler<List<Pair<String, Map<String, Object>>>> {
+
+    @Override
+    public List<Pair<String, Map<String, Object>>> handle(final ResultSet rs)
+        throws SQLException {
+      final List<Pair<String, Map<String, Object>>> nodeStates = new ArrayList<>();
+      while (rs.next()) {
+        final String nodeId = rs.getString(1);
+        try {
+          @SuppressWarnings("unchecked") final Map<String, Object> nodeData =
+              (Map<String, Object>) JSONUtils
+                  .parseJSONFromString(new String(rs.getBytes(2), StandardCharsets.UTF_8));
+          nodeStates.add(new Pair<>(nodeId, nodeData));
+        } catch (final IOException e) {
+          throw new SQLException("Error retrieving state of node " + nodeId, e);
+        }
+      }
+      return nodeStates;
+    }
+  }
+}
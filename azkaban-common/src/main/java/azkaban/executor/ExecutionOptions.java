@@ -37,6 +37,8 @@ public class ExecutionOptions {
   public static final String FLOW_PRIORITY = "flowPriority";
   /* override dispatcher selection and use executor id specified */
   public static final String USE_EXECUTOR = "useExecutor";
+  /* seconds after its scheduled time within which a scheduled flow may be started */
+  public static final String FLOW_JITTER_WINDOW_SECONDS = "flowJitterWindowSeconds";
   public static final int DEFAULT_FLOW_PRIORITY = 5;
 
   private static final String FLOW_PARAMETERS = "flowParameters";
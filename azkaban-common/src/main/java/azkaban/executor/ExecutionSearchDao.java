@@ -0,0 +1,320 @@
+/*
+ * Copyright 2018 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package azkaban.executor;
+
+import azkaban.db.DatabaseOperator;
+import azkaban.db.SQLTransaction;
+import azkaban.executor.ExecutionSummaryDao.FetchExecutionSummaries;
+import com.google.common.base.Strings;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import org.apache.commons.dbutils.ResultSetHandler;
+
+/**
+ * Stores the search index of the executions: the distinct project names, flow ids and submit users,
+ * called terms, in execution_search_terms, and the terms of each execution in execution_search,
+ * which is indexed by term.
+ */
+@Singleton
+public class ExecutionSearchDao {
+
+  private static final String INSERT_TERM =
+      "INSERT INTO execution_search_terms (field, term) VALUES (?,?)";
+  private static final String FETCH_TERM =
+      "SELECT id, field, term FROM execution_search_terms WHERE field=? AND term=?";
+  private static final String FETCH_TERMS_AFTER =
+      "SELECT id, field, term FROM execution_search_terms WHERE id>? ORDER BY id";
+  private static final String INSERT_EXECUTION =
+      "INSERT INTO execution_search (exec_id, project_term, flow_term, user_term) "
+          + "VALUES (?,?,?,?)";
+  private static final String FETCH_UNINDEXED_EXECUTIONS_BEFORE =
+      "SELECT ef.exec_id, p.name, ef.flow_id, ef.submit_user FROM execution_flows ef "
+          + "LEFT JOIN projects p ON ef.project_id = p.id "
+          + "LEFT JOIN execution_search s ON ef.exec_id = s.exec_id "
+          + "WHERE s.exec_id IS NULL AND ef.exec_id<? ORDER BY ef.exec_id DESC LIMIT ?";
+  private static final String FETCH_INDEXED_EXECUTIONS =
+      "SELECT exec_id FROM execution_search WHERE exec_id BETWEEN ? AND ?";
+  private static final String FETCH_MATCHING_TERM_IDS =
+      "SELECT id FROM execution_search_terms WHERE field=? AND LOWER(term) LIKE ? ESCAPE '"
+          + TermFilter.LIKE_ESCAPE + "'";
+
+  private final DatabaseOperator dbOperator;
+
+  @Inject
+  public ExecutionSearchDao(final DatabaseOperator dbOperator) {
+    this.dbOperator = dbOperator;
+  }
+
+  /**
+   * Adds the term, or fetches its id if another server added it first.
+   */
+  Term addTerm(final int field, final String term) throws ExecutorManagerException {
+    final SQLTransaction<Long> insertAndGetLastID = transOperator -> {
+      transOperator.update(INSERT_TERM, field, term);
+      transOperator.getConnection().commit();
+      return transOperator.getLastInsertId();
+    };
+
+    try {
+      return new Term((int) (long) this.dbOperator.transaction(insertAndGetLastID), field, term);
+    } catch (final SQLException e) {
+      final List<Term> terms = fetchTerms(FETCH_TERM, field, term);
+      if (terms.isEmpty()) {
+        throw new ExecutorManagerException("Error adding search term " + term, e);
+      }
+      return terms.get(0);
+    }
+  }
+
+  /**
+   * @return the terms added after the term of id afterId, by id
+   */
+  List<Term> fetchTermsAfter(final int afterId) throws ExecutorManagerException {
+    return fetchTerms(FETCH_TERMS_AFTER, afterId);
+  }
+
+  /**
+   * Indexes the executions with a single JDBC batch.
+   *
+   * @param executions the id of each execution, followed by the ids of its project, flow and user
+   * terms
+   */
+  void indexExecutions(final List<int[]> executions) throws ExecutorManagerException {
+    if (executions.isEmpty()) {
+      return;
+    }
+    final Object[][] params = new Object[executions.size()][];
+    for (int i = 0; i < executions.size(); i++) {
+      final int[] execution = executions.get(i);
+      params[i] = new Object[]{execution[0], execution[1], execution[2], execution[3]};
+    }
+
+    try {
+      this.dbOperator.batch(INSERT_EXECUTION, params);
+    } catch (final SQLException e) {
+      throw new ExecutorManagerException("Error indexing " + executions.size() + " executions",
+          e);
+    }
+  }
+
+  /**
+   * @return the executions before beforeExecId which aren't indexed, from the latest
+   */
+  List<ExecutionTerms> fetchUnindexedExecutionsBefore(final int beforeExecId, final int num)
+      throws ExecutorManagerException {
+    try {
+      return this.dbOperator.query(FETCH_UNINDEXED_EXECUTIONS_BEFORE, rs -> {
+        final List<ExecutionTerms> executions = new ArrayList<>();
+        while (rs.next()) {
+          executions.add(new ExecutionTerms(rs.getInt(1), rs.getString(2), rs.getString(3),
+              rs.getString(4)));
+        }
+        return executions;
+      }, beforeExecId, num);
+    } catch (final SQLException e) {
+      throw new ExecutorManagerException("Error fetching executions to index", e);
+    }
+  }
+
+  /**
+   * @return the ids of the indexed executions between the two ids, inclusive
+   */
+  Set<Integer> fetchIndexedExecutions(final int fromExecId, final int toExecId)
+      throws ExecutorManagerException {
+    try {
+      return this.dbOperator.query(FETCH_INDEXED_EXECUTIONS, rs -> {
+        final Set<Integer> execIds = new HashSet<>();
+        while (rs.next()) {
+          execIds.add(rs.getInt(1));
+        }
+        return execIds;
+      }, fromExecId, toExecId);
+    } catch (final SQLException e) {
+      throw new ExecutorManagerException("Error fetching indexed executions", e);
+    }
+  }
+
+  /**
+   * Fetches the executions matching all the filters given, the latest first. A null filter is no
+   * filter on the field, and so are a status of 0 and negative times.
+   */
+  List<ExecutionSummary> search(final TermFilter projectTerms, final TermFilter flowTerms,
+      final TermFilter userTerms, final int status, final long startTime, final long endTime,
+      final int skip, final int num) throws ExecutorManagerException {
+    String query = FetchExecutionSummaries.FETCH_BASE_EXECUTION_SUMMARY_QUERY;
+    final List<String> conditions = new ArrayList<>();
+    final List<Object> params = new ArrayList<>();
+
+    if (projectTerms != null || flowTerms != null || userTerms != null) {
+      query += " JOIN execution_search s ON ef.exec_id = s.exec_id";
+      addTermCondition("s.project_term", projectTerms, conditions, params);
+      addTermCondition("s.flow_term", flowTerms, conditions, params);
+      addTermCondition("s.user_term", userTerms, conditions, params);
+    }
+    if (status != 0) {
+      conditions.add("ef.status = ?");
+      params.add(status);
+    }
+    if (startTime > 0) {
+      conditions.add("ef.start_time > ?");
+      params.add(startTime);
+    }
+    if (endTime > 0) {
+      conditions.add("ef.end_time < ?");
+      params.add(endTime);
+    }
+
+    if (!conditions.isEmpty()) {
+      query += " WHERE " + String.join(" AND ", conditions);
+    }
+    if (skip > -1 && num > 0) {
+      query += " ORDER BY ef.exec_id DESC LIMIT ?, ?";
+      params.add(skip);
+      params.add(num);
+    }
+
+    try {
+      return this.dbOperator.query(query, new FetchExecutionSummaries(), params.toArray());
+    } catch (final SQLException e) {
+      throw new ExecutorManagerException("Error searching flow history", e);
+    }
+  }
+
+  private static void addTermCondition(final String column, final TermFilter terms,
+      final List<String> conditions, final List<Object> params) {
+    if (terms == null) {
+      return;
+    }
+    if (terms.ids != null) {
+      conditions.add(column + " IN ("
+          + String.join(",", Collections.nCopies(terms.ids.size(), "?")) + ")");
+      params.addAll(terms.ids);
+    } else {
+      conditions.add(column + " IN (" + FETCH_MATCHING_TERM_IDS + ")");
+      params.add(terms.field);
+      params.add(terms.pattern);
+    }
+  }
+
+  /**
+   * @return true if the exception was caused by an execution or a term which is already indexed
+   */
+  static boolean isDuplicate(final ExecutorManagerException e) {
+    // the class of SQL states of the integrity constraint violations
+    return e.getCause() instanceof SQLException
+        && Strings.nullToEmpty(((SQLException) e.getCause()).getSQLState()).startsWith("23");
+  }
+
+  private List<Term> fetchTerms(final String query, final Object... params)
+      throws ExecutorManagerException {
+    try {
+      return this.dbOperator.query(query, new FetchTerms(), params);
+    } catch (final SQLException e) {
+      throw new ExecutorManagerException("Error fetching search terms", e);
+    }
+  }
+
+  static class Term {
+
+    final int id;
+    final int field;
+    final String term;
+
+    Term(final int id, final int field, final String term) {
+      this.id = id;
+      this.field = field;
+      this.term = term;
+    }
+  }
+
+  /**
+   * The terms of a field matched by a search: their ids, or a LIKE pattern matching them when
+   * there are too many of them for an IN list.
+   */
+  static class TermFilter {
+
+    private static final char LIKE_ESCAPE = '!';
+
+    final int field;
+    final Collection<Integer> ids;
+    // matches the lower case terms
+    final String pattern;
+
+    private TermFilter(final int field, final Collection<Integer> ids, final String pattern) {
+      this.field = field;
+      this.ids = ids;
+      this.pattern = pattern;
+    }
+
+    static TermFilter ofIds(final int field, final Collection<Integer> ids) {
+      return new TermFilter(field, ids, null);
+    }
+
+    /**
+     * @param searchTerm lower case
+     */
+    static TermFilter ofSearchTerm(final int field, final String searchTerm,
+        final boolean prefix) {
+      final StringBuilder pattern = new StringBuilder(prefix ? "" : "%");
+      for (final char c : searchTerm.toCharArray()) {
+        if (c == LIKE_ESCAPE || c == '%' || c == '_') {
+          pattern.append(LIKE_ESCAPE);
+        }
+        pattern.append(c);
+      }
+      return new TermFilter(field, null, pattern.append('%').toString());
+    }
+  }
+
+  /**
+   * The searched fields of an execution.
+   */
+  static class ExecutionTerms {
+
+    final int execId;
+    final String projectName;
+    final String flowId;
+    final String submitUser;
+
+    ExecutionTerms(final int execId, final String projectName, final String flowId,
+        final String submitUser) {
+      this.execId = execId;
+      this.projectName = projectName;
+      this.flowId = flowId;
+      this.submitUser = submitUser;
+    }
+  }
+
+  private static class FetchTerms implements ResultSetHandler<List<Term>> {
+
+    @Override
+    public List<Term> handle(final ResultSet rs) throws SQLException {
+      final List<Term> terms = new ArrayList<>();
+      while (rs.next()) {
+        terms.add(new Term(rs.getInt(1), rs.getInt(2), rs.getString(3)));
+      }
+      return terms;
+    }
+  }
+}
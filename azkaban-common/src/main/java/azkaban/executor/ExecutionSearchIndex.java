@@ -0,0 +1,222 @@
+/*
+ * Copyright 2018 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package azkaban.executor;
+
+import azkaban.executor.ExecutionSearchDao.ExecutionTerms;
+import azkaban.executor.ExecutionSearchDao.Term;
+import azkaban.executor.ExecutionSearchDao.TermFilter;
+import com.google.common.base.Strings;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import org.apache.log4j.Logger;
+
+/**
+ * Searches the executions by project name, flow id and submit user without scanning
+ * execution_flows.
+ *
+ * An execution is indexed when it's submitted, under the ids of its terms: its project name, flow
+ * id and submit user. These don't change afterwards, and the status and times of the execution
+ * are filtered on execution_flows itself. There are much fewer distinct terms than executions, so
+ * a search matches the terms in memory, then fetches the executions indexed under the matched
+ * terms. A search term matches the terms containing it, or the terms starting with it if it
+ * starts with {@value #PREFIX_ANCHOR}. The matching ignores the case. A search term matching more
+ * than {@value #MAX_TERM_IDS} terms is matched again by the DB, rather than sending all their ids.
+ *
+ * The executions which aren't indexed, because they were submitted before the index existed or
+ * their indexing failed, are indexed in the background, from the latest, once
+ * {@link #startBackfill()} is called by the web server. Each web server does so, and skips the
+ * executions another one indexed first.
+ */
+@Singleton
+public class ExecutionSearchIndex {
+
+  static final int PROJECT_FIELD = 1;
+  static final int FLOW_FIELD = 2;
+  static final int USER_FIELD = 3;
+  static final String PREFIX_ANCHOR = "^";
+  static final int MAX_TERM_IDS = 1000;
+
+  private static final Logger logger = Logger.getLogger(ExecutionSearchIndex.class);
+  private static final int BACKFILL_BATCH_SIZE = 1000;
+
+  private final ExecutionSearchDao searchDao;
+  // by field, the id of each term
+  private final Map<Integer, Map<String, Integer>> termIds = new HashMap<>();
+  private final AtomicBoolean backfillStarted = new AtomicBoolean(false);
+  private int lastTermId = 0;
+
+  @Inject
+  public ExecutionSearchIndex(final ExecutionSearchDao searchDao) {
+    this.searchDao = searchDao;
+  }
+
+  public void index(final ExecutableFlow flow) throws ExecutorManagerException {
+    index(Collections.singletonList(new ExecutionTerms(flow.getExecutionId(),
+        flow.getProjectName(), flow.getFlowId(), flow.getSubmitUser())));
+  }
+
+  /**
+   * Fetches the executions matching all the filters given, the latest first. The filters which
+   * are null, empty, 0 or negative are ignored.
+   */
+  public List<ExecutionSummary> search(final String projContain, final String flowContains,
+      final String userNameContains, final int status, final long startTime, final long endTime,
+      final int skip, final int num) throws ExecutorManagerException {
+    final TermFilter projectTerms;
+    final TermFilter flowTerms;
+    final TermFilter userTerms;
+    synchronized (this) {
+      // terms may have been added by other web servers
+      refreshTerms();
+      projectTerms = findTerms(PROJECT_FIELD, projContain);
+      flowTerms = findTerms(FLOW_FIELD, flowContains);
+      userTerms = findTerms(USER_FIELD, userNameContains);
+    }
+    if (matchesNothing(projectTerms) || matchesNothing(flowTerms)
+        || matchesNothing(userTerms)) {
+      return Collections.emptyList();
+    }
+    return this.searchDao.search(projectTerms, flowTerms, userTerms, status, startTime, endTime,
+        skip, num);
+  }
+
+  /**
+   * Starts indexing the executions which aren't indexed, in the background.
+   */
+  public void startBackfill() {
+    if (!this.backfillStarted.compareAndSet(false, true)) {
+      return;
+    }
+    final Thread backfillThread = new Thread(() -> {
+      try {
+        logger.info("Indexed " + backfill() + " past executions for search");
+      } catch (final Throwable t) {
+        logger.error("Error indexing past executions for search", t);
+      }
+    }, "azk-search-backfill");
+    backfillThread.setDaemon(true);
+    backfillThread.start();
+  }
+
+  /**
+   * Indexes the executions which aren't indexed, from the latest. Each batch starts below the
+   * previous one, so an execution which fails to be indexed isn't fetched again.
+   *
+   * @return the number of executions indexed
+   */
+  int backfill() throws ExecutorManagerException {
+    int beforeExecId = Integer.MAX_VALUE;
+    int numIndexed = 0;
+    List<ExecutionTerms> executions;
+    while (!(executions = this.searchDao.fetchUnindexedExecutionsBefore(beforeExecId,
+        BACKFILL_BATCH_SIZE)).isEmpty()) {
+      final int lastExecId = executions.get(executions.size() - 1).execId;
+      try {
+        index(executions);
+      } catch (final ExecutorManagerException e) {
+        // another web server, or the submission of an execution, indexed some of them meanwhile
+        final Set<Integer> indexed =
+            this.searchDao.fetchIndexedExecutions(lastExecId, executions.get(0).execId);
+        for (final ExecutionTerms execution : executions) {
+          if (indexed.contains(execution.execId)) {
+            continue;
+          }
+          try {
+            index(Collections.singletonList(execution));
+          } catch (final ExecutorManagerException indexException) {
+            if (!ExecutionSearchDao.isDuplicate(indexException)) {
+              logger.warn("Error indexing execution " + execution.execId, indexException);
+            }
+          }
+        }
+      }
+      beforeExecId = lastExecId;
+      numIndexed += executions.size();
+    }
+    return numIndexed;
+  }
+
+  private void index(final List<ExecutionTerms> executions) throws ExecutorManagerException {
+    final List<int[]> rows = new ArrayList<>(executions.size());
+    synchronized (this) {
+      for (final ExecutionTerms execution : executions) {
+        rows.add(new int[]{execution.execId, getTermId(PROJECT_FIELD, execution.projectName),
+            getTermId(FLOW_FIELD, execution.flowId), getTermId(USER_FIELD, execution.submitUser)});
+      }
+    }
+    this.searchDao.indexExecutions(rows);
+  }
+
+  private int getTermId(final int field, final String value) throws ExecutorManagerException {
+    final String term = Strings.nullToEmpty(value);
+    Integer id = getTerms(field).get(term);
+    if (id == null) {
+      refreshTerms();
+      id = getTerms(field).get(term);
+    }
+    if (id == null) {
+      id = this.searchDao.addTerm(field, term).id;
+      getTerms(field).put(term, id);
+    }
+    return id;
+  }
+
+  /**
+   * @return the terms matching the search term, or null if there is no search term
+   */
+  private TermFilter findTerms(final int field, final String searchTerm) {
+    if (searchTerm == null || searchTerm.isEmpty()) {
+      return null;
+    }
+    String pattern = searchTerm.toLowerCase(Locale.ROOT);
+    final boolean prefix = pattern.startsWith(PREFIX_ANCHOR);
+    if (prefix) {
+      pattern = pattern.substring(PREFIX_ANCHOR.length());
+    }
+    final List<Integer> ids = new ArrayList<>();
+    for (final Map.Entry<String, Integer> entry : getTerms(field).entrySet()) {
+      final String term = entry.getKey().toLowerCase(Locale.ROOT);
+      if (prefix ? term.startsWith(pattern) : term.contains(pattern)) {
+        ids.add(entry.getValue());
+      }
+    }
+    return ids.size() > MAX_TERM_IDS ? TermFilter.ofSearchTerm(field, pattern, prefix)
+        : TermFilter.ofIds(field, ids);
+  }
+
+  private static boolean matchesNothing(final TermFilter terms) {
+    return terms != null && terms.ids != null && terms.ids.isEmpty();
+  }
+
+  private void refreshTerms() throws ExecutorManagerException {
+    for (final Term term : this.searchDao.fetchTermsAfter(this.lastTermId)) {
+      getTerms(term.field).put(term.term, term.id);
+      this.lastTermId = Math.max(this.lastTermId, term.id);
+    }
+  }
+
+  private Map<String, Integer> getTerms(final int field) {
+    return this.termIds.computeIfAbsent(field, f -> new HashMap<>());
+  }
+}
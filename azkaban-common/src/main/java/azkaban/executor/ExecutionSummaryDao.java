@@ -0,0 +1,100 @@
+/*
+ * Copyright 2018 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package azkaban.executor;
+
+import azkaban.db.DatabaseOperator;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import org.apache.commons.dbutils.ResultSetHandler;
+
+/**
+ * Pages through the executions as {@link ExecutionSummary}, reading only the scalar columns of
+ * execution_flows and not their flow data.
+ */
+@Singleton
+public class ExecutionSummaryDao {
+
+  private final DatabaseOperator dbOperator;
+
+  @Inject
+  public ExecutionSummaryDao(final DatabaseOperator dbOperator) {
+    this.dbOperator = dbOperator;
+  }
+
+  List<ExecutionSummary> fetchFlowHistory(final int skip, final int num)
+      throws ExecutorManagerException {
+    try {
+      return this.dbOperator.query(FetchExecutionSummaries.FETCH_ALL_EXECUTION_SUMMARIES,
+          new FetchExecutionSummaries(), skip, num);
+    } catch (final SQLException e) {
+      throw new ExecutorManagerException("Error fetching flow History", e);
+    }
+  }
+
+  List<ExecutionSummary> fetchFlowHistory(final int projectId, final String flowId,
+      final int skip, final int num) throws ExecutorManagerException {
+    try {
+      return this.dbOperator.query(FetchExecutionSummaries.FETCH_FLOW_EXECUTION_SUMMARIES,
+          new FetchExecutionSummaries(), projectId, flowId, skip, num);
+    } catch (final SQLException e) {
+      throw new ExecutorManagerException("Error fetching flow history", e);
+    }
+  }
+
+  List<ExecutionSummary> fetchFlowHistory(final int projectId, final String flowId,
+      final int skip, final int num, final Status status) throws ExecutorManagerException {
+    try {
+      return this.dbOperator.query(
+          FetchExecutionSummaries.FETCH_FLOW_EXECUTION_SUMMARIES_BY_STATUS,
+          new FetchExecutionSummaries(), projectId, flowId, status.getNumVal(), skip, num);
+    } catch (final SQLException e) {
+      throw new ExecutorManagerException("Error fetching flow history", e);
+    }
+  }
+
+  static class FetchExecutionSummaries implements
+      ResultSetHandler<List<ExecutionSummary>> {
+
+    // qualified, as the searches join other tables to it
+    static final String FETCH_BASE_EXECUTION_SUMMARY_QUERY =
+        "SELECT ef.exec_id, ef.project_id, ef.version, ef.flow_id, ef.status, ef.submit_user, "
+            + "ef.submit_time, ef.update_time, ef.start_time, ef.end_time "
+            + "FROM execution_flows ef";
+    private static final String FETCH_ALL_EXECUTION_SUMMARIES =
+        FETCH_BASE_EXECUTION_SUMMARY_QUERY + " ORDER BY ef.exec_id DESC LIMIT ?, ?";
+    private static final String FETCH_FLOW_EXECUTION_SUMMARIES =
+        FETCH_BASE_EXECUTION_SUMMARY_QUERY + " WHERE ef.project_id=? AND ef.flow_id=? "
+            + "ORDER BY ef.exec_id DESC LIMIT ?, ?";
+    private static final String FETCH_FLOW_EXECUTION_SUMMARIES_BY_STATUS =
+        FETCH_BASE_EXECUTION_SUMMARY_QUERY + " WHERE ef.project_id=? AND ef.flow_id=? "
+            + "AND ef.status=? ORDER BY ef.exec_id DESC LIMIT ?, ?";
+
+    @Override
+    public List<ExecutionSummary> handle(final ResultSet rs) throws SQLException {
+      final List<ExecutionSummary> summaries = new ArrayList<>();
+      while (rs.next()) {
+        summaries.add(new ExecutionSummary(rs.getInt(1), rs.getInt(2), rs.getInt(3),
+            rs.getString(4), Status.fromInteger(rs.getInt(5)), rs.getString(6), rs.getLong(7),
+            rs.getLong(8), rs.getLong(9), rs.getLong(10)));
+      }
+      return summaries;
+    }
+  }
+}
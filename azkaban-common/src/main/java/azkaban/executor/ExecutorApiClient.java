@@ -16,21 +16,114 @@
 
 package azkaban.executor;
 
+import static azkaban.Constants.ConfigurationKeys.EXECUTOR_CLIENT_CONNECTION_REQUEST_TIMEOUT_MS;
+import static azkaban.Constants.ConfigurationKeys.EXECUTOR_CLIENT_CONNECT_TIMEOUT_MS;
+import static azkaban.Constants.ConfigurationKeys.EXECUTOR_CLIENT_KEEP_ALIVE_MS;
+import static azkaban.Constants.ConfigurationKeys.EXECUTOR_CLIENT_MAX_CONNECTIONS_PER_ROUTE;
+import static azkaban.Constants.ConfigurationKeys.EXECUTOR_CLIENT_MAX_IDLE_MS;
+import static azkaban.Constants.ConfigurationKeys.EXECUTOR_CLIENT_MAX_TOTAL_CONNECTIONS;
+import static azkaban.Constants.ConfigurationKeys.EXECUTOR_CLIENT_SOCKET_TIMEOUT_MS;
+
+import azkaban.metrics.MetricsManager;
+import azkaban.utils.Props;
 import azkaban.utils.RestfulApiClient;
 import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import javax.inject.Inject;
 import javax.inject.Singleton;
 import org.apache.http.HttpResponse;
 import org.apache.http.StatusLine;
 import org.apache.http.client.HttpResponseException;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
 import org.apache.http.util.EntityUtils;
 
 /**
  * Client class that will be used to handle all Restful API calls between Executor and the host
  * application.
+ *
+ * All the calls share one pool of keep-alive connections, so polling executors doesn't pay a TCP
+ * connect and teardown on every request.
  */
 @Singleton
 public class ExecutorApiClient extends RestfulApiClient<String> {
 
+  private static final int DEFAULT_MAX_TOTAL_CONNECTIONS = 200;
+  private static final int DEFAULT_MAX_CONNECTIONS_PER_ROUTE = 20;
+  private static final int DEFAULT_CONNECTION_REQUEST_TIMEOUT_MS = 10 * 1000;
+  private static final int DEFAULT_CONNECT_TIMEOUT_MS = 10 * 1000;
+  private static final int DEFAULT_SOCKET_TIMEOUT_MS = 60 * 1000;
+  private static final long DEFAULT_KEEP_ALIVE_MS = 60 * 1000L;
+  private static final long DEFAULT_MAX_IDLE_MS = 30 * 1000L;
+
+  private final PoolingHttpClientConnectionManager connectionManager;
+
+  @Inject
+  public ExecutorApiClient(final Props azkProps, final MetricsManager metricsManager) {
+    this(createConnectionManager(azkProps), azkProps);
+    registerPoolMetrics(metricsManager);
+  }
+
+  private ExecutorApiClient(final PoolingHttpClientConnectionManager connectionManager,
+      final Props azkProps) {
+    super(createHttpClient(connectionManager, azkProps));
+    this.connectionManager = connectionManager;
+  }
+
+  private static PoolingHttpClientConnectionManager createConnectionManager(final Props props) {
+    final PoolingHttpClientConnectionManager connectionManager =
+        new PoolingHttpClientConnectionManager();
+    connectionManager.setMaxTotal(
+        props.getInt(EXECUTOR_CLIENT_MAX_TOTAL_CONNECTIONS, DEFAULT_MAX_TOTAL_CONNECTIONS));
+    connectionManager.setDefaultMaxPerRoute(
+        props.getInt(EXECUTOR_CLIENT_MAX_CONNECTIONS_PER_ROUTE,
+            DEFAULT_MAX_CONNECTIONS_PER_ROUTE));
+    return connectionManager;
+  }
+
+  private static CloseableHttpClient createHttpClient(
+      final PoolingHttpClientConnectionManager connectionManager, final Props props) {
+    final RequestConfig requestConfig = RequestConfig.custom()
+        .setConnectionRequestTimeout(props.getInt(EXECUTOR_CLIENT_CONNECTION_REQUEST_TIMEOUT_MS,
+            DEFAULT_CONNECTION_REQUEST_TIMEOUT_MS))
+        .setConnectTimeout(
+            props.getInt(EXECUTOR_CLIENT_CONNECT_TIMEOUT_MS, DEFAULT_CONNECT_TIMEOUT_MS))
+        .setSocketTimeout(
+            props.getInt(EXECUTOR_CLIENT_SOCKET_TIMEOUT_MS, DEFAULT_SOCKET_TIMEOUT_MS))
+        .build();
+
+    final long keepAliveMs = props.getLong(EXECUTOR_CLIENT_KEEP_ALIVE_MS, DEFAULT_KEEP_ALIVE_MS);
+    // Jetty doesn't send a Keep-Alive header, so fall back to the configured duration.
+    final ConnectionKeepAliveStrategy keepAliveStrategy = (response, context) -> {
+      final long serverKeepAliveMs =
+          DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+      return serverKeepAliveMs > 0 ? Math.min(serverKeepAliveMs, keepAliveMs) : keepAliveMs;
+    };
+
+    logger.info("Executor client request configuration " + requestConfig);
+    return HttpClients.custom()
+        .setConnectionManager(connectionManager)
+        .setDefaultRequestConfig(requestConfig)
+        .setKeepAliveStrategy(keepAliveStrategy)
+        .evictExpiredConnections()
+        .evictIdleConnections(props.getLong(EXECUTOR_CLIENT_MAX_IDLE_MS, DEFAULT_MAX_IDLE_MS),
+            TimeUnit.MILLISECONDS)
+        .build();
+  }
+
+  private void registerPoolMetrics(final MetricsManager metricsManager) {
+    metricsManager.addGauge("executor-client-leased-connections",
+        () -> this.connectionManager.getTotalStats().getLeased());
+    metricsManager.addGauge("executor-client-pending-connections",
+        () -> this.connectionManager.getTotalStats().getPending());
+    metricsManager.addGauge("executor-client-available-connections",
+        () -> this.connectionManager.getTotalStats().getAvailable());
+  }
+
   /**
    * Implementing the parseResponse function to return de-serialized Json object.
    *
@@ -20,12 +20,20 @@ import azkaban.utils.JSONUtils;
 import azkaban.utils.Pair;
 import com.google.inject.Inject;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.net.URI;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
 import javax.inject.Singleton;
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.StatusLine;
+import org.apache.http.client.HttpResponseException;
+import org.apache.http.util.EntityUtils;
 import org.codehaus.jackson.map.ObjectMapper;
 
 @Singleton
@@ -60,25 +68,83 @@ public class ExecutorApiGateway {
   Map<String, Object> callWithExecutionId(final String host, final int port,
       final String action, final Integer executionId, final String user,
       final Pair<String, String>... params) throws ExecutorManagerException {
-    try {
-      final List<Pair<String, String>> paramList = new ArrayList<>();
+    return callWithExecutionId(host, port, action, executionId, user,
+        params != null ? Arrays.asList(params) : Collections.emptyList());
+  }
 
-      if (params != null) {
-        paramList.addAll(Arrays.asList(params));
-      }
+  Map<String, Object> callWithExecutionId(final String host, final int port,
+      final String action, final Integer executionId, final String user,
+      final List<Pair<String, String>> params) throws ExecutorManagerException {
+    try {
+      return callForJsonObjectMap(host, port, "/executor",
+          createParamList(action, executionId, user, params));
+    } catch (final IOException e) {
+      throw new ExecutorManagerException(e);
+    }
+  }
 
-      paramList
-          .add(new Pair<>(ConnectorParams.ACTION_PARAM, action));
-      paramList.add(new Pair<>(ConnectorParams.EXECID_PARAM, String
-          .valueOf(executionId)));
-      paramList.add(new Pair<>(ConnectorParams.USER_PARAM, user));
+  /**
+   * Calls the executor, giving up if it doesn't answer within the timeout.
+   */
+  Map<String, Object> callWithTimeout(final String host, final int port, final String action,
+      final List<Pair<String, String>> params, final int timeoutMs)
+      throws ExecutorManagerException {
+    try {
+      @SuppressWarnings("unchecked") final URI uri =
+          ExecutorApiClient.buildUri(host, port, "/executor", true);
+      return parseJsonObjectMap(this.apiClient.httpPost(uri,
+          createParamList(action, null, null, params), timeoutMs));
+    } catch (final IOException e) {
+      throw new ExecutorManagerException(e);
+    }
+  }
 
-      return callForJsonObjectMap(host, port, "/executor", paramList);
+  /**
+   * Calls the executor and copies the body of its response to the output as it is, without
+   * parsing it.
+   *
+   * @return the headers of the response
+   */
+  Map<String, String> streamWithReference(final ExecutionReference ref, final String action,
+      final OutputStream out, final List<Pair<String, String>> params)
+      throws ExecutorManagerException {
+    try {
+      @SuppressWarnings("unchecked") final URI uri =
+          ExecutorApiClient.buildUri(ref.getHost(), ref.getPort(), "/executor", true);
+      return this.apiClient.httpPost(uri, createParamList(action, ref.getExecId(), null, params),
+          response -> {
+            final StatusLine statusLine = response.getStatusLine();
+            final HttpEntity entity = response.getEntity();
+            if (statusLine.getStatusCode() >= 300) {
+              throw new HttpResponseException(statusLine.getStatusCode(),
+                  entity != null ? EntityUtils.toString(entity) : statusLine.getReasonPhrase());
+            }
+            if (entity != null) {
+              entity.writeTo(out);
+            }
+            final Map<String, String> headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+            for (final Header header : response.getAllHeaders()) {
+              headers.put(header.getName(), header.getValue());
+            }
+            return headers;
+          });
     } catch (final IOException e) {
       throw new ExecutorManagerException(e);
     }
   }
 
+  private static List<Pair<String, String>> createParamList(final String action,
+      final Integer executionId, final String user, final List<Pair<String, String>> params) {
+    final List<Pair<String, String>> paramList = new ArrayList<>(params);
+
+    paramList
+        .add(new Pair<>(ConnectorParams.ACTION_PARAM, action));
+    paramList.add(new Pair<>(ConnectorParams.EXECID_PARAM, String
+        .valueOf(executionId)));
+    paramList.add(new Pair<>(ConnectorParams.USER_PARAM, user));
+    return paramList;
+  }
+
   /**
    * Call executor and parse the JSON response as an instance of the class given as an argument.
    */
@@ -96,9 +162,11 @@ public class ExecutorApiGateway {
    */
   Map<String, Object> callForJsonObjectMap(final String host, final int port,
       final String path, final List<Pair<String, String>> paramList) throws IOException {
-    final String responseString =
-        callForJsonString(host, port, path, paramList);
+    return parseJsonObjectMap(callForJsonString(host, port, path, paramList));
+  }
 
+  private static Map<String, Object> parseJsonObjectMap(final String responseString)
+      throws IOException {
     @SuppressWarnings("unchecked") final Map<String, Object> jsonResponse =
         (Map<String, Object>) JSONUtils.parseJSONFromString(responseString);
     final String error = (String) jsonResponse.get(ConnectorParams.RESPONSE_ERROR);
@@ -42,16 +42,25 @@ public interface ExecutorLoader {
   Pair<ExecutionReference, ExecutableFlow> fetchActiveFlowByExecId(int execId)
       throws ExecutorManagerException;
 
-  List<ExecutableFlow> fetchFlowHistory(int skip, int num)
+  /**
+   * The history of the executions, which doesn't read their flow data. The detail of an execution
+   * is read with {@link #fetchExecutableFlow(int)}.
+   */
+  List<ExecutionSummary> fetchFlowHistory(int skip, int num)
       throws ExecutorManagerException;
 
-  List<ExecutableFlow> fetchFlowHistory(int projectId, String flowId,
+  List<ExecutionSummary> fetchFlowHistory(int projectId, String flowId,
       int skip, int num) throws ExecutorManagerException;
 
-  List<ExecutableFlow> fetchFlowHistory(int projectId, String flowId,
+  List<ExecutionSummary> fetchFlowHistory(int projectId, String flowId,
       int skip, int num, Status status) throws ExecutorManagerException;
 
-  List<ExecutableFlow> fetchFlowHistory(String projContain,
+  /**
+   * Searches the history of the executions with {@link ExecutionSearchIndex}. The project, flow
+   * and user filters match the names containing them, or starting with them if they start with
+   * {@value ExecutionSearchIndex#PREFIX_ANCHOR}.
+   */
+  List<ExecutionSummary> fetchFlowHistory(String projContain,
       String flowContains, String userNameContains, int status, long startData,
       long endData, int skip, int num) throws ExecutorManagerException;
 
@@ -231,12 +240,53 @@ public interface ExecutorLoader {
   void uploadLogFile(int execId, String name, int attempt, File... files)
       throws ExecutorManagerException;
 
+  /**
+   * Uploads consecutive chunks of a log which is still being written. The first chunk starts at
+   * startByte.
+   */
+  void uploadLogChunks(int execId, String name, int attempt, int startByte, List<byte[]> chunks)
+      throws ExecutorManagerException;
+
   void uploadAttachmentFile(ExecutableNode node, File file)
       throws ExecutorManagerException;
 
+  /**
+   * Stores the id of the YARN application logged by the job attempt.
+   */
+  void uploadApplicationId(int execId, String name, int attempt, String applicationId)
+      throws ExecutorManagerException;
+
+  /**
+   * @return the id of the YARN application logged by the job attempt, an empty string if its log
+   * was searched and has none, or null if nothing is stored
+   */
+  String fetchApplicationId(int execId, String name, int attempt)
+      throws ExecutorManagerException;
+
   void updateExecutableFlow(ExecutableFlow flow)
       throws ExecutorManagerException;
 
+  /**
+   * Updates several flows at once. The flows are written in a single batch.
+   */
+  void updateExecutableFlows(List<ExecutableFlow> flows)
+      throws ExecutorManagerException;
+
+  /**
+   * Writes the status of the flow and the state of its nodes which were updated after
+   * lastUpdateTime, without rewriting the serialized flow. The node states are applied by
+   * {@link #fetchExecutableFlow(int)} until the flow finishes.
+   */
+  void updateExecutableFlowNodeStates(ExecutableFlow flow, long lastUpdateTime)
+      throws ExecutorManagerException;
+
+  /**
+   * Removes the node states of a flow, once its final state has been written with
+   * {@link #updateExecutableFlow(ExecutableFlow)}. Does nothing if the node states aren't enabled.
+   */
+  void removeExecutableFlowNodeStates(int execId)
+      throws ExecutorManagerException;
+
   void uploadExecutableNode(ExecutableNode node, Props inputParams)
       throws ExecutorManagerException;
 
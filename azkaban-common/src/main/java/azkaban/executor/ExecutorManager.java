@@ -35,11 +35,15 @@ import azkaban.utils.FileIOUtils.LogData;
 import azkaban.utils.JSONUtils;
 import azkaban.utils.Pair;
 import azkaban.utils.Props;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import java.io.BufferedReader;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.io.OutputStream;
 import java.lang.Thread.State;
 import java.net.HttpURLConnection;
 import java.net.URL;
@@ -55,12 +59,15 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import javax.inject.Inject;
@@ -91,6 +98,16 @@ public class ExecutorManager extends EventHandler implements
   private static final long DEFAULT_EXECUTION_LOGS_RETENTION_MS = 3 * 4 * 7
       * 24 * 60 * 60 * 1000L;
   private static final Duration RECENTLY_FINISHED_LIFETIME = Duration.ofMinutes(10);
+  // When we have an http error, for that flow, we'll check every 10 secs, 6
+  // times (1 mins) before we evict.
+  private static final int MAX_UPDATE_ERRORS = 6;
+  private static final long UPDATE_ERROR_BACKOFF_MS = 10000;
+  private static final long DEFAULT_UPDATE_STREAMING_TIMEOUT_MS = 20000;
+  private static final long DEFAULT_UPDATE_TIMEOUT_MS = 30000;
+  // time an executor holds a request following a job log, and size of the pages read from the DB
+  private static final long LOG_FOLLOW_TIMEOUT_MS = 30000;
+  private static final int LOG_FOLLOW_PAGE_SIZE = 50000;
+  private static final int DEFAULT_FINISHED_EXECUTIONS_CACHE_SIZE = 1000;
   private static final Logger logger = Logger.getLogger(ExecutorManager.class);
   final private Set<Executor> activeExecutors = new HashSet<>();
   private final AlerterHolder alerterHolder;
@@ -101,12 +118,25 @@ public class ExecutorManager extends EventHandler implements
   private final ConcurrentHashMap<Integer, Pair<ExecutionReference, ExecutableFlow>> runningFlows =
       new ConcurrentHashMap<>();
   private final ExecutingManagerUpdaterThread executingManager;
+  // update streams of the executors, by executor id. Only used if update streaming is enabled.
+  private final ConcurrentHashMap<Integer, ExecutorUpdateStreamThread> updateStreams =
+      new ConcurrentHashMap<>();
+  private final boolean updateStreamingEnabled;
+  private final long updateStreamingTimeoutMs;
+  // polls the executors for flow updates, one executor per thread
+  private final ExecutorService executorUpdaterService;
+  private final long updateTimeoutMs;
   private final ExecutorApiGateway apiGateway;
   private final int maxConcurrentRunsOneFlow;
+  // finished executions read from the DB, which don't change anymore, by execution id
+  private final Cache<Integer, ExecutableFlow> finishedFlows;
   QueuedExecutions queuedFlows;
   File cacheDir;
   private QueueProcessorThread queueProcessor;
   private volatile Pair<ExecutionReference, ExecutableFlow> runningCandidate = null;
+  // flows taken from the queue which are being dispatched concurrently, by execution id
+  private final ConcurrentHashMap<Integer, Pair<ExecutionReference, ExecutableFlow>>
+      dispatchingFlows = new ConcurrentHashMap<>();
   private long lastCleanerThreadCheckTime = -1;
   private long lastThreadCheckTime = -1;
   private String updaterStage = "not started";
@@ -139,6 +169,23 @@ public class ExecutorManager extends EventHandler implements
     this.loadQueuedFlows();
 
     this.cacheDir = new File(azkProps.getString("cache.directory", "cache"));
+    this.finishedFlows = CacheBuilder.newBuilder()
+        .maximumSize(azkProps.getInt(ConfigurationKeys.FINISHED_EXECUTIONS_CACHE_SIZE,
+            DEFAULT_FINISHED_EXECUTIONS_CACHE_SIZE))
+        .build();
+
+    this.updateStreamingEnabled = azkProps
+        .getBoolean(ConfigurationKeys.EXECUTOR_UPDATE_STREAMING_ENABLED, false);
+    this.updateStreamingTimeoutMs = azkProps
+        .getLong(ConfigurationKeys.EXECUTOR_UPDATE_STREAMING_TIMEOUT_MS,
+            DEFAULT_UPDATE_STREAMING_TIMEOUT_MS);
+
+    // at most one poll per executor is in flight, so the pool grows with the number of executors
+    this.executorUpdaterService = Executors.newCachedThreadPool(
+        new ThreadFactoryBuilder().setNameFormat("azk-executor-updater-%d").setDaemon(true)
+            .build());
+    this.updateTimeoutMs = azkProps
+        .getLong(ConfigurationKeys.EXECUTOR_UPDATE_TIMEOUT_MS, DEFAULT_UPDATE_TIMEOUT_MS);
 
     this.executingManager = new ExecutingManagerUpdaterThread();
     this.executingManager.start();
@@ -156,16 +203,6 @@ public class ExecutorManager extends EventHandler implements
 
   }
 
-  private String findApplicationIdFromLog(final String logData) {
-    final Matcher matcher = APPLICATION_ID_PATTERN.matcher(logData);
-    String appId = null;
-    if (matcher.find()) {
-      appId = matcher.group().substring(12);
-    }
-    this.logger.info("Application ID is " + appId);
-    return appId;
-  }
-
   private void setupMultiExecutorMode() {
     // initliatize hard filters for executor selector from azkaban.properties
     final String filters = this.azkProps
@@ -198,7 +235,8 @@ public class ExecutorManager extends EventHandler implements
                 Constants.ConfigurationKeys.ACTIVE_EXECUTOR_REFRESH_IN_NUM_FLOW, 5),
             this.azkProps.getInt(
                 Constants.ConfigurationKeys.MAX_DISPATCHING_ERRORS_PERMITTED,
-                this.activeExecutors.size()));
+                this.activeExecutors.size()),
+            this.azkProps.getInt(Constants.ConfigurationKeys.QUEUEPROCESSING_DISPATCH_THREADS, 1));
 
     this.queueProcessor.start();
   }
@@ -453,9 +491,7 @@ public class ExecutorManager extends EventHandler implements
     final List<Pair<ExecutionReference, ExecutableFlow>> retrievedExecutions =
         this.executorLoader.fetchQueuedFlows();
     if (retrievedExecutions != null) {
-      for (final Pair<ExecutionReference, ExecutableFlow> pair : retrievedExecutions) {
-        this.queuedFlows.enqueue(pair.getSecond(), pair.getFirst());
-      }
+      this.queuedFlows.enqueueAll(retrievedExecutions);
     }
   }
 
@@ -478,6 +514,8 @@ public class ExecutorManager extends EventHandler implements
           .addAll(
               getRunningFlowsHelper(projectId, flowId, Lists.newArrayList(this.runningCandidate)));
     }
+    executionIds.addAll(getRunningFlowsHelper(projectId, flowId,
+        this.dispatchingFlows.values()));
     executionIds.addAll(getRunningFlowsHelper(projectId, flowId,
         this.runningFlows.values()));
     Collections.sort(executionIds);
@@ -508,6 +546,7 @@ public class ExecutorManager extends EventHandler implements
     final List<Pair<ExecutableFlow, Executor>> flows =
         new ArrayList<>();
     getActiveFlowsWithExecutorHelper(flows, this.queuedFlows.getAllEntries());
+    getActiveFlowsWithExecutorHelper(flows, this.dispatchingFlows.values());
     getActiveFlowsWithExecutorHelper(flows, this.runningFlows.values());
     return flows;
   }
@@ -533,6 +572,9 @@ public class ExecutorManager extends EventHandler implements
     isRunning =
         isRunning
             || isFlowRunningHelper(projectId, flowId, this.queuedFlows.getAllEntries());
+    isRunning =
+        isRunning
+            || isFlowRunningHelper(projectId, flowId, this.dispatchingFlows.values());
     isRunning =
         isRunning
             || isFlowRunningHelper(projectId, flowId, this.runningFlows.values());
@@ -554,12 +596,40 @@ public class ExecutorManager extends EventHandler implements
   /**
    * Fetch ExecutableFlow from database {@inheritDoc}
    *
+   * The running and the recently finished flows are read from memory. The caller gets a copy of
+   * them, so it neither changes them nor sees them change while it reads.
+   *
    * @see azkaban.executor.ExecutorManagerAdapter#getExecutableFlow(int)
    */
   @Override
   public ExecutableFlow getExecutableFlow(final int execId)
       throws ExecutorManagerException {
-    return this.executorLoader.fetchExecutableFlow(execId);
+    // kept up to date by the updater thread, which updates it under its lock
+    final Pair<ExecutionReference, ExecutableFlow> running = this.runningFlows.get(execId);
+    if (running != null) {
+      this.commonMetrics.markExecutionCacheHit();
+      final ExecutableFlow flow = running.getSecond();
+      synchronized (flow) {
+        return copyOf(flow);
+      }
+    }
+    final ExecutableFlow finished = this.finishedFlows.getIfPresent(execId);
+    if (finished != null) {
+      this.commonMetrics.markExecutionCacheHit();
+      return copyOf(finished);
+    }
+
+    this.commonMetrics.markExecutionCacheMiss();
+    final ExecutableFlow flow = this.executorLoader.fetchExecutableFlow(execId);
+    // only the final states are cached, the others may still be updated in the DB
+    if (flow != null && isFinished(flow)) {
+      this.finishedFlows.put(execId, copyOf(flow));
+    }
+    return flow;
+  }
+
+  private static ExecutableFlow copyOf(final ExecutableFlow flow) {
+    return ExecutableFlow.createExecutableFlowFromObject(flow.toObject());
   }
 
   /**
@@ -573,6 +643,7 @@ public class ExecutorManager extends EventHandler implements
   public List<ExecutableFlow> getRunningFlows() {
     final ArrayList<ExecutableFlow> flows = new ArrayList<>();
     getActiveFlowHelper(flows, this.queuedFlows.getAllEntries());
+    getActiveFlowHelper(flows, this.dispatchingFlows.values());
     getActiveFlowHelper(flows, this.runningFlows.values());
     return flows;
   }
@@ -598,6 +669,7 @@ public class ExecutorManager extends EventHandler implements
   public String getRunningFlowIds() {
     final List<Integer> allIds = new ArrayList<>();
     getRunningFlowsIdsHelper(allIds, this.queuedFlows.getAllEntries());
+    getRunningFlowsIdsHelper(allIds, this.dispatchingFlows.values());
     getRunningFlowsIdsHelper(allIds, this.runningFlows.values());
     Collections.sort(allIds);
     return allIds.toString();
@@ -613,6 +685,8 @@ public class ExecutorManager extends EventHandler implements
   public String getQueuedFlowIds() {
     final List<Integer> allIds = new ArrayList<>();
     getRunningFlowsIdsHelper(allIds, this.queuedFlows.getAllEntries());
+    // taken from the queue, but not dispatched yet
+    getRunningFlowsIdsHelper(allIds, this.dispatchingFlows.values());
     Collections.sort(allIds);
     return allIds.toString();
   }
@@ -622,6 +696,11 @@ public class ExecutorManager extends EventHandler implements
     return this.queuedFlows.size();
   }
 
+  @Override
+  public boolean isQueueFull() {
+    return this.queuedFlows.isFull();
+  }
+
   /* Helper method to flow ids of all running flows */
   private void getRunningFlowsIdsHelper(final List<Integer> allIds,
       final Collection<Pair<ExecutionReference, ExecutableFlow>> collection) {
@@ -644,35 +723,35 @@ public class ExecutorManager extends EventHandler implements
   }
 
   @Override
-  public List<ExecutableFlow> getExecutableFlows(final Project project,
+  public List<ExecutionSummary> getExecutionSummaries(final Project project,
       final String flowId, final int skip, final int size) throws ExecutorManagerException {
-    final List<ExecutableFlow> flows =
+    final List<ExecutionSummary> flows =
         this.executorLoader.fetchFlowHistory(project.getId(), flowId, skip, size);
     return flows;
   }
 
   @Override
-  public List<ExecutableFlow> getExecutableFlows(final int skip, final int size)
+  public List<ExecutionSummary> getExecutionSummaries(final int skip, final int size)
       throws ExecutorManagerException {
-    final List<ExecutableFlow> flows = this.executorLoader.fetchFlowHistory(skip, size);
+    final List<ExecutionSummary> flows = this.executorLoader.fetchFlowHistory(skip, size);
     return flows;
   }
 
   @Override
-  public List<ExecutableFlow> getExecutableFlows(final String flowIdContains,
+  public List<ExecutionSummary> getExecutionSummaries(final String flowIdContains,
       final int skip, final int size) throws ExecutorManagerException {
-    final List<ExecutableFlow> flows =
-        this.executorLoader.fetchFlowHistory(null, '%' + flowIdContains + '%', null,
+    final List<ExecutionSummary> flows =
+        this.executorLoader.fetchFlowHistory(null, flowIdContains, null,
             0, -1, -1, skip, size);
     return flows;
   }
 
   @Override
-  public List<ExecutableFlow> getExecutableFlows(final String projContain,
+  public List<ExecutionSummary> getExecutionSummaries(final String projContain,
       final String flowContain, final String userContain, final int status, final long begin,
       final long end,
       final int skip, final int size) throws ExecutorManagerException {
-    final List<ExecutableFlow> flows =
+    final List<ExecutionSummary> flows =
         this.executorLoader.fetchFlowHistory(projContain, flowContain, userContain,
             status, begin, end, skip, size);
     return flows;
@@ -750,6 +829,54 @@ public class ExecutorManager extends EventHandler implements
     }
   }
 
+  @Override
+  public boolean streamExecutionJobLog(final ExecutableFlow exFlow, final String jobId,
+      final int offset, final int length, final int attempt, final OutputStream out)
+      throws ExecutorManagerException {
+    final Pair<ExecutionReference, ExecutableFlow> pair =
+        this.runningFlows.get(exFlow.getExecutionId());
+    if (pair == null) {
+      return false;
+    }
+
+    this.apiGateway.streamWithReference(pair.getFirst(), ConnectorParams.LOG_STREAM_ACTION, out,
+        Arrays.asList(new Pair<>("type", "job"), new Pair<>("jobId", jobId),
+            new Pair<>("offset", String.valueOf(offset)),
+            new Pair<>("length", String.valueOf(length)),
+            new Pair<>("attempt", String.valueOf(attempt))));
+    return true;
+  }
+
+  @Override
+  public boolean followExecutionJobLog(final ExecutableFlow exFlow, final String jobId,
+      final long offset, final int attempt, final OutputStream out)
+      throws ExecutorManagerException {
+    final Pair<ExecutionReference, ExecutableFlow> pair =
+        this.runningFlows.get(exFlow.getExecutionId());
+    if (pair == null) {
+      long position = offset;
+      LogData data;
+      while ((data = this.executorLoader.fetchLogs(exFlow.getExecutionId(), jobId, attempt,
+          (int) position, LOG_FOLLOW_PAGE_SIZE)) != null && data.getLength() > 0) {
+        try {
+          out.write(data.getData().getBytes(StandardCharsets.UTF_8));
+        } catch (final IOException e) {
+          throw new ExecutorManagerException(e);
+        }
+        position += data.getLength();
+      }
+      return true;
+    }
+
+    final Map<String, String> headers = this.apiGateway.streamWithReference(pair.getFirst(),
+        ConnectorParams.LOG_FOLLOW_ACTION, out, Arrays.asList(new Pair<>("jobId", jobId),
+            new Pair<>("offset", String.valueOf(offset)),
+            new Pair<>("attempt", String.valueOf(attempt)),
+            new Pair<>(ConnectorParams.STREAM_TIMEOUT_PARAM,
+                String.valueOf(LOG_FOLLOW_TIMEOUT_MS))));
+    return Boolean.parseBoolean(headers.get(ConnectorParams.LOG_FINISHED_HEADER));
+  }
+
   @Override
   public List<Object> getExecutionJobStats(final ExecutableFlow exFlow, final String jobId,
       final int attempt) throws ExecutorManagerException {
@@ -840,15 +967,62 @@ public class ExecutorManager extends EventHandler implements
     return jobLinkUrl;
   }
 
+  /*
+   * Reads the application id stored by the executor while the job wrote its log. The jobs which
+   * ran before the executor stored the ids, or whose id failed to be stored, have their log
+   * searched instead. Once the flow has finished, when the executor can't store an id anymore, the
+   * result of the search is stored, an empty id if the log has none. So each log is searched at
+   * most once after its flow finished.
+   */
   private String getApplicationId(final ExecutableFlow exFlow, final String jobId,
       final int attempt) {
+    try {
+      final String applicationId =
+          this.executorLoader.fetchApplicationId(exFlow.getExecutionId(), jobId, attempt);
+      if (applicationId != null) {
+        return applicationId.isEmpty() ? null : applicationId;
+      }
+    } catch (final ExecutorManagerException e) {
+      this.logger.error("Failed to get application ID for execution " + exFlow.getExecutionId() +
+          ", job " + jobId + ", attempt " + attempt, e);
+    }
+
+    final String applicationId = findApplicationIdInLog(exFlow, jobId, attempt);
+    if (Status.isStatusFinished(exFlow.getStatus())) {
+      storeApplicationId(exFlow, jobId, attempt, applicationId == null ? "" : applicationId);
+    }
+    return applicationId;
+  }
+
+  private void storeApplicationId(final ExecutableFlow exFlow, final String jobId,
+      final int attempt, final String applicationId) {
+    try {
+      this.executorLoader
+          .uploadApplicationId(exFlow.getExecutionId(), jobId, attempt, applicationId);
+    } catch (final ExecutorManagerException e) {
+      // another page view may have stored it first, which fails on the primary key
+      try {
+        if (this.executorLoader.fetchApplicationId(exFlow.getExecutionId(), jobId, attempt)
+            != null) {
+          return;
+        }
+      } catch (final ExecutorManagerException fetchException) {
+        e.addSuppressed(fetchException);
+      }
+      this.logger.warn("Failed to store application ID for execution "
+          + exFlow.getExecutionId() + ", job " + jobId + ", attempt " + attempt, e);
+    }
+  }
+
+  private String findApplicationIdInLog(final ExecutableFlow exFlow, final String jobId,
+      final int attempt) {
     String applicationId;
     boolean finished = false;
     int offset = 0;
     try {
       while (!finished) {
         final LogData data = getExecutionJobLog(exFlow, jobId, offset, 50000, attempt);
-        if (data != null) {
+        if (data != null && data.getLength() > 0) {
           applicationId = findApplicationIdFromLog(data.getData());
           if (applicationId != null) {
             return applicationId;
@@ -867,6 +1041,16 @@ public class ExecutorManager extends EventHandler implements
     return null;
   }
 
+  private String findApplicationIdFromLog(final String logData) {
+    final Matcher matcher = APPLICATION_ID_PATTERN.matcher(logData);
+    String appId = null;
+    if (matcher.find()) {
+      appId = matcher.group().substring(12);
+    }
+    this.logger.info("Application ID is " + appId);
+    return appId;
+  }
+
   @Override
   public JobMetaData getExecutionJobMetaData(final ExecutableFlow exFlow,
       final String jobId, final int offset, final int length, final int attempt)
@@ -905,6 +1089,9 @@ public class ExecutorManager extends EventHandler implements
   public void cancelFlow(final ExecutableFlow exFlow, final String userId)
       throws ExecutorManagerException {
     synchronized (exFlow) {
+      if (cancelDispatchingFlow(exFlow.getExecutionId())) {
+        return;
+      }
       if (this.runningFlows.containsKey(exFlow.getExecutionId())) {
         final Pair<ExecutionReference, ExecutableFlow> pair =
             this.runningFlows.get(exFlow.getExecutionId());
@@ -921,6 +1108,27 @@ public class ExecutorManager extends EventHandler implements
     }
   }
 
+  /*
+   * Cancels a flow taken from the queue whose dispatch hasn't started yet. If the dispatch is in
+   * progress, this waits for it: the flow is then running, or back in the queue.
+   *
+   * @return false if the flow isn't being dispatched anymore
+   */
+  private boolean cancelDispatchingFlow(final int execId) {
+    final Pair<ExecutionReference, ExecutableFlow> dispatchingFlow =
+        this.dispatchingFlows.get(execId);
+    if (dispatchingFlow == null) {
+      return false;
+    }
+    synchronized (dispatchingFlow.getSecond()) {
+      if (this.dispatchingFlows.remove(execId) == null) {
+        return false;
+      }
+    }
+    finalizeFlows(dispatchingFlow.getSecond());
+    return true;
+  }
+
   @Override
   public void resumeFlow(final ExecutableFlow exFlow, final String userId)
       throws ExecutorManagerException {
@@ -1216,9 +1424,34 @@ public class ExecutorManager extends EventHandler implements
       this.queueProcessor.shutdown();
     }
     this.executingManager.shutdown();
+    this.executorUpdaterService.shutdownNow();
+    for (final ExecutorUpdateStreamThread stream : this.updateStreams.values()) {
+      stream.shutdown();
+    }
+  }
+
+  /*
+   * Finalizes a flow which was running on an executor. The poller and the update stream of the same
+   * executor may both find the flow finished: only the one which removes it from the running flows
+   * finalizes it, the other returns.
+   */
+  private void finalizeRunningFlow(final ExecutableFlow flow) {
+    final int execId = flow.getExecutionId();
+    final Pair<ExecutionReference, ExecutableFlow> runningFlow = this.runningFlows.remove(execId);
+    if (runningFlow == null) {
+      logger.info("Flow " + execId + " is already finalized.");
+      return;
+    }
+    if (!finalizeFlows(flow)) {
+      // the next update finds the flow again, and retries
+      this.runningFlows.putIfAbsent(execId, runningFlow);
+    }
   }
 
-  private void finalizeFlows(final ExecutableFlow flow) {
+  /**
+   * @return false if the flow couldn't be marked finished in the DB
+   */
+  private boolean finalizeFlows(final ExecutableFlow flow) {
 
     final int execId = flow.getExecutionId();
     boolean alertUser = true;
@@ -1249,6 +1482,7 @@ public class ExecutorManager extends EventHandler implements
         this.executorLoader.updateExecutableFlow(dsFlow);
       }
       this.executorLoader.removeActiveExecutableReference(execId);
+      removeNodeStates(execId);
 
       this.updaterStage = "finalizing flow " + execId + " cleaning from memory";
       this.runningFlows.remove(execId);
@@ -1315,7 +1549,19 @@ public class ExecutorManager extends EventHandler implements
         }
       }
     }
+    return alertUser;
+  }
 
+  /*
+   * The executor removes the node states of the flows which finish on it. The flows which time out,
+   * fail to be dispatched or are lost with their executor are finalized here instead.
+   */
+  private void removeNodeStates(final int execId) {
+    try {
+      this.executorLoader.removeExecutableFlowNodeStates(execId);
+    } catch (final ExecutorManagerException e) {
+      logger.warn("Failed to remove the node states of execution " + execId, e);
+    }
   }
 
   private void failEverything(final ExecutableFlow exFlow) {
@@ -1380,7 +1626,10 @@ public class ExecutorManager extends EventHandler implements
     ref.setNextCheckTime(0);
     ref.setNumErrors(0);
     final Status oldStatus = flow.getStatus();
-    flow.applyUpdateObject(updateData);
+    // under the lock of the flow, which getExecutableFlow copies it under
+    synchronized (flow) {
+      flow.applyUpdateObject(updateData);
+    }
     final Status newStatus = flow.getStatus();
 
     if (oldStatus != newStatus && newStatus == Status.FAILED) {
@@ -1439,6 +1688,84 @@ public class ExecutorManager extends EventHandler implements
     }
   }
 
+  /**
+   * Applies the flow updates returned by an executor. Flows which are finished, or which the
+   * executor doesn't know about, are added to finalizeFlows.
+   */
+  @SuppressWarnings("unchecked")
+  private void applyExecutionUpdates(final Map<String, Object> results,
+      final List<ExecutableFlow> finalizeFlows) {
+    final List<Map<String, Object>> executionUpdates =
+        (List<Map<String, Object>>) results.get(ConnectorParams.RESPONSE_UPDATED_FLOWS);
+    for (final Map<String, Object> updateMap : executionUpdates) {
+      try {
+        final ExecutableFlow flow = updateExecution(updateMap);
+
+        this.updaterStage = "Updated flow " + flow.getExecutionId();
+
+        if (isFinished(flow)) {
+          finalizeFlows.add(flow);
+        }
+      } catch (final ExecutorManagerException e) {
+        final ExecutableFlow flow = e.getExecutableFlow();
+        logger.error(e);
+
+        if (flow != null) {
+          logger.error("Finalizing flow " + flow.getExecutionId());
+          finalizeFlows.add(flow);
+        }
+      }
+    }
+  }
+
+  /**
+   * Backs off the given flows after their executor failed to return updates. Flows which have
+   * failed too many times in a row are added to finalizeFlows.
+   */
+  private void handleExecutionUpdateFailure(final List<ExecutableFlow> flows,
+      final List<ExecutableFlow> finalizeFlows) {
+    for (final ExecutableFlow flow : flows) {
+      final Pair<ExecutionReference, ExecutableFlow> pair =
+          this.runningFlows.get(flow.getExecutionId());
+
+      if (pair != null) {
+        this.updaterStage =
+            "Failed to get update. Doing some clean up for flow "
+                + pair.getSecond().getExecutionId();
+
+        final ExecutionReference ref = pair.getFirst();
+        int numErrors = ref.getNumErrors();
+        if (ref.getNumErrors() < MAX_UPDATE_ERRORS) {
+          ref.setNextCheckTime(System.currentTimeMillis() + UPDATE_ERROR_BACKOFF_MS);
+          ref.setNumErrors(++numErrors);
+        } else {
+          logger.error("Evicting flow " + flow.getExecutionId()
+              + ". The executor is unresponsive.");
+          // TODO should send out an unresponsive email here.
+          finalizeFlows.add(pair.getSecond());
+        }
+      }
+    }
+  }
+
+  /**
+   * Makes sure there is an update stream for the executor.
+   *
+   * @return true if the stream is receiving updates, so the executor doesn't need to be polled.
+   */
+  private boolean isStreamingUpdates(final Executor executor) {
+    final ExecutorUpdateStreamThread stream = this.updateStreams.compute(executor.getId(),
+        (id, current) -> {
+          if (current != null && current.isAlive()) {
+            return current;
+          }
+          final ExecutorUpdateStreamThread newStream = new ExecutorUpdateStreamThread(executor);
+          newStream.start();
+          return newStream;
+        });
+    return stream.isHealthy();
+  }
+
   /* Group Executable flow by Executors to reduce number of REST calls */
   private Map<Executor, List<ExecutableFlow>> getFlowToExecutorMap() {
     final HashMap<Executor, List<ExecutableFlow>> exFlowMap =
@@ -1469,17 +1796,17 @@ public class ExecutorManager extends EventHandler implements
   }
 
   @Override
-  public int getExecutableFlows(final int projectId, final String flowId, final int from,
-      final int length, final List<ExecutableFlow> outputList)
+  public int getExecutionSummaries(final int projectId, final String flowId, final int from,
+      final int length, final List<ExecutionSummary> outputList)
       throws ExecutorManagerException {
-    final List<ExecutableFlow> flows =
+    final List<ExecutionSummary> flows =
         this.executorLoader.fetchFlowHistory(projectId, flowId, from, length);
     outputList.addAll(flows);
     return this.executorLoader.fetchNumExecutableFlows(projectId, flowId);
   }
 
   @Override
-  public List<ExecutableFlow> getExecutableFlows(final int projectId, final String flowId,
+  public List<ExecutionSummary> getExecutionSummaries(final int projectId, final String flowId,
       final int from, final int length, final Status status) throws ExecutorManagerException {
     return this.executorLoader.fetchFlowHistory(projectId, flowId, from, length,
         status);
@@ -1526,10 +1853,8 @@ public class ExecutorManager extends EventHandler implements
 
     private final int waitTimeIdleMs = 2000;
     private final int waitTimeMs = 500;
-    // When we have an http error, for that flow, we'll check every 10 secs, 6
-    // times (1 mins) before we evict.
-    private final int numErrors = 6;
-    private final long errorThreshold = 10000;
+    // polls in progress, by executor id
+    private final Map<Integer, ExecutorUpdatePoll> polls = new HashMap<>();
     private boolean shutdown = false;
 
     public ExecutingManagerUpdaterThread() {
@@ -1541,7 +1866,6 @@ public class ExecutorManager extends EventHandler implements
     }
 
     @Override
-    @SuppressWarnings("unchecked")
     public void run() {
       while (!this.shutdown) {
         try {
@@ -1550,103 +1874,46 @@ public class ExecutorManager extends EventHandler implements
 
           final Map<Executor, List<ExecutableFlow>> exFlowMap =
               getFlowToExecutorMap();
-          final ArrayList<ExecutableFlow> finishedFlows =
-              new ArrayList<>();
           final ArrayList<ExecutableFlow> finalizeFlows =
               new ArrayList<>();
 
-          if (exFlowMap.size() > 0) {
-            for (final Map.Entry<Executor, List<ExecutableFlow>> entry : exFlowMap
-                .entrySet()) {
-              final List<Long> updateTimesList = new ArrayList<>();
-              final List<Integer> executionIdsList = new ArrayList<>();
+          // Give up on the polls which are taking too long, and forget the finished ones.
+          final long now = System.currentTimeMillis();
+          for (final ExecutorUpdatePoll poll : this.polls.values()) {
+            if (!poll.isFinished() && poll.isTimedOut(now)) {
+              poll.timeOut(finalizeFlows);
+            }
+          }
+          this.polls.values().removeIf(ExecutorUpdatePoll::isFinished);
 
-              final Executor executor = entry.getKey();
+          for (final Map.Entry<Executor, List<ExecutableFlow>> entry : exFlowMap.entrySet()) {
+            final Executor executor = entry.getKey();
 
-              ExecutorManager.this.updaterStage =
-                  "Starting update flows on " + executor.getHost() + ":"
-                      + executor.getPort();
+            // The poller is the fallback for executors whose update stream isn't working.
+            if (ExecutorManager.this.updateStreamingEnabled && isStreamingUpdates(executor)) {
+              continue;
+            }
 
-              // We pack the parameters of the same host together before we
-              // query.
-              fillUpdateTimeAndExecId(entry.getValue(), executionIdsList,
-                  updateTimesList);
+            // Only one poll per executor at a time. A slow executor doesn't hold up the others.
+            if (this.polls.containsKey(executor.getId())) {
+              continue;
+            }
 
-              final Pair<String, String> updateTimes =
-                  new Pair<>(
-                      ConnectorParams.UPDATE_TIME_LIST_PARAM,
-                      JSONUtils.toJSON(updateTimesList));
-              final Pair<String, String> executionIds =
-                  new Pair<>(ConnectorParams.EXEC_ID_LIST_PARAM,
-                      JSONUtils.toJSON(executionIdsList));
-
-              Map<String, Object> results = null;
-              try {
-                results =
-                    ExecutorManager.this.apiGateway.callWithExecutionId(executor.getHost(),
-                        executor.getPort(), ConnectorParams.UPDATE_ACTION,
-                        null, null, executionIds, updateTimes);
-              } catch (final ExecutorManagerException e) {
-                logger.error(e);
-                for (final ExecutableFlow flow : entry.getValue()) {
-                  final Pair<ExecutionReference, ExecutableFlow> pair =
-                      ExecutorManager.this.runningFlows.get(flow.getExecutionId());
-
-                  ExecutorManager.this.updaterStage =
-                      "Failed to get update. Doing some clean up for flow "
-                          + pair.getSecond().getExecutionId();
-
-                  if (pair != null) {
-                    final ExecutionReference ref = pair.getFirst();
-                    int numErrors = ref.getNumErrors();
-                    if (ref.getNumErrors() < this.numErrors) {
-                      ref.setNextCheckTime(System.currentTimeMillis()
-                          + this.errorThreshold);
-                      ref.setNumErrors(++numErrors);
-                    } else {
-                      logger.error("Evicting flow " + flow.getExecutionId()
-                          + ". The executor is unresponsive.");
-                      // TODO should send out an unresponsive email here.
-                      finalizeFlows.add(pair.getSecond());
-                    }
-                  }
-                }
-              }
+            ExecutorManager.this.updaterStage =
+                "Starting update flows on " + executor.getHost() + ":" + executor.getPort();
 
-              // We gets results
-              if (results != null) {
-                final List<Map<String, Object>> executionUpdates =
-                    (List<Map<String, Object>>) results
-                        .get(ConnectorParams.RESPONSE_UPDATED_FLOWS);
-                for (final Map<String, Object> updateMap : executionUpdates) {
-                  try {
-                    final ExecutableFlow flow = updateExecution(updateMap);
-
-                    ExecutorManager.this.updaterStage = "Updated flow " + flow.getExecutionId();
-
-                    if (isFinished(flow)) {
-                      finishedFlows.add(flow);
-                      finalizeFlows.add(flow);
-                    }
-                  } catch (final ExecutorManagerException e) {
-                    final ExecutableFlow flow = e.getExecutableFlow();
-                    logger.error(e);
-
-                    if (flow != null) {
-                      logger.error("Finalizing flow " + flow.getExecutionId());
-                      finalizeFlows.add(flow);
-                    }
-                  }
-                }
-              }
-            }
+            final ExecutorUpdatePoll poll = new ExecutorUpdatePoll(executor, entry.getValue());
+            this.polls.put(executor.getId(), poll);
+            ExecutorManager.this.executorUpdaterService.execute(poll);
+          }
 
+          if (!finalizeFlows.isEmpty()) {
             ExecutorManager.this.updaterStage =
                 "Finalizing " + finalizeFlows.size() + " error flows.";
 
             // Kill error flows
             for (final ExecutableFlow flow : finalizeFlows) {
-              finalizeFlows(flow);
+              finalizeRunningFlow(flow);
             }
           }
 
@@ -1669,6 +1936,195 @@ public class ExecutorManager extends EventHandler implements
     }
   }
 
+  /*
+   * Polls one executor for updates of the given flows, on a thread of the executorUpdaterService.
+   * The updates are applied as soon as the executor answers, independently of the polls of the
+   * other executors. If the executor doesn't answer within the update timeout, the
+   * ExecutingManagerUpdaterThread gives up on the poll and treats it as failed: the flows back off
+   * and are eventually evicted, as for any other error. A late answer is then discarded. The
+   * request itself times out as well, so that a dead executor doesn't hold a thread forever.
+   */
+  private class ExecutorUpdatePoll implements Runnable {
+
+    private final Executor executor;
+    private final List<ExecutableFlow> flows;
+    // set when the poll gets a thread, not when it's queued
+    private volatile long startTime = -1;
+    // set by whichever handles the outcome first: the poll itself or the timeout
+    private final AtomicBoolean handled = new AtomicBoolean(false);
+    private volatile boolean finished = false;
+
+    public ExecutorUpdatePoll(final Executor executor, final List<ExecutableFlow> flows) {
+      this.executor = executor;
+      this.flows = flows;
+    }
+
+    public boolean isFinished() {
+      return this.finished;
+    }
+
+    public boolean isTimedOut(final long now) {
+      final long started = this.startTime;
+      return started >= 0 && now - started > ExecutorManager.this.updateTimeoutMs;
+    }
+
+    public void timeOut(final List<ExecutableFlow> finalizeFlows) {
+      if (this.handled.compareAndSet(false, true)) {
+        logger.error("Timed out polling executor " + this.executor + " for flow updates.");
+        handleExecutionUpdateFailure(this.flows, finalizeFlows);
+      }
+    }
+
+    @Override
+    public void run() {
+      this.startTime = System.currentTimeMillis();
+      try {
+        final List<Long> updateTimesList = new ArrayList<>();
+        final List<Integer> executionIdsList = new ArrayList<>();
+        // We pack the parameters of the same host together before we query.
+        fillUpdateTimeAndExecId(this.flows, executionIdsList, updateTimesList);
+
+        Map<String, Object> results = null;
+        ExecutorManagerException error = null;
+        try {
+          results = ExecutorManager.this.apiGateway.callWithTimeout(this.executor.getHost(),
+              this.executor.getPort(), ConnectorParams.UPDATE_ACTION, Arrays.asList(
+                  new Pair<>(ConnectorParams.EXEC_ID_LIST_PARAM,
+                      JSONUtils.toJSON(executionIdsList)),
+                  new Pair<>(ConnectorParams.UPDATE_TIME_LIST_PARAM,
+                      JSONUtils.toJSON(updateTimesList))),
+              (int) ExecutorManager.this.updateTimeoutMs);
+        } catch (final ExecutorManagerException e) {
+          error = e;
+        }
+        ExecutorManager.this.commonMetrics.updateExecutorUpdateLatency(this.executor.getId(),
+            System.currentTimeMillis() - this.startTime);
+
+        if (!this.handled.compareAndSet(false, true)) {
+          logger.info("Discarding late flow updates from executor " + this.executor);
+          return;
+        }
+
+        final List<ExecutableFlow> finalizeFlows = new ArrayList<>();
+        if (error != null) {
+          logger.error(error);
+          handleExecutionUpdateFailure(this.flows, finalizeFlows);
+        } else if (results != null) {
+          applyExecutionUpdates(results, finalizeFlows);
+        }
+        for (final ExecutableFlow flow : finalizeFlows) {
+          finalizeRunningFlow(flow);
+        }
+      } catch (final Exception e) {
+        logger.error("Failed to update flows of executor " + this.executor, e);
+      } finally {
+        this.finished = true;
+      }
+    }
+  }
+
+  /*
+   * Long-polls one executor for updates of the flows running on it. Each response is applied as
+   * soon as it arrives, so status changes reach the web server without waiting for the next poll.
+   * If the executor can't be reached, the stream reports itself unhealthy and the
+   * ExecutingManagerUpdaterThread polls (and eventually evicts) the flows of the executor until the
+   * stream recovers. The thread exits when the executor has had no running flows for a while.
+   */
+  private class ExecutorUpdateStreamThread extends Thread {
+
+    private static final long IDLE_WAIT_MS = 2000;
+    private static final long MAX_IDLE_MS = 60 * 1000;
+
+    private final Executor executor;
+    private volatile boolean healthy = false;
+    private volatile boolean shutdown = false;
+
+    public ExecutorUpdateStreamThread(final Executor executor) {
+      this.executor = executor;
+      this.setName("ExecutorUpdateStreamThread-" + executor.getId());
+      this.setDaemon(true);
+    }
+
+    public boolean isHealthy() {
+      return this.healthy;
+    }
+
+    public void shutdown() {
+      this.shutdown = true;
+      this.interrupt();
+    }
+
+    @Override
+    public void run() {
+      long lastActiveTime = System.currentTimeMillis();
+      try {
+        while (!this.shutdown) {
+          final List<ExecutableFlow> flows = getRunningFlowsOnExecutor();
+          if (flows.isEmpty()) {
+            if (System.currentTimeMillis() - lastActiveTime > MAX_IDLE_MS) {
+              break;
+            }
+            synchronized (ExecutorManager.this) {
+              // woken up by dispatch()
+              ExecutorManager.this.wait(IDLE_WAIT_MS);
+            }
+            continue;
+          }
+          lastActiveTime = System.currentTimeMillis();
+
+          final List<Long> updateTimesList = new ArrayList<>();
+          final List<Integer> executionIdsList = new ArrayList<>();
+          fillUpdateTimeAndExecId(flows, executionIdsList, updateTimesList);
+
+          final Map<String, Object> results;
+          try {
+            results = ExecutorManager.this.apiGateway.callWithExecutionId(
+                this.executor.getHost(), this.executor.getPort(),
+                ConnectorParams.UPDATE_STREAM_ACTION, null, null, Arrays.asList(
+                    new Pair<>(ConnectorParams.EXEC_ID_LIST_PARAM,
+                        JSONUtils.toJSON(executionIdsList)),
+                    new Pair<>(ConnectorParams.UPDATE_TIME_LIST_PARAM,
+                        JSONUtils.toJSON(updateTimesList)),
+                    new Pair<>(ConnectorParams.STREAM_TIMEOUT_PARAM,
+                        String.valueOf(ExecutorManager.this.updateStreamingTimeoutMs))));
+          } catch (final ExecutorManagerException e) {
+            this.healthy = false;
+            logger.warn("Update stream of executor " + this.executor
+                + " failed. Falling back to polling.", e);
+            Thread.sleep(UPDATE_ERROR_BACKOFF_MS);
+            continue;
+          }
+          this.healthy = true;
+
+          final List<ExecutableFlow> finalizeFlows = new ArrayList<>();
+          applyExecutionUpdates(results, finalizeFlows);
+          for (final ExecutableFlow flow : finalizeFlows) {
+            finalizeRunningFlow(flow);
+          }
+        }
+      } catch (final InterruptedException e) {
+        logger.info("Update stream of executor " + this.executor + " interrupted.");
+      } catch (final Exception e) {
+        logger.error("Update stream of executor " + this.executor + " stopped.", e);
+      } finally {
+        this.healthy = false;
+        ExecutorManager.this.updateStreams.remove(this.executor.getId(), this);
+      }
+    }
+
+    private List<ExecutableFlow> getRunningFlowsOnExecutor() {
+      final List<ExecutableFlow> flows = new ArrayList<>();
+      for (final Pair<ExecutionReference, ExecutableFlow> runningFlow : ExecutorManager.this
+          .runningFlows.values()) {
+        final Executor flowExecutor = runningFlow.getFirst().getExecutor();
+        if (flowExecutor != null && flowExecutor.getId() == this.executor.getId()) {
+          flows.add(runningFlow.getSecond());
+        }
+      }
+      return flows;
+    }
+  }
+
   /*
    * cleaner thread to clean up execution_logs, etc in DB. Runs every hour.
    */
@@ -1736,6 +2192,13 @@ public class ExecutorManager extends EventHandler implements
     private final int maxDispatchingErrors;
     private final long activeExecutorRefreshWindowInMilisec;
     private final int activeExecutorRefreshWindowInFlows;
+    private final ExecutorSelector executorSelector;
+    // null if the flows are dispatched one at a time by this thread
+    private final ExecutorService dispatcherService;
+    // the dispatches in progress to each executor, by executor id
+    private final Map<Integer, DispatchLane> dispatchLanes = new HashMap<>();
+    // the executors which failed to accept a requeued flow, by execution id
+    private final Map<Integer, Set<Integer>> failedExecutorIds = new ConcurrentHashMap<>();
 
     private volatile boolean shutdown = false;
     private volatile boolean isActive = true;
@@ -1743,16 +2206,30 @@ public class ExecutorManager extends EventHandler implements
     public QueueProcessorThread(final boolean isActive,
         final long activeExecutorRefreshWindowInTime,
         final int activeExecutorRefreshWindowInFlows,
-        final int maxDispatchingErrors) {
+        final int maxDispatchingErrors,
+        final int dispatchThreads) {
       setActive(isActive);
       this.maxDispatchingErrors = maxDispatchingErrors;
       this.activeExecutorRefreshWindowInFlows =
           activeExecutorRefreshWindowInFlows;
       this.activeExecutorRefreshWindowInMilisec =
           activeExecutorRefreshWindowInTime;
+      this.executorSelector = new ExecutorSelector(ExecutorManager.this.filterList,
+          ExecutorManager.this.comparatorWeightsMap);
+      if (dispatchThreads > 1) {
+        this.dispatcherService = Executors.newFixedThreadPool(dispatchThreads,
+            new ThreadFactoryBuilder().setNameFormat("azk-flow-dispatcher-%d").setDaemon(true)
+                .build());
+      } else {
+        this.dispatcherService = null;
+      }
       this.setName("AzkabanWebServer-QueueProcessor-Thread");
     }
 
+    private boolean isDispatchingConcurrently() {
+      return this.dispatcherService != null;
+    }
+
     public boolean isActive() {
       return this.isActive;
     }
@@ -1765,6 +2242,9 @@ public class ExecutorManager extends EventHandler implements
     public void shutdown() {
       this.shutdown = true;
       this.interrupt();
+      if (isDispatchingConcurrently()) {
+        this.dispatcherService.shutdownNow();
+      }
     }
 
     @Override
@@ -1802,12 +2282,15 @@ public class ExecutorManager extends EventHandler implements
 
         // if we have dispatched more than maxContinuousFlowProcessed or
         // It has been more then activeExecutorsRefreshWindow millisec since we
-        // refreshed
+        // refreshed. When dispatching concurrently, the executorInfo snapshot is kept up to date
+        // by reserving capacity for every dispatched flow, so only the time window applies.
 
         if (currentTime - lastExecutorRefreshTime > activeExecutorsRefreshWindow
-            || currentContinuousFlowProcessed >= maxContinuousFlowProcessed) {
+            || (!isDispatchingConcurrently()
+            && currentContinuousFlowProcessed >= maxContinuousFlowProcessed)) {
           // Refresh executorInfo for all activeExecutors
           refreshExecutors();
+          reservePendingDispatches();
           lastExecutorRefreshTime = currentTime;
           currentContinuousFlowProcessed = 0;
         }
@@ -1837,8 +2320,13 @@ public class ExecutorManager extends EventHandler implements
         } else {
           exflow.setUpdateTime(currentTime);
           // process flow with current snapshot of activeExecutors
-          selectExecutorAndDispatchFlow(reference, exflow, new HashSet<>(
-              ExecutorManager.this.activeExecutors));
+          if (isDispatchingConcurrently()) {
+            selectExecutorAndQueueDispatch(reference, exflow, new HashSet<>(
+                ExecutorManager.this.activeExecutors));
+          } else {
+            selectExecutorAndDispatchFlow(reference, exflow, new HashSet<>(
+                ExecutorManager.this.activeExecutors));
+          }
           ExecutorManager.this.runningCandidate = null;
         }
 
@@ -1874,6 +2362,114 @@ public class ExecutorManager extends EventHandler implements
       }
     }
 
+    /*
+     * Selects an executor for the flow and queues the dispatch in the lane of that executor. The
+     * selection is done by this thread, in priority order, against the current snapshot of
+     * executorInfo. Capacity is reserved on the snapshot right away, so the next flows see the
+     * executor as busier without waiting for the dispatch or the next refresh.
+     */
+    private void selectExecutorAndQueueDispatch(final ExecutionReference reference,
+        final ExecutableFlow exflow, final Set<Executor> availableExecutors)
+        throws ExecutorManagerException {
+      synchronized (exflow) {
+        // a requeued flow isn't dispatched again to the executors which failed to accept it
+        final Set<Integer> failedIds = this.failedExecutorIds.get(exflow.getExecutionId());
+        if (failedIds != null) {
+          availableExecutors.removeIf(executor -> failedIds.contains(executor.getId()));
+        }
+        final Executor selectedExecutor = selectExecutor(exflow, availableExecutors);
+        if (selectedExecutor == null) {
+          ExecutorManager.this.commonMetrics.markDispatchFail();
+          handleNoExecutorSelectedCase(reference, exflow);
+          return;
+        }
+        reserveCapacity(selectedExecutor, 1);
+        ExecutorManager.this.dispatchingFlows.put(exflow.getExecutionId(),
+            new Pair<>(reference, exflow));
+        this.dispatchLanes.computeIfAbsent(selectedExecutor.getId(), id -> new DispatchLane())
+            .submit(() -> dispatchQueuedFlow(reference, exflow, selectedExecutor,
+                availableExecutors.size()));
+      }
+    }
+
+    /*
+     * Runs on the dispatcherService, in the lane of the executor. The flow is removed from the
+     * dispatchingFlows under its lock, once it's running or back in the queue, so cancelFlow always
+     * finds it in one of them.
+     */
+    private void dispatchQueuedFlow(final ExecutionReference reference,
+        final ExecutableFlow exflow, final Executor executor, final int numAvailableExecutors) {
+      final int execId = exflow.getExecutionId();
+      synchronized (exflow) {
+        try {
+          if (!ExecutorManager.this.dispatchingFlows.containsKey(execId)) {
+            logger.info("Exec " + execId + " was cancelled before it was dispatched");
+            this.failedExecutorIds.remove(execId);
+            return;
+          }
+          dispatch(reference, exflow, executor);
+          ExecutorManager.this.commonMetrics.markDispatchSuccess();
+          this.failedExecutorIds.remove(execId);
+        } catch (final ExecutorManagerException e) {
+          ExecutorManager.this.commonMetrics.markDispatchFail();
+          logger.warn(String.format(
+              "Executor %s responded with exception for exec: %d", executor, execId), e);
+          reference.setNumErrors(reference.getNumErrors() + 1);
+          if (reference.getNumErrors() > this.maxDispatchingErrors
+              || numAvailableExecutors <= 1) {
+            logger.error("Failed to process queued flow");
+            this.failedExecutorIds.remove(execId);
+            finalizeFlows(exflow);
+          } else {
+            // retried on another executor after the next executor refresh
+            this.failedExecutorIds.computeIfAbsent(execId, id -> ConcurrentHashMap.newKeySet())
+                .add(executor.getId());
+            requeueFlow(reference, exflow);
+          }
+        } catch (final Exception e) {
+          logger.error("Failed to dispatch exec " + execId, e);
+        } finally {
+          ExecutorManager.this.dispatchingFlows.remove(execId);
+        }
+      }
+    }
+
+    /* A flow which can't be put back in the queue would never run, so it's failed instead */
+    private void requeueFlow(final ExecutionReference reference, final ExecutableFlow exflow) {
+      try {
+        ExecutorManager.this.queuedFlows.enqueue(exflow, reference);
+      } catch (final ExecutorManagerException e) {
+        logger.error("Failed to requeue exec " + exflow.getExecutionId(), e);
+        this.failedExecutorIds.remove(exflow.getExecutionId());
+        finalizeFlows(exflow);
+      }
+    }
+
+    /* Accounts for the flows dispatched to the executor but not yet in its executorInfo */
+    private void reserveCapacity(final Executor executor, final int numFlows) {
+      final ExecutorInfo executorInfo = executor.getExecutorInfo();
+      if (executorInfo != null && numFlows > 0) {
+        executorInfo.setRemainingFlowCapacity(executorInfo.getRemainingFlowCapacity() - numFlows);
+        executorInfo.setNumberOfAssignedFlows(executorInfo.getNumberOfAssignedFlows() + numFlows);
+        executorInfo.setLastDispatchedTime(System.currentTimeMillis());
+      }
+    }
+
+    /* The refreshed executorInfo doesn't know about the dispatches which are still in progress */
+    private void reservePendingDispatches() {
+      if (!isDispatchingConcurrently()) {
+        return;
+      }
+      synchronized (ExecutorManager.this.activeExecutors) {
+        for (final Executor executor : ExecutorManager.this.activeExecutors) {
+          final DispatchLane lane = this.dispatchLanes.get(executor.getId());
+          if (lane != null) {
+            reserveCapacity(executor, lane.getPendingDispatches());
+          }
+        }
+      }
+    }
+
     /* Helper method to fetch  overriding Executor, if a valid user has specifed otherwise return null */
     private Executor getUserSpecifiedExecutor(final ExecutionOptions options,
         final int executionId) {
@@ -1922,9 +2518,7 @@ public class ExecutorManager extends EventHandler implements
       if (choosenExecutor == null) {
         logger.info("Using dispatcher for execution id :"
             + exflow.getExecutionId());
-        final ExecutorSelector selector = new ExecutorSelector(ExecutorManager.this.filterList,
-            ExecutorManager.this.comparatorWeightsMap);
-        choosenExecutor = selector.getBest(availableExecutors, exflow);
+        choosenExecutor = this.executorSelector.getBest(availableExecutors, exflow);
       }
       return choosenExecutor;
     }
@@ -1960,5 +2554,31 @@ public class ExecutorManager extends EventHandler implements
       // schedule can starve all others
       ExecutorManager.this.queuedFlows.enqueue(exflow, reference);
     }
+
+    /*
+     * The dispatches to one executor. They run one after another on the dispatcherService, in the
+     * order they were queued, while the dispatches to other executors run in parallel.
+     */
+    private class DispatchLane {
+
+      private final AtomicInteger pendingDispatches = new AtomicInteger();
+      // only accessed by the QueueProcessorThread
+      private CompletableFuture<Void> tail = CompletableFuture.completedFuture(null);
+
+      public int getPendingDispatches() {
+        return this.pendingDispatches.get();
+      }
+
+      public void submit(final Runnable dispatch) {
+        this.pendingDispatches.incrementAndGet();
+        this.tail = this.tail.thenRunAsync(() -> {
+          try {
+            dispatch.run();
+          } finally {
+            this.pendingDispatches.decrementAndGet();
+          }
+        }, QueueProcessorThread.this.dispatcherService);
+      }
+    }
   }
 }
@@ -21,6 +21,7 @@ import azkaban.utils.FileIOUtils.JobMetaData;
 import azkaban.utils.FileIOUtils.LogData;
 import azkaban.utils.Pair;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.lang.Thread.State;
 import java.util.Collection;
 import java.util.List;
@@ -49,24 +50,28 @@ public interface ExecutorManagerAdapter {
 
   public List<ExecutableFlow> getRecentlyFinishedFlows();
 
-  public List<ExecutableFlow> getExecutableFlows(Project project,
+  /**
+   * The summaries of the executions, for the listing pages. They are read without the flow data of
+   * the executions, which {@link #getExecutableFlow(int)} reads for the detail page.
+   */
+  public List<ExecutionSummary> getExecutionSummaries(Project project,
       String flowId, int skip, int size) throws ExecutorManagerException;
 
-  public List<ExecutableFlow> getExecutableFlows(int skip, int size)
+  public List<ExecutionSummary> getExecutionSummaries(int skip, int size)
       throws ExecutorManagerException;
 
-  public List<ExecutableFlow> getExecutableFlows(String flowIdContains,
+  public List<ExecutionSummary> getExecutionSummaries(String flowIdContains,
       int skip, int size) throws ExecutorManagerException;
 
-  public List<ExecutableFlow> getExecutableFlows(String projContain,
+  public List<ExecutionSummary> getExecutionSummaries(String projContain,
       String flowContain, String userContain, int status, long begin, long end,
       int skip, int size) throws ExecutorManagerException;
 
-  public int getExecutableFlows(int projectId, String flowId, int from,
-      int length, List<ExecutableFlow> outputList)
+  public int getExecutionSummaries(int projectId, String flowId, int from,
+      int length, List<ExecutionSummary> outputList)
       throws ExecutorManagerException;
 
-  public List<ExecutableFlow> getExecutableFlows(int projectId, String flowId,
+  public List<ExecutionSummary> getExecutionSummaries(int projectId, String flowId,
       int from, int length, Status status) throws ExecutorManagerException;
 
   public List<ExecutableJobInfo> getExecutableJobs(Project project,
@@ -84,6 +89,27 @@ public interface ExecutorManagerAdapter {
   public LogData getExecutionJobLog(ExecutableFlow exFlow, String jobId,
       int offset, int length, int attempt) throws ExecutorManagerException;
 
+  /**
+   * Copies the range of the log of the job, if its flow is running, from the executor to the
+   * output as raw bytes, without decoding them.
+   *
+   * @return false if the flow isn't running, in which case its log is read with {@link
+   * #getExecutionJobLog(ExecutableFlow, String, int, int, int)}
+   */
+  public boolean streamExecutionJobLog(ExecutableFlow exFlow, String jobId, int offset,
+      int length, int attempt, OutputStream out) throws ExecutorManagerException;
+
+  /**
+   * Copies the job log from the offset to the output as it is written, until the log ends or the
+   * executor ends the request. The log of a flow which isn't running is copied to its end from the
+   * DB.
+   *
+   * @return true if the log was copied to its end, false if it has to be followed again from the
+   * offset reached
+   */
+  public boolean followExecutionJobLog(ExecutableFlow exFlow, String jobId, long offset,
+      int attempt, OutputStream out) throws ExecutorManagerException;
+
   public List<Object> getExecutionJobStats(ExecutableFlow exflow, String jobId,
       int attempt) throws ExecutorManagerException;
 
@@ -150,6 +176,12 @@ public interface ExecutorManagerAdapter {
 
   public boolean isExecutorManagerThreadActive();
 
+  /**
+   * @return true if the queue of the submitted executions is at its capacity, so a submission
+   * would be rejected
+   */
+  public boolean isQueueFull();
+
   public long getLastExecutorManagerThreadCheckTime();
 
   public Set<? extends String> getPrimaryServerHosts();
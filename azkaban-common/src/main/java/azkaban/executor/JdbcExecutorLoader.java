@@ -26,11 +26,15 @@ import java.io.File;
 import java.time.Duration;
 import java.util.List;
 import java.util.Map;
+import org.apache.log4j.Logger;
 
 @Singleton
 public class JdbcExecutorLoader implements ExecutorLoader {
 
+  private static final Logger logger = Logger.getLogger(JdbcExecutorLoader.class);
   private final ExecutionFlowDao executionFlowDao;
+  private final ExecutionSummaryDao executionSummaryDao;
+  private final ExecutionSearchIndex executionSearchIndex;
   private final ExecutorDao executorDao;
   private final ExecutionJobDao executionJobDao;
   private final ExecutionLogsDao executionLogsDao;
@@ -39,9 +43,13 @@ public class JdbcExecutorLoader implements ExecutorLoader {
   private final FetchActiveFlowDao fetchActiveFlowDao;
   private final AssignExecutorDao assignExecutorDao;
   private final NumExecutionsDao numExecutionsDao;
+  private final ExecutionNodeStateDao executionNodeStateDao;
+  private final ExecutionApplicationIdDao executionApplicationIdDao;
 
   @Inject
   public JdbcExecutorLoader(final ExecutionFlowDao executionFlowDao,
+      final ExecutionSummaryDao executionSummaryDao,
+      final ExecutionSearchIndex executionSearchIndex,
       final ExecutorDao executorDao,
       final ExecutionJobDao executionJobDao,
       final ExecutionLogsDao executionLogsDao,
@@ -49,8 +57,12 @@ public class JdbcExecutorLoader implements ExecutorLoader {
       final ActiveExecutingFlowsDao activeExecutingFlowsDao,
       final FetchActiveFlowDao fetchActiveFlowDao,
       final AssignExecutorDao assignExecutorDao,
-      final NumExecutionsDao numExecutionsDao) {
+      final NumExecutionsDao numExecutionsDao,
+      final ExecutionNodeStateDao executionNodeStateDao,
+      final ExecutionApplicationIdDao executionApplicationIdDao) {
     this.executionFlowDao = executionFlowDao;
+    this.executionSummaryDao = executionSummaryDao;
+    this.executionSearchIndex = executionSearchIndex;
     this.executorDao = executorDao;
     this.executionJobDao = executionJobDao;
     this.executionLogsDao = executionLogsDao;
@@ -59,12 +71,20 @@ public class JdbcExecutorLoader implements ExecutorLoader {
     this.fetchActiveFlowDao = fetchActiveFlowDao;
     this.numExecutionsDao = numExecutionsDao;
     this.assignExecutorDao = assignExecutorDao;
+    this.executionNodeStateDao = executionNodeStateDao;
+    this.executionApplicationIdDao = executionApplicationIdDao;
   }
 
   @Override
   public synchronized void uploadExecutableFlow(final ExecutableFlow flow)
       throws ExecutorManagerException {
     this.executionFlowDao.uploadExecutableFlow(flow);
+    try {
+      this.executionSearchIndex.index(flow);
+    } catch (final ExecutorManagerException e) {
+      // the execution can still be listed, only the searches by name miss it
+      logger.warn("Error indexing execution " + flow.getExecutionId() + " for search", e);
+    }
   }
 
   @Override
@@ -73,10 +93,35 @@ public class JdbcExecutorLoader implements ExecutorLoader {
     this.executionFlowDao.updateExecutableFlow(flow);
   }
 
+  @Override
+  public void updateExecutableFlows(final List<ExecutableFlow> flows)
+      throws ExecutorManagerException {
+    this.executionFlowDao.updateExecutableFlows(flows);
+  }
+
+  @Override
+  public void updateExecutableFlowNodeStates(final ExecutableFlow flow, final long lastUpdateTime)
+      throws ExecutorManagerException {
+    this.executionNodeStateDao.updateNodeStates(flow, lastUpdateTime);
+  }
+
+  @Override
+  public void removeExecutableFlowNodeStates(final int execId)
+      throws ExecutorManagerException {
+    if (this.executionNodeStateDao.isEnabled()) {
+      this.executionNodeStateDao.removeNodeStates(execId);
+    }
+  }
+
   @Override
   public ExecutableFlow fetchExecutableFlow(final int id)
       throws ExecutorManagerException {
-    return this.executionFlowDao.fetchExecutableFlow(id);
+    final ExecutableFlow flow = this.executionFlowDao.fetchExecutableFlow(id);
+    if (flow != null && this.executionNodeStateDao.isEnabled()
+        && !Status.isStatusFinished(flow.getStatus())) {
+      this.executionNodeStateDao.applyNodeStates(flow);
+    }
+    return flow;
   }
 
   @Override
@@ -126,31 +171,31 @@ public class JdbcExecutorLoader implements ExecutorLoader {
   }
 
   @Override
-  public List<ExecutableFlow> fetchFlowHistory(final int projectId, final String flowId,
+  public List<ExecutionSummary> fetchFlowHistory(final int projectId, final String flowId,
       final int skip, final int num) throws ExecutorManagerException {
-    return this.executionFlowDao.fetchFlowHistory(projectId, flowId, skip, num);
+    return this.executionSummaryDao.fetchFlowHistory(projectId, flowId, skip, num);
   }
 
   @Override
-  public List<ExecutableFlow> fetchFlowHistory(final int projectId, final String flowId,
+  public List<ExecutionSummary> fetchFlowHistory(final int projectId, final String flowId,
       final int skip, final int num, final Status status) throws ExecutorManagerException {
-    return this.executionFlowDao.fetchFlowHistory(projectId, flowId, skip, num, status);
+    return this.executionSummaryDao.fetchFlowHistory(projectId, flowId, skip, num, status);
   }
 
   @Override
-  public List<ExecutableFlow> fetchFlowHistory(final int skip, final int num)
+  public List<ExecutionSummary> fetchFlowHistory(final int skip, final int num)
       throws ExecutorManagerException {
-    return this.executionFlowDao.fetchFlowHistory(skip, num);
+    return this.executionSummaryDao.fetchFlowHistory(skip, num);
   }
 
   @Override
-  public List<ExecutableFlow> fetchFlowHistory(final String projContain,
+  public List<ExecutionSummary> fetchFlowHistory(final String projContain,
       final String flowContains,
       final String userNameContains, final int status,
       final long startTime,
       final long endTime, final int skip, final int num) throws ExecutorManagerException {
-    return this.executionFlowDao.fetchFlowHistory(projContain, flowContains,
-        userNameContains, status, startTime, endTime, skip, num);
+    return this.executionSearchIndex.search(projContain, flowContains, userNameContains, status,
+        startTime, endTime, skip, num);
   }
 
   @Override
@@ -251,6 +296,24 @@ public class JdbcExecutorLoader implements ExecutorLoader {
     this.executionLogsDao.uploadLogFile(execId, name, attempt, files);
   }
 
+  @Override
+  public void uploadLogChunks(final int execId, final String name, final int attempt,
+      final int startByte, final List<byte[]> chunks) throws ExecutorManagerException {
+    this.executionLogsDao.uploadLogChunks(execId, name, attempt, startByte, chunks);
+  }
+
+  @Override
+  public void uploadApplicationId(final int execId, final String name, final int attempt,
+      final String applicationId) throws ExecutorManagerException {
+    this.executionApplicationIdDao.uploadApplicationId(execId, name, attempt, applicationId);
+  }
+
+  @Override
+  public String fetchApplicationId(final int execId, final String name, final int attempt)
+      throws ExecutorManagerException {
+    return this.executionApplicationIdDao.fetchApplicationId(execId, name, attempt);
+  }
+
   @Override
   public void uploadAttachmentFile(final ExecutableNode node, final File file)
       throws ExecutorManagerException {
@@ -322,6 +385,7 @@ public class JdbcExecutorLoader implements ExecutorLoader {
   @Override
   public int removeExecutionLogsByTime(final long millis)
       throws ExecutorManagerException {
+    this.executionApplicationIdDao.removeApplicationIdsByTime(millis);
     return this.executionLogsDao.removeExecutionLogsByTime(millis);
   }
 
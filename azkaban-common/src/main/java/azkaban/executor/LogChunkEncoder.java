@@ -0,0 +1,137 @@
+/*
+ * Copyright 2018 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package azkaban.executor;
+
+import azkaban.db.EncodingType;
+import azkaban.utils.GZIPUtils;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.InflaterInputStream;
+import org.apache.commons.io.IOUtils;
+
+/**
+ * Encodes the chunks of the execution logs.
+ *
+ * Unlike {@link GZIPUtils#gzipBytes(byte[], int, int)}, which allocates a deflater and grows an
+ * output stream for every chunk, the encoder reuses one deflater and one output buffer for all the
+ * chunks it encodes. It isn't thread safe, and must be closed to free the deflater.
+ */
+class LogChunkEncoder implements AutoCloseable {
+
+  // the header written by GZIPOutputStream
+  private static final byte[] GZIP_HEADER = {0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0,
+      0, 0};
+  private static final int GZIP_TRAILER_SIZE = 8;
+
+  private final EncodingType encType;
+  private final Deflater deflater;
+  private final CRC32 crc = new CRC32();
+  private byte[] outBuffer = new byte[0];
+
+  LogChunkEncoder(final EncodingType encType) {
+    this.encType = encType;
+    switch (encType) {
+      case GZIP:
+        this.deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        break;
+      case DEFLATE:
+        this.deflater = new Deflater(Deflater.BEST_SPEED);
+        break;
+      default:
+        this.deflater = null;
+    }
+  }
+
+  static byte[] decode(final EncodingType encType, final byte[] data) throws IOException {
+    switch (encType) {
+      case GZIP:
+        return GZIPUtils.unGzipBytes(data);
+      case DEFLATE:
+        final ByteArrayOutputStream out = new ByteArrayOutputStream(data.length * 4);
+        try (InputStream in = new InflaterInputStream(new ByteArrayInputStream(data))) {
+          IOUtils.copy(in, out);
+        }
+        return out.toByteArray();
+      default:
+        return data;
+    }
+  }
+
+  EncodingType getEncodingType() {
+    return this.encType;
+  }
+
+  byte[] encode(final byte[] buffer, final int offset, final int length) {
+    if (this.deflater == null) {
+      return Arrays.copyOfRange(buffer, offset, offset + length);
+    }
+
+    final boolean gzip = this.encType == EncodingType.GZIP;
+    int size = 0;
+    if (gzip) {
+      ensureCapacity(GZIP_HEADER.length);
+      System.arraycopy(GZIP_HEADER, 0, this.outBuffer, 0, GZIP_HEADER.length);
+      size = GZIP_HEADER.length;
+    }
+
+    this.deflater.reset();
+    this.deflater.setInput(buffer, offset, length);
+    this.deflater.finish();
+    // enough for incompressible data, so the loop usually runs once
+    ensureCapacity(size + length + length / 8 + 64);
+    while (!this.deflater.finished()) {
+      if (size == this.outBuffer.length) {
+        ensureCapacity(this.outBuffer.length * 2);
+      }
+      size += this.deflater.deflate(this.outBuffer, size, this.outBuffer.length - size);
+    }
+
+    if (gzip) {
+      this.crc.reset();
+      this.crc.update(buffer, offset, length);
+      ensureCapacity(size + GZIP_TRAILER_SIZE);
+      size = writeIntLE(size, (int) this.crc.getValue());
+      size = writeIntLE(size, length);
+    }
+    return Arrays.copyOf(this.outBuffer, size);
+  }
+
+  @Override
+  public void close() {
+    if (this.deflater != null) {
+      this.deflater.end();
+    }
+  }
+
+  private void ensureCapacity(final int capacity) {
+    if (this.outBuffer.length < capacity) {
+      this.outBuffer = Arrays.copyOf(this.outBuffer, capacity);
+    }
+  }
+
+  private int writeIntLE(final int pos, final int value) {
+    for (int i = 0; i < 4; i++) {
+      this.outBuffer[pos + i] = (byte) (value >> (8 * i));
+    }
+    return pos + 4;
+  }
+}
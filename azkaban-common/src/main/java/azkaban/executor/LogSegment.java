@@ -0,0 +1,121 @@
+/*
+ * Copyright 2018 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package azkaban.executor;
+
+import azkaban.db.EncodingType;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.List;
+import org.apache.commons.io.IOUtils;
+
+/**
+ * The format of the segments of execution logs kept in the {@link azkaban.spi.Storage}.
+ *
+ * A segment is a run of consecutive chunks of a log. It starts with a header holding the number of
+ * chunks and the decoded and encoded length of each one, followed by the chunks, each encoded on
+ * its own. So a byte range is read by skipping to the first chunk it covers, which is a seek for
+ * local and HDFS files, and decoding only the chunks of the range.
+ */
+final class LogSegment {
+
+  private static final int CHUNK_HEADER_SIZE = 8;
+
+  private LogSegment() {
+  }
+
+  /**
+   * Writes the chunks to the segment file.
+   *
+   * @return the number of log bytes in the segment
+   */
+  static int write(final LogChunkEncoder encoder, final List<byte[]> chunks, final File file)
+      throws IOException {
+    final byte[][] encodedChunks = new byte[chunks.size()][];
+    int length = 0;
+    try (DataOutputStream out = new DataOutputStream(
+        new BufferedOutputStream(new FileOutputStream(file)))) {
+      out.writeInt(chunks.size());
+      for (int i = 0; i < chunks.size(); i++) {
+        final byte[] chunk = chunks.get(i);
+        encodedChunks[i] = encoder.encode(chunk, 0, chunk.length);
+        out.writeInt(chunk.length);
+        out.writeInt(encodedChunks[i].length);
+        length += chunk.length;
+      }
+      for (final byte[] encodedChunk : encodedChunks) {
+        out.write(encodedChunk);
+      }
+    }
+    return length;
+  }
+
+  /**
+   * Reads the bytes of the log between startByte and endByte which are in the segment.
+   *
+   * @param in the segment, which is read from its start
+   * @param segmentStart position of the segment in the log
+   */
+  static byte[] read(final InputStream in, final EncodingType encType, final int segmentStart,
+      final int startByte, final int endByte) throws IOException {
+    final byte[] count = new byte[4];
+    IOUtils.readFully(in, count);
+    final int numChunks = ByteBuffer.wrap(count).getInt();
+    final ByteBuffer header = ByteBuffer.wrap(new byte[numChunks * CHUNK_HEADER_SIZE]);
+    IOUtils.readFully(in, header.array());
+
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    long toSkip = 0;
+    int chunkStart = segmentStart;
+    for (int i = 0; i < numChunks && chunkStart < endByte; i++) {
+      final int length = header.getInt();
+      final int encodedLength = header.getInt();
+      final int chunkEnd = chunkStart + length;
+      if (chunkEnd <= startByte) {
+        toSkip += encodedLength;
+      } else {
+        skip(in, toSkip);
+        toSkip = 0;
+        final byte[] encodedChunk = new byte[encodedLength];
+        IOUtils.readFully(in, encodedChunk);
+        final byte[] chunk = LogChunkEncoder.decode(encType, encodedChunk);
+        final int offset = Math.max(startByte - chunkStart, 0);
+        out.write(chunk, offset, Math.min(endByte, chunkEnd) - chunkStart - offset);
+      }
+      chunkStart = chunkEnd;
+    }
+    return out.toByteArray();
+  }
+
+  // unlike IOUtils.skip, which reads the bytes it skips
+  private static void skip(final InputStream in, final long bytes) throws IOException {
+    long toSkip = bytes;
+    while (toSkip > 0) {
+      final long skipped = in.skip(toSkip);
+      if (skipped <= 0) {
+        throw new EOFException("Log segment is truncated");
+      }
+      toSkip -= skipped;
+    }
+  }
+}
@@ -1,57 +1,82 @@
 package azkaban.executor;
 
 import azkaban.utils.Pair;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.concurrent.BlockingQueue;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.PriorityBlockingQueue;
-import org.apache.log4j.Logger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * <pre>
  * Composite data structure to represent non-dispatched flows in webserver.
- * This data structure wraps a blocking queue and a concurrent hashmap.
+ * This data structure wraps an indexed priority queue and a concurrent hashmap.
+ *
+ * The queue is a binary heap ordered like {@link ExecutableFlowPriorityComparator}. The sort key
+ * of each flow (priority, update time, execution id) is computed once when the flow is enqueued,
+ * and every flow knows its position in the heap, so a flow can be removed by execution id in
+ * O(log n).
  * </pre>
  */
 public class QueuedExecutions {
 
-  private static final Logger logger = Logger.getLogger(QueuedExecutions.class);
+  private static final int INITIAL_HEAP_CAPACITY = 16;
   final long capacity;
 
   /* map to easily access queued flows */
   final private ConcurrentHashMap<Integer, Pair<ExecutionReference, ExecutableFlow>> queuedFlowMap;
+  /* guards the heap and its index */
+  private final ReentrantLock lock = new ReentrantLock();
+  private final Condition notEmpty = this.lock.newCondition();
+  /* heap entries by execution id */
+  private final Map<Integer, QueuedFlow> heapIndex = new HashMap<>();
   /* actual queue */
-  final private BlockingQueue<Pair<ExecutionReference, ExecutableFlow>> queuedFlowList;
+  private QueuedFlow[] heap = new QueuedFlow[INITIAL_HEAP_CAPACITY];
+  private int heapSize = 0;
 
   public QueuedExecutions(final long capacity) {
     this.capacity = capacity;
     this.queuedFlowMap =
         new ConcurrentHashMap<>();
-    this.queuedFlowList =
-        new PriorityBlockingQueue<>(10,
-            new ExecutableFlowPriorityComparator());
   }
 
   /**
-   * Wraps BoundedQueue Take method to have a corresponding update in queuedFlowMap lookup table
+   * Removes and returns the flow with the highest priority, waiting for one to be enqueued if
+   * necessary.
    */
   public Pair<ExecutionReference, ExecutableFlow> fetchHead()
       throws InterruptedException {
-    final Pair<ExecutionReference, ExecutableFlow> pair = this.queuedFlowList.take();
-    if (pair != null && pair.getFirst() != null) {
-      this.queuedFlowMap.remove(pair.getFirst().getExecId());
+    this.lock.lockInterruptibly();
+    try {
+      while (this.heapSize == 0) {
+        this.notEmpty.await();
+      }
+      final QueuedFlow head = removeAt(0);
+      this.queuedFlowMap.remove(head.execId);
+      return head.pair;
+    } finally {
+      this.lock.unlock();
     }
-    return pair;
   }
 
   /**
    * Helper method to have a single point of deletion in the queued flows
    */
   public void dequeue(final int executionId) {
-    if (this.queuedFlowMap.containsKey(executionId)) {
-      this.queuedFlowList.remove(this.queuedFlowMap.get(executionId));
-      this.queuedFlowMap.remove(executionId);
+    this.lock.lock();
+    try {
+      final QueuedFlow queuedFlow = this.heapIndex.get(executionId);
+      if (queuedFlow != null) {
+        removeAt(queuedFlow.index);
+        this.queuedFlowMap.remove(executionId);
+      }
+    } finally {
+      this.lock.unlock();
     }
   }
 
@@ -64,49 +89,94 @@ public class QueuedExecutions {
    * @param ref
    *          reference to be enqueued
    * @throws ExecutorManagerException
-   *           case 1: if blocking queue put method fails due to
-   *           InterruptedException
-   *           case 2: if there already an element with
-   *           same execution Id
+   *           if there already an element with same execution Id
    * </pre>
    */
   public void enqueue(final ExecutableFlow exflow, final ExecutionReference ref)
       throws ExecutorManagerException {
-    if (hasExecution(exflow.getExecutionId())) {
-      final String errMsg = "Flow already in queue " + exflow.getExecutionId();
-      throw new ExecutorManagerException(errMsg);
-    }
-
-    final Pair<ExecutionReference, ExecutableFlow> pair =
-        new Pair<>(ref, exflow);
+    this.lock.lock();
     try {
-      this.queuedFlowMap.put(exflow.getExecutionId(), pair);
-      this.queuedFlowList.put(pair);
-    } catch (final InterruptedException e) {
-      final String errMsg = "Failed to insert flow " + exflow.getExecutionId();
-      logger.error(errMsg, e);
-      throw new ExecutorManagerException(errMsg);
+      if (hasExecution(exflow.getExecutionId())) {
+        final String errMsg = "Flow already in queue " + exflow.getExecutionId();
+        throw new ExecutorManagerException(errMsg);
+      }
+
+      final QueuedFlow queuedFlow = new QueuedFlow(new Pair<>(ref, exflow));
+      this.queuedFlowMap.put(queuedFlow.execId, queuedFlow.pair);
+      growHeap(this.heapSize + 1);
+      this.heapIndex.put(queuedFlow.execId, queuedFlow);
+      this.heap[this.heapSize] = queuedFlow;
+      siftUp(this.heapSize++);
+      this.notEmpty.signal();
+    } finally {
+      this.lock.unlock();
     }
   }
 
   /**
    * <pre>
-   * Enqueues all the elements of a collection
+   * Enqueues all the elements of a collection. The heap is rebuilt once, in linear time, instead
+   * of inserting the elements one by one. Nothing is enqueued if the collection contains an
+   * execution which is already queued.
    *
    * @param collection
    *
    * @throws ExecutorManagerException
-   *           case 1: if blocking queue put method fails due to
-   *           InterruptedException
-   *           case 2: if there already an element with
+   *           if there already an element with
    *           same execution Id
    * </pre>
    */
   public void enqueueAll(
       final Collection<Pair<ExecutionReference, ExecutableFlow>> collection)
       throws ExecutorManagerException {
-    for (final Pair<ExecutionReference, ExecutableFlow> pair : collection) {
-      enqueue(pair.getSecond(), pair.getFirst());
+    this.lock.lock();
+    try {
+      final Set<Integer> newExecIds = new HashSet<>();
+      for (final Pair<ExecutionReference, ExecutableFlow> pair : collection) {
+        final int execId = pair.getSecond().getExecutionId();
+        if (hasExecution(execId) || !newExecIds.add(execId)) {
+          throw new ExecutorManagerException("Flow already in queue " + execId);
+        }
+      }
+
+      growHeap(this.heapSize + collection.size());
+      for (final Pair<ExecutionReference, ExecutableFlow> pair : collection) {
+        final QueuedFlow queuedFlow = new QueuedFlow(new Pair<>(pair.getFirst(),
+            pair.getSecond()));
+        this.queuedFlowMap.put(queuedFlow.execId, queuedFlow.pair);
+        this.heapIndex.put(queuedFlow.execId, queuedFlow);
+        queuedFlow.index = this.heapSize;
+        this.heap[this.heapSize++] = queuedFlow;
+      }
+      for (int i = (this.heapSize >>> 1) - 1; i >= 0; i--) {
+        siftDown(i);
+      }
+      if (this.heapSize > 0) {
+        this.notEmpty.signalAll();
+      }
+    } finally {
+      this.lock.unlock();
+    }
+  }
+
+  /**
+   * Removes all the queued (flow, reference) pairs and adds them to the given collection, in
+   * priority order.
+   *
+   * @return the number of pairs transferred
+   */
+  public int drainTo(final Collection<? super Pair<ExecutionReference, ExecutableFlow>> collection) {
+    this.lock.lock();
+    try {
+      final QueuedFlow[] drained = Arrays.copyOf(this.heap, this.heapSize);
+      Arrays.sort(drained);
+      for (final QueuedFlow queuedFlow : drained) {
+        collection.add(queuedFlow.pair);
+      }
+      clear();
+      return drained.length;
+    } finally {
+      this.lock.unlock();
     }
   }
 
@@ -128,27 +198,28 @@ public class QueuedExecutions {
    * Fetch flow for an execution. Returns null, if execution not in queue
    */
   public ExecutableFlow getFlow(final int executionId) {
-    if (hasExecution(executionId)) {
-      return this.queuedFlowMap.get(executionId).getSecond();
-    }
-    return null;
+    final Pair<ExecutionReference, ExecutableFlow> pair = this.queuedFlowMap.get(executionId);
+    return pair != null ? pair.getSecond() : null;
   }
 
   /**
    * Fetch Activereference for an execution. Returns null, if execution not in queue
    */
   public ExecutionReference getReference(final int executionId) {
-    if (hasExecution(executionId)) {
-      return this.queuedFlowMap.get(executionId).getFirst();
-    }
-    return null;
+    final Pair<ExecutionReference, ExecutableFlow> pair = this.queuedFlowMap.get(executionId);
+    return pair != null ? pair.getFirst() : null;
   }
 
   /**
    * Size of the queue
    */
   public long size() {
-    return this.queuedFlowList.size();
+    this.lock.lock();
+    try {
+      return this.heapSize;
+    } finally {
+      this.lock.unlock();
+    }
   }
 
   /**
@@ -162,15 +233,120 @@ public class QueuedExecutions {
    * Verify, if queue is empty or not
    */
   public boolean isEmpty() {
-    return this.queuedFlowList.isEmpty() && this.queuedFlowMap.isEmpty();
+    return size() == 0 && this.queuedFlowMap.isEmpty();
   }
 
   /**
    * Empties queue by dequeuing all the elements
    */
   public void clear() {
-    for (final Pair<ExecutionReference, ExecutableFlow> pair : this.queuedFlowMap.values()) {
-      dequeue(pair.getFirst().getExecId());
+    this.lock.lock();
+    try {
+      Arrays.fill(this.heap, 0, this.heapSize, null);
+      this.heapSize = 0;
+      this.heapIndex.clear();
+      this.queuedFlowMap.clear();
+    } finally {
+      this.lock.unlock();
+    }
+  }
+
+  private void growHeap(final int minCapacity) {
+    if (minCapacity > this.heap.length) {
+      this.heap = Arrays.copyOf(this.heap, Math.max(minCapacity, this.heap.length * 2));
+    }
+  }
+
+  /* Removes the entry at the given position of the heap. The lock must be held. */
+  private QueuedFlow removeAt(final int index) {
+    final QueuedFlow removed = this.heap[index];
+    final int last = --this.heapSize;
+    final QueuedFlow moved = this.heap[last];
+    this.heap[last] = null;
+    if (index != last) {
+      this.heap[index] = moved;
+      moved.index = index;
+      siftDown(index);
+      if (this.heap[index] == moved) {
+        siftUp(index);
+      }
+    }
+    this.heapIndex.remove(removed.execId);
+    return removed;
+  }
+
+  private void siftUp(int index) {
+    final QueuedFlow queuedFlow = this.heap[index];
+    while (index > 0) {
+      final int parent = (index - 1) >>> 1;
+      final QueuedFlow parentFlow = this.heap[parent];
+      if (queuedFlow.compareTo(parentFlow) >= 0) {
+        break;
+      }
+      this.heap[index] = parentFlow;
+      parentFlow.index = index;
+      index = parent;
+    }
+    this.heap[index] = queuedFlow;
+    queuedFlow.index = index;
+  }
+
+  private void siftDown(int index) {
+    final QueuedFlow queuedFlow = this.heap[index];
+    final int half = this.heapSize >>> 1;
+    while (index < half) {
+      int child = 2 * index + 1;
+      QueuedFlow childFlow = this.heap[child];
+      final int right = child + 1;
+      if (right < this.heapSize && this.heap[right].compareTo(childFlow) < 0) {
+        child = right;
+        childFlow = this.heap[child];
+      }
+      if (queuedFlow.compareTo(childFlow) <= 0) {
+        break;
+      }
+      this.heap[index] = childFlow;
+      childFlow.index = index;
+      index = child;
+    }
+    this.heap[index] = queuedFlow;
+    queuedFlow.index = index;
+  }
+
+  /**
+   * A queued flow with its sort key, which is taken when the flow is enqueued.
+   */
+  private static class QueuedFlow implements Comparable<QueuedFlow> {
+
+    private final Pair<ExecutionReference, ExecutableFlow> pair;
+    private final int execId;
+    private final int priority;
+    private final long updateTime;
+    /* position in the heap */
+    private int index;
+
+    private QueuedFlow(final Pair<ExecutionReference, ExecutableFlow> pair) {
+      final ExecutableFlow exflow = pair.getSecond();
+      this.pair = pair;
+      this.execId = exflow.getExecutionId();
+      this.priority = ExecutableFlowPriorityComparator.getPriority(exflow);
+      this.updateTime = exflow.getUpdateTime();
+    }
+
+    /* same order as ExecutableFlowPriorityComparator */
+    @Override
+    public int compareTo(final QueuedFlow other) {
+      // descending order of priority
+      int diff = Integer.compare(other.priority, this.priority);
+      if (diff == 0) {
+        // ascending order of update time, if same priority
+        diff = Long.compare(this.updateTime, other.updateTime);
+      }
+      if (diff == 0) {
+        // ascending order of execution id, if same priority and updateTime
+        diff = Integer.compare(this.execId, other.execId);
+      }
+      return diff;
     }
   }
 }
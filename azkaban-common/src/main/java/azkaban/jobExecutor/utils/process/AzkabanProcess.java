@@ -16,11 +16,10 @@
 
 package azkaban.jobExecutor.utils.process;
 
-import azkaban.utils.LogGobbler;
+import azkaban.utils.OutputPump;
 import com.google.common.base.Joiner;
 import java.io.File;
 import java.io.IOException;
-import java.io.InputStreamReader;
 import java.lang.reflect.Field;
 import java.nio.charset.StandardCharsets;
 import java.util.List;
@@ -34,12 +33,17 @@ import org.apache.log4j.Logger;
 /**
  * An improved version of java.lang.Process.
  *
- * Output is read by separate threads to avoid deadlock and logged to log4j loggers.
+ * Output is read by the threads of a shared {@link OutputPump} to avoid deadlock and logged to
+ * log4j loggers.
  */
 public class AzkabanProcess {
 
   public static String KILL_COMMAND = "kill";
 
+  // reads the output of all the processes
+  private static final OutputPump OUTPUT_PUMP =
+      new OutputPump(Math.max(2, Runtime.getRuntime().availableProcessors() / 4));
+
   private final String workingDir;
   private final List<String> cmd;
   private final Map<String, String> env;
@@ -85,7 +89,6 @@ public class AzkabanProcess {
     final ProcessBuilder builder = new ProcessBuilder(this.cmd);
     builder.directory(new File(this.workingDir));
     builder.environment().putAll(this.env);
-    builder.redirectErrorStream(true);
     this.process = builder.start();
     try {
       this.processId = processId(this.process);
@@ -97,17 +100,10 @@ public class AzkabanProcess {
 
       this.startupLatch.countDown();
 
-      final LogGobbler outputGobbler =
-          new LogGobbler(
-              new InputStreamReader(this.process.getInputStream(), StandardCharsets.UTF_8),
-              this.logger, Level.INFO, 30);
-      final LogGobbler errorGobbler =
-          new LogGobbler(
-              new InputStreamReader(this.process.getErrorStream(), StandardCharsets.UTF_8),
-              this.logger, Level.ERROR, 30);
-
-      outputGobbler.start();
-      errorGobbler.start();
+      final OutputPump.PumpedStream pumpedOutput = OUTPUT_PUMP.pump(this.process.getInputStream(),
+          StandardCharsets.UTF_8, this.process::isAlive, this.logger, Level.INFO, 30);
+      final OutputPump.PumpedStream pumpedError = OUTPUT_PUMP.pump(this.process.getErrorStream(),
+          StandardCharsets.UTF_8, this.process::isAlive, this.logger, Level.ERROR, 30);
       int exitCode = -1;
       try {
         exitCode = this.process.waitFor();
@@ -118,22 +114,22 @@ public class AzkabanProcess {
       this.completeLatch.countDown();
 
       // try to wait for everything to get logged out before exiting
-      outputGobbler.awaitCompletion(5000);
-      errorGobbler.awaitCompletion(5000);
+      pumpedOutput.awaitCompletion(5000);
+      pumpedError.awaitCompletion(5000);
 
       if (exitCode != 0) {
         final String output =
             new StringBuilder().append("Stdout:\n")
-                .append(outputGobbler.getRecentLog()).append("\n\n")
-                .append("Stderr:\n").append(errorGobbler.getRecentLog())
+                .append(pumpedOutput.getRecentLog()).append("\n\n")
+                .append("Stderr:\n").append(pumpedError.getRecentLog())
                 .append("\n").toString();
         throw new ProcessFailureException(exitCode, output);
       }
 
     } finally {
-      IOUtils.closeQuietly(this.process.getInputStream());
+      // the pumped streams are closed by the pump at their end, which may come after the
+      // children of the process which inherited them exit
       IOUtils.closeQuietly(this.process.getOutputStream());
-      IOUtils.closeQuietly(this.process.getErrorStream());
     }
   }
 
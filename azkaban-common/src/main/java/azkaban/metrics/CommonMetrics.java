@@ -16,7 +16,9 @@
 
 package azkaban.metrics;
 
+import com.codahale.metrics.Histogram;
 import com.codahale.metrics.Meter;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicLong;
 import javax.inject.Inject;
 import javax.inject.Singleton;
@@ -30,12 +32,20 @@ import javax.inject.Singleton;
 public class CommonMetrics {
 
   private final AtomicLong OOMWaitingJobCount = new AtomicLong(0L);
+  private final AtomicLong triggerActionQueueDepth = new AtomicLong(0L);
+  private final AtomicLong admissionBurstSize = new AtomicLong(0L);
   private final MetricsManager metricsManager;
+  private final ConcurrentHashMap<Integer, Histogram> executorUpdateLatencyHistograms =
+      new ConcurrentHashMap<>();
   private Meter flowFailMeter;
   private Meter dispatchFailMeter;
   private Meter dispatchSuccessMeter;
   private Meter sendEmailFailMeter;
   private Meter sendEmailSuccessMeter;
+  private Meter executionCacheHitMeter;
+  private Meter executionCacheMissMeter;
+  private Histogram triggerActionLagHistogram;
+  private Histogram admissionSmoothingDelayHistogram;
 
   @Inject
   public CommonMetrics(final MetricsManager metricsManager) {
@@ -50,6 +60,15 @@ public class CommonMetrics {
     this.sendEmailFailMeter = this.metricsManager.addMeter("send-email-fail-meter");
     this.sendEmailSuccessMeter = this.metricsManager.addMeter("send-email-success-meter");
     this.metricsManager.addGauge("OOM-waiting-job-count", this.OOMWaitingJobCount::get);
+    this.executionCacheHitMeter = this.metricsManager.addMeter("execution-cache-hit-meter");
+    this.executionCacheMissMeter = this.metricsManager.addMeter("execution-cache-miss-meter");
+    this.metricsManager.addGauge("execution-cache-hit-ratio", this::getExecutionCacheHitRatio);
+    this.triggerActionLagHistogram = this.metricsManager.addHistogram(
+        "trigger-action-lag-histogram");
+    this.metricsManager.addGauge("trigger-action-queue-depth", this.triggerActionQueueDepth::get);
+    this.admissionSmoothingDelayHistogram = this.metricsManager.addHistogram(
+        "admission-smoothing-delay-histogram");
+    this.metricsManager.addGauge("admission-burst-size", this.admissionBurstSize::get);
   }
 
 
@@ -89,6 +108,81 @@ public class CommonMetrics {
     this.sendEmailSuccessMeter.mark();
   }
 
+  /**
+   * Record how long it took the web server to poll an executor for flow updates. There is one
+   * histogram per executor, so that a slow executor stands out.
+   */
+  public void updateExecutorUpdateLatency(final int executorId, final long latencyMs) {
+    this.executorUpdateLatencyHistograms.computeIfAbsent(executorId,
+        id -> this.metricsManager.addHistogram("executor-" + id + "-update-latency-histogram"))
+        .update(latencyMs);
+  }
+
+  /**
+   * Mark executionCacheHitMeter when an execution is served from the memory of the web server.
+   */
+  public void markExecutionCacheHit() {
+    this.executionCacheHitMeter.mark();
+  }
+
+  /**
+   * Mark executionCacheMissMeter when an execution has to be read from the DB.
+   */
+  public void markExecutionCacheMiss() {
+    this.executionCacheMissMeter.mark();
+  }
+
+  /**
+   * @return the ratio of the executions served from memory since the server started
+   */
+  public double getExecutionCacheHitRatio() {
+    final long hits = this.executionCacheHitMeter.getCount();
+    final long total = hits + this.executionCacheMissMeter.getCount();
+    return total == 0 ? 0 : (double) hits / total;
+  }
+
+  /**
+   * Record how long the actions of a fired trigger waited for a worker before running.
+   */
+  public void updateTriggerActionLag(final long lagMs) {
+    this.triggerActionLagHistogram.update(lagMs);
+  }
+
+  /**
+   * Count the actions of a fired trigger waiting for a worker.
+   */
+  public void incrementTriggerActionQueueDepth() {
+    this.triggerActionQueueDepth.incrementAndGet();
+  }
+
+  /**
+   * Uncount the actions of a fired trigger once a worker runs them.
+   */
+  public void decrementTriggerActionQueueDepth() {
+    this.triggerActionQueueDepth.decrementAndGet();
+  }
+
+  /**
+   * Record how long a scheduled execution was held by the admission control before its submission.
+   */
+  public void updateAdmissionSmoothingDelay(final long delayMs) {
+    this.admissionSmoothingDelayHistogram.update(delayMs);
+  }
+
+  /**
+   * Count a scheduled execution held by the admission control.
+   */
+  public void incrementAdmissionBurstSize() {
+    this.admissionBurstSize.incrementAndGet();
+  }
+
+  /**
+   * Uncount a scheduled execution once the admission control submits it.
+   */
+  public void decrementAdmissionBurstSize() {
+    this.admissionBurstSize.decrementAndGet();
+  }
+
   /**
    * Mark the occurrence of an job waiting event due to OOM
    */
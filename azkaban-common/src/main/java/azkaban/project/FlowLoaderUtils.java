@@ -133,25 +133,36 @@ public class FlowLoaderUtils {
    * @return the props from yaml file
    */
   public static Props getPropsFromYamlFile(final String path, final File flowFile) {
-    final List<Props> propsList = new ArrayList<>();
     final NodeBeanLoader loader = new NodeBeanLoader();
 
     try {
-      final NodeBean nodeBean = loader.load(flowFile);
-      final String[] pathList = path.split(Constants.PATH_DELIMITER);
-      if (findPropsFromNodeBean(nodeBean, pathList, 0, propsList)) {
-        if (!propsList.isEmpty()) {
-          return propsList.get(0);
-        } else {
-          logger.error("Error getting props for " + path);
-        }
-      }
+      return getPropsFromNodeBean(path, loader.load(flowFile));
     } catch (final Exception e) {
       logger.error("Failed to get props, error loading flow YAML file. ", e);
     }
     return null;
   }
 
+  /**
+   * Gets flow or job props from a node bean loaded from a flow yaml file.
+   *
+   * @param path the flow or job path delimited by ":", e.g. "flow:subflow1:subflow2:job3"
+   * @param nodeBean the node bean of the flow
+   * @return the props, which the caller may modify. Null if the path isn't found.
+   */
+  public static Props getPropsFromNodeBean(final String path, final NodeBean nodeBean) {
+    final List<Props> propsList = new ArrayList<>();
+    final String[] pathList = path.split(Constants.PATH_DELIMITER);
+    if (findPropsFromNodeBean(nodeBean, pathList, 0, propsList)) {
+      if (!propsList.isEmpty()) {
+        return propsList.get(0);
+      } else {
+        logger.error("Error getting props for " + path);
+      }
+    }
+    return null;
+  }
+
   /**
    * Helper method to recursively find props from node bean.
    *
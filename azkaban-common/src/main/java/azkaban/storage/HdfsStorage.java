@@ -21,7 +21,7 @@ import static com.google.common.base.Preconditions.checkArgument;
 import static java.util.Objects.requireNonNull;
 
 import azkaban.AzkabanCommonModuleConfig;
-import azkaban.spi.Storage;
+import azkaban.spi.KeyedStorage;
 import azkaban.spi.StorageException;
 import azkaban.spi.StorageMetadata;
 import javax.inject.Inject;
@@ -37,7 +37,7 @@ import org.apache.log4j.Logger;
 
 
 @Singleton
-public class HdfsStorage implements Storage {
+public class HdfsStorage implements KeyedStorage {
 
   private static final Logger log = Logger.getLogger(HdfsStorage.class);
   private static final String HDFS_SCHEME = "hdfs";
@@ -89,6 +89,20 @@ public class HdfsStorage implements Storage {
     }
   }
 
+  @Override
+  public String put(final String key, final File localFile) {
+    this.hdfsAuth.authorize();
+    final Path targetPath = fullPath(key);
+    try {
+      // the parent directories are created by the copy
+      this.hdfs.copyFromLocalFile(false, true, new Path(localFile.getAbsolutePath()), targetPath);
+      return key;
+    } catch (final IOException e) {
+      log.error("error in put(): key: " + key);
+      throw new StorageException(e);
+    }
+  }
+
   private String getRelativePath(final Path targetPath) {
     return URI.create(this.rootUri.getPath()).relativize(targetPath.toUri()).getPath();
   }
@@ -20,7 +20,7 @@ package azkaban.storage;
 import static com.google.common.base.Preconditions.checkArgument;
 
 import azkaban.AzkabanCommonModuleConfig;
-import azkaban.spi.Storage;
+import azkaban.spi.KeyedStorage;
 import azkaban.spi.StorageException;
 import azkaban.spi.StorageMetadata;
 import azkaban.utils.FileIOUtils;
@@ -36,7 +36,7 @@ import org.apache.log4j.Logger;
 
 
 @Singleton
-public class LocalStorage implements Storage {
+public class LocalStorage implements KeyedStorage {
 
   private static final Logger log = Logger.getLogger(LocalStorage.class);
 
@@ -104,6 +104,18 @@ public class LocalStorage implements Storage {
     return getRelativePath(targetFile);
   }
 
+  @Override
+  public String put(final String key, final File localFile) {
+    final File targetFile = getFile(key);
+    try {
+      FileUtils.copyFile(localFile, targetFile);
+    } catch (final IOException e) {
+      log.error("LocalStorage error in put(): key: " + key);
+      throw new StorageException(e);
+    }
+    return getRelativePath(targetFile);
+  }
+
   private String getRelativePath(final File targetFile) {
     return this.rootDirectory.toURI().relativize(targetFile.toURI()).getPath();
   }
@@ -29,6 +29,8 @@ import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
 import org.apache.commons.dbutils.ResultSetHandler;
 import org.apache.log4j.Logger;
 import org.joda.time.DateTime;
@@ -43,6 +45,7 @@ public class JdbcTriggerImpl implements TriggerLoader {
           + " WHERE modify_time>=?";
   private static final String GET_ALL_TRIGGERS =
       "SELECT trigger_id, trigger_source, modify_time, enc_type, data FROM " + TRIGGER_TABLE_NAME;
+  private static final String GET_TRIGGER_IDS = "SELECT trigger_id FROM " + TRIGGER_TABLE_NAME;
   private static final String GET_TRIGGER =
       "SELECT trigger_id, trigger_source, modify_time, enc_type, data FROM " + TRIGGER_TABLE_NAME
           + " WHERE trigger_id=?";
@@ -53,6 +56,7 @@ public class JdbcTriggerImpl implements TriggerLoader {
   private static final String UPDATE_TRIGGER =
       "UPDATE " + TRIGGER_TABLE_NAME
           + " SET trigger_source=?, modify_time=?, enc_type=?, data=? WHERE trigger_id=?";
+  private static final String UPDATE_UNCHANGED_TRIGGER = UPDATE_TRIGGER + " AND modify_time=?";
   private static final Logger logger = Logger.getLogger(JdbcTriggerImpl.class);
   private final DatabaseOperator dbOperator;
   private final EncodingType defaultEncodingType = EncodingType.GZIP;
@@ -93,6 +97,46 @@ public class JdbcTriggerImpl implements TriggerLoader {
     }
   }
 
+  @Override
+  public List<Trigger> loadTriggers(final int numPartitions, final Set<Integer> partitions)
+      throws TriggerLoaderException {
+    logger.info("Loading the triggers of partitions " + partitions + " from db.");
+    if (partitions.isEmpty()) {
+      return Collections.emptyList();
+    }
+
+    final String query = GET_ALL_TRIGGERS + " WHERE MOD(trigger_id, ?) IN ("
+        + partitions.stream().map(p -> "?").collect(Collectors.joining(",")) + ")";
+    final List<Object> params = new ArrayList<>();
+    params.add(numPartitions);
+    params.addAll(partitions);
+    try {
+      final List<Trigger> triggers = this.dbOperator
+          .query(query, new TriggerResultHandler(), params.toArray());
+      logger.info("Loaded " + triggers.size() + " triggers.");
+      return triggers;
+    } catch (final SQLException ex) {
+      throw new TriggerLoaderException("Loading triggers from db failed.", ex);
+    }
+  }
+
+  @Override
+  public List<Integer> loadTriggerIds() throws TriggerLoaderException {
+    final ResultSetHandler<List<Integer>> handler = rs -> {
+      final List<Integer> ids = new ArrayList<>();
+      while (rs.next()) {
+        ids.add(rs.getInt(1));
+      }
+      return ids;
+    };
+
+    try {
+      return this.dbOperator.query(GET_TRIGGER_IDS, handler);
+    } catch (final SQLException ex) {
+      throw new TriggerLoaderException("Loading trigger ids from db failed.", ex);
+    }
+  }
+
   @Override
   public void removeTrigger(final Trigger t) throws TriggerLoaderException {
     logger.info("Removing trigger " + t.toString() + " from db.");
@@ -140,25 +184,47 @@ public class JdbcTriggerImpl implements TriggerLoader {
     updateTrigger(t, this.defaultEncodingType);
   }
 
-  private void updateTrigger(final Trigger t, final EncodingType encType)
+  /**
+   * Writes the snapshots with one batch statement. A trigger changed or removed in the db since the
+   * state its snapshot is based on isn't written.
+   */
+  @Override
+  public List<Integer> updateTriggers(final List<TriggerSnapshot> snapshots)
       throws TriggerLoaderException {
+    if (snapshots.isEmpty()) {
+      return Collections.emptyList();
+    }
+    logger.info("Updating " + snapshots.size() + " triggers into db.");
+    final Object[][] params = new Object[snapshots.size()][];
+    for (int i = 0; i < snapshots.size(); i++) {
+      final TriggerSnapshot snapshot = snapshots.get(i);
+      params[i] = new Object[]{snapshot.getSource(), snapshot.getLastModifyTime(),
+          this.defaultEncodingType.getNumVal(),
+          encodeJson(snapshot.getTriggerId(), snapshot.getJson(), this.defaultEncodingType),
+          snapshot.getTriggerId(), snapshot.getBaseModifyTime()};
+    }
 
-    final String json = JSONUtils.toJSON(t.toJson());
-    byte[] data = null;
     try {
-      final byte[] stringData = json.getBytes("UTF-8");
-      data = stringData;
-
-      if (encType == EncodingType.GZIP) {
-        data = GZIPUtils.gzipBytes(stringData);
+      final int[] updates = this.dbOperator.batch(UPDATE_UNCHANGED_TRIGGER, params);
+      final List<Integer> rejected = new ArrayList<>();
+      for (int i = 0; i < updates.length; i++) {
+        if (updates[i] == 0) {
+          logger.warn("Trigger " + snapshots.get(i).getTriggerId()
+              + " was changed or removed in db since its update was based on it.");
+          rejected.add(snapshots.get(i).getTriggerId());
+        }
       }
-      logger.debug(
-          "NumChars: " + json.length() + " UTF-8:" + stringData.length + " Gzip:" + data.length);
-    } catch (final IOException e) {
-      logger.error("Trigger encoding fails", e);
-      throw new TriggerLoaderException("Error encoding the trigger " + t.toString(), e);
+      return rejected;
+    } catch (final SQLException ex) {
+      logger.error("Updating " + snapshots.size() + " triggers failed.");
+      throw new TriggerLoaderException("DB Trigger batch update failed. ", ex);
     }
+  }
+
+  private void updateTrigger(final Trigger t, final EncodingType encType)
+      throws TriggerLoaderException {
 
+    final byte[] data = encodeTrigger(t, encType);
     try {
       final int updates = this.dbOperator
           .update(UPDATE_TRIGGER, t.getSource(), t.getLastModifyTime(), encType.getNumVal(), data,
@@ -172,6 +238,30 @@ public class JdbcTriggerImpl implements TriggerLoader {
     }
   }
 
+  private byte[] encodeTrigger(final Trigger t, final EncodingType encType)
+      throws TriggerLoaderException {
+    return encodeJson(t.getTriggerId(), JSONUtils.toJSON(t.toJson()), encType);
+  }
+
+  private byte[] encodeJson(final int triggerId, final String json, final EncodingType encType)
+      throws TriggerLoaderException {
+    byte[] data = null;
+    try {
+      final byte[] stringData = json.getBytes("UTF-8");
+      data = stringData;
+
+      if (encType == EncodingType.GZIP) {
+        data = GZIPUtils.gzipBytes(stringData);
+      }
+      logger.debug(
+          "NumChars: " + json.length() + " UTF-8:" + stringData.length + " Gzip:" + data.length);
+    } catch (final IOException e) {
+      logger.error("Trigger encoding fails", e);
+      throw new TriggerLoaderException("Error encoding the trigger " + triggerId, e);
+    }
+    return data;
+  }
+
   @Override
   public Trigger loadTrigger(final int triggerId) throws TriggerLoaderException {
     logger.info("Loading trigger " + triggerId + " from db.");
@@ -222,6 +312,8 @@ public class JdbcTriggerImpl implements TriggerLoader {
         Trigger t = null;
         try {
           t = Trigger.fromJson(jsonObj);
+          // the version of the row, which the conditional updates compare
+          t.setLastModifyTime(rs.getLong(3));
           triggers.add(t);
         } catch (final Exception e) {
           logger.error("Failed to load trigger " + triggerId, e);
@@ -0,0 +1,173 @@
+/*
+ * Copyright 2018 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package azkaban.trigger;
+
+import azkaban.db.DatabaseOperator;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import org.apache.commons.dbutils.ResultSetHandler;
+
+/**
+ * Stores the heartbeats of the web servers evaluating the triggers in trigger_nodes, and the leases
+ * of the partitions of the trigger ids they own in trigger_partitions.
+ */
+@Singleton
+public class TriggerLeaseDao {
+
+  private static final String UPDATE_HEARTBEAT =
+      "UPDATE trigger_nodes SET heartbeat_time=? WHERE node_id=?";
+  private static final String INSERT_NODE =
+      "INSERT INTO trigger_nodes (node_id, heartbeat_time) VALUES (?,?)";
+  private static final String REMOVE_NODE = "DELETE FROM trigger_nodes WHERE node_id=?";
+  private static final String REMOVE_NODES_BEFORE =
+      "DELETE FROM trigger_nodes WHERE heartbeat_time<?";
+  private static final String FETCH_NODES_SINCE =
+      "SELECT node_id FROM trigger_nodes WHERE heartbeat_time>=? ORDER BY node_id";
+  private static final String FETCH_PARTITIONS =
+      "SELECT partition_id, owner FROM trigger_partitions";
+  private static final String INSERT_PARTITION =
+      "INSERT INTO trigger_partitions (partition_id, owner, lease_expiry) VALUES (?,NULL,0)";
+  private static final String ACQUIRE_PARTITION =
+      "UPDATE trigger_partitions SET owner=?, lease_expiry=? WHERE partition_id=? "
+          + "AND (owner=? OR owner IS NULL OR lease_expiry<?)";
+  private static final String RELEASE_PARTITION =
+      "UPDATE trigger_partitions SET owner=NULL, lease_expiry=0 WHERE partition_id=? AND owner=?";
+
+  private final DatabaseOperator dbOperator;
+
+  @Inject
+  public TriggerLeaseDao(final DatabaseOperator dbOperator) {
+    this.dbOperator = dbOperator;
+  }
+
+  void heartbeat(final String nodeId, final long time) throws TriggerLoaderException {
+    try {
+      if (this.dbOperator.update(UPDATE_HEARTBEAT, time, nodeId) == 0) {
+        this.dbOperator.update(INSERT_NODE, nodeId, time);
+      }
+    } catch (final SQLException e) {
+      throw new TriggerLoaderException("Error recording the heartbeat of node " + nodeId, e);
+    }
+  }
+
+  void removeNode(final String nodeId) throws TriggerLoaderException {
+    try {
+      this.dbOperator.update(REMOVE_NODE, nodeId);
+    } catch (final SQLException e) {
+      throw new TriggerLoaderException("Error removing node " + nodeId, e);
+    }
+  }
+
+  /**
+   * Removes the nodes which stopped heartbeating before the time, e.g. because they crashed.
+   */
+  void removeNodesBefore(final long time) throws TriggerLoaderException {
+    try {
+      this.dbOperator.update(REMOVE_NODES_BEFORE, time);
+    } catch (final SQLException e) {
+      throw new TriggerLoaderException("Error removing the dead nodes", e);
+    }
+  }
+
+  /**
+   * @return the ids of the nodes which heartbeat since the time, sorted
+   */
+  List<String> fetchNodesSince(final long time) throws TriggerLoaderException {
+    final ResultSetHandler<List<String>> handler = rs -> {
+      final List<String> nodes = new ArrayList<>();
+      while (rs.next()) {
+        nodes.add(rs.getString(1));
+      }
+      return nodes;
+    };
+    try {
+      return this.dbOperator.query(FETCH_NODES_SINCE, handler, time);
+    } catch (final SQLException e) {
+      throw new TriggerLoaderException("Error fetching the live nodes", e);
+    }
+  }
+
+  /**
+   * @return the owner of each partition, null if it has none
+   */
+  Map<Integer, String> fetchPartitionOwners() throws TriggerLoaderException {
+    final ResultSetHandler<Map<Integer, String>> handler = rs -> {
+      final Map<Integer, String> owners = new HashMap<>();
+      while (rs.next()) {
+        owners.put(rs.getInt(1), rs.getString(2));
+      }
+      return owners;
+    };
+    try {
+      return this.dbOperator.query(FETCH_PARTITIONS, handler);
+    } catch (final SQLException e) {
+      throw new TriggerLoaderException("Error fetching the trigger partitions", e);
+    }
+  }
+
+  /**
+   * Creates the partitions below numPartitions which don't exist yet. Another node creating them at
+   * the same time is fine.
+   */
+  void createPartitions(final int numPartitions) throws TriggerLoaderException {
+    final Set<Integer> existing = new HashSet<>(fetchPartitionOwners().keySet());
+    for (int partition = 0; partition < numPartitions; partition++) {
+      if (!existing.contains(partition)) {
+        try {
+          this.dbOperator.update(INSERT_PARTITION, partition);
+        } catch (final SQLException e) {
+          if (!fetchPartitionOwners().containsKey(partition)) {
+            throw new TriggerLoaderException("Error creating trigger partition " + partition, e);
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Renews the lease of the node on the partition until expiry, or takes the lease if the
+   * partition has no owner or if the lease of its owner expired before time.
+   *
+   * @return true if the node owns the partition until expiry
+   */
+  boolean acquire(final int partition, final String nodeId, final long time, final long expiry)
+      throws TriggerLoaderException {
+    try {
+      return this.dbOperator.update(ACQUIRE_PARTITION, nodeId, expiry, partition, nodeId, time)
+          == 1;
+    } catch (final SQLException e) {
+      throw new TriggerLoaderException("Error acquiring trigger partition " + partition, e);
+    }
+  }
+
+  /**
+   * Releases the partition if the node owns it, so another node can take it at once.
+   */
+  void release(final int partition, final String nodeId) throws TriggerLoaderException {
+    try {
+      this.dbOperator.update(RELEASE_PARTITION, partition, nodeId);
+    } catch (final SQLException e) {
+      throw new TriggerLoaderException("Error releasing trigger partition " + partition, e);
+    }
+  }
+}
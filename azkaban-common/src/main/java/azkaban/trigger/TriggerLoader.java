@@ -17,6 +17,8 @@
 package azkaban.trigger;
 
 import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 public interface TriggerLoader {
 
@@ -26,8 +28,35 @@ public interface TriggerLoader {
 
   public void updateTrigger(Trigger t) throws TriggerLoaderException;
 
+  /**
+   * Writes the snapshots of the triggers at once, which the implementations may do in a single
+   * batch. The modify time of each trigger is the one of its snapshot. A snapshot is only written
+   * if its trigger still has the modify time the snapshot is based on.
+   *
+   * @return the ids of the triggers not written, because they were changed or removed since
+   */
+  public List<Integer> updateTriggers(List<TriggerSnapshot> snapshots)
+      throws TriggerLoaderException;
+
   public List<Trigger> loadTriggers() throws TriggerLoaderException;
 
+  /**
+   * Loads the triggers whose id modulo numPartitions is one of the partitions.
+   */
+  public default List<Trigger> loadTriggers(final int numPartitions, final Set<Integer> partitions)
+      throws TriggerLoaderException {
+    return loadTriggers().stream()
+        .filter(t -> partitions.contains(Math.floorMod(t.getTriggerId(), numPartitions)))
+        .collect(Collectors.toList());
+  }
+
+  /**
+   * Loads the ids of all the triggers, without loading the triggers themselves.
+   */
+  public default List<Integer> loadTriggerIds() throws TriggerLoaderException {
+    return loadTriggers().stream().map(Trigger::getTriggerId).collect(Collectors.toList());
+  }
+
   public Trigger loadTrigger(int triggerId) throws TriggerLoaderException;
 
   public List<Trigger> getUpdatedTriggers(long lastUpdateTime)
@@ -18,21 +18,29 @@ package azkaban.trigger;
 
 import static java.util.Objects.requireNonNull;
 
+import azkaban.Constants.ConfigurationKeys;
 import azkaban.event.EventHandler;
 import azkaban.executor.ExecutorManager;
+import azkaban.metrics.CommonMetrics;
 import azkaban.utils.Props;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import javax.inject.Inject;
 import javax.inject.Singleton;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
 import java.util.ArrayList;
-import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.BlockingQueue;
+import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import org.apache.log4j.Logger;
 
 @Singleton
@@ -40,31 +48,95 @@ public class TriggerManager extends EventHandler implements
     TriggerManagerAdapter {
 
   public static final long DEFAULT_SCANNER_INTERVAL_MS = 60000;
+  public static final int DEFAULT_ACTION_THREADS = 10;
+  public static final long DEFAULT_UPDATE_FLUSH_INTERVAL_MS = 1000;
+  public static final int DEFAULT_PARTITIONS = 64;
+  public static final long DEFAULT_LEASE_MS = 30000;
   private static final Logger logger = Logger.getLogger(TriggerManager.class);
-  private static final Map<Integer, Trigger> triggerIdMap =
-      new ConcurrentHashMap<>();
+  // how long the triggers removed by another node are reported as expired
+  private static final long REMOVED_TRIGGER_RETENTION_MS = 24 * 60 * 60 * 1000L;
+  private final Map<Integer, Trigger> triggerIdMap = new ConcurrentHashMap<>();
 
   private final TriggerScannerThread runnerThread;
   private final Object syncObj = new Object();
   private final CheckerTypeLoader checkerTypeLoader;
   private final ActionTypeLoader actionTypeLoader;
   private final TriggerLoader triggerLoader;
+  private final CommonMetrics commonMetrics;
   private final LocalTriggerJMX jmxStats = new LocalTriggerJMX();
+  // runs the actions of the fired triggers, without holding syncObj
+  private final ExecutorService actionService;
+  // the triggers whose actions are queued or running, which aren't checked meanwhile
+  private final Set<Integer> triggersInAction = ConcurrentHashMap.newKeySet();
+  // persists the state of the fired triggers
+  private final TriggerUpdateBatcher triggerUpdates;
+  // the partitions of the trigger ids fired by this node, null if it fires all of them
+  private final TriggerPartitions partitions;
+  // heartbeats and syncs the triggers changed by the other nodes
+  private final ScheduledExecutorService partitionSync;
+  // the triggers removed by another node, reported as expired to the schedules
+  private final Map<Integer, Trigger> removedTriggers = new ConcurrentHashMap<>();
+  // the db modify time of the triggers loaded from the db, whose modify time is the time they were
+  // loaded, so the schedules see them as changed
+  private final Map<Integer, Long> loadedModifyTimes = new ConcurrentHashMap<>();
+  // the time the triggers were removed by this node, so the db reads started before their removal
+  // don't add them back
+  private final Map<Integer, Long> removalTimes = new ConcurrentHashMap<>();
+  // the triggers whose fired state was rejected by the db, as another node changed them since,
+  // which are reloaded at the next sync
+  private final Set<Integer> staleTriggers = ConcurrentHashMap.newKeySet();
+  // the triggers changed since that time are synced at the next heartbeat
+  private long syncTime = 0;
   private long lastRunnerThreadCheckTime = -1;
   private long runnerThreadIdleTime = -1;
   private String scannerStage = "";
 
+  /**
+   * Creates a trigger manager which fires all the triggers, as the only web server evaluating them.
+   */
+  public TriggerManager(final Props props, final TriggerLoader triggerLoader,
+      final ExecutorManager executorManager, final CommonMetrics commonMetrics)
+      throws TriggerManagerException {
+    this(props, triggerLoader, executorManager, commonMetrics, null);
+  }
+
   @Inject
   public TriggerManager(final Props props, final TriggerLoader triggerLoader,
-      final ExecutorManager executorManager) throws TriggerManagerException {
+      final ExecutorManager executorManager, final CommonMetrics commonMetrics,
+      final TriggerLeaseDao triggerLeaseDao) throws TriggerManagerException {
 
     requireNonNull(props);
     requireNonNull(executorManager);
     this.triggerLoader = requireNonNull(triggerLoader);
+    this.commonMetrics = requireNonNull(commonMetrics);
 
     final long scannerInterval =
         props.getLong("trigger.scan.interval", DEFAULT_SCANNER_INTERVAL_MS);
     this.runnerThread = new TriggerScannerThread(scannerInterval);
+    this.actionService = Executors.newFixedThreadPool(
+        props.getInt(ConfigurationKeys.TRIGGER_ACTION_THREADS, DEFAULT_ACTION_THREADS),
+        new ThreadFactoryBuilder().setDaemon(true).setNameFormat("azk-trigger-action-%d").build());
+    this.triggerUpdates = new TriggerUpdateBatcher(triggerLoader,
+        props.getLong(ConfigurationKeys.TRIGGER_UPDATE_FLUSH_INTERVAL_MS,
+            DEFAULT_UPDATE_FLUSH_INTERVAL_MS), this::onUpdatesRejected);
+
+    if (props.getBoolean(ConfigurationKeys.TRIGGER_MULTINODE_ENABLED, false)) {
+      if (triggerLeaseDao == null) {
+        throw new TriggerManagerException("Evaluating the triggers on several nodes needs leases");
+      }
+      this.partitions = new TriggerPartitions(triggerLeaseDao,
+          props.getString(ConfigurationKeys.TRIGGER_NODE_ID, getDefaultNodeId()),
+          props.getInt(ConfigurationKeys.TRIGGER_PARTITIONS, DEFAULT_PARTITIONS),
+          props.getLong(ConfigurationKeys.TRIGGER_LEASE_MS, DEFAULT_LEASE_MS));
+      this.partitionSync = Executors.newSingleThreadScheduledExecutor(
+          new ThreadFactoryBuilder().setDaemon(true).setNameFormat("azk-trigger-partitions")
+              .build());
+      logger.info("Trigger node " + this.partitions.getNodeId() + " fires the triggers of the "
+          + "partitions it leases.");
+    } else {
+      this.partitions = null;
+      this.partitionSync = null;
+    }
 
     this.checkerTypeLoader = new CheckerTypeLoader();
     this.actionTypeLoader = new ActionTypeLoader();
@@ -82,16 +154,33 @@ public class TriggerManager extends EventHandler implements
     logger.info("TriggerManager loaded.");
   }
 
+  private static String getDefaultNodeId() {
+    String host;
+    try {
+      host = InetAddress.getLocalHost().getHostName();
+    } catch (final UnknownHostException e) {
+      host = "localhost";
+    }
+    return host + "-" + UUID.randomUUID().toString().substring(0, 8);
+  }
+
   @Override
   public void start() throws TriggerManagerException {
 
     try {
+      this.syncTime = System.currentTimeMillis();
       // expect loader to return valid triggers
       final List<Trigger> triggers = this.triggerLoader.loadTriggers();
       for (final Trigger t : triggers) {
         t.getTriggerActions();
-        this.runnerThread.addTrigger(t);
-        triggerIdMap.put(t.getTriggerId(), t);
+        // with several nodes, scheduled once the partition of the trigger is acquired
+        if (this.partitions == null) {
+          this.runnerThread.addTrigger(t);
+        }
+        this.triggerIdMap.put(t.getTriggerId(), t);
+      }
+      if (this.partitions != null) {
+        this.partitions.init();
       }
     } catch (final Exception e) {
       logger.error(e);
@@ -99,6 +188,10 @@ public class TriggerManager extends EventHandler implements
     }
 
     this.runnerThread.start();
+    if (this.partitions != null) {
+      this.partitionSync.scheduleWithFixedDelay(this::syncPartitions, 0,
+          this.partitions.getHeartbeatIntervalMs(), TimeUnit.MILLISECONDS);
+    }
   }
 
   protected CheckerTypeLoader getCheckerLoader() {
@@ -117,17 +210,22 @@ public class TriggerManager extends EventHandler implements
       } catch (final TriggerLoaderException e) {
         throw new TriggerManagerException(e);
       }
-      this.runnerThread.addTrigger(t);
-      triggerIdMap.put(t.getTriggerId(), t);
+      if (isOwned(t.getTriggerId())) {
+        this.runnerThread.addTrigger(t);
+      }
+      this.triggerIdMap.put(t.getTriggerId(), t);
     }
   }
 
   public void removeTrigger(final int id) throws TriggerManagerException {
     logger.info("Removing trigger with id: " + id + " from TriggerManager");
     synchronized (this.syncObj) {
-      final Trigger t = triggerIdMap.get(id);
+      final Trigger t = this.triggerIdMap.get(id);
       if (t != null) {
-        removeTrigger(triggerIdMap.get(id));
+        removeTrigger(this.triggerIdMap.get(id));
+      } else {
+        // already removed by another node
+        this.removedTriggers.remove(id);
       }
     }
   }
@@ -135,9 +233,14 @@ public class TriggerManager extends EventHandler implements
   public void updateTrigger(final Trigger t) throws TriggerManagerException {
     logger.info("Updating trigger " + t + " in TriggerManager");
     synchronized (this.syncObj) {
-      this.runnerThread.deleteTrigger(triggerIdMap.get(t.getTriggerId()));
-      this.runnerThread.addTrigger(t);
-      triggerIdMap.put(t.getTriggerId(), t);
+      this.runnerThread.deleteTrigger(this.triggerIdMap.get(t.getTriggerId()));
+      this.triggerUpdates.discard(this.triggerIdMap.get(t.getTriggerId()));
+      if (isOwned(t.getTriggerId())) {
+        this.runnerThread.addTrigger(t);
+      }
+      this.triggerIdMap.put(t.getTriggerId(), t);
+      this.loadedModifyTimes.remove(t.getTriggerId());
+      this.staleTriggers.remove(t.getTriggerId());
       try {
         this.triggerLoader.updateTrigger(t);
       } catch (final TriggerLoaderException e) {
@@ -150,7 +253,13 @@ public class TriggerManager extends EventHandler implements
     logger.info("Removing trigger " + t + " from TriggerManager");
     synchronized (this.syncObj) {
       this.runnerThread.deleteTrigger(t);
-      triggerIdMap.remove(t.getTriggerId());
+      this.triggerUpdates.discard(t);
+      this.triggerIdMap.remove(t.getTriggerId());
+      this.loadedModifyTimes.remove(t.getTriggerId());
+      this.staleTriggers.remove(t.getTriggerId());
+      if (this.partitions != null) {
+        this.removalTimes.put(t.getTriggerId(), System.currentTimeMillis());
+      }
       try {
         t.stopCheckers();
         this.triggerLoader.removeTrigger(t);
@@ -161,7 +270,7 @@ public class TriggerManager extends EventHandler implements
   }
 
   public List<Trigger> getTriggers() {
-    return new ArrayList<>(triggerIdMap.values());
+    return new ArrayList<>(this.triggerIdMap.values());
   }
 
   public Map<String, Class<? extends ConditionChecker>> getSupportedCheckers() {
@@ -170,19 +279,36 @@ public class TriggerManager extends EventHandler implements
 
   public Trigger getTrigger(final int triggerId) {
     synchronized (this.syncObj) {
-      return triggerIdMap.get(triggerId);
+      return this.triggerIdMap.get(triggerId);
     }
   }
 
-  public void expireTrigger(final int triggerId) {
-    final Trigger t = getTrigger(triggerId);
-    t.setStatus(TriggerStatus.EXPIRED);
+  /**
+   * Expires the trigger. The expiry of a trigger fired by another node is written to the db, and
+   * applied by its owner at its next sync.
+   */
+  public void expireTrigger(final int triggerId) throws TriggerManagerException {
+    synchronized (this.syncObj) {
+      final Trigger t = this.triggerIdMap.get(triggerId);
+      t.setStatus(TriggerStatus.EXPIRED);
+      if (isOwned(triggerId)) {
+        this.runnerThread.checkTrigger(t);
+        return;
+      }
+      logger.info("Expiring trigger " + triggerId + " fired by another node");
+      this.loadedModifyTimes.remove(triggerId);
+      try {
+        this.triggerLoader.updateTrigger(t);
+      } catch (final TriggerLoaderException e) {
+        throw new TriggerManagerException(e);
+      }
+    }
   }
 
   @Override
   public List<Trigger> getTriggers(final String triggerSource) {
     final List<Trigger> triggers = new ArrayList<>();
-    for (final Trigger t : triggerIdMap.values()) {
+    for (final Trigger t : this.triggerIdMap.values()) {
       if (t.getSource().equals(triggerSource)) {
         triggers.add(t);
       }
@@ -194,7 +320,7 @@ public class TriggerManager extends EventHandler implements
   public List<Trigger> getTriggerUpdates(final String triggerSource,
       final long lastUpdateTime) throws TriggerManagerException {
     final List<Trigger> triggers = new ArrayList<>();
-    for (final Trigger t : triggerIdMap.values()) {
+    for (final Trigger t : getTriggersAndRemovedTriggers()) {
       if (t.getSource().equals(triggerSource)
           && t.getLastModifyTime() > lastUpdateTime) {
         triggers.add(t);
@@ -207,7 +333,7 @@ public class TriggerManager extends EventHandler implements
   public List<Trigger> getAllTriggerUpdates(final long lastUpdateTime)
       throws TriggerManagerException {
     final List<Trigger> triggers = new ArrayList<>();
-    for (final Trigger t : triggerIdMap.values()) {
+    for (final Trigger t : getTriggersAndRemovedTriggers()) {
       if (t.getLastModifyTime() > lastUpdateTime) {
         triggers.add(t);
       }
@@ -215,6 +341,12 @@ public class TriggerManager extends EventHandler implements
     return triggers;
   }
 
+  private List<Trigger> getTriggersAndRemovedTriggers() {
+    final List<Trigger> triggers = new ArrayList<>(this.triggerIdMap.values());
+    triggers.addAll(this.removedTriggers.values());
+    return triggers;
+  }
+
   @Override
   public void insertTrigger(final Trigger t, final String user)
       throws TriggerManagerException {
@@ -234,7 +366,15 @@ public class TriggerManager extends EventHandler implements
 
   @Override
   public void shutdown() {
+    if (this.partitionSync != null) {
+      this.partitionSync.shutdown();
+    }
     this.runnerThread.shutdown();
+    this.actionService.shutdown();
+    if (this.partitions != null) {
+      leavePartitions();
+    }
+    this.triggerUpdates.shutdown();
   }
 
   @Override
@@ -254,14 +394,310 @@ public class TriggerManager extends EventHandler implements
     this.actionTypeLoader.registerActionType(name, action);
   }
 
+  /**
+   * Runs the actions of the fired trigger on a worker, then queues its update. The scanner has
+   * already moved the trigger to its next state, and doesn't check it again until this is done, so
+   * the actions of a trigger run in the order it fired.
+   */
+  private void submitActions(final Trigger t, final List<TriggerAction> actions,
+      final String actionType, final long fireTime) {
+    this.triggersInAction.add(t.getTriggerId());
+    this.commonMetrics.incrementTriggerActionQueueDepth();
+    try {
+      this.actionService.execute(() -> {
+        this.commonMetrics.decrementTriggerActionQueueDepth();
+        this.commonMetrics.updateTriggerActionLag(System.currentTimeMillis() - fireTime);
+        try {
+          doActions(t, actions, actionType);
+          persistFiredTrigger(t);
+        } finally {
+          this.triggersInAction.remove(t.getTriggerId());
+        }
+      });
+    } catch (final RejectedExecutionException e) {
+      this.commonMetrics.decrementTriggerActionQueueDepth();
+      this.triggersInAction.remove(t.getTriggerId());
+      throw e;
+    }
+  }
+
+  private void doActions(final Trigger t, final List<TriggerAction> actions,
+      final String actionType) {
+    for (final TriggerAction action : actions) {
+      try {
+        logger.info("Doing " + actionType + " actions " + action.getDescription() + " for " + t);
+        action.doAction();
+      } catch (final Exception e) {
+        logger.error("Failed to do " + actionType + " action " + action.getDescription() + " for "
+            + t, e);
+      } catch (final Throwable th) {
+        logger.error("Failed to do " + actionType + " action " + action.getDescription() + " for "
+            + t, th);
+      }
+    }
+  }
+
+  private void persistFiredTrigger(final Trigger t) {
+    synchronized (this.syncObj) {
+      // removed or replaced while its actions were running
+      if (this.triggerIdMap.get(t.getTriggerId()) != t) {
+        return;
+      }
+      try {
+        if (t.getStatus().equals(TriggerStatus.EXPIRED) && t.getSource().equals("azkaban")) {
+          removeTrigger(t);
+        } else {
+          final Long loadedModifyTime = this.loadedModifyTimes.remove(t.getTriggerId());
+          this.triggerUpdates.update(t,
+              loadedModifyTime == null ? t.getLastModifyTime() : loadedModifyTime);
+        }
+      } catch (final TriggerManagerException e) {
+        logger.error("Failed to persist fired trigger " + t, e);
+      }
+    }
+  }
+
+  /**
+   * Marks the triggers whose fired state was rejected by the db to be reloaded, as the changes of
+   * another node win over it. Called on the flusher, so it doesn't wait for syncObj.
+   */
+  private void onUpdatesRejected(final List<Integer> ids) {
+    if (this.partitions == null) {
+      logger.warn("Triggers " + ids + " were removed from db while being fired");
+      return;
+    }
+    logger.warn("Triggers " + ids + " were changed by another node while being fired, and are "
+        + "reloaded");
+    this.staleTriggers.addAll(ids);
+  }
+
+  private boolean isOwned(final int triggerId) {
+    return this.partitions == null || this.partitions.owns(triggerId);
+  }
+
+  /**
+   * Heartbeats and rebalances the partitions of this node, then picks up the triggers changed by
+   * the other nodes.
+   */
+  private void syncPartitions() {
+    final long syncStart = System.currentTimeMillis();
+    try {
+      final Set<Integer> acquired = this.partitions.heartbeat();
+      if (!acquired.isEmpty()) {
+        logger.info("Node " + this.partitions.getNodeId() + " acquired trigger partitions "
+            + acquired);
+        loadPartitions(acquired);
+      }
+      releaseDrainedPartitions();
+      syncTriggers();
+    } catch (final Throwable th) {
+      logger.error("Failed to sync the trigger partitions of node " + this.partitions.getNodeId(),
+          th);
+    }
+    // the next reads start after these removals
+    this.removalTimes.values().removeIf(removalTime -> removalTime < syncStart);
+  }
+
+  /**
+   * Schedules the triggers of the acquired partitions, as loaded from the db unless their local
+   * copy is being fired or persisted. The partitions whose triggers can't be loaded are released,
+   * and acquired again by a later heartbeat.
+   */
+  private void loadPartitions(final Set<Integer> acquired) throws TriggerLoaderException {
+    final Set<Integer> localIds = new HashSet<>();
+    for (final int id : this.triggerIdMap.keySet()) {
+      if (acquired.contains(this.partitions.getPartition(id))) {
+        localIds.add(id);
+      }
+    }
+    final long readTime = System.currentTimeMillis();
+    final List<Trigger> triggers;
+    try {
+      triggers = this.triggerLoader.loadTriggers(this.partitions.getNumPartitions(), acquired);
+    } catch (final TriggerLoaderException e) {
+      for (final int partition : acquired) {
+        this.partitions.release(partition);
+      }
+      throw e;
+    }
+
+    final Set<Integer> ids = new HashSet<>();
+    synchronized (this.syncObj) {
+      for (final Trigger t : triggers) {
+        ids.add(t.getTriggerId());
+        syncTrigger(t, readTime);
+        if (this.triggerIdMap.containsKey(t.getTriggerId())) {
+          this.runnerThread.addTrigger(this.triggerIdMap.get(t.getTriggerId()));
+        }
+      }
+      removeTriggersRemovedElsewhere(localIds, ids);
+    }
+  }
+
+  /**
+   * Releases the drained partitions which have no trigger being fired or persisted, so their next
+   * owner loads the state of their fired triggers.
+   */
+  private void releaseDrainedPartitions() throws TriggerLoaderException {
+    final Set<Integer> drained = this.partitions.getDrainingPartitions();
+    if (drained.isEmpty()) {
+      return;
+    }
+    // the scanner fires the triggers holding syncObj, and doesn't fire those being drained
+    synchronized (this.syncObj) {
+      for (final int id : this.triggersInAction) {
+        drained.remove(this.partitions.getPartition(id));
+      }
+    }
+    this.triggerUpdates.flush();
+    for (final int id : this.triggerUpdates.getPendingIds()) {
+      drained.remove(this.partitions.getPartition(id));
+    }
+    for (final int partition : drained) {
+      this.partitions.release(partition);
+    }
+    if (!drained.isEmpty()) {
+      logger.info("Node " + this.partitions.getNodeId() + " released trigger partitions "
+          + drained);
+    }
+  }
+
+  /**
+   * Picks up the triggers added, changed or removed by the other nodes since the last sync, and
+   * reloads the stale triggers. A trigger changed while its local copy was being fired is picked
+   * up by a later sync.
+   */
+  private void syncTriggers() throws TriggerLoaderException {
+    final long syncStart = System.currentTimeMillis();
+    final Set<Integer> localIds = new HashSet<>(this.triggerIdMap.keySet());
+    // the changes committed by the other nodes a bit after their modify time are included
+    final List<Trigger> triggers = new ArrayList<>(this.triggerLoader
+        .getUpdatedTriggers(this.syncTime - this.partitions.getHeartbeatIntervalMs()));
+    final Set<Integer> ids = new HashSet<>(this.triggerLoader.loadTriggerIds());
+    for (final int id : this.staleTriggers) {
+      if (ids.contains(id)) {
+        triggers.add(this.triggerLoader.loadTrigger(id));
+      } else {
+        this.staleTriggers.remove(id);
+      }
+    }
+
+    long nextSyncTime = syncStart;
+    synchronized (this.syncObj) {
+      for (final Trigger t : triggers) {
+        // read before the ids, so it was removed if it isn't one of them anymore
+        localIds.add(t.getTriggerId());
+        if (!syncTrigger(t, syncStart)) {
+          nextSyncTime = Math.min(nextSyncTime, t.getLastModifyTime());
+        }
+      }
+      removeTriggersRemovedElsewhere(localIds, ids);
+    }
+    this.syncTime = nextSyncTime;
+
+    for (final Trigger t : this.removedTriggers.values()) {
+      if (t.getLastModifyTime() < syncStart - REMOVED_TRIGGER_RETENTION_MS) {
+        this.removedTriggers.remove(t.getTriggerId(), t);
+      }
+    }
+  }
+
+  /**
+   * Replaces the local copy of the trigger by the one loaded from the db if the latter is newer,
+   * or if the local copy is stale. The trigger isn't added back if this node removed it after the
+   * db read started.
+   *
+   * @return false if the local copy is older, but is being fired or persisted, and is kept
+   */
+  private boolean syncTrigger(final Trigger t, final long readTime) {
+    final int id = t.getTriggerId();
+    final Trigger local = this.triggerIdMap.get(id);
+    if (local == null && this.removalTimes.getOrDefault(id, Long.MIN_VALUE) >= readTime) {
+      return true;
+    }
+    if (local != null) {
+      final boolean stale = this.staleTriggers.contains(id);
+      if (!stale && t.getLastModifyTime() <= this.loadedModifyTimes
+          .getOrDefault(id, local.getLastModifyTime())) {
+        return true;
+      }
+      if (this.triggersInAction.contains(id)) {
+        return false;
+      }
+      if (stale) {
+        // based on the stale copy, so it would be rejected too
+        this.triggerUpdates.discard(local);
+      } else if (this.triggerUpdates.getPendingIds().contains(id)) {
+        return false;
+      }
+      this.runnerThread.deleteTrigger(local);
+    }
+    this.staleTriggers.remove(id);
+    this.loadedModifyTimes.put(id, t.getLastModifyTime());
+    // the schedules see the changes newer than the last one they saw
+    t.setLastModifyTime(Math.max(t.getLastModifyTime(), System.currentTimeMillis()));
+    this.triggerIdMap.put(id, t);
+    if (isOwned(id)) {
+      this.runnerThread.addTrigger(t);
+    }
+    return true;
+  }
+
+  /**
+   * Removes the local triggers which aren't in the db anymore. The triggers are reported as expired
+   * to the schedules, which remove them in turn.
+   *
+   * @param localIds the local triggers before the db was read, which are all in the db unless
+   * removed
+   * @param ids the triggers in the db
+   */
+  private void removeTriggersRemovedElsewhere(final Set<Integer> localIds, final Set<Integer> ids) {
+    for (final int id : localIds) {
+      final Trigger t = this.triggerIdMap.get(id);
+      if (t == null || ids.contains(id)) {
+        continue;
+      }
+      logger.info("Trigger " + id + " was removed by another node");
+      this.runnerThread.deleteTrigger(t);
+      this.triggerUpdates.discard(t);
+      this.triggerIdMap.remove(id);
+      this.loadedModifyTimes.remove(id);
+      this.staleTriggers.remove(id);
+      t.stopCheckers();
+      t.setStatus(TriggerStatus.EXPIRED);
+      t.setLastModifyTime(System.currentTimeMillis());
+      this.removedTriggers.put(id, t);
+    }
+  }
+
+  /**
+   * Lets the other nodes take the partitions of this node at once, once the actions already
+   * running are done and persisted. The partitions which can't be released expire.
+   */
+  private void leavePartitions() {
+    try {
+      this.partitionSync.awaitTermination(this.partitions.getHeartbeatIntervalMs(),
+          TimeUnit.MILLISECONDS);
+      this.actionService.awaitTermination(this.partitions.getHeartbeatIntervalMs(),
+          TimeUnit.MILLISECONDS);
+      this.partitions.drainAll();
+      releaseDrainedPartitions();
+      this.partitions.leave();
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (final TriggerLoaderException e) {
+      logger.error("Failed to release the trigger partitions of node "
+          + this.partitions.getNodeId(), e);
+    }
+  }
+
   private class TriggerScannerThread extends Thread {
 
     private final long scannerInterval;
-    private final BlockingQueue<Trigger> triggers;
+    private final TriggerSchedule schedule = new TriggerSchedule();
     private boolean shutdown = false;
 
     public TriggerScannerThread(final long scannerInterval) {
-      this.triggers = new PriorityBlockingQueue<>(1, new TriggerComparator());
       this.setName("TriggerRunnerManager-Trigger-Scanner-Thread");
       this.scannerInterval = scannerInterval;
     }
@@ -275,18 +711,28 @@ public class TriggerManager extends EventHandler implements
     public void addTrigger(final Trigger t) {
       synchronized (TriggerManager.this.syncObj) {
         t.updateNextCheckTime();
-        long nextExecTime = t.getNextCheckTime();
-        logger.info("****************************************************************");
-        logger.info("call TriggerManager.addTrigger");
-        logger.info("****************************************************************");
-        //scheduler.getExecutionOptions()可以获取执行参数
-
-        this.triggers.add(t);
+        // e.g. expired by another node, which is checked at once so that the scanner removes it
+        this.schedule.schedule(t, t.getStatus().equals(TriggerStatus.EXPIRED)
+            ? System.currentTimeMillis() : t.getNextCheckTime());
+        // the scanner may be waiting past the new due time
+        TriggerManager.this.syncObj.notifyAll();
       }
     }
 
     public void deleteTrigger(final Trigger t) {
-      this.triggers.remove(t);
+      synchronized (TriggerManager.this.syncObj) {
+        this.schedule.unschedule(t);
+      }
+    }
+
+    /**
+     * Makes the trigger due, e.g. after its status was changed outside of the scanner.
+     */
+    public void checkTrigger(final Trigger t) {
+      synchronized (TriggerManager.this.syncObj) {
+        this.schedule.schedule(t, System.currentTimeMillis());
+        TriggerManager.this.syncObj.notifyAll();
+      }
     }
 
     @Override
@@ -294,14 +740,14 @@ public class TriggerManager extends EventHandler implements
       while (!this.shutdown) {
         synchronized (TriggerManager.this.syncObj) {
           try {
-            TriggerManager.this.lastRunnerThreadCheckTime = System.currentTimeMillis();
+            final long checkTime = System.currentTimeMillis();
+            TriggerManager.this.lastRunnerThreadCheckTime = checkTime;
 
             TriggerManager.this.scannerStage =
-                "Ready to start a new scan cycle at "
-                    + TriggerManager.this.lastRunnerThreadCheckTime;
+                "Ready to start a new scan cycle at " + checkTime;
 
             try {
-              checkAllTriggers();
+              checkDueTriggers(checkTime);
             } catch (final Exception e) {
               e.printStackTrace();
               logger.error(e.getMessage());
@@ -310,16 +756,19 @@ public class TriggerManager extends EventHandler implements
               logger.error(t.getMessage());
             }
 
-            TriggerManager.this.scannerStage = "Done flipping all triggers.";
-
-            TriggerManager.this.runnerThreadIdleTime =
-                this.scannerInterval
-                    - (System.currentTimeMillis() - TriggerManager.this.lastRunnerThreadCheckTime);
+            TriggerManager.this.scannerStage = "Done flipping all due triggers.";
 
-            if (TriggerManager.this.runnerThreadIdleTime < 0) {
+            final long elapsed = System.currentTimeMillis() - checkTime;
+            if (elapsed > this.scannerInterval) {
               logger.error("Trigger manager thread " + this.getName()
                   + " is too busy!");
-            } else {
+            }
+            // sleeps until the next trigger is due, at most for the scanner interval. The time
+            // checkers are met once their time is past, hence the extra millisecond.
+            final long nextDueTime = this.schedule.getNextDueTime();
+            TriggerManager.this.runnerThreadIdleTime =
+                Math.min(this.scannerInterval, nextDueTime - checkTime + 1) - elapsed;
+            if (TriggerManager.this.runnerThreadIdleTime > 0) {
               TriggerManager.this.syncObj.wait(TriggerManager.this.runnerThreadIdleTime);
             }
           } catch (final InterruptedException e) {
@@ -329,13 +778,24 @@ public class TriggerManager extends EventHandler implements
       }
     }
 
-    private void checkAllTriggers() throws TriggerManagerException {
-      // sweep through the rest of them
-      for (final Trigger t : this.triggers) {
+    private void checkDueTriggers(final long checkTime) {
+      for (final Trigger t : this.schedule.pollDue(checkTime)) {
+        // removed or replaced by the actions of a trigger checked before
+        if (TriggerManager.this.triggerIdMap.get(t.getTriggerId()) != t) {
+          continue;
+        }
+        // the partition of the trigger was released, its triggers are scheduled again if acquired
+        if (!isOwned(t.getTriggerId())) {
+          continue;
+        }
         try {
           TriggerManager.this.scannerStage = "Checking for trigger " + t.getTriggerId();
 
-          if (t.getStatus().equals(TriggerStatus.READY)) {
+          final boolean inAction =
+              TriggerManager.this.triggersInAction.contains(t.getTriggerId());
+          // changed by another node, so not fired again until reloaded
+          final boolean stale = TriggerManager.this.staleTriggers.contains(t.getTriggerId());
+          if (!inAction && !stale && t.getStatus().equals(TriggerStatus.READY)) {
 
             /**
              * Prior to this change, expiration condition should never be called though
@@ -345,83 +805,59 @@ public class TriggerManager extends EventHandler implements
              */
             if (t.getExpireCondition().getExpression().contains("EndTimeChecker") && t
                 .expireConditionMet()) {
-              onTriggerPause(t);
+              onTriggerPause(t, checkTime);
             } else if (t.triggerConditionMet()) {
-              onTriggerTrigger(t);
+              onTriggerTrigger(t, checkTime);
             }
           }
-          if (t.getStatus().equals(TriggerStatus.EXPIRED) && t.getSource().equals("azkaban")) {
+          // the trigger expired by its actions is removed once they are done
+          if (t.getStatus().equals(TriggerStatus.EXPIRED) && t.getSource().equals("azkaban")
+              && !TriggerManager.this.triggersInAction.contains(t.getTriggerId())) {
             removeTrigger(t);
           } else {
-            t.updateNextCheckTime();
+            reschedule(t, checkTime);
           }
         } catch (final Throwable th) {
           //skip this trigger, moving on to the next one
           logger.error("Failed to process trigger with id : " + t, th);
+          if (TriggerManager.this.triggerIdMap.get(t.getTriggerId()) == t) {
+            reschedule(t, checkTime);
+          }
         }
       }
     }
 
-    private void onTriggerTrigger(final Trigger t) throws TriggerManagerException {
-      final List<TriggerAction> actions = t.getTriggerActions();
-      for (final TriggerAction action : actions) {
-        try {
-          logger.info("Doing trigger actions " + action.getDescription() + " for " + t);
-          action.doAction();
-        } catch (final Exception e) {
-          logger.error("Failed to do action " + action.getDescription() + " for " + t, e);
-        } catch (final Throwable th) {
-          logger.error("Failed to do action " + action.getDescription() + " for " + t, th);
-        }
+    /**
+     * Schedules the checked trigger at its next check time. The triggers without one in the
+     * future, e.g. those waiting for an execution, are checked again after the scanner interval,
+     * and the triggers which aren't ready are only checked again once updated or expired.
+     */
+    private void reschedule(final Trigger t, final long checkTime) {
+      t.updateNextCheckTime();
+      final long dueTime;
+      if (!t.getStatus().equals(TriggerStatus.READY)) {
+        dueTime = Long.MAX_VALUE;
+      } else if (t.getNextCheckTime() >= checkTime) {
+        dueTime = t.getNextCheckTime();
+      } else {
+        dueTime = checkTime + this.scannerInterval;
       }
+      this.schedule.schedule(t, dueTime);
+    }
 
+    private void onTriggerTrigger(final Trigger t, final long fireTime) {
       if (t.isResetOnTrigger()) {
         t.resetTriggerConditions();
       } else {
         t.setStatus(TriggerStatus.EXPIRED);
       }
-      try {
-        TriggerManager.this.triggerLoader.updateTrigger(t);
-      } catch (final TriggerLoaderException e) {
-        throw new TriggerManagerException(e);
-      }
+      submitActions(t, t.getTriggerActions(), "trigger", fireTime);
     }
 
-    private void onTriggerPause(final Trigger t) throws TriggerManagerException {
-      final List<TriggerAction> expireActions = t.getExpireActions();
-      for (final TriggerAction action : expireActions) {
-        try {
-          logger.info("Doing expire actions for " + action.getDescription() + " for " + t);
-          action.doAction();
-        } catch (final Exception e) {
-          logger.error("Failed to do expire action " + action.getDescription() + " for " + t, e);
-        } catch (final Throwable th) {
-          logger.error("Failed to do expire action " + action.getDescription() + " for " + t, th);
-        }
-      }
+    private void onTriggerPause(final Trigger t, final long fireTime) {
       logger.info("Pausing Trigger " + t.getDescription());
       t.setStatus(TriggerStatus.PAUSED);
-      try {
-        TriggerManager.this.triggerLoader.updateTrigger(t);
-      } catch (final TriggerLoaderException e) {
-        throw new TriggerManagerException(e);
-      }
-    }
-
-    private class TriggerComparator implements Comparator<Trigger> {
-
-      @Override
-      public int compare(final Trigger arg0, final Trigger arg1) {
-        final long first = arg1.getNextCheckTime();
-        final long second = arg0.getNextCheckTime();
-
-        if (first == second) {
-          return 0;
-        } else if (first < second) {
-          return 1;
-        }
-        return -1;
-      }
+      submitActions(t, t.getExpireActions(), "expire", fireTime);
     }
   }
 
@@ -439,18 +875,19 @@ public class TriggerManager extends EventHandler implements
 
     @Override
     public String getPrimaryServerHost() {
-      return "local";
+      return TriggerManager.this.partitions == null ? "local"
+          : TriggerManager.this.partitions.getNodeId();
     }
 
     @Override
     public int getNumTriggers() {
-      return triggerIdMap.size();
+      return TriggerManager.this.triggerIdMap.size();
     }
 
     @Override
     public String getTriggerSources() {
       final Set<String> sources = new HashSet<>();
-      for (final Trigger t : triggerIdMap.values()) {
+      for (final Trigger t : TriggerManager.this.triggerIdMap.values()) {
         sources.add(t.getSource());
       }
       return sources.toString();
@@ -458,7 +895,7 @@ public class TriggerManager extends EventHandler implements
 
     @Override
     public String getTriggerIds() {
-      return triggerIdMap.keySet().toString();
+      return TriggerManager.this.triggerIdMap.keySet().toString();
     }
 
     @Override
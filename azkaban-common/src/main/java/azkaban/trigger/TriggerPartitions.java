@@ -0,0 +1,169 @@
+/*
+ * Copyright 2018 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package azkaban.trigger;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import org.apache.log4j.Logger;
+
+/**
+ * The partitions of the trigger ids leased by this node, when several web servers evaluate the
+ * triggers.
+ *
+ * A trigger id belongs to the partition of its remainder by the number of partitions. The live
+ * nodes, which heartbeat within the lease duration, are sorted by id, and partition p is assigned
+ * to the node p modulo their number, so the partitions are spread again when a node joins or
+ * leaves. A node only fires the triggers of the partitions whose lease it holds, and takes a lease
+ * once the previous owner released it or let it expire, so a partition has one owner at a time.
+ * The leases are renewed at every heartbeat, every third of the lease duration, and a node stops
+ * firing the triggers of a partition a heartbeat before its lease expires, which tolerates that
+ * much clock skew between the nodes.
+ *
+ * A partition assigned to another node is drained before being released: its triggers aren't fired
+ * anymore, but its lease is held until the actions already running are done and persisted.
+ */
+class TriggerPartitions {
+
+  private static final Logger logger = Logger.getLogger(TriggerPartitions.class);
+  // the nodes which didn't heartbeat for that many leases are removed
+  private static final int DEAD_NODE_LEASES = 10;
+
+  private final TriggerLeaseDao leaseDao;
+  private final String nodeId;
+  private final int numPartitions;
+  private final long leaseMs;
+  // the leased partitions, and the time until which their triggers can be fired
+  private final Map<Integer, Long> owned = new ConcurrentHashMap<>();
+  // the leased partitions which are assigned to another node
+  private final Set<Integer> draining = ConcurrentHashMap.newKeySet();
+
+  TriggerPartitions(final TriggerLeaseDao leaseDao, final String nodeId, final int numPartitions,
+      final long leaseMs) {
+    this.leaseDao = leaseDao;
+    this.nodeId = nodeId;
+    this.numPartitions = numPartitions;
+    this.leaseMs = leaseMs;
+  }
+
+  String getNodeId() {
+    return this.nodeId;
+  }
+
+  int getNumPartitions() {
+    return this.numPartitions;
+  }
+
+  long getHeartbeatIntervalMs() {
+    return this.leaseMs / 3;
+  }
+
+  int getPartition(final int triggerId) {
+    return Math.floorMod(triggerId, this.numPartitions);
+  }
+
+  /**
+   * @return true if this node can fire the trigger now
+   */
+  boolean owns(final int triggerId) {
+    final int partition = getPartition(triggerId);
+    final Long validUntil = this.owned.get(partition);
+    return validUntil != null && !this.draining.contains(partition)
+        && System.currentTimeMillis() < validUntil;
+  }
+
+  Set<Integer> getOwnedPartitions() {
+    return new TreeSet<>(this.owned.keySet());
+  }
+
+  Set<Integer> getDrainingPartitions() {
+    return new TreeSet<>(this.draining);
+  }
+
+  void init() throws TriggerLoaderException {
+    this.leaseDao.createPartitions(this.numPartitions);
+  }
+
+  /**
+   * Heartbeats, then renews the leases of the partitions assigned to this node and of those being
+   * drained, and takes the assigned partitions which are free.
+   *
+   * @return the partitions whose triggers this node fires from now on, and has to schedule
+   */
+  Set<Integer> heartbeat() throws TriggerLoaderException {
+    final long now = System.currentTimeMillis();
+    this.leaseDao.heartbeat(this.nodeId, now);
+    this.leaseDao.removeNodesBefore(now - DEAD_NODE_LEASES * this.leaseMs);
+    final List<String> nodes = this.leaseDao.fetchNodesSince(now - this.leaseMs);
+    final int index = nodes.indexOf(this.nodeId);
+
+    final Set<Integer> acquired = new HashSet<>();
+    for (int partition = 0; partition < this.numPartitions; partition++) {
+      final boolean assigned = index >= 0 && partition % nodes.size() == index;
+      if (!assigned) {
+        if (!this.owned.containsKey(partition)) {
+          continue;
+        }
+        // stops firing its triggers before renewing its lease
+        this.draining.add(partition);
+      }
+      if (!this.leaseDao.acquire(partition, this.nodeId, now, now + this.leaseMs)) {
+        if (this.owned.remove(partition) != null) {
+          logger.warn("Node " + this.nodeId + " lost the lease of trigger partition " + partition);
+        }
+        this.draining.remove(partition);
+        continue;
+      }
+      final Long validUntil = this.owned.put(partition, now + this.leaseMs
+          - getHeartbeatIntervalMs());
+      // the triggers of a partition which was drained or whose lease lapsed may have been dropped
+      // by the scanner meanwhile, so they are scheduled again
+      if (assigned && (this.draining.remove(partition) || validUntil == null
+          || validUntil <= System.currentTimeMillis())) {
+        acquired.add(partition);
+      }
+    }
+    return acquired;
+  }
+
+  /**
+   * Drains all the partitions, e.g. before shutting down.
+   */
+  void drainAll() {
+    this.draining.addAll(this.owned.keySet());
+  }
+
+  /**
+   * Releases the partition, so its assigned node can take it at once.
+   */
+  void release(final int partition) throws TriggerLoaderException {
+    this.owned.remove(partition);
+    this.draining.remove(partition);
+    this.leaseDao.release(partition, this.nodeId);
+  }
+
+  /**
+   * Removes this node from the live nodes. Its partitions which weren't released expire.
+   */
+  void leave() throws TriggerLoaderException {
+    this.owned.clear();
+    this.draining.clear();
+    this.leaseDao.removeNode(this.nodeId);
+  }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright 2018 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package azkaban.trigger;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * The triggers of the {@link TriggerManager}, ordered by the time they are due to be checked.
+ *
+ * A trigger is keyed by the due time it was scheduled at, which doesn't change while it is in the
+ * schedule, so a trigger whose next check time changes has to be scheduled again. Polling the due
+ * triggers only touches those, whatever the number of triggers. Not thread safe, the trigger
+ * manager guards it with its lock.
+ */
+class TriggerSchedule {
+
+  private static final Comparator<ScheduledTrigger> DUE_TIME_ORDER =
+      Comparator.<ScheduledTrigger>comparingLong(s -> s.dueTime)
+          .thenComparingInt(s -> s.trigger.getTriggerId());
+
+  private final TreeSet<ScheduledTrigger> scheduled = new TreeSet<>(DUE_TIME_ORDER);
+  private final Map<Integer, ScheduledTrigger> scheduledById = new HashMap<>();
+
+  /**
+   * Schedules the trigger to be checked at dueTime, replacing its previous due time.
+   */
+  void schedule(final Trigger t, final long dueTime) {
+    unschedule(t);
+    final ScheduledTrigger s = new ScheduledTrigger(t, dueTime);
+    this.scheduled.add(s);
+    this.scheduledById.put(t.getTriggerId(), s);
+  }
+
+  void unschedule(final Trigger t) {
+    if (t == null) {
+      return;
+    }
+    final ScheduledTrigger s = this.scheduledById.remove(t.getTriggerId());
+    if (s != null) {
+      this.scheduled.remove(s);
+    }
+  }
+
+  /**
+   * Removes the triggers due at time from the schedule.
+   *
+   * @return the due triggers, from the earliest
+   */
+  List<Trigger> pollDue(final long time) {
+    final List<Trigger> due = new ArrayList<>();
+    while (!this.scheduled.isEmpty() && this.scheduled.first().dueTime <= time) {
+      final ScheduledTrigger s = this.scheduled.pollFirst();
+      this.scheduledById.remove(s.trigger.getTriggerId());
+      due.add(s.trigger);
+    }
+    return due;
+  }
+
+  /**
+   * @return the earliest due time, or Long.MAX_VALUE if no trigger is scheduled
+   */
+  long getNextDueTime() {
+    return this.scheduled.isEmpty() ? Long.MAX_VALUE : this.scheduled.first().dueTime;
+  }
+
+  int size() {
+    return this.scheduledById.size();
+  }
+
+  private static class ScheduledTrigger {
+
+    private final Trigger trigger;
+    private final long dueTime;
+
+    private ScheduledTrigger(final Trigger trigger, final long dueTime) {
+      this.trigger = trigger;
+      this.dueTime = dueTime;
+    }
+  }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2018 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package azkaban.trigger;
+
+import azkaban.utils.JSONUtils;
+
+/**
+ * The state of a trigger at one point in time, serialized so that it can be written after the
+ * trigger has changed again.
+ */
+public class TriggerSnapshot {
+
+  private final int triggerId;
+  private final String source;
+  private final long lastModifyTime;
+  private final long baseModifyTime;
+  private final String json;
+
+  /**
+   * Serializes the trigger, whose state in the db is the one it had at its modify time.
+   */
+  public TriggerSnapshot(final Trigger t) {
+    this(t, t.getLastModifyTime());
+  }
+
+  /**
+   * Serializes the trigger. The caller holds the lock which guards the changes of the trigger.
+   *
+   * @param baseModifyTime the modify time in the db of the state the trigger was changed from
+   */
+  public TriggerSnapshot(final Trigger t, final long baseModifyTime) {
+    this.triggerId = t.getTriggerId();
+    this.source = t.getSource();
+    this.lastModifyTime = t.getLastModifyTime();
+    this.baseModifyTime = baseModifyTime;
+    this.json = JSONUtils.toJSON(t.toJson());
+  }
+
+  private TriggerSnapshot(final TriggerSnapshot snapshot, final long baseModifyTime) {
+    this.triggerId = snapshot.triggerId;
+    this.source = snapshot.source;
+    this.lastModifyTime = snapshot.lastModifyTime;
+    this.baseModifyTime = baseModifyTime;
+    this.json = snapshot.json;
+  }
+
+  /**
+   * Returns the same snapshot, based on another state of the trigger in the db.
+   */
+  TriggerSnapshot rebase(final long baseModifyTime) {
+    return new TriggerSnapshot(this, baseModifyTime);
+  }
+
+  public int getTriggerId() {
+    return this.triggerId;
+  }
+
+  public String getSource() {
+    return this.source;
+  }
+
+  public long getLastModifyTime() {
+    return this.lastModifyTime;
+  }
+
+  public long getBaseModifyTime() {
+    return this.baseModifyTime;
+  }
+
+  public String getJson() {
+    return this.json;
+  }
+}
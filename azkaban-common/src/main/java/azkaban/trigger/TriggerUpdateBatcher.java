@@ -0,0 +1,177 @@
+/*
+ * Copyright 2018 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package azkaban.trigger;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import org.apache.log4j.Logger;
+
+/**
+ * Persists the state of the fired triggers in batches.
+ *
+ * The updates are coalesced per trigger id, and the latest state of the pending triggers is written
+ * with one batch statement every flush interval, or as soon as a batch is full. So a burst of fired
+ * triggers costs one serialization and one row per trigger, whatever the number of its updates.
+ *
+ * An update snapshots the state of the trigger, holding the lock which guards its changes, and
+ * sets its modify time. The flusher only writes the snapshots, so it never reads a trigger being
+ * fired again.
+ *
+ * A snapshot is only written if the trigger wasn't changed in the db since the state it was
+ * changed from, e.g. by another web server. The ids of the rejected triggers are passed to the
+ * listener, which reloads them.
+ *
+ * An update is only persisted once flushed: if the server stops in between, the trigger is loaded
+ * with its state before it fired, and is evaluated again once after restart. The pending updates
+ * are flushed on shutdown.
+ */
+class TriggerUpdateBatcher {
+
+  private static final Logger logger = Logger.getLogger(TriggerUpdateBatcher.class);
+  static final int MAX_BATCH_SIZE = 500;
+
+  private final TriggerLoader triggerLoader;
+  private final Consumer<List<Integer>> rejectedListener;
+  private final ScheduledExecutorService flusher;
+  // guarded by itself, while the flush lock is held during the writes
+  private final Map<Integer, TriggerSnapshot> pending = new LinkedHashMap<>();
+  private final Object flushLock = new Object();
+
+  TriggerUpdateBatcher(final TriggerLoader triggerLoader, final long flushIntervalMs) {
+    this(triggerLoader, flushIntervalMs, ids -> {
+    });
+  }
+
+  /**
+   * @param rejectedListener called with the ids of the triggers whose snapshots were rejected by
+   * the db. Called on the flusher, which mustn't wait for the lock guarding the triggers.
+   */
+  TriggerUpdateBatcher(final TriggerLoader triggerLoader, final long flushIntervalMs,
+      final Consumer<List<Integer>> rejectedListener) {
+    this.triggerLoader = triggerLoader;
+    this.rejectedListener = rejectedListener;
+    this.flusher = Executors.newSingleThreadScheduledExecutor(
+        new ThreadFactoryBuilder().setDaemon(true).setNameFormat("azk-trigger-flusher").build());
+    this.flusher.scheduleWithFixedDelay(this::flush, flushIntervalMs, flushIntervalMs,
+        TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Queues the update of the trigger, replacing its pending update if any. Called holding the lock
+   * which guards the changes of the trigger.
+   *
+   * @param baseModifyTime the modify time in the db of the state the trigger was changed from
+   */
+  void update(final Trigger t, final long baseModifyTime) {
+    final boolean full;
+    synchronized (this.pending) {
+      // the db still has the state the replaced update was based on
+      final TriggerSnapshot replaced = this.pending.get(t.getTriggerId());
+      t.setLastModifyTime(System.currentTimeMillis());
+      this.pending.put(t.getTriggerId(), new TriggerSnapshot(t,
+          replaced == null ? baseModifyTime : replaced.getBaseModifyTime()));
+      full = this.pending.size() == MAX_BATCH_SIZE;
+    }
+    if (full && !this.flusher.isShutdown()) {
+      this.flusher.execute(this::flush);
+    }
+  }
+
+  /**
+   * Drops the pending update of the trigger, once the updates being written are done. Called
+   * before the trigger is written or removed directly, which the stale update mustn't follow.
+   */
+  void discard(final Trigger t) {
+    if (t == null) {
+      return;
+    }
+    synchronized (this.flushLock) {
+      synchronized (this.pending) {
+        this.pending.remove(t.getTriggerId());
+      }
+    }
+  }
+
+  Set<Integer> getPendingIds() {
+    synchronized (this.pending) {
+      return new HashSet<>(this.pending.keySet());
+    }
+  }
+
+  int getNumPending() {
+    synchronized (this.pending) {
+      return this.pending.size();
+    }
+  }
+
+  /**
+   * Writes the pending updates. The updates of a failed batch are retried at the next flush,
+   * unless the trigger was updated again since.
+   */
+  void flush() {
+    synchronized (this.flushLock) {
+      while (true) {
+        final List<TriggerSnapshot> batch = new ArrayList<>();
+        synchronized (this.pending) {
+          for (final TriggerSnapshot snapshot : this.pending.values()) {
+            batch.add(snapshot);
+            if (batch.size() == MAX_BATCH_SIZE) {
+              break;
+            }
+          }
+          for (final TriggerSnapshot snapshot : batch) {
+            this.pending.remove(snapshot.getTriggerId());
+          }
+        }
+        if (batch.isEmpty()) {
+          return;
+        }
+
+        final List<Integer> rejected;
+        try {
+          rejected = this.triggerLoader.updateTriggers(batch);
+        } catch (final Throwable th) {
+          logger.error("Failed to persist " + batch.size() + " triggers, retrying later.", th);
+          synchronized (this.pending) {
+            for (final TriggerSnapshot snapshot : batch) {
+              // a newer update is based on the state which wasn't written
+              this.pending.merge(snapshot.getTriggerId(), snapshot,
+                  (newer, failed) -> newer.rebase(failed.getBaseModifyTime()));
+            }
+          }
+          return;
+        }
+        if (!rejected.isEmpty()) {
+          this.rejectedListener.accept(rejected);
+        }
+      }
+    }
+  }
+
+  void shutdown() {
+    this.flusher.shutdown();
+    flush();
+  }
+}
@@ -17,6 +17,7 @@
 package azkaban.trigger.builtin;
 
 import azkaban.executor.ExecutableFlow;
+import azkaban.executor.ExecutionAdmission;
 import azkaban.executor.ExecutionOptions;
 import azkaban.executor.ExecutorManagerAdapter;
 import azkaban.executor.ExecutorManagerException;
@@ -40,6 +41,7 @@ public class ExecuteFlowAction implements TriggerAction {
   public static final String EXEC_ID = "ExecuteFlowAction.execid";
 
   private static ExecutorManagerAdapter executorManager;
+  private static ExecutionAdmission executionAdmission;
   private static TriggerManager triggerManager;
   private static ProjectManager projectManager;
   private static Logger logger = Logger.getLogger(ExecuteFlowAction.class);
@@ -75,6 +77,14 @@ public class ExecuteFlowAction implements TriggerAction {
     ExecuteFlowAction.executorManager = executorManager;
   }
 
+  public static ExecutionAdmission getExecutionAdmission() {
+    return executionAdmission;
+  }
+
+  public static void setExecutionAdmission(final ExecutionAdmission executionAdmission) {
+    ExecuteFlowAction.executionAdmission = executionAdmission;
+  }
+
   public static TriggerManager getTriggerManager() {
     return triggerManager;
   }
@@ -272,8 +282,19 @@ public class ExecuteFlowAction implements TriggerAction {
 
     try {
       logger.info("Invoking flow " + project.getName() + "." + this.flowName);
-      executorManager.submitExecutableFlow(exflow, this.submitUser);
-      logger.info("Invoked flow " + project.getName() + "." + this.flowName);
+      final boolean submitted;
+      if (executionAdmission != null) {
+        submitted = executionAdmission.submit(exflow, this.submitUser);
+      } else {
+        executorManager.submitExecutableFlow(exflow, this.submitUser);
+        submitted = true;
+      }
+      if (submitted) {
+        logger.info("Invoked flow " + project.getName() + "." + this.flowName);
+      } else {
+        logger.info("Held flow " + project.getName() + "." + this.flowName
+            + " until admitted");
+      }
     } catch (final ExecutorManagerException e) {
       throw new RuntimeException(e);
     }
@@ -0,0 +1,226 @@
+/*
+ * Copyright 2018 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package azkaban.utils;
+
+import java.io.Closeable;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * The end of a log which is being written, pushed to the connections following it.
+ *
+ * One source reads the bytes appended to the log and passes them to {@link #append(byte[], int,
+ * int)}, whatever the number of followers. Each follower has its own buffer, capped at
+ * maxBufferBytes. The follower of a connection which doesn't keep up is closed when its buffer is
+ * full, instead of holding more memory or slowing the others down, and has to follow the log again
+ * from the offset it reached.
+ */
+public class LogTail {
+
+  private final long maxBufferBytes;
+  private final List<Follower> followers = new CopyOnWriteArrayList<>();
+  // offset of the end of the bytes appended so far
+  private long position;
+  private boolean ended = false;
+  private boolean complete = false;
+
+  public LogTail(final long position, final long maxBufferBytes) {
+    this.position = position;
+    this.maxBufferBytes = maxBufferBytes;
+  }
+
+  /**
+   * Adds a follower, which receives the bytes appended from now on whose offset is at least
+   * offset. If offset is before {@link Follower#getStartPosition()}, the bytes in between have to
+   * be read from the log itself.
+   */
+  public synchronized Follower follow(final long offset) {
+    final Follower follower = new Follower(this.position, offset);
+    if (this.ended) {
+      follower.end(this.complete);
+    } else {
+      this.followers.add(follower);
+    }
+    return follower;
+  }
+
+  public synchronized void append(final byte[] data, final int offset, final int length) {
+    if (length == 0 || this.ended) {
+      return;
+    }
+    final long start = this.position;
+    this.position += length;
+    // shared by all the followers, which only read it
+    final byte[] chunk = Arrays.copyOfRange(data, offset, offset + length);
+    for (final Follower follower : this.followers) {
+      if (!follower.offer(start, chunk)) {
+        this.followers.remove(follower);
+      }
+    }
+  }
+
+  /**
+   * Ends the log once the followers have taken the bytes they hold.
+   */
+  public synchronized void finish() {
+    end(true);
+  }
+
+  /**
+   * Ends the log before its end, e.g. because it can't be read anymore. The followers have to
+   * follow it again.
+   */
+  public synchronized void close() {
+    end(false);
+  }
+
+  public synchronized long getPosition() {
+    return this.position;
+  }
+
+  public synchronized boolean isEnded() {
+    return this.ended;
+  }
+
+  public int getNumFollowers() {
+    return this.followers.size();
+  }
+
+  private void end(final boolean complete) {
+    if (this.ended) {
+      return;
+    }
+    this.ended = true;
+    this.complete = complete;
+    for (final Follower follower : this.followers) {
+      follower.end(complete);
+    }
+    this.followers.clear();
+  }
+
+  public class Follower implements Closeable {
+
+    private final long startPosition;
+    private final long offset;
+    private final Queue<byte[]> chunks = new ArrayDeque<>();
+    // offset of the first byte of the head of the queue
+    private long chunksPosition;
+    private long bufferedBytes = 0;
+    private boolean ended = false;
+    private boolean complete = false;
+    private boolean overflowed = false;
+
+    private Follower(final long startPosition, final long offset) {
+      this.startPosition = startPosition;
+      this.offset = offset;
+      this.chunksPosition = startPosition;
+    }
+
+    /**
+     * @return the offset of the first byte appended after the follower was added
+     */
+    public long getStartPosition() {
+      return this.startPosition;
+    }
+
+    /**
+     * Waits for the next bytes of the log.
+     *
+     * @return the bytes appended to the log since the previous call, an empty array if there are
+     * none within the timeout, or null once the log or the follower has ended
+     */
+    public synchronized byte[] take(final long timeoutMs) throws InterruptedException {
+      final long deadline = System.currentTimeMillis() + timeoutMs;
+      long waitMs = timeoutMs;
+      while (this.chunks.isEmpty() && !this.ended && waitMs > 0) {
+        wait(waitMs);
+        waitMs = deadline - System.currentTimeMillis();
+      }
+      if (this.chunks.isEmpty()) {
+        return this.ended ? null : new byte[0];
+      }
+
+      final byte[] chunk = this.chunks.poll();
+      final long chunkPosition = this.chunksPosition;
+      this.chunksPosition += chunk.length;
+      this.bufferedBytes -= chunk.length;
+      if (chunkPosition < this.offset) {
+        return Arrays.copyOfRange(chunk, (int) (this.offset - chunkPosition), chunk.length);
+      }
+      return chunk;
+    }
+
+    /**
+     * @return true if the follower took all the bytes of the log, which won't grow anymore
+     */
+    public synchronized boolean isComplete() {
+      return this.complete && this.chunks.isEmpty();
+    }
+
+    /**
+     * @return true if the follower was closed because it didn't keep up with the log
+     */
+    public synchronized boolean isOverflowed() {
+      return this.overflowed;
+    }
+
+    @Override
+    public void close() {
+      LogTail.this.followers.remove(this);
+      synchronized (this) {
+        end(false);
+      }
+    }
+
+    private synchronized boolean offer(final long chunkPosition, final byte[] chunk) {
+      if (this.ended) {
+        return false;
+      }
+      if (chunkPosition + chunk.length <= this.offset) {
+        // before the offset of the follower
+        this.chunksPosition = chunkPosition + chunk.length;
+        return true;
+      }
+      if (this.bufferedBytes + chunk.length > LogTail.this.maxBufferBytes) {
+        this.overflowed = true;
+        end(false);
+        return false;
+      }
+      this.chunks.add(chunk);
+      this.bufferedBytes += chunk.length;
+      notifyAll();
+      return true;
+    }
+
+    private synchronized void end(final boolean complete) {
+      if (this.ended) {
+        return;
+      }
+      this.ended = true;
+      this.complete = complete;
+      if (!complete) {
+        // the bytes it holds are dropped, the log is followed again from the offset reached
+        this.chunks.clear();
+        this.bufferedBytes = 0;
+      }
+      notifyAll();
+    }
+  }
+}
@@ -0,0 +1,370 @@
+/*
+ * Copyright 2018 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package azkaban.utils;
+
+import com.google.common.base.Joiner;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import org.apache.commons.io.IOUtils;
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+
+/**
+ * Reads the output of child processes and logs it line by line, with a fixed number of threads
+ * whatever the number of processes.
+ *
+ * The pipes of a {@link Process} are not selectable channels, so each pump thread polls the
+ * streams it was given with {@link InputStream#available()}, and only reads the bytes which are
+ * there, without blocking. The lines read from a stream in one poll are logged together. A thread
+ * which found nothing to read waits a little longer before the next poll, up to MAX_IDLE_MS.
+ *
+ * A stream whose lines took more than SLOW_READ_MS to be logged in MAX_SLOW_READS polls in a row,
+ * e.g. by an appender writing to a slow disk, is moved to a thread of its own. So it doesn't delay
+ * the other streams of its pump thread. A single slow poll may only be the thread being descheduled.
+ * The stream is handed back to the pump threads once a poll finds nothing to read.
+ *
+ * Once the writer is gone and nothing is left to poll, the stream is read until its end by a
+ * blocking read on a thread of its own: the children of a process which inherited its pipe may
+ * still write to it, and they would lose their output, or get a SIGPIPE, if it was closed before.
+ * The pipe of a process which exited without children is at its end, so that read returns at once.
+ */
+public class OutputPump {
+
+  private static final Logger logger = Logger.getLogger(OutputPump.class);
+  private static final int READ_BUFFER_SIZE = 8192;
+  private static final long MIN_IDLE_MS = 1;
+  private static final long MAX_IDLE_MS = 50;
+  private static final long SLOW_READ_MS = 100;
+  private static final int MAX_SLOW_READS = 3;
+
+  private final List<Queue<PumpedStream>> streams = new ArrayList<>();
+  private final AtomicInteger nextPump = new AtomicInteger();
+  // number of the streams read by threads of their own
+  private final AtomicInteger numOwnThreadStreams = new AtomicInteger();
+  private final ExecutorService pumpService;
+  private final ExecutorService ownThreadService;
+  private volatile boolean shutdown = false;
+
+  public OutputPump(final int numThreads) {
+    this.pumpService = Executors.newFixedThreadPool(numThreads,
+        new ThreadFactoryBuilder().setDaemon(true).setNameFormat("azk-output-pump-%d").build());
+    this.ownThreadService = Executors.newCachedThreadPool(new ThreadFactoryBuilder()
+        .setDaemon(true).setNameFormat("azk-output-pump-own-%d").build());
+    for (int i = 0; i < numThreads; i++) {
+      final Queue<PumpedStream> pumpStreams = new ConcurrentLinkedQueue<>();
+      this.streams.add(pumpStreams);
+      this.pumpService.execute(() -> pump(pumpStreams, false));
+    }
+  }
+
+  /**
+   * Starts logging the lines of the stream, until its end. The stream is closed at its end.
+   *
+   * @param isWriting tells if the stream may still grow, e.g. if the process is alive. The process
+   * pipes are only closed by the last process holding them, which may be a child of the process
+   * which was started.
+   * @param bufferLines number of recent lines kept for {@link PumpedStream#getRecentLog()}
+   */
+  public PumpedStream pump(final InputStream in, final Charset charset,
+      final BooleanSupplier isWriting, final Logger streamLogger, final Level level,
+      final int bufferLines) {
+    final PumpedStream stream = new PumpedStream(in, charset, isWriting, streamLogger, level,
+        bufferLines);
+    pumpShared(stream);
+    return stream;
+  }
+
+  public int getNumPumpedStreams() {
+    int numStreams = this.numOwnThreadStreams.get();
+    for (final Queue<PumpedStream> pumpStreams : this.streams) {
+      numStreams += pumpStreams.size();
+    }
+    return numStreams;
+  }
+
+  public void shutdown() {
+    this.shutdown = true;
+    this.pumpService.shutdown();
+    this.ownThreadService.shutdown();
+  }
+
+  private void pumpShared(final PumpedStream stream) {
+    final int pump = Math.floorMod(this.nextPump.getAndIncrement(), this.streams.size());
+    this.streams.get(pump).add(stream);
+  }
+
+  /**
+   * Reads the streams until the pump is shut down, or until the stream is handed back or moved if
+   * the thread pumps a single slow stream.
+   */
+  private void pump(final Queue<PumpedStream> pumpStreams, final boolean slow) {
+    long idleMs = MIN_IDLE_MS;
+    while (!this.shutdown && !(slow && pumpStreams.isEmpty())) {
+      boolean read = false;
+      for (final PumpedStream stream : pumpStreams) {
+        final long startTime = System.currentTimeMillis();
+        boolean streamRead = false;
+        try {
+          streamRead = stream.read();
+        } catch (final Throwable t) {
+          stream.fail(t);
+        }
+        read |= streamRead;
+        if (stream.isComplete()) {
+          pumpStreams.remove(stream);
+        } else if (stream.writerGone) {
+          if (pumpStreams.remove(stream)) {
+            readToEnd(stream);
+          }
+        } else if (slow) {
+          if (!streamRead && pumpStreams.remove(stream)) {
+            stream.numSlowReads = 0;
+            pumpShared(stream);
+          }
+        } else {
+          stream.numSlowReads = System.currentTimeMillis() - startTime > SLOW_READ_MS
+              ? stream.numSlowReads + 1 : 0;
+          if (stream.numSlowReads == MAX_SLOW_READS && pumpStreams.remove(stream)) {
+            pumpSlowStream(stream);
+          }
+        }
+      }
+
+      idleMs = read ? MIN_IDLE_MS : Math.min(idleMs * 2, MAX_IDLE_MS);
+      try {
+        Thread.sleep(idleMs);
+      } catch (final InterruptedException e) {
+        return;
+      }
+    }
+  }
+
+  private void pumpSlowStream(final PumpedStream stream) {
+    final Queue<PumpedStream> pumpStreams = new ConcurrentLinkedQueue<>();
+    pumpStreams.add(stream);
+    this.numOwnThreadStreams.incrementAndGet();
+    this.ownThreadService.execute(() -> {
+      try {
+        pump(pumpStreams, true);
+      } finally {
+        this.numOwnThreadStreams.decrementAndGet();
+      }
+    });
+  }
+
+  private void readToEnd(final PumpedStream stream) {
+    this.numOwnThreadStreams.incrementAndGet();
+    this.ownThreadService.execute(() -> {
+      try {
+        stream.readToEnd();
+      } catch (final Throwable t) {
+        stream.fail(t);
+      } finally {
+        this.numOwnThreadStreams.decrementAndGet();
+      }
+    });
+  }
+
+  /**
+   * A stream read by the pump. Only read by one pump thread at a time, until it's complete.
+   */
+  public static class PumpedStream {
+
+    private final InputStream in;
+    private final BooleanSupplier isWriting;
+    private final Logger logger;
+    private final Level level;
+    private final CharsetDecoder decoder;
+    private final ByteBuffer bytes = ByteBuffer.allocate(READ_BUFFER_SIZE);
+    private final CharBuffer chars = CharBuffer.allocate(READ_BUFFER_SIZE);
+    // the line being read, until its end is read
+    private final StringBuilder line = new StringBuilder();
+    private final CircularBuffer<String> buffer;
+    private final CountDownLatch completeLatch = new CountDownLatch(1);
+    private boolean skipLineFeed = false;
+    // number of the last polls in a row which were slow
+    private int numSlowReads = 0;
+    // set once the writer is gone and nothing is left to poll
+    private boolean writerGone = false;
+
+    private PumpedStream(final InputStream in, final Charset charset,
+        final BooleanSupplier isWriting, final Logger logger, final Level level,
+        final int bufferLines) {
+      this.in = in;
+      this.isWriting = isWriting;
+      this.logger = logger;
+      this.level = level;
+      this.decoder = charset.newDecoder().onMalformedInput(CodingErrorAction.REPLACE)
+          .onUnmappableCharacter(CodingErrorAction.REPLACE);
+      this.buffer = new CircularBuffer<>(bufferLines);
+    }
+
+    /**
+     * Waits for the stream to be read to its end.
+     */
+    public void awaitCompletion(final long waitMs) {
+      try {
+        this.completeLatch.await(waitMs, TimeUnit.MILLISECONDS);
+      } catch (final InterruptedException e) {
+        log(Level.INFO, "I/O thread interrupted.", e);
+      }
+    }
+
+    public boolean isComplete() {
+      return this.completeLatch.getCount() == 0;
+    }
+
+    public String getRecentLog() {
+      synchronized (this.buffer) {
+        return Joiner.on(System.getProperty("line.separator")).join(this.buffer);
+      }
+    }
+
+    /**
+     * Reads the bytes which can be read without blocking.
+     *
+     * @return true if bytes were read
+     */
+    private boolean read() throws IOException {
+      // checked before the stream, which then holds all that the writer wrote if it's gone
+      final boolean writing = this.isWriting.getAsBoolean();
+      final int available = this.in.available();
+      if (available <= 0) {
+        this.writerGone = !writing;
+        return false;
+      }
+
+      final int length = this.in.read(this.bytes.array(), this.bytes.position(),
+          Math.min(available, this.bytes.remaining()));
+      if (length < 0) {
+        complete();
+        return false;
+      }
+      append(length);
+      return true;
+    }
+
+    /**
+     * Reads the stream until its end, blocking while it's empty.
+     */
+    private void readToEnd() throws IOException {
+      int length = this.in.read(this.bytes.array(), this.bytes.position(),
+          this.bytes.remaining());
+      while (length >= 0) {
+        append(length);
+        length = this.in.read(this.bytes.array(), this.bytes.position(), this.bytes.remaining());
+      }
+      complete();
+    }
+
+    private void append(final int length) {
+      this.bytes.position(this.bytes.position() + length);
+      this.bytes.flip();
+      final List<String> lines = decode(false);
+      this.bytes.compact();
+      logLines(lines);
+    }
+
+    private void fail(final Throwable t) {
+      log(Level.ERROR, "Error reading from logging stream:", t);
+      complete();
+    }
+
+    private void complete() {
+      if (isComplete()) {
+        return;
+      }
+      this.bytes.flip();
+      final List<String> lines = decode(true);
+      if (this.line.length() > 0) {
+        lines.add(this.line.toString());
+        this.line.setLength(0);
+      }
+      logLines(lines);
+      IOUtils.closeQuietly(this.in);
+      this.completeLatch.countDown();
+    }
+
+    // splits the decoded chars in lines ending with \n, \r or \r\n, like BufferedReader.readLine
+    private List<String> decode(final boolean endOfInput) {
+      final List<String> lines = new ArrayList<>();
+      boolean decoding = true;
+      while (decoding) {
+        decoding = this.decoder.decode(this.bytes, this.chars, endOfInput).isOverflow();
+        if (!decoding && endOfInput) {
+          this.decoder.flush(this.chars);
+        }
+        this.chars.flip();
+        while (this.chars.hasRemaining()) {
+          final char c = this.chars.get();
+          if (this.skipLineFeed && c == '\n') {
+            this.skipLineFeed = false;
+            continue;
+          }
+          this.skipLineFeed = c == '\r';
+          if (c == '\n' || c == '\r') {
+            lines.add(this.line.toString());
+            this.line.setLength(0);
+          } else {
+            this.line.append(c);
+          }
+        }
+        this.chars.clear();
+      }
+      return lines;
+    }
+
+    private void logLines(final List<String> lines) {
+      if (lines.isEmpty()) {
+        return;
+      }
+      synchronized (this.buffer) {
+        for (final String line : lines) {
+          this.buffer.append(line);
+        }
+      }
+      if (this.logger != null) {
+        for (final String line : lines) {
+          this.logger.log(this.level, line);
+        }
+      }
+    }
+
+    private void log(final Level level, final String message, final Throwable t) {
+      if (this.logger != null) {
+        this.logger.log(level, message, t);
+      } else {
+        OutputPump.logger.log(level, message, t);
+      }
+    }
+  }
+}
@@ -25,7 +25,10 @@ import java.util.stream.Collectors;
 import org.apache.http.HttpEntity;
 import org.apache.http.HttpResponse;
 import org.apache.http.NameValuePair;
+import org.apache.http.client.ResponseHandler;
+import org.apache.http.client.config.RequestConfig;
 import org.apache.http.client.entity.UrlEncodedFormEntity;
+import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpEntityEnclosingRequestBase;
 import org.apache.http.client.methods.HttpPost;
 import org.apache.http.client.methods.HttpUriRequest;
@@ -48,6 +51,21 @@ public abstract class RestfulApiClient<T> {
 
   protected static Logger logger = Logger.getLogger(RestfulApiClient.class);
 
+  // shared (pooled) client, null if a new client should be created for every request.
+  private final CloseableHttpClient httpClient;
+
+  public RestfulApiClient() {
+    this(null);
+  }
+
+  /**
+   * @param httpClient the client used to send all the requests. It is kept open for the lifetime
+   * of this object, so connections can be reused across requests.
+   */
+  protected RestfulApiClient(final CloseableHttpClient httpClient) {
+    this.httpClient = httpClient;
+  }
+
   /**
    * helper function to build a valid URI.
    *
@@ -125,12 +143,60 @@ public abstract class RestfulApiClient<T> {
     return this.sendAndReturn(completeRequest(post, params));
   }
 
+  /**
+   * function to perform a Post http request which gives up if the server doesn't answer in time,
+   * whatever the timeouts of the client.
+   *
+   * @param uri the URI of the request.
+   * @param params the form params to be posted, optional.
+   * @param timeoutMs the time to wait for a connection and for each read of the response.
+   * @return the response object type of which is specified by user.
+   */
+  public T httpPost(final URI uri, final List<Pair<String, String>> params, final int timeoutMs)
+      throws IOException {
+    final HttpPost post = new HttpPost(uri);
+    post.setConfig(RequestConfig.custom()
+        .setConnectionRequestTimeout(timeoutMs)
+        .setConnectTimeout(timeoutMs)
+        .setSocketTimeout(timeoutMs)
+        .build());
+    return this.sendAndReturn(completeRequest(post, params));
+  }
+
+  /**
+   * function to perform a Post http request whose response is passed to the handler instead of
+   * being parsed, e.g. to stream its body.
+   *
+   * @param uri the URI of the request.
+   * @param params the form params to be posted, optional.
+   * @param handler the handler of the response, which is closed once it returns.
+   * @return the value returned by the handler.
+   */
+  public <R> R httpPost(final URI uri, final List<Pair<String, String>> params,
+      final ResponseHandler<R> handler) throws IOException {
+    final HttpPost post = new HttpPost(uri);
+    completeRequest(post, params);
+    if (this.httpClient == null) {
+      try (CloseableHttpClient client = HttpClients.createDefault()) {
+        return client.execute(post, handler);
+      }
+    }
+    return this.httpClient.execute(post, handler);
+  }
+
   /**
    * function to dispatch the request and pass back the response.
    */
   protected T sendAndReturn(final HttpUriRequest request) throws IOException {
-    try (CloseableHttpClient client = HttpClients.createDefault()) {
-      return this.parseResponse(client.execute(request));
+    if (this.httpClient == null) {
+      try (CloseableHttpClient client = HttpClients.createDefault()) {
+        return this.parseResponse(client.execute(request));
+      }
+    }
+
+    // closing the response releases the connection back to the pool.
+    try (CloseableHttpResponse response = this.httpClient.execute(request)) {
+      return this.parseResponse(response);
     }
   }
 }
@@ -18,6 +18,7 @@ package azkaban.utils;
 
 import azkaban.executor.ExecutableFlow;
 import azkaban.executor.ExecutionOptions;
+import azkaban.executor.ExecutionSummary;
 import azkaban.executor.Status;
 import java.text.NumberFormat;
 import java.util.HashMap;
@@ -227,9 +228,17 @@ public class WebUtils {
     return cycleDate[0];
   }
   public String getAction(ExecutableFlow flow){
-    int executionId = flow.getExecutionId();
-    Status status  =  flow.getStatus();
+    return getAction(flow.getExecutionId(), flow.getStatus());
+  }
+
+  /**
+   * The action of a listed execution. Its redo button loads the execution options when clicked.
+   */
+  public String getAction(ExecutionSummary summary){
+    return getAction(summary.getExecutionId(), summary.getStatus());
+  }
 
+  private String getAction(int executionId, Status status){
     final String REDO = "<button type=\"button\" id=\"redo-btn\" onclick=\"redo("+executionId+")\">redo</button>";
     final String KILL = "";
     String  action = "";
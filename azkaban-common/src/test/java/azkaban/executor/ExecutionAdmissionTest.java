@@ -0,0 +1,229 @@
+/*
+ * Copyright 2018 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package azkaban.executor;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import azkaban.metrics.CommonMetrics;
+import azkaban.metrics.MetricsManager;
+import com.codahale.metrics.MetricRegistry;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.InOrder;
+
+public class ExecutionAdmissionTest {
+
+  private final MetricRegistry metricRegistry = new MetricRegistry();
+  private final CommonMetrics commonMetrics = new CommonMetrics(
+      new MetricsManager(this.metricRegistry));
+  private ExecutorManagerAdapter executorManager;
+  private ExecutionAdmission admission;
+
+  @Before
+  public void setUp() {
+    this.executorManager = mock(ExecutorManagerAdapter.class);
+  }
+
+  @After
+  public void tearDown() {
+    if (this.admission != null) {
+      this.admission.shutdown();
+    }
+  }
+
+  @Test
+  public void testSubmittedRightAwayWithoutSmoothing() throws Exception {
+    this.admission = new ExecutionAdmission(this.executorManager, this.commonMetrics, 0, 0);
+    final ExecutableFlow flow = createFlow("flow", null, null);
+    assertThat(this.admission.submit(flow, "azkaban")).isTrue();
+
+    verify(this.executorManager).submitExecutableFlow(flow, "azkaban");
+    assertThat(this.admission.getNumHeld()).isEqualTo(0);
+  }
+
+  @Test
+  public void testDispatchRate() throws Exception {
+    // two at once, then one every 100ms
+    this.admission = new ExecutionAdmission(this.executorManager, this.commonMetrics, 10, 2);
+    final long start = System.currentTimeMillis();
+    for (int i = 0; i < 6; i++) {
+      this.admission.submit(createFlow("flow" + i, null, null), "azkaban");
+    }
+
+    verify(this.executorManager, timeout(5000).times(6)).submitExecutableFlow(any(),
+        eq("azkaban"));
+    assertThat(System.currentTimeMillis() - start).isGreaterThanOrEqualTo(300);
+    assertThat(this.metricRegistry.getHistograms().get("admission-smoothing-delay-histogram")
+        .getCount()).isEqualTo(6);
+    assertThat(this.metricRegistry.getGauges().get("admission-burst-size").getValue())
+        .isEqualTo(0L);
+  }
+
+  @Test
+  public void testHigherPriorityDispatchedFirst() throws Exception {
+    this.admission = new ExecutionAdmission(this.executorManager, this.commonMetrics, 5, 1);
+    final ExecutableFlow first = createFlow("first", null, null);
+    final ExecutableFlow low = createFlow("low", "1", null);
+    final ExecutableFlow high = createFlow("high", "9", null);
+    // takes the only token, the others wait for the next one
+    this.admission.submit(first, "azkaban");
+    verify(this.executorManager, timeout(5000)).submitExecutableFlow(first, "azkaban");
+    this.admission.submit(low, "azkaban");
+    this.admission.submit(high, "azkaban");
+
+    verify(this.executorManager, timeout(5000).times(3)).submitExecutableFlow(any(), any());
+    final InOrder inOrder = inOrder(this.executorManager);
+    inOrder.verify(this.executorManager).submitExecutableFlow(first, "azkaban");
+    inOrder.verify(this.executorManager).submitExecutableFlow(high, "azkaban");
+    inOrder.verify(this.executorManager).submitExecutableFlow(low, "azkaban");
+  }
+
+  @Test
+  public void testJitterWindow() throws Exception {
+    final ExecutableFlow flow = createFlow("flow", null, "2");
+    final long jitterMs = ExecutionAdmission.getJitterMs(flow);
+    assertThat(jitterMs).isBetween(0L, 1999L);
+    assertThat(ExecutionAdmission.getJitterMs(createFlow("flow", null, "2"))).isEqualTo(jitterMs);
+    assertThat(ExecutionAdmission.getJitterMs(createFlow("flow", null, "x"))).isEqualTo(0);
+
+    this.admission = new ExecutionAdmission(this.executorManager, this.commonMetrics, 0, 0);
+    final long start = System.currentTimeMillis();
+    this.admission.submit(flow, "azkaban");
+    verify(this.executorManager, timeout(5000)).submitExecutableFlow(flow, "azkaban");
+    // never before the end of its offset
+    assertThat(System.currentTimeMillis() - start).isGreaterThanOrEqualTo(jitterMs);
+  }
+
+  @Test
+  public void testHeldExecutionsSubmittedOnShutdown() throws Exception {
+    // one token, refilled after 1000s
+    this.admission = new ExecutionAdmission(this.executorManager, this.commonMetrics, 0.001, 1);
+    for (int i = 0; i < 3; i++) {
+      this.admission.submit(createFlow("flow" + i, null, null), "azkaban");
+    }
+    verify(this.executorManager, timeout(5000)).submitExecutableFlow(any(), any());
+    assertThat(this.admission.getNumHeld()).isEqualTo(2);
+
+    this.admission.shutdown();
+    verify(this.executorManager, times(3)).submitExecutableFlow(any(), any());
+    assertThat(this.admission.getNumHeld()).isEqualTo(0);
+    assertThat(this.metricRegistry.getGauges().get("admission-burst-size").getValue())
+        .isEqualTo(0L);
+
+    // not held anymore
+    assertThat(this.admission.submit(createFlow("late", null, null), "azkaban")).isTrue();
+    verify(this.executorManager, times(4)).submitExecutableFlow(any(), any());
+  }
+
+  @Test
+  public void testFailedSubmissionRetried() throws Exception {
+    this.admission = new ExecutionAdmission(this.executorManager, this.commonMetrics, 10, 1, 50);
+    final ExecutableFlow flow = createFlow("flow", null, null);
+    when(this.executorManager.submitExecutableFlow(flow, "azkaban"))
+        .thenThrow(new ExecutorManagerException("Queue is full")).thenReturn("submitted");
+    assertThat(this.admission.submit(flow, "azkaban")).isFalse();
+
+    verify(this.executorManager, timeout(5000).times(2)).submitExecutableFlow(flow, "azkaban");
+    assertThat(this.admission.getNumHeld()).isEqualTo(0);
+    assertThat(this.metricRegistry.getHistograms().get("admission-smoothing-delay-histogram")
+        .getCount()).isEqualTo(1);
+  }
+
+  @Test
+  public void testFailedSubmissionRetriedWithBackoff() throws Exception {
+    this.admission = new ExecutionAdmission(this.executorManager, this.commonMetrics, 10, 1, 50);
+    final ExecutableFlow flow = createFlow("flow", null, null);
+    when(this.executorManager.submitExecutableFlow(flow, "azkaban"))
+        .thenThrow(new ExecutorManagerException("Error uploading the flow"))
+        .thenThrow(new ExecutorManagerException("Error uploading the flow"))
+        .thenThrow(new ExecutorManagerException("Error uploading the flow"))
+        .thenReturn("submitted");
+    final long start = System.currentTimeMillis();
+    this.admission.submit(flow, "azkaban");
+
+    verify(this.executorManager, timeout(5000).times(4)).submitExecutableFlow(flow, "azkaban");
+    // after 50, 100 then 200ms
+    assertThat(System.currentTimeMillis() - start).isGreaterThanOrEqualTo(350);
+    assertThat(this.admission.getNumHeld()).isEqualTo(0);
+    assertThat(this.metricRegistry.getGauges().get("admission-burst-size").getValue())
+        .isEqualTo(0L);
+  }
+
+  @Test
+  public void testSkippedExecutionNotRetried() throws Exception {
+    this.admission = new ExecutionAdmission(this.executorManager, this.commonMetrics, 10, 1, 50);
+    final ExecutableFlow flow = createFlow("flow", null, null);
+    when(this.executorManager.submitExecutableFlow(flow, "azkaban"))
+        .thenThrow(new ExecutorManagerException("Flow flow is already running. Skipping",
+            ExecutorManagerException.Reason.SkippedExecution));
+    this.admission.submit(flow, "azkaban");
+
+    verify(this.executorManager, timeout(5000)).submitExecutableFlow(flow, "azkaban");
+    Thread.sleep(200);
+    verify(this.executorManager).submitExecutableFlow(flow, "azkaban");
+    assertThat(this.admission.getNumHeld()).isEqualTo(0);
+    assertThat(this.metricRegistry.getGauges().get("admission-burst-size").getValue())
+        .isEqualTo(0L);
+  }
+
+  @Test
+  public void testNotAdmittedWhileQueueFull() throws Exception {
+    this.admission = new ExecutionAdmission(this.executorManager, this.commonMetrics, 10, 1, 50);
+    final AtomicBoolean queueFull = new AtomicBoolean(true);
+    when(this.executorManager.isQueueFull()).thenAnswer(invocation -> queueFull.get());
+    final ExecutableFlow flow = createFlow("flow", null, null);
+    this.admission.submit(flow, "azkaban");
+
+    verify(this.executorManager, timeout(5000).atLeast(2)).isQueueFull();
+    verify(this.executorManager, never()).submitExecutableFlow(any(), any());
+    assertThat(this.admission.getNumHeld()).isEqualTo(1);
+
+    queueFull.set(false);
+    verify(this.executorManager, timeout(5000)).submitExecutableFlow(flow, "azkaban");
+    assertThat(this.admission.getNumHeld()).isEqualTo(0);
+  }
+
+  private ExecutableFlow createFlow(final String flowId, final String priority,
+      final String jitterWindowSeconds) {
+    final ExecutableFlow flow = new ExecutableFlow();
+    flow.setId(flowId);
+    flow.setProjectId(1);
+    final ExecutionOptions options = new ExecutionOptions();
+    final Map<String, String> flowParameters = new HashMap<>();
+    if (priority != null) {
+      flowParameters.put(ExecutionOptions.FLOW_PRIORITY, priority);
+    }
+    if (jitterWindowSeconds != null) {
+      flowParameters.put(ExecutionOptions.FLOW_JITTER_WINDOW_SECONDS, jitterWindowSeconds);
+    }
+    options.addAllFlowParameters(flowParameters);
+    flow.setExecutionOptions(options);
+    return flow;
+  }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright 2018 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package azkaban.executor;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import azkaban.db.DatabaseOperator;
+import azkaban.test.Utils;
+import java.sql.SQLException;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class ExecutionApplicationIdDaoTest {
+
+  private static DatabaseOperator dbOperator;
+  private ExecutionApplicationIdDao executionApplicationIdDao;
+
+  @BeforeClass
+  public static void setUp() throws Exception {
+    dbOperator = Utils.initTestDB();
+  }
+
+  @AfterClass
+  public static void destroyDB() throws Exception {
+    try {
+      dbOperator.update("DROP ALL OBJECTS");
+      dbOperator.update("SHUTDOWN");
+    } catch (final SQLException e) {
+      e.printStackTrace();
+    }
+  }
+
+  @Before
+  public void setup() {
+    this.executionApplicationIdDao = new ExecutionApplicationIdDao(dbOperator);
+  }
+
+  @After
+  public void clearDB() {
+    try {
+      dbOperator.update("DELETE FROM execution_application_ids");
+    } catch (final SQLException e) {
+      e.printStackTrace();
+    }
+  }
+
+  @Test
+  public void testFetchApplicationIdOfAttempt() throws Exception {
+    this.executionApplicationIdDao.uploadApplicationId(1, "job1", 0, "1528000000000_0001");
+    this.executionApplicationIdDao.uploadApplicationId(1, "job1", 1, "1528000000000_0002");
+
+    assertThat(this.executionApplicationIdDao.fetchApplicationId(1, "job1", 1))
+        .isEqualTo("1528000000000_0002");
+    assertThat(this.executionApplicationIdDao.fetchApplicationId(1, "job2", 0)).isNull();
+  }
+
+  @Test
+  public void testRemoveApplicationIdsByTime() throws Exception {
+    this.executionApplicationIdDao.uploadApplicationId(1, "job1", 0, "1528000000000_0001");
+
+    assertThat(this.executionApplicationIdDao.removeApplicationIdsByTime(0)).isEqualTo(0);
+    assertThat(this.executionApplicationIdDao
+        .removeApplicationIdsByTime(System.currentTimeMillis() + 1)).isEqualTo(1);
+    assertThat(this.executionApplicationIdDao.fetchApplicationId(1, "job1", 0)).isNull();
+  }
+}
@@ -28,6 +28,7 @@ import azkaban.utils.TestUtils;
 import java.io.File;
 import java.sql.SQLException;
 import java.time.Duration;
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
@@ -121,20 +122,25 @@ public class ExecutionFlowDaoTest {
   }
 
   @Test
-  public void fetchFlowHistory() throws Exception {
-    final ExecutableFlow flow = createTestFlow();
-    this.executionFlowDao.uploadExecutableFlow(flow);
-    final List<ExecutableFlow> flowList1 = this.executionFlowDao.fetchFlowHistory(0, 2);
-    assertThat(flowList1.size()).isEqualTo(1);
-
-    final List<ExecutableFlow> flowList2 = this.executionFlowDao
-        .fetchFlowHistory(flow.getProjectId(), flow.getId(), 0, 2);
-    assertThat(flowList2.size()).isEqualTo(1);
+  public void testUpdateExecutableFlows() throws Exception {
+    final ExecutableFlow flow1 = createTestFlow();
+    this.executionFlowDao.uploadExecutableFlow(flow1);
+    final ExecutableFlow flow2 = createTestFlow();
+    this.executionFlowDao.uploadExecutableFlow(flow2);
 
-    final ExecutableFlow fetchFlow =
-        this.executionFlowDao.fetchExecutableFlow(flow.getExecutionId());
-    assertTwoFlowSame(flowList1.get(0), flowList2.get(0));
-    assertTwoFlowSame(flowList1.get(0), fetchFlow);
+    final ExecutableFlow fetchFlow1 =
+        this.executionFlowDao.fetchExecutableFlow(flow1.getExecutionId());
+    fetchFlow1.setStatus(Status.RUNNING);
+    final ExecutableFlow fetchFlow2 =
+        this.executionFlowDao.fetchExecutableFlow(flow2.getExecutionId());
+    fetchFlow2.setEndTime(System.currentTimeMillis());
+    fetchFlow2.setStatus(Status.SUCCEEDED);
+    this.executionFlowDao.updateExecutableFlows(Arrays.asList(fetchFlow1, fetchFlow2));
+
+    assertTwoFlowSame(fetchFlow1,
+        this.executionFlowDao.fetchExecutableFlow(flow1.getExecutionId()));
+    assertTwoFlowSame(fetchFlow2,
+        this.executionFlowDao.fetchExecutableFlow(flow2.getExecutionId()));
   }
 
   @Test
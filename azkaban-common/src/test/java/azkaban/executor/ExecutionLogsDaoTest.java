@@ -17,23 +17,40 @@
 package azkaban.executor;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
 
+import azkaban.AzkabanCommonModuleConfig;
+import azkaban.Constants.ConfigurationKeys;
 import azkaban.db.DatabaseOperator;
+import azkaban.db.EncodingType;
+import azkaban.spi.Storage;
+import azkaban.storage.LocalStorage;
 import azkaban.test.Utils;
 import azkaban.test.executions.ExecutionsTestUtil;
 import azkaban.utils.FileIOUtils.LogData;
+import azkaban.utils.Props;
 import java.io.File;
+import java.nio.charset.StandardCharsets;
 import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Collections;
 import org.junit.After;
 import org.junit.AfterClass;
 import org.junit.Before;
 import org.junit.BeforeClass;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
 public class ExecutionLogsDaoTest {
 
   private static final String LOG_TEST_DIR_NAME = "logtest";
   private static DatabaseOperator dbOperator;
+  @Rule
+  public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+  private LocalStorage localStorage;
   private ExecutionLogsDao executionLogsDao;
 
   @BeforeClass
@@ -53,13 +70,18 @@ public class ExecutionLogsDaoTest {
 
   @Before
   public void setup() {
-    this.executionLogsDao = new ExecutionLogsDao(dbOperator);
+    final AzkabanCommonModuleConfig config = mock(AzkabanCommonModuleConfig.class);
+    when(config.getLocalStorageBaseDirPath())
+        .thenReturn(this.temporaryFolder.getRoot().getAbsolutePath());
+    this.localStorage = new LocalStorage(config);
+    this.executionLogsDao = new ExecutionLogsDao(dbOperator, new Props(), this.localStorage);
   }
 
   @After
   public void clearDB() {
     try {
       dbOperator.update("delete from execution_logs");
+      dbOperator.update("delete from execution_log_segments");
     } catch (final SQLException e) {
       e.printStackTrace();
     }
@@ -109,4 +131,109 @@ public class ExecutionLogsDaoTest {
     assertThat(logsResult3).isNotNull();
     assertThat(logsResult3.getLength()).isEqualTo(185493);
   }
+
+  @Test
+  public void testUploadLogWithDeflate() throws ExecutorManagerException {
+    final Props props = new Props();
+    props.put(ConfigurationKeys.EXECUTION_LOGS_ENCODING, "deflate");
+    props.put(ConfigurationKeys.EXECUTION_LOGS_CHUNK_SIZE, 10000);
+    final ExecutionLogsDao deflateLogsDao = new ExecutionLogsDao(dbOperator, props,
+        this.localStorage);
+    final File logDir = ExecutionsTestUtil.getFlowDir(LOG_TEST_DIR_NAME);
+    final File[] largelog =
+        {new File(logDir, "largeLog1.log"), new File(logDir, "largeLog2.log"),
+            new File(logDir, "largeLog3.log")};
+
+    deflateLogsDao.uploadLogFile(1, "largeFiles", 0, largelog);
+    this.executionLogsDao.uploadLogFile(2, "largeFiles", 0, largelog);
+
+    // the logs read the same with either encoding
+    final LogData deflateResult = deflateLogsDao.fetchLogs(1, "largeFiles", 0, 150000, 250000);
+    assertThat(deflateResult.getLength()).isEqualTo(185493);
+    assertThat(deflateResult.getData())
+        .isEqualTo(this.executionLogsDao.fetchLogs(2, "largeFiles", 0, 150000, 250000).getData());
+  }
+
+  @Test
+  public void testUploadLogChunks() throws ExecutorManagerException {
+    this.executionLogsDao.uploadLogChunks(1, "chunks", 0, 0,
+        Arrays.asList("first ".getBytes(StandardCharsets.UTF_8),
+            "second ".getBytes(StandardCharsets.UTF_8)));
+    this.executionLogsDao.uploadLogChunks(1, "chunks", 0, 13,
+        Collections.singletonList("third".getBytes(StandardCharsets.UTF_8)));
+
+    final LogData logsResult = this.executionLogsDao.fetchLogs(1, "chunks", 0, 0, 100);
+    assertThat(logsResult.getData()).isEqualTo("first second third");
+    assertThat(this.executionLogsDao.fetchLogs(1, "chunks", 0, 6, 7).getData())
+        .isEqualTo("second ");
+  }
+
+  @Test
+  public void testUploadLogToStorage() throws Exception {
+    final Props props = new Props();
+    props.put(ConfigurationKeys.EXECUTION_LOGS_STORAGE_ENABLED, "true");
+    props.put(ConfigurationKeys.EXECUTION_LOGS_CHUNK_SIZE, 1000);
+    final ExecutionLogsDao storageLogsDao = new ExecutionLogsDao(dbOperator, props,
+        this.localStorage);
+    final File logDir = ExecutionsTestUtil.getFlowDir(LOG_TEST_DIR_NAME);
+    final File[] largelog =
+        {new File(logDir, "largeLog1.log"), new File(logDir, "largeLog2.log"),
+            new File(logDir, "largeLog3.log")};
+
+    storageLogsDao.uploadLogFile(1, "largeFiles", 0, largelog);
+    this.executionLogsDao.uploadLogFile(2, "largeFiles", 0, largelog);
+
+    // only the index of the segments is in the DB
+    assertThat(countRows("execution_logs WHERE exec_id=1")).isEqualTo(0);
+    assertThat(countRows("execution_log_segments")).isGreaterThan(1);
+    for (final int start : new int[]{0, 63999, 64000, 150000}) {
+      final LogData logData = storageLogsDao.fetchLogs(1, "largeFiles", 0, start, 100000);
+      assertThat(logData.getOffset()).isEqualTo(start);
+      assertThat(logData.getData()).isEqualTo(
+          this.executionLogsDao.fetchLogs(2, "largeFiles", 0, start, 100000).getData());
+    }
+
+    // logs uploaded before the segments were enabled are still read from the DB
+    assertThat(storageLogsDao.fetchLogs(2, "largeFiles", 0, 0, 100).getLength()).isEqualTo(100);
+  }
+
+  @Test
+  public void testUploadLogChunksToStorage() throws Exception {
+    final Props props = new Props();
+    props.put(ConfigurationKeys.EXECUTION_LOGS_STORAGE_ENABLED, "true");
+    props.put(ConfigurationKeys.EXECUTION_LOGS_ENCODING, EncodingType.DEFLATE.name());
+    final ExecutionLogsDao storageLogsDao = new ExecutionLogsDao(dbOperator, props,
+        this.localStorage);
+    storageLogsDao.uploadLogChunks(1, "chunks", 0, 0,
+        Arrays.asList("first ".getBytes(StandardCharsets.UTF_8),
+            "second ".getBytes(StandardCharsets.UTF_8)));
+    storageLogsDao.uploadLogChunks(1, "chunks", 0, 13,
+        Collections.singletonList("third".getBytes(StandardCharsets.UTF_8)));
+
+    assertThat(storageLogsDao.fetchLogs(1, "chunks", 0, 0, 100).getData())
+        .isEqualTo("first second third");
+    assertThat(storageLogsDao.fetchLogs(1, "chunks", 0, 8, 7).getData()).isEqualTo("cond th");
+
+    // the old segments are deleted from the storage
+    assertThat(storageLogsDao.removeExecutionLogsByTime(System.currentTimeMillis() + 1))
+        .isEqualTo(2);
+    assertThat(countRows("execution_log_segments")).isEqualTo(0);
+    assertThat(new File(this.temporaryFolder.getRoot(), "execution_logs/1").list()).isEmpty();
+  }
+
+  @Test
+  public void testStorageWithoutKeysIsRejected() {
+    final Props props = new Props();
+    props.put(ConfigurationKeys.EXECUTION_LOGS_STORAGE_ENABLED, "true");
+    assertThatThrownBy(() -> new ExecutionLogsDao(dbOperator, props, mock(Storage.class)))
+        .isInstanceOf(IllegalArgumentException.class);
+
+    // the storage doesn't matter while the logs are stored in the DB
+    new ExecutionLogsDao(dbOperator, new Props(), mock(Storage.class));
+  }
+
+  private int countRows(final String table) throws SQLException {
+    return dbOperator.query("SELECT COUNT(*) FROM " + table,
+        rs -> rs.next() ? rs.getInt(1) : 0);
+  }
 }
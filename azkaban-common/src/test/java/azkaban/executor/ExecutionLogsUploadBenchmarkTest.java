@@ -0,0 +1,179 @@
+/*
+ * Copyright 2018 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package azkaban.executor;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import azkaban.AzkabanCommonModuleConfig;
+import azkaban.Constants.ConfigurationKeys;
+import azkaban.db.DatabaseOperator;
+import azkaban.db.EncodingType;
+import azkaban.storage.LocalStorage;
+import azkaban.test.Benchmark;
+import azkaban.test.Utils;
+import azkaban.utils.GZIPUtils;
+import azkaban.utils.Props;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import org.apache.commons.io.IOUtils;
+import org.apache.log4j.Logger;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Measures the upload throughput and the stored size of a job log, uploaded one row at a time
+ * with {@link GZIPUtils} as before, in batches with each {@link EncodingType}, and as segments in a
+ * {@link LocalStorage}.
+ *
+ * The log is 32 MB by default, run with -Dazkaban.benchmark.log.mb=1024 for a 1 GB log.
+ */
+@Category(Benchmark.class)
+public class ExecutionLogsUploadBenchmarkTest {
+
+  private static final Logger logger = Logger.getLogger(ExecutionLogsUploadBenchmarkTest.class);
+  private static final int LOG_SIZE_MB = Integer.getInteger("azkaban.benchmark.log.mb", 32);
+  private static final int CHUNK_SIZE = 50 * 1024;
+  private static final String INSERT_EXECUTION_LOGS = "INSERT INTO execution_logs "
+      + "(exec_id, name, attempt, enc_type, start_byte, end_byte, "
+      + "log, upload_time) VALUES (?,?,?,?,?,?,?,?)";
+
+  private static DatabaseOperator dbOperator;
+
+  @Rule
+  public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @BeforeClass
+  public static void setUp() throws Exception {
+    dbOperator = Utils.initTestDB();
+  }
+
+  @AfterClass
+  public static void destroyDB() throws Exception {
+    try {
+      dbOperator.update("DROP ALL OBJECTS");
+      dbOperator.update("SHUTDOWN");
+    } catch (final SQLException e) {
+      e.printStackTrace();
+    }
+  }
+
+  @Test
+  public void testUploadLog() throws Exception {
+    final File logFile = createLogFile();
+    final AzkabanCommonModuleConfig config = mock(AzkabanCommonModuleConfig.class);
+    when(config.getLocalStorageBaseDirPath())
+        .thenReturn(this.temporaryFolder.newFolder("storage").getAbsolutePath());
+    final LocalStorage localStorage = new LocalStorage(config);
+
+    final int execId = 1;
+    final long baselineMs = time(() -> uploadRowByRow(execId, logFile));
+    logResult("row by row, GZIP", logFile, baselineMs, execId);
+    for (final EncodingType encType : EncodingType.values()) {
+      final Props props = new Props();
+      props.put(ConfigurationKeys.EXECUTION_LOGS_ENCODING, encType.name());
+      final ExecutionLogsDao executionLogsDao = new ExecutionLogsDao(dbOperator, props,
+          localStorage);
+      final int batchExecId = execId + 1 + encType.ordinal();
+      final long uploadMs =
+          time(() -> executionLogsDao.uploadLogFile(batchExecId, "job", 0, logFile));
+      logResult("batched, " + encType, logFile, uploadMs, batchExecId);
+
+      assertThat(executionLogsDao.fetchLogs(batchExecId, "job", 0, 0, 1000).getData())
+          .isEqualTo(new String(LogChunkEncoderTest.createLog(1000), StandardCharsets.UTF_8));
+    }
+
+    final Props props = new Props();
+    props.put(ConfigurationKeys.EXECUTION_LOGS_STORAGE_ENABLED, "true");
+    final ExecutionLogsDao storageLogsDao = new ExecutionLogsDao(dbOperator, props, localStorage);
+    final int storageExecId = execId + 1 + EncodingType.values().length;
+    final long uploadMs =
+        time(() -> storageLogsDao.uploadLogFile(storageExecId, "job", 0, logFile));
+    final long fetchMs = time(() -> storageLogsDao
+        .fetchLogs(storageExecId, "job", 0, (int) logFile.length() - 50000, 50000));
+    logger.info(String.format("%d MB log uploaded as segments: %d ms, %.1f MB/s, "
+            + "last 50 KB fetched in %d ms", LOG_SIZE_MB, uploadMs,
+        logFile.length() / 1048576.0 / (uploadMs / 1000.0), fetchMs));
+  }
+
+  private File createLogFile() throws Exception {
+    final File logFile = this.temporaryFolder.newFile("_job.1.job.log");
+    final byte[] block = LogChunkEncoderTest.createLog(1024 * 1024);
+    try (OutputStream out = new FileOutputStream(logFile)) {
+      for (int i = 0; i < LOG_SIZE_MB; i++) {
+        out.write(block);
+      }
+    }
+    return logFile;
+  }
+
+  /**
+   * The upload before the batched write path: a new gzip stream and an insert per chunk.
+   */
+  private void uploadRowByRow(final int execId, final File logFile) throws Exception {
+    dbOperator.transaction(transOperator -> {
+      final byte[] buffer = new byte[CHUNK_SIZE];
+      int startByte = 0;
+      try (InputStream in = new FileInputStream(logFile)) {
+        int size = IOUtils.read(in, buffer);
+        while (size > 0) {
+          transOperator.update(INSERT_EXECUTION_LOGS, execId, "job", 0,
+              EncodingType.GZIP.getNumVal(), startByte, startByte + size,
+              GZIPUtils.gzipBytes(buffer, 0, size), System.currentTimeMillis());
+          startByte += size;
+          size = IOUtils.read(in, buffer);
+        }
+      } catch (final IOException e) {
+        throw new SQLException(e);
+      }
+      transOperator.getConnection().commit();
+      return null;
+    });
+  }
+
+  private void logResult(final String upload, final File logFile, final long uploadMs,
+      final int execId) throws SQLException {
+    final long storedBytes = dbOperator.query(
+        "SELECT SUM(LENGTH(log)) FROM execution_logs WHERE exec_id=?",
+        rs -> rs.next() ? rs.getLong(1) : 0, execId);
+    logger.info(String.format("%d MB log uploaded %s: %d ms, %.1f MB/s, %d bytes stored (%.1f%%)",
+        LOG_SIZE_MB, upload, uploadMs, logFile.length() / 1048576.0 / (uploadMs / 1000.0),
+        storedBytes, 100.0 * storedBytes / logFile.length()));
+  }
+
+  private long time(final Operation operation) throws Exception {
+    final long start = System.nanoTime();
+    operation.run();
+    return (System.nanoTime() - start) / 1000000;
+  }
+
+  private interface Operation {
+
+    void run() throws Exception;
+  }
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright 2018 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package azkaban.executor;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import azkaban.Constants.ConfigurationKeys;
+import azkaban.db.DatabaseOperator;
+import azkaban.test.Utils;
+import azkaban.utils.Props;
+import azkaban.utils.TestUtils;
+import java.sql.SQLException;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class ExecutionNodeStateDaoTest {
+
+  private static DatabaseOperator dbOperator;
+  private ExecutionFlowDao executionFlowDao;
+  private ExecutionNodeStateDao executionNodeStateDao;
+
+  @BeforeClass
+  public static void setUp() throws Exception {
+    dbOperator = Utils.initTestDB();
+  }
+
+  @AfterClass
+  public static void destroyDB() throws Exception {
+    try {
+      dbOperator.update("DROP ALL OBJECTS");
+      dbOperator.update("SHUTDOWN");
+    } catch (final SQLException e) {
+      e.printStackTrace();
+    }
+  }
+
+  @Before
+  public void setup() {
+    this.executionFlowDao = new ExecutionFlowDao(dbOperator);
+    final Props props = new Props();
+    props.put(ConfigurationKeys.EXECUTION_NODE_STATES_ENABLED, "true");
+    this.executionNodeStateDao = new ExecutionNodeStateDao(dbOperator, props);
+  }
+
+  @After
+  public void clearDB() {
+    try {
+      dbOperator.update("DELETE FROM execution_flows");
+      dbOperator.update("DELETE FROM execution_node_states");
+    } catch (final SQLException e) {
+      e.printStackTrace();
+    }
+  }
+
+  @Test
+  public void testNodeStatesAreAppliedOnFlowData() throws Exception {
+    final ExecutableFlow flow = TestUtils.createTestExecutableFlow("exectest1", "exec1");
+    this.executionFlowDao.uploadExecutableFlow(flow);
+
+    final long lastUpdateTime = flow.getUpdateTime();
+    flow.setStatus(Status.RUNNING);
+    flow.setUpdateTime(lastUpdateTime + 1);
+    final ExecutableNode job1 = flow.getExecutableNode("job1");
+    job1.setStatus(Status.SUCCEEDED);
+    job1.setUpdateTime(lastUpdateTime + 1);
+    this.executionNodeStateDao.updateNodeStates(flow, lastUpdateTime);
+
+    // the flow data isn't rewritten, only the flow status columns and the node states
+    final ExecutableFlow fetchedFlow =
+        this.executionFlowDao.fetchExecutableFlow(flow.getExecutionId());
+    assertThat(fetchedFlow.getStatus()).isEqualTo(Status.PREPARING);
+    assertThat(fetchedFlow.getExecutableNode("job1").getStatus()).isEqualTo(Status.READY);
+
+    this.executionNodeStateDao.applyNodeStates(fetchedFlow);
+    assertThat(fetchedFlow.getStatus()).isEqualTo(Status.RUNNING);
+    assertThat(fetchedFlow.getExecutableNode("job1").getStatus()).isEqualTo(Status.SUCCEEDED);
+    assertThat(fetchedFlow.getExecutableNode("job2").getStatus()).isEqualTo(Status.READY);
+  }
+
+  @Test
+  public void testOlderNodeStatesAreIgnored() throws Exception {
+    final ExecutableFlow flow = TestUtils.createTestExecutableFlow("exectest1", "exec1");
+    this.executionFlowDao.uploadExecutableFlow(flow);
+    final ExecutableNode job1 = flow.getExecutableNode("job1");
+    job1.setStatus(Status.RUNNING);
+    job1.setUpdateTime(1);
+    this.executionNodeStateDao.updateNodeStates(flow, 0);
+
+    job1.setStatus(Status.FAILED);
+    job1.setUpdateTime(2);
+    this.executionNodeStateDao.applyNodeStates(flow);
+    assertThat(job1.getStatus()).isEqualTo(Status.FAILED);
+  }
+
+  @Test
+  public void testRemoveNodeStates() throws Exception {
+    final ExecutableFlow flow = TestUtils.createTestExecutableFlow("exectest1", "exec1");
+    this.executionFlowDao.uploadExecutableFlow(flow);
+    final ExecutableNode job1 = flow.getExecutableNode("job1");
+    job1.setStatus(Status.RUNNING);
+    job1.setUpdateTime(System.currentTimeMillis());
+    this.executionNodeStateDao.updateNodeStates(flow, 0);
+
+    this.executionNodeStateDao.removeNodeStates(flow.getExecutionId());
+    final ExecutableFlow fetchedFlow =
+        this.executionFlowDao.fetchExecutableFlow(flow.getExecutionId());
+    this.executionNodeStateDao.applyNodeStates(fetchedFlow);
+    assertThat(fetchedFlow.getExecutableNode("job1").getStatus()).isEqualTo(Status.READY);
+  }
+}
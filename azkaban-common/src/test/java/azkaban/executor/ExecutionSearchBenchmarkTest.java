@@ -0,0 +1,144 @@
+/*
+ * Copyright 2018 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package azkaban.executor;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import azkaban.db.DatabaseOperator;
+import azkaban.test.Benchmark;
+import azkaban.test.Utils;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+import org.apache.log4j.Logger;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+/**
+ * Measures the history searches over a synthetic history, with {@link ExecutionSearchIndex} and
+ * with the LIKE scans of execution_flows it replaces.
+ *
+ * The history has 50k executions by default, run with -Dazkaban.benchmark.search.rows=10000000
+ * for 10M executions.
+ */
+@Category(Benchmark.class)
+public class ExecutionSearchBenchmarkTest {
+
+  private static final Logger logger = Logger.getLogger(ExecutionSearchBenchmarkTest.class);
+  private static final int NUM_EXECUTIONS = Integer.getInteger("azkaban.benchmark.search.rows",
+      50000);
+  private static final int NUM_PROJECTS = 500;
+  private static final int NUM_FLOWS_PER_PROJECT = 10;
+  private static final int NUM_USERS = 300;
+  private static final int BATCH_SIZE = 10000;
+  private static final int PAGE_SIZE = 16;
+  private static final String LIKE_SCAN =
+      "SELECT ef.exec_id FROM execution_flows ef JOIN projects p ON ef.project_id = p.id "
+          + "WHERE LOWER(p.name) LIKE ? AND LOWER(ef.flow_id) LIKE ? "
+          + "AND LOWER(ef.submit_user) LIKE ? ORDER BY ef.exec_id DESC LIMIT ?, ?";
+
+  private static DatabaseOperator dbOperator;
+
+  @BeforeClass
+  public static void setUp() throws Exception {
+    dbOperator = Utils.initTestDB();
+  }
+
+  @AfterClass
+  public static void destroyDB() throws Exception {
+    try {
+      dbOperator.update("DROP ALL OBJECTS");
+      dbOperator.update("SHUTDOWN");
+    } catch (final SQLException e) {
+      e.printStackTrace();
+    }
+  }
+
+  @Test
+  public void testSearchHistory() throws Exception {
+    insertHistory();
+    final ExecutionSearchIndex searchIndex =
+        new ExecutionSearchIndex(new ExecutionSearchDao(dbOperator));
+    long start = System.currentTimeMillis();
+    assertThat(searchIndex.backfill()).isEqualTo(NUM_EXECUTIONS);
+    logger.info("Indexed " + NUM_EXECUTIONS + " executions in "
+        + (System.currentTimeMillis() - start) + " ms");
+
+    // the flows of a rare project, a common user, and both with a project
+    final String[][] searches = {
+        {"", "flow-499-", ""},
+        {"", "", "user-42"},
+        {"project-1", "flow-1", "user-4"},
+    };
+    for (final String[] search : searches) {
+      start = System.currentTimeMillis();
+      final List<Integer> scanned = dbOperator.query(LIKE_SCAN, rs -> {
+        final List<Integer> ids = new ArrayList<>();
+        while (rs.next()) {
+          ids.add(rs.getInt(1));
+        }
+        return ids;
+      }, '%' + search[0] + '%', '%' + search[1] + '%', '%' + search[2] + '%', 0, PAGE_SIZE);
+      final long scanMs = System.currentTimeMillis() - start;
+
+      start = System.currentTimeMillis();
+      final List<Integer> found = searchIndex
+          .search(search[0], search[1], search[2], 0, -1, -1, 0, PAGE_SIZE).stream()
+          .map(ExecutionSummary::getExecutionId).collect(Collectors.toList());
+      final long searchMs = System.currentTimeMillis() - start;
+
+      assertThat(found).isEqualTo(scanned);
+      logger.info("Search " + String.join("|", search) + " found " + found.size()
+          + " executions in " + searchMs + " ms, the LIKE scan in " + scanMs + " ms");
+    }
+  }
+
+  private static void insertHistory() throws SQLException {
+    final Object[][] projects = new Object[NUM_PROJECTS][];
+    for (int i = 0; i < NUM_PROJECTS; i++) {
+      projects[i] = new Object[]{i + 1, "project-" + i};
+    }
+    dbOperator.batch("INSERT INTO projects "
+        + "(id, name, active, modified_time, create_time, version, last_modified_by) "
+        + "VALUES (?, ?, true, 0, 0, 1, 'azkaban')", projects);
+
+    final Random random = new Random(0);
+    final long start = System.currentTimeMillis();
+    for (int batchStart = 0; batchStart < NUM_EXECUTIONS; batchStart += BATCH_SIZE) {
+      final int batchSize = Math.min(BATCH_SIZE, NUM_EXECUTIONS - batchStart);
+      final Object[][] executions = new Object[batchSize][];
+      for (int i = 0; i < batchSize; i++) {
+        final int execId = batchStart + i + 1;
+        // skewed, so some projects and flows run much more often than others
+        final double projectRank = random.nextDouble();
+        final int project = (int) (projectRank * projectRank * NUM_PROJECTS);
+        final int flow = random.nextInt(random.nextInt(7) == 0 ? NUM_FLOWS_PER_PROJECT : 2);
+        executions[i] = new Object[]{execId, project + 1, "flow-" + project + "-" + flow,
+            Status.SUCCEEDED.getNumVal(), "user-" + execId % NUM_USERS, execId, execId,
+            execId, execId + 1};
+      }
+      dbOperator.batch("INSERT INTO execution_flows "
+          + "(exec_id, project_id, version, flow_id, status, submit_user, submit_time, "
+          + "update_time, start_time, end_time) VALUES (?, ?, 1, ?, ?, ?, ?, ?, ?, ?)", executions);
+    }
+    logger.info("Inserted " + NUM_EXECUTIONS + " executions in "
+        + (System.currentTimeMillis() - start) + " ms");
+  }
+}
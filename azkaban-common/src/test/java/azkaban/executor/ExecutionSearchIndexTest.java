@@ -0,0 +1,192 @@
+/*
+ * Copyright 2018 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package azkaban.executor;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.spy;
+
+import azkaban.db.DatabaseOperator;
+import azkaban.test.Utils;
+import azkaban.utils.TestUtils;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class ExecutionSearchIndexTest {
+
+  private static DatabaseOperator dbOperator;
+  private ExecutionSearchIndex searchIndex;
+
+  @BeforeClass
+  public static void setUp() throws Exception {
+    dbOperator = Utils.initTestDB();
+  }
+
+  @AfterClass
+  public static void destroyDB() throws Exception {
+    try {
+      dbOperator.update("DROP ALL OBJECTS");
+      dbOperator.update("SHUTDOWN");
+    } catch (final SQLException e) {
+      e.printStackTrace();
+    }
+  }
+
+  @Before
+  public void setup() {
+    this.searchIndex = new ExecutionSearchIndex(new ExecutionSearchDao(dbOperator));
+  }
+
+  @After
+  public void clearDB() {
+    try {
+      dbOperator.update("DELETE FROM execution_flows");
+      dbOperator.update("DELETE FROM projects");
+      dbOperator.update("DELETE FROM execution_search");
+      dbOperator.update("DELETE FROM execution_search_terms");
+    } catch (final SQLException e) {
+      e.printStackTrace();
+    }
+  }
+
+  private static void insertProject(final int projectId, final String name) throws SQLException {
+    dbOperator.update("INSERT INTO projects "
+        + "(id, name, active, modified_time, create_time, version, last_modified_by) "
+        + "VALUES (?, ?, true, 0, 0, 1, 'azkaban')", projectId, name);
+  }
+
+  private static void insertExecution(final int execId, final int projectId, final String flowId,
+      final String submitUser, final Status status, final long startTime) throws SQLException {
+    dbOperator.update("INSERT INTO execution_flows "
+            + "(exec_id, project_id, version, flow_id, status, submit_user, submit_time, "
+            + "update_time, start_time, end_time) VALUES (?, ?, 1, ?, ?, ?, ?, ?, ?, ?)",
+        execId, projectId, flowId, status.getNumVal(), submitUser, startTime, startTime,
+        startTime, startTime + 500);
+  }
+
+  private List<Integer> search(final String projContain, final String flowContains,
+      final String userNameContains, final int status, final long startTime)
+      throws ExecutorManagerException {
+    final List<ExecutionSummary> summaries = this.searchIndex
+        .search(projContain, flowContains, userNameContains, status, startTime, -1, 0, 10);
+    return summaries.stream().map(ExecutionSummary::getExecutionId)
+        .collect(Collectors.toList());
+  }
+
+  @Test
+  public void testSearchBackfilledExecutions() throws Exception {
+    insertProject(1, "ads-reporting");
+    insertProject(2, "search-indexer");
+    insertExecution(1, 1, "daily-report", "alice", Status.SUCCEEDED, 1000);
+    insertExecution(2, 1, "hourly-report", "bob", Status.FAILED, 2000);
+    insertExecution(3, 2, "build-index", "alice", Status.SUCCEEDED, 3000);
+    insertExecution(4, 2, "daily-index", "Carol", Status.RUNNING, 4000);
+    assertThat(this.searchIndex.backfill()).isEqualTo(4);
+    assertThat(this.searchIndex.backfill()).isEqualTo(0);
+
+    assertThat(search(null, "report", null, 0, -1)).containsExactly(2, 1);
+    assertThat(search(null, "^daily", null, 0, -1)).containsExactly(4, 1);
+    assertThat(search(null, "^index", null, 0, -1)).isEmpty();
+    assertThat(search(null, "DAILY", null, 0, -1)).containsExactly(4, 1);
+    assertThat(search("search", null, "alice", 0, -1)).containsExactly(3);
+    assertThat(search(null, null, "carol", 0, -1)).containsExactly(4);
+    assertThat(search(null, "index", null, Status.SUCCEEDED.getNumVal(), -1))
+        .containsExactly(3);
+    assertThat(search(null, "report", null, 0, 1500)).containsExactly(2);
+    assertThat(search(null, "missing", null, 0, -1)).isEmpty();
+    assertThat(search(null, null, null, Status.FAILED.getNumVal(), -1)).containsExactly(2);
+    assertThat(this.searchIndex.search(null, null, "alice", 0, -1, -1, 1, 1))
+        .extracting(ExecutionSummary::getExecutionId).containsExactly(1);
+  }
+
+  @Test
+  public void testSearchTermMatchingManyTerms() throws Exception {
+    insertProject(1, "ads-reporting");
+    insertExecution(1, 1, "daily-report", "alice", Status.SUCCEEDED, 1000);
+    insertExecution(2, 1, "hourly-report", "bob", Status.FAILED, 2000);
+    assertThat(this.searchIndex.backfill()).isEqualTo(2);
+    final Object[][] terms = new Object[ExecutionSearchIndex.MAX_TERM_IDS + 1][];
+    for (int i = 0; i < terms.length; i++) {
+      terms[i] = new Object[]{ExecutionSearchIndex.FLOW_FIELD, "daily_report_" + i};
+    }
+    dbOperator.batch("INSERT INTO execution_search_terms (field, term) VALUES (?,?)", terms);
+
+    // matched by the DB instead of by id
+    assertThat(search(null, "REPORT", null, 0, -1)).containsExactly(2, 1);
+    assertThat(search(null, "^daily", null, 0, -1)).containsExactly(1);
+    assertThat(search(null, "y_report", null, 0, -1)).isEmpty();
+  }
+
+  @Test
+  public void testBackfillIndexesGaps() throws Exception {
+    insertProject(1, "ads-reporting");
+    for (int execId = 1; execId <= 4; execId++) {
+      insertExecution(execId, 1, "daily-report", "alice", Status.SUCCEEDED, execId * 1000);
+    }
+    assertThat(this.searchIndex.backfill()).isEqualTo(4);
+    // as if indexing them failed when they were submitted
+    dbOperator.update("DELETE FROM execution_search WHERE exec_id IN (1, 3)");
+
+    assertThat(this.searchIndex.backfill()).isEqualTo(2);
+    assertThat(search(null, "daily", null, 0, -1)).containsExactly(4, 3, 2, 1);
+  }
+
+  @Test
+  public void testBackfillSkipsExecutionsIndexedByAnotherServer() throws Exception {
+    insertProject(1, "ads-reporting");
+    for (int execId = 1; execId <= 4; execId++) {
+      insertExecution(execId, 1, "daily-report", "alice", Status.SUCCEEDED, execId * 1000);
+    }
+    assertThat(this.searchIndex.backfill()).isEqualTo(4);
+    dbOperator.update("DELETE FROM execution_search WHERE exec_id IN (1, 2, 4)");
+
+    // the other server indexes the execution 4 between the fetch and the indexing
+    final ExecutionSearchDao searchDao = spy(new ExecutionSearchDao(dbOperator));
+    doAnswer(invocation -> {
+      final Object executions = invocation.callRealMethod();
+      dbOperator.update("INSERT INTO execution_search "
+          + "SELECT exec_id + 1, project_term, flow_term, user_term FROM execution_search "
+          + "WHERE exec_id = 3");
+      return executions;
+    }).when(searchDao).fetchUnindexedExecutionsBefore(eq(Integer.MAX_VALUE), anyInt());
+    assertThat(new ExecutionSearchIndex(searchDao).backfill()).isEqualTo(3);
+    assertThat(search(null, "daily", null, 0, -1)).containsExactly(4, 3, 2, 1);
+  }
+
+  @Test
+  public void testSearchSubmittedExecution() throws Exception {
+    final ExecutionFlowDao executionFlowDao = new ExecutionFlowDao(dbOperator);
+    final ExecutableFlow flow = TestUtils.createTestExecutableFlow("exectest1", "exec1");
+    flow.setSubmitUser("submitter");
+    executionFlowDao.uploadExecutableFlow(flow);
+    this.searchIndex.index(flow);
+
+    // the terms are read again by another web server
+    final ExecutionSearchIndex otherIndex =
+        new ExecutionSearchIndex(new ExecutionSearchDao(dbOperator));
+    assertThat(otherIndex.search(flow.getProjectName(), "member", "submit", 0, -1, -1, 0, 10))
+        .extracting(ExecutionSummary::getExecutionId).containsExactly(flow.getExecutionId());
+    assertThat(otherIndex.backfill()).isEqualTo(0);
+  }
+}
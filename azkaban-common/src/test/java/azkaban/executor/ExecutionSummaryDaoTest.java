@@ -0,0 +1,119 @@
+/*
+ * Copyright 2018 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package azkaban.executor;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import azkaban.db.DatabaseOperator;
+import azkaban.test.Utils;
+import azkaban.utils.TestUtils;
+import java.sql.SQLException;
+import java.util.List;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class ExecutionSummaryDaoTest {
+
+  private static DatabaseOperator dbOperator;
+  private ExecutionFlowDao executionFlowDao;
+  private ExecutionSummaryDao executionSummaryDao;
+
+  @BeforeClass
+  public static void setUp() throws Exception {
+    dbOperator = Utils.initTestDB();
+  }
+
+  @AfterClass
+  public static void destroyDB() throws Exception {
+    try {
+      dbOperator.update("DROP ALL OBJECTS");
+      dbOperator.update("SHUTDOWN");
+    } catch (final SQLException e) {
+      e.printStackTrace();
+    }
+  }
+
+  @Before
+  public void setup() {
+    this.executionFlowDao = new ExecutionFlowDao(dbOperator);
+    this.executionSummaryDao = new ExecutionSummaryDao(dbOperator);
+  }
+
+  @After
+  public void clearDB() {
+    try {
+      dbOperator.update("DELETE FROM execution_flows");
+    } catch (final SQLException e) {
+      e.printStackTrace();
+    }
+  }
+
+  private ExecutableFlow uploadFlow(final Status status, final long startTime)
+      throws Exception {
+    final ExecutableFlow flow = TestUtils.createTestExecutableFlow("exectest1", "exec1");
+    flow.setSubmitUser("testUser");
+    this.executionFlowDao.uploadExecutableFlow(flow);
+    flow.setStatus(status);
+    flow.setStartTime(startTime);
+    flow.setEndTime(startTime + 1000);
+    flow.setUpdateTime(startTime + 1000);
+    this.executionFlowDao.updateExecutableFlow(flow);
+    return flow;
+  }
+
+  @Test
+  public void testFetchFlowHistory() throws Exception {
+    final ExecutableFlow flow1 = uploadFlow(Status.SUCCEEDED, 1000);
+    final ExecutableFlow flow2 = uploadFlow(Status.FAILED, 2000);
+
+    final List<ExecutionSummary> summaries = this.executionSummaryDao.fetchFlowHistory(0, 2);
+    assertThat(summaries).extracting(ExecutionSummary::getExecutionId)
+        .containsExactly(flow2.getExecutionId(), flow1.getExecutionId());
+    final ExecutionSummary summary = summaries.get(0);
+    assertThat(summary.getProjectId()).isEqualTo(flow2.getProjectId());
+    assertThat(summary.getVersion()).isEqualTo(flow2.getVersion());
+    assertThat(summary.getFlowId()).isEqualTo(flow2.getFlowId());
+    assertThat(summary.getStatus()).isEqualTo(Status.FAILED);
+    assertThat(summary.getSubmitUser()).isEqualTo("testUser");
+    assertThat(summary.getStartTime()).isEqualTo(2000L);
+    assertThat(summary.getEndTime()).isEqualTo(3000L);
+    assertThat(summary.getUpdateTime()).isEqualTo(3000L);
+
+    assertThat(this.executionSummaryDao.fetchFlowHistory(1, 2))
+        .extracting(ExecutionSummary::getExecutionId)
+        .containsExactly(flow1.getExecutionId());
+  }
+
+  @Test
+  public void testFetchFlowHistoryOfFlow() throws Exception {
+    final ExecutableFlow flow1 = uploadFlow(Status.SUCCEEDED, 1000);
+    final ExecutableFlow flow2 = uploadFlow(Status.FAILED, 2000);
+
+    assertThat(this.executionSummaryDao
+        .fetchFlowHistory(flow1.getProjectId(), flow1.getFlowId(), 0, 10))
+        .extracting(ExecutionSummary::getExecutionId)
+        .containsExactly(flow2.getExecutionId(), flow1.getExecutionId());
+    assertThat(this.executionSummaryDao
+        .fetchFlowHistory(flow1.getProjectId(), flow1.getFlowId(), 0, 10, Status.SUCCEEDED))
+        .extracting(ExecutionSummary::getExecutionId)
+        .containsExactly(flow1.getExecutionId());
+    assertThat(this.executionSummaryDao
+        .fetchFlowHistory(flow1.getProjectId(), "otherFlow", 0, 10)).isEmpty();
+  }
+}
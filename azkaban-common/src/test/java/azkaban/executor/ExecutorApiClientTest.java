@@ -0,0 +1,111 @@
+/*
+ * Copyright 2018 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package azkaban.executor;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import azkaban.metrics.MetricsManager;
+import azkaban.utils.Pair;
+import azkaban.utils.Props;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import java.io.IOException;
+import java.net.URI;
+import java.util.Collections;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import org.apache.http.client.HttpResponseException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mortbay.jetty.Server;
+import org.mortbay.jetty.servlet.Context;
+import org.mortbay.jetty.servlet.ServletHolder;
+
+public class ExecutorApiClientTest {
+
+  private Server server;
+  private int port;
+  private MetricRegistry registry;
+  private ExecutorApiClient client;
+
+  @Before
+  public void setUp() throws Exception {
+    this.server = new Server(0);
+    final Context context = new Context(this.server, "/", Context.SESSIONS);
+    context.addServlet(new ServletHolder(new EchoServlet()), "/executor");
+    this.server.start();
+    this.port = this.server.getConnectors()[0].getLocalPort();
+
+    this.registry = new MetricRegistry();
+    this.client = new ExecutorApiClient(new Props(), new MetricsManager(this.registry));
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    this.server.stop();
+    this.server.destroy();
+  }
+
+  @Test
+  public void testConnectionIsReleasedToPool() throws Exception {
+    final URI uri = buildUri("/executor");
+    for (int i = 0; i < 5; i++) {
+      final String response = this.client.httpPost(uri,
+          Collections.singletonList(new Pair<>("value", String.valueOf(i))));
+      assertThat(response).isEqualTo(String.valueOf(i));
+    }
+
+    assertThat(gaugeValue("executor-client-leased-connections")).isEqualTo(0);
+    assertThat(gaugeValue("executor-client-pending-connections")).isEqualTo(0);
+    // all the calls were served by a single kept-alive connection
+    assertThat(gaugeValue("executor-client-available-connections")).isEqualTo(1);
+  }
+
+  @Test
+  public void testConnectionIsReleasedOnErrorResponse() throws Exception {
+    final URI uri = buildUri("/missing");
+    for (int i = 0; i < 3; i++) {
+      try {
+        this.client.httpPost(uri, null);
+      } catch (final HttpResponseException e) {
+        assertThat(e.getStatusCode()).isEqualTo(404);
+      }
+    }
+    assertThat(gaugeValue("executor-client-leased-connections")).isEqualTo(0);
+  }
+
+  @SuppressWarnings("unchecked")
+  private URI buildUri(final String path) throws IOException {
+    return ExecutorApiClient.buildUri("localhost", this.port, path, true);
+  }
+
+  private Object gaugeValue(final String name) {
+    final Gauge<?> gauge = this.registry.getGauges().get(name);
+    return gauge.getValue();
+  }
+
+  private static class EchoServlet extends HttpServlet {
+
+    @Override
+    protected void doPost(final HttpServletRequest req, final HttpServletResponse resp)
+        throws IOException {
+      resp.getWriter().write(req.getParameter("value"));
+    }
+  }
+}
@@ -1,7 +1,10 @@
 package azkaban.executor;
 
+import azkaban.metrics.MetricsManager;
 import azkaban.utils.JSONUtils;
 import azkaban.utils.Pair;
+import azkaban.utils.Props;
+import com.codahale.metrics.MetricRegistry;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -18,7 +21,8 @@ public class ExecutorApiGatewaySystemTest {
 
   @Before
   public void setUp() throws Exception {
-    ExecutorApiClient client = new ExecutorApiClient();
+    ExecutorApiClient client = new ExecutorApiClient(new Props(),
+        new MetricsManager(new MetricRegistry()));
     apiGateway = new ExecutorApiGateway(client);
   }
 
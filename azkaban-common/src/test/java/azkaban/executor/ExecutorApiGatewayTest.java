@@ -19,6 +19,14 @@ package azkaban.executor;
 import static org.mockito.Mockito.when;
 
 import azkaban.utils.JSONUtils;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Map;
+import org.apache.http.HttpVersion;
+import org.apache.http.client.ResponseHandler;
+import org.apache.http.entity.StringEntity;
+import org.apache.http.message.BasicHttpResponse;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
@@ -46,4 +54,20 @@ public class ExecutorApiGatewayTest {
     Assert.assertTrue(exeInfo.equals(exeInfo2));
   }
 
+  @Test
+  public void testStreamWithReference() throws Exception {
+    final BasicHttpResponse response = new BasicHttpResponse(HttpVersion.HTTP_1_1, 200, "OK");
+    response.setEntity(new StringEntity("raw log", StandardCharsets.UTF_8));
+    response.setHeader(ConnectorParams.LOG_FINISHED_HEADER, "true");
+    when(this.client.httpPost(Mockito.any(), Mockito.any(), Mockito.any(ResponseHandler.class)))
+        .thenAnswer(invocation -> ((ResponseHandler<?>) invocation.getArgument(2))
+            .handleResponse(response));
+
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    final Map<String, String> headers = this.gateway.streamWithReference(
+        new ExecutionReference(1, new Executor(1, "localhost", 1234, true)),
+        ConnectorParams.LOG_FOLLOW_ACTION, out, Collections.emptyList());
+    Assert.assertEquals("raw log", out.toString(StandardCharsets.UTF_8.name()));
+    Assert.assertEquals("true", headers.get("x-log-finished"));
+  }
 }
@@ -0,0 +1,155 @@
+/*
+ * Copyright 2018 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package azkaban.executor;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import azkaban.Constants;
+import azkaban.metrics.CommonMetrics;
+import azkaban.metrics.MetricsManager;
+import azkaban.test.Benchmark;
+import azkaban.utils.AbstractMailerTest;
+import azkaban.utils.Emailer;
+import azkaban.utils.Props;
+import azkaban.utils.TestUtils;
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.collect.ImmutableMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.log4j.Logger;
+import org.junit.After;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+/**
+ * Measures how fast the queue processor drains a burst of queued flows, like the one at the top of
+ * the hour when many schedules fire at once. Every executor takes EXECUTE_LATENCY_MS to accept a
+ * flow.
+ */
+@Category(Benchmark.class)
+public class ExecutorManagerDispatchBenchmarkTest {
+
+  private static final Logger logger = Logger.getLogger(ExecutorManagerDispatchBenchmarkTest.class);
+  private static final int NUM_EXECUTORS = 4;
+  private static final int NUM_FLOWS = 200;
+  private static final long EXECUTE_LATENCY_MS = 10;
+
+  private final CommonMetrics commonMetrics = new CommonMetrics(
+      new MetricsManager(new MetricRegistry()));
+  // flows dispatched to each executor, by port
+  private final Map<Integer, List<Integer>> dispatchedExecIds = new ConcurrentHashMap<>();
+  private final AtomicInteger dispatchedFlows = new AtomicInteger();
+  private ExecutorManager manager;
+
+  @After
+  public void tearDown() {
+    if (this.manager != null) {
+      this.manager.shutdown();
+    }
+  }
+
+  @Test
+  public void testDispatchThroughput() throws Exception {
+    final double sequentialThroughput = measureDispatchThroughput(1);
+    this.manager.shutdown();
+    this.dispatchedExecIds.clear();
+    this.dispatchedFlows.set(0);
+    final double concurrentThroughput = measureDispatchThroughput(NUM_EXECUTORS);
+
+    logger.info(String.format("Dispatched %d flows to %d executors: %.1f flows/s sequentially, "
+            + "%.1f flows/s concurrently", NUM_FLOWS, NUM_EXECUTORS, sequentialThroughput,
+        concurrentThroughput));
+  }
+
+  private double measureDispatchThroughput(final int dispatchThreads) throws Exception {
+    this.manager = createExecutorManager(dispatchThreads);
+    for (int i = 0; i < NUM_FLOWS; i++) {
+      this.manager.submitExecutableFlow(
+          TestUtils.createTestExecutableFlow("exectest1", "exec1"), "testUser");
+    }
+
+    final long start = System.currentTimeMillis();
+    this.manager.enableQueueProcessorThread();
+    azkaban.test.TestUtils.await().atMost(1, TimeUnit.MINUTES).untilAsserted(
+        () -> assertThat(this.dispatchedFlows.get()).isEqualTo(NUM_FLOWS));
+    final long elapsedMs = System.currentTimeMillis() - start;
+
+    // the flows of each executor were dispatched in the order of the queue
+    for (final List<Integer> execIds : this.dispatchedExecIds.values()) {
+      assertThat(execIds).isSorted();
+    }
+    return NUM_FLOWS * 1000.0 / elapsedMs;
+  }
+
+  @SuppressWarnings("unchecked")
+  private ExecutorManager createExecutorManager(final int dispatchThreads) throws Exception {
+    final Props props = AbstractMailerTest.createMailProperties();
+    props.put(Constants.ConfigurationKeys.USE_MULTIPLE_EXECUTORS, "true");
+    props.put(Constants.ConfigurationKeys.QUEUEPROCESSING_ENABLED, "false");
+    props.put(Constants.ConfigurationKeys.QUEUEPROCESSING_DISPATCH_THREADS, dispatchThreads);
+    props.put(Constants.ConfigurationKeys.MAX_CONCURRENT_RUNS_ONEFLOW, NUM_FLOWS);
+    props.put(Constants.ConfigurationKeys.EXECUTOR_SELECTOR_FILTERS, "StaticRemainingFlowSize");
+    props.put(Constants.ConfigurationKeys.EXECUTOR_SELECTOR_COMPARATOR_PREFIX
+        + "NumberOfAssignedFlowComparator", 1);
+
+    final ExecutorLoader loader = mock(ExecutorLoader.class);
+    final List<Executor> executors = new ArrayList<>();
+    for (int i = 1; i <= NUM_EXECUTORS; i++) {
+      executors.add(new Executor(i, "localhost", 12344 + i, true));
+    }
+    when(loader.fetchActiveExecutors()).thenReturn(executors);
+    final AtomicInteger nextExecId = new AtomicInteger(1);
+    doAnswer(invocation -> {
+      final ExecutableFlow flow = invocation.getArgument(0);
+      flow.setExecutionId(nextExecId.getAndIncrement());
+      return null;
+    }).when(loader).uploadExecutableFlow(any());
+
+    final ExecutorApiGateway apiGateway = mock(ExecutorApiGateway.class);
+    when(apiGateway.callForJsonType(any(), anyInt(), eq("/serverStatistics"), any(), any()))
+        .thenAnswer(invocation -> new ExecutorInfo(90, 32 * 1024, 1000, 0, 10, 0));
+    doAnswer(invocation -> {
+      Thread.sleep(EXECUTE_LATENCY_MS);
+      final ExecutableFlow flow = invocation.getArgument(0);
+      final Executor executor = invocation.getArgument(1);
+      this.dispatchedExecIds.computeIfAbsent(executor.getPort(), port -> new ArrayList<>())
+          .add(flow.getExecutionId());
+      this.dispatchedFlows.incrementAndGet();
+      return null;
+    }).when(apiGateway)
+        .callWithExecutable(any(), any(), eq(ConnectorParams.EXECUTE_ACTION));
+    doReturn(ImmutableMap.of(ConnectorParams.RESPONSE_UPDATED_FLOWS, Collections.emptyList()))
+        .when(apiGateway).callWithTimeout(
+        any(), anyInt(), eq(ConnectorParams.UPDATE_ACTION), any(), anyInt());
+
+    return new ExecutorManager(props, loader,
+        new AlerterHolder(props, new Emailer(props, this.commonMetrics)), this.commonMetrics,
+        apiGateway);
+  }
+}
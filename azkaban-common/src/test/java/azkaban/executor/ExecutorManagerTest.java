@@ -18,10 +18,13 @@ package azkaban.executor;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyList;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.any;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -31,6 +34,7 @@ import azkaban.metrics.MetricsManager;
 import azkaban.user.User;
 import azkaban.utils.AbstractMailerTest;
 import azkaban.utils.Emailer;
+import azkaban.utils.FileIOUtils.LogData;
 import azkaban.utils.Pair;
 import azkaban.utils.Props;
 import azkaban.utils.TestUtils;
@@ -44,6 +48,7 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CountDownLatch;
 import java.util.stream.Collectors;
 import org.junit.After;
 import org.junit.Assert;
@@ -285,15 +290,156 @@ public class ExecutorManagerTest {
     this.manager.submitExecutableFlow(flow1, this.user.getUserId());
     final ExecutableFlow fetchedFlow = waitFlowFinished(flow1);
     Assert.assertEquals(fetchedFlow.getStatus(), Status.FAILED);
+    // the executor which lost the flow won't remove its node states
+    azkaban.test.TestUtils.await().untilAsserted(
+        () -> verify(this.loader).removeExecutableFlowNodeStates(-1));
   }
 
-  // Suppress "unchecked generic array creation for varargs parameter".
-  // No way to avoid this when mocking a method with generic varags.
-  @SuppressWarnings("unchecked")
-  private void mockUpdateResponse(
+  /* Same as testNotFoundFlows, but the updates are streamed instead of polled */
+  @Test
+  public void testNotFoundFlowsWithUpdateStreaming() throws Exception {
+    this.props.put(Constants.ConfigurationKeys.EXECUTOR_UPDATE_STREAMING_ENABLED, "true");
+    testSetUpForRunningFlows();
+    final ExecutableFlow flow1 = TestUtils.createTestExecutableFlow("exectest1", "exec1");
+    when(this.loader.fetchExecutableFlow(-1)).thenReturn(flow1);
+
+    mockUpdateStreamResponse(ImmutableMap.of(ConnectorParams.RESPONSE_UPDATED_FLOWS,
+        Collections.singletonList(ImmutableMap.of(
+            ConnectorParams.UPDATE_MAP_EXEC_ID, -1,
+            "error", "Flow does not exist"))));
+
+    this.manager.submitExecutableFlow(flow1, this.user.getUserId());
+    final ExecutableFlow fetchedFlow = waitFlowFinished(flow1);
+    Assert.assertEquals(fetchedFlow.getStatus(), Status.FAILED);
+  }
+
+  /* An executor which doesn't answer doesn't hold up the updates of the flows on other executors */
+  @Test
+  public void testUnresponsiveExecutorDoesNotBlockUpdates() throws Exception {
+    testSetUpForRunningFlows();
+    final CountDownLatch unresponsiveExecutor = new CountDownLatch(1);
+    try {
+      doAnswer(invocation -> {
+        unresponsiveExecutor.await();
+        return ImmutableMap.of(ConnectorParams.RESPONSE_UPDATED_FLOWS, Collections.emptyList());
+      }).when(this.apiGateway).callWithTimeout(
+          any(), eq(12345), eq(ConnectorParams.UPDATE_ACTION), any(), anyInt());
+      doReturn(ImmutableMap.of(ConnectorParams.RESPONSE_UPDATED_FLOWS,
+          Collections.singletonList(ImmutableMap.of(
+              ConnectorParams.UPDATE_MAP_EXEC_ID, 11,
+              "error", "Flow does not exist")))).when(this.apiGateway).callWithTimeout(
+          any(), eq(12346), eq(ConnectorParams.UPDATE_ACTION), any(), anyInt());
+
+      final ExecutableFlow stuckFlow = submitFlowToExecutor("exec1", 10, 1);
+      final ExecutableFlow updatedFlow = submitFlowToExecutor("exec2", 11, 2);
+
+      Assert.assertEquals(Status.FAILED, waitFlowFinished(updatedFlow).getStatus());
+      Assert.assertTrue(this.manager.getRunningFlows().contains(stuckFlow));
+    } finally {
+      unresponsiveExecutor.countDown();
+    }
+  }
+
+  /* A flow which an executor failed to accept is requeued for the other executors only */
+  @Test
+  public void testRequeuedFlowSkipsTheFailedExecutor() throws Exception {
+    testSetUpForConcurrentDispatch();
+    final List<Integer> triedPorts = Collections.synchronizedList(new ArrayList<>());
+    doAnswer(invocation -> {
+      final Executor executor = invocation.getArgument(1);
+      triedPorts.add(executor.getPort());
+      if (executor.getPort() == 12345) {
+        throw new ExecutorManagerException("Executor unavailable");
+      }
+      return null;
+    }).when(this.apiGateway).callWithExecutable(any(), any(), eq(ConnectorParams.EXECUTE_ACTION));
+
+    final ExecutableFlow flow = TestUtils.createTestExecutableFlow("exectest1", "exec1");
+    flow.setExecutionId(10);
+    doReturn(flow).when(this.loader).fetchExecutableFlow(10);
+    this.manager.submitExecutableFlow(flow, this.user.getUserId());
+
+    azkaban.test.TestUtils.await().untilAsserted(
+        () -> assertThat(triedPorts).containsExactly(12345, 12346));
+    azkaban.test.TestUtils.await().untilAsserted(
+        () -> assertThat(this.manager.getRunningFlows()).contains(flow));
+  }
+
+  /* A flow waiting for its dispatch is listed as queued, and can be cancelled */
+  @Test
+  public void testCancelFlowWaitingForDispatch() throws Exception {
+    testSetUpForConcurrentDispatch();
+    final CountDownLatch executorBusy = new CountDownLatch(1);
+    final List<Integer> dispatchedExecIds = Collections.synchronizedList(new ArrayList<>());
+    doAnswer(invocation -> {
+      final ExecutableFlow flow = invocation.getArgument(0);
+      dispatchedExecIds.add(flow.getExecutionId());
+      executorBusy.await();
+      return null;
+    }).when(this.apiGateway).callWithExecutable(any(), any(), eq(ConnectorParams.EXECUTE_ACTION));
+
+    try {
+      submitFlowToExecutor("exec1", 10, 1);
+      azkaban.test.TestUtils.await().untilAsserted(
+          () -> assertThat(dispatchedExecIds).containsExactly(10));
+      // dispatched after the first flow, in the lane of the same executor
+      final ExecutableFlow waitingFlow = submitFlowToExecutor("exec2", 11, 1);
+      azkaban.test.TestUtils.await().untilAsserted(
+          () -> assertThat(this.manager.getQueuedFlowIds()).isEqualTo("[10, 11]"));
+
+      this.manager.cancelFlow(waitingFlow, this.user.getUserId());
+      assertThat(waitingFlow.getStatus()).isEqualTo(Status.FAILED);
+      assertThat(this.manager.getRunningFlows()).doesNotContain(waitingFlow);
+    } finally {
+      executorBusy.countDown();
+    }
+    azkaban.test.TestUtils.await().untilAsserted(
+        () -> assertThat(this.manager.getQueuedFlowIds()).isEqualTo("[]"));
+    assertThat(dispatchedExecIds).containsExactly(10);
+  }
+
+  /*
+   * Dispatches on a lane per executor. The executor on port 12345 has more remaining flow capacity,
+   * so it's selected first. The mocks are stubbed with doReturn/doAnswer, which unlike when() don't
+   * race with the calls of the manager's threads.
+   */
+  private void testSetUpForConcurrentDispatch() throws Exception {
+    this.props.put(Constants.ConfigurationKeys.QUEUEPROCESSING_DISPATCH_THREADS, 2);
+    this.props.put(Constants.ConfigurationKeys.ACTIVE_EXECUTOR_REFRESH_IN_MS, 100);
+    this.props.put(Constants.ConfigurationKeys.MAX_DISPATCHING_ERRORS_PERMITTED, 5);
+    this.props.put(Constants.ConfigurationKeys.EXECUTOR_SELECTOR_FILTERS, "StaticRemainingFlowSize");
+    this.props.put(Constants.ConfigurationKeys.EXECUTOR_SELECTOR_COMPARATOR_PREFIX
+        + "NumberOfAssignedFlowComparator", 1);
+    testSetUpForRunningFlows();
+    this.manager.shutdown();
+    doAnswer(invocation -> new ExecutorInfo(90, 32 * 1024,
+        (int) invocation.getArgument(1) == 12345 ? 1000 : 10, 0, 10, 0))
+        .when(this.apiGateway).callForJsonType(any(), anyInt(), eq("/serverStatistics"), any(),
+        any());
+    this.manager = createExecutorManager();
+  }
+
+  private ExecutableFlow submitFlowToExecutor(final String flowName, final int execId,
+      final int executorId) throws Exception {
+    final ExecutableFlow flow = TestUtils.createTestExecutableFlow("exectest1", flowName);
+    flow.setExecutionId(execId);
+    flow.getExecutionOptions().addAllFlowParameters(
+        ImmutableMap.of(ExecutionOptions.USE_EXECUTOR, String.valueOf(executorId)));
+    doReturn(flow).when(this.loader).fetchExecutableFlow(execId);
+    this.manager.submitExecutableFlow(flow, this.user.getUserId());
+    return flow;
+  }
+
+  private void mockUpdateStreamResponse(
       final Map<String, List<Map<String, Object>>> map) throws Exception {
     doReturn(map).when(this.apiGateway).callWithExecutionId(
-        any(), anyInt(), eq(ConnectorParams.UPDATE_ACTION), any(), any(), any(), any());
+        any(), anyInt(), eq(ConnectorParams.UPDATE_STREAM_ACTION), any(), any(), anyList());
+  }
+
+  private void mockUpdateResponse(
+      final Map<String, List<Map<String, Object>>> map) throws Exception {
+    doReturn(map).when(this.apiGateway).callWithTimeout(
+        any(), anyInt(), eq(ConnectorParams.UPDATE_ACTION), any(), anyInt());
   }
 
   /*
@@ -378,6 +524,42 @@ public class ExecutorManagerTest {
         activeExecutorServerHosts.contains(executor2.getHost() + ":" + executor2.getPort()));
   }
 
+  @Test
+  public void testRunningFlowIsCopied() throws Exception {
+    testSetUpForRunningFlows();
+    // the running flows are loaded when the manager is created
+    this.manager.shutdown();
+    this.manager = createExecutorManager();
+    final ExecutableFlow flow = this.manager.getExecutableFlow(this.flow1.getExecutionId());
+    assertThat(flow).isNotSameAs(this.flow1);
+    assertThat(flow.getExecutionId()).isEqualTo(this.flow1.getExecutionId());
+    assertThat(flow.getFlowId()).isEqualTo(this.flow1.getFlowId());
+  }
+
+  @Test
+  public void testFinishedFlowServedFromMemory() throws Exception {
+    testSetUpForRunningFlows();
+    final ExecutableFlow finished = TestUtils.createTestExecutableFlow("exectest1", "exec1");
+    finished.setExecutionId(3);
+    finished.setStatus(Status.SUCCEEDED);
+    final ExecutableFlow preparing = TestUtils.createTestExecutableFlow("exectest1", "exec2");
+    preparing.setExecutionId(4);
+    preparing.setStatus(Status.PREPARING);
+    // stubbed with doReturn, since when() races with the calls of the manager's threads
+    doReturn(finished).when(this.loader).fetchExecutableFlow(3);
+    doReturn(preparing).when(this.loader).fetchExecutableFlow(4);
+
+    this.manager.getExecutableFlow(3).setStatus(Status.FAILED);
+    // the cached flow is a copy, which the callers can't change
+    assertThat(this.manager.getExecutableFlow(3).getStatus()).isEqualTo(Status.SUCCEEDED);
+    assertThat(this.manager.getExecutableFlow(4)).isSameAs(preparing);
+    assertThat(this.manager.getExecutableFlow(4)).isSameAs(preparing);
+    // the finished flow is read once, the others each time
+    verify(this.loader, times(1)).fetchExecutableFlow(3);
+    verify(this.loader, times(2)).fetchExecutableFlow(4);
+    assertThat(this.commonMetrics.getExecutionCacheHitRatio()).isEqualTo(0.25);
+  }
+
   /*
    * TODO: will move below method to setUp() and run before every test for both runningFlows and queuedFlows
    */
@@ -415,6 +597,28 @@ public class ExecutorManagerTest {
     when(this.loader.fetchActiveFlows()).thenReturn(this.activeFlows);
   }
 
+  @Test
+  public void testLogWithoutApplicationIdIsSearchedOnce() throws Exception {
+    testSetUpForRunningFlows();
+    this.props.put(Constants.ConfigurationKeys.RESOURCE_MANAGER_JOB_URL,
+        "http://rm/${application.id}");
+    this.props.put(Constants.ConfigurationKeys.HISTORY_SERVER_JOB_URL,
+        "http://jhs/${application.id}");
+    this.props.put(Constants.ConfigurationKeys.SPARK_HISTORY_SERVER_JOB_URL,
+        "http://shs/${application.id}");
+    final ExecutableFlow finished = TestUtils.createTestExecutableFlow("exectest1", "exec1");
+    finished.setExecutionId(3);
+    finished.setStatus(Status.SUCCEEDED);
+    // nothing is stored at first, then the empty id of the searched log
+    doReturn(null, "").when(this.loader).fetchApplicationId(3, "job1", 0);
+    doReturn(new LogData(0, 3, "log")).when(this.loader).fetchLogs(3, "job1", 0, 0, 50000);
+
+    assertThat(this.manager.getJobLinkUrl(finished, "job1", 0)).isNull();
+    assertThat(this.manager.getJobLinkUrl(finished, "job1", 0)).isNull();
+    verify(this.loader).uploadApplicationId(3, "job1", 0, "");
+    verify(this.loader, times(1)).fetchLogs(eq(3), eq("job1"), eq(0), eq(0), anyInt());
+  }
+
   private ExecutableFlow waitFlowFinished(final ExecutableFlow flow) throws Exception {
     azkaban.test.TestUtils.await().untilAsserted(() -> assertThat(getFlowStatus(flow))
         .matches(Status::isStatusFinished, "isStatusFinished"));
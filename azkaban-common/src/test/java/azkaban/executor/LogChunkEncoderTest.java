@@ -0,0 +1,80 @@
+/*
+ * Copyright 2018 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package azkaban.executor;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import azkaban.db.EncodingType;
+import azkaban.utils.GZIPUtils;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.Test;
+
+public class LogChunkEncoderTest {
+
+  @Test
+  public void testGzipIsCompatibleWithGZIPUtils() throws Exception {
+    final byte[] log = createLog(100000);
+    try (LogChunkEncoder encoder = new LogChunkEncoder(EncodingType.GZIP)) {
+      final byte[] encoded = encoder.encode(log, 10, 50000);
+      assertThat(GZIPUtils.unGzipBytes(encoded)).isEqualTo(Arrays.copyOfRange(log, 10, 50010));
+      assertThat(encoded.length).isEqualTo(GZIPUtils.gzipBytes(log, 10, 50000).length);
+    }
+  }
+
+  @Test
+  public void testChunksAreEncodedIndependently() throws Exception {
+    for (final EncodingType encType : EncodingType.values()) {
+      try (LogChunkEncoder encoder = new LogChunkEncoder(encType)) {
+        final byte[] log = createLog(100000);
+        final byte[] first = encoder.encode(log, 0, 60000);
+        final byte[] second = encoder.encode(log, 60000, 40000);
+        assertThat(LogChunkEncoder.decode(encType, first))
+            .isEqualTo(Arrays.copyOfRange(log, 0, 60000));
+        assertThat(LogChunkEncoder.decode(encType, second))
+            .isEqualTo(Arrays.copyOfRange(log, 60000, 100000));
+      }
+    }
+  }
+
+  @Test
+  public void testIncompressibleChunk() throws Exception {
+    final byte[] random = new byte[70000];
+    new Random(1).nextBytes(random);
+    for (final EncodingType encType : EncodingType.values()) {
+      try (LogChunkEncoder encoder = new LogChunkEncoder(encType)) {
+        assertThat(LogChunkEncoder.decode(encType, encoder.encode(random, 0, random.length)))
+            .isEqualTo(random);
+      }
+    }
+  }
+
+  static byte[] createLog(final int size) {
+    final StringBuilder log = new StringBuilder();
+    final Random random = new Random(1);
+    while (log.length() < size) {
+      log.append("21-09-2018 10:15:").append(10 + random.nextInt(50))
+          .append(" PDT spark_job INFO - INFO scheduler.TaskSetManager: Finished task ")
+          .append(random.nextInt(2000)).append(".0 in stage ").append(random.nextInt(20))
+          .append(" (TID ").append(random.nextInt(100000)).append(") in ")
+          .append(random.nextInt(5000)).append(" ms on host-").append(random.nextInt(300))
+          .append(".example.com (executor ").append(random.nextInt(100)).append(")\n");
+    }
+    return log.substring(0, size).getBytes(StandardCharsets.UTF_8);
+  }
+}
@@ -22,6 +22,7 @@ import azkaban.utils.Pair;
 import azkaban.utils.Props;
 import java.io.File;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Date;
@@ -49,6 +50,7 @@ public class MockExecutorLoader implements ExecutorLoader {
   List<Executor> executors = new ArrayList<>();
   int executorIdCounter = 0;
   Map<Integer, ArrayList<ExecutorLogEvent>> executorEvents = new ConcurrentHashMap<>();
+  Map<String, String> applicationIds = new ConcurrentHashMap<>();
 
   @Override
   public void uploadExecutableFlow(final ExecutableFlow flow)
@@ -82,7 +84,7 @@ public class MockExecutorLoader implements ExecutorLoader {
   }
 
   @Override
-  public List<ExecutableFlow> fetchFlowHistory(final int projectId, final String flowId,
+  public List<ExecutionSummary> fetchFlowHistory(final int projectId, final String flowId,
       final int skip, final int num) throws ExecutorManagerException {
     return null;
   }
@@ -126,6 +128,28 @@ public class MockExecutorLoader implements ExecutorLoader {
     this.flowUpdateCount++;
   }
 
+  @Override
+  public void updateExecutableFlows(final List<ExecutableFlow> flows)
+      throws ExecutorManagerException {
+    for (final ExecutableFlow flow : flows) {
+      updateExecutableFlow(flow);
+    }
+  }
+
+  @Override
+  public void updateExecutableFlowNodeStates(final ExecutableFlow flow, final long lastUpdateTime)
+      throws ExecutorManagerException {
+    final ExecutableFlow toUpdate = this.flows.get(flow.getExecutionId());
+
+    toUpdate.applyUpdateObject(flow.toUpdateObject(lastUpdateTime));
+    this.flowUpdateCount++;
+  }
+
+  @Override
+  public void removeExecutableFlowNodeStates(final int execId)
+      throws ExecutorManagerException {
+  }
+
   @Override
   public void uploadExecutableNode(final ExecutableNode node, final Props inputParams)
       throws ExecutorManagerException {
@@ -202,14 +226,14 @@ public class MockExecutorLoader implements ExecutorLoader {
   }
 
   @Override
-  public List<ExecutableFlow> fetchFlowHistory(final int skip, final int num)
+  public List<ExecutionSummary> fetchFlowHistory(final int skip, final int num)
       throws ExecutorManagerException {
     // TODO Auto-generated method stub
     return null;
   }
 
   @Override
-  public List<ExecutableFlow> fetchFlowHistory(final String projectContains,
+  public List<ExecutionSummary> fetchFlowHistory(final String projectContains,
       final String flowContains, final String userNameContains, final int status,
       final long startData,
       final long endData, final int skip, final int num) throws ExecutorManagerException {
@@ -267,7 +291,7 @@ public class MockExecutorLoader implements ExecutorLoader {
   }
 
   @Override
-  public List<ExecutableFlow> fetchFlowHistory(final int projectId, final String flowId,
+  public List<ExecutionSummary> fetchFlowHistory(final int projectId, final String flowId,
       final int skip, final int num, final Status status) throws ExecutorManagerException {
     // TODO Auto-generated method stub
     return null;
@@ -280,6 +304,15 @@ public class MockExecutorLoader implements ExecutorLoader {
     return null;
   }
 
+  @Override
+  public void uploadLogChunks(final int execId, final String name, final int attempt,
+      final int startByte, final List<byte[]> chunks) throws ExecutorManagerException {
+    for (final byte[] chunk : chunks) {
+      logger.info("Uploaded log chunk for [" + name + "]:[" + execId + "]:\n"
+          + new String(chunk, StandardCharsets.UTF_8));
+    }
+  }
+
   @Override
   public void uploadAttachmentFile(final ExecutableNode node, final File file)
       throws ExecutorManagerException {
@@ -287,6 +320,18 @@ public class MockExecutorLoader implements ExecutorLoader {
 
   }
 
+  @Override
+  public void uploadApplicationId(final int execId, final String name, final int attempt,
+      final String applicationId) throws ExecutorManagerException {
+    this.applicationIds.put(execId + "." + name + "." + attempt, applicationId);
+  }
+
+  @Override
+  public String fetchApplicationId(final int execId, final String name, final int attempt)
+      throws ExecutorManagerException {
+    return this.applicationIds.get(execId + "." + name + "." + attempt);
+  }
+
   @Override
   public List<Executor> fetchActiveExecutors() throws ExecutorManagerException {
     final List<Executor> activeExecutors = new ArrayList<>();
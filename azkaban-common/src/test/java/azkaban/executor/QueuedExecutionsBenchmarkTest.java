@@ -0,0 +1,120 @@
+/*
+ * Copyright 2018 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package azkaban.executor;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import azkaban.test.Benchmark;
+import azkaban.utils.Pair;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.PriorityBlockingQueue;
+import org.apache.log4j.Logger;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+/**
+ * Measures the operations of {@link QueuedExecutions} with 100k queued executions, against a
+ * {@link PriorityBlockingQueue} sorted by {@link ExecutableFlowPriorityComparator}.
+ */
+@Category(Benchmark.class)
+public class QueuedExecutionsBenchmarkTest {
+
+  private static final Logger logger = Logger.getLogger(QueuedExecutionsBenchmarkTest.class);
+  private static final int NUM_EXECUTIONS = 100000;
+  private static final int NUM_DEQUEUES = 1000;
+
+  @Test
+  public void testQueuedExecutions() throws Exception {
+    final List<Pair<ExecutionReference, ExecutableFlow>> executions = createExecutions();
+    final List<Integer> dequeuedExecIds = pickExecIds();
+
+    final QueuedExecutions queue = new QueuedExecutions(NUM_EXECUTIONS);
+    final long enqueueAllMs = time(() -> queue.enqueueAll(executions));
+    final long dequeueMs = time(() -> {
+      for (final int execId : dequeuedExecIds) {
+        queue.dequeue(execId);
+      }
+    });
+    final List<Pair<ExecutionReference, ExecutableFlow>> fetched = new ArrayList<>();
+    final long fetchMs = time(() -> {
+      while (!queue.isEmpty()) {
+        fetched.add(queue.fetchHead());
+      }
+    });
+
+    final PriorityBlockingQueue<Pair<ExecutionReference, ExecutableFlow>> baseline =
+        new PriorityBlockingQueue<>(10, new ExecutableFlowPriorityComparator());
+    final long baselineEnqueueMs = time(() -> baseline.addAll(executions));
+    final long baselineDequeueMs = time(() -> {
+      for (final int execId : dequeuedExecIds) {
+        baseline.remove(executions.get(execId - 1));
+      }
+    });
+    final long baselineFetchMs = time(() -> {
+      while (!baseline.isEmpty()) {
+        baseline.take();
+      }
+    });
+
+    logger.info(String.format("%d executions: enqueueAll %d ms (baseline %d ms), %d dequeues "
+            + "%d ms (baseline %d ms), fetch all %d ms (baseline %d ms)", NUM_EXECUTIONS,
+        enqueueAllMs, baselineEnqueueMs, NUM_DEQUEUES, dequeueMs, baselineDequeueMs, fetchMs,
+        baselineFetchMs));
+
+    assertThat(fetched).hasSize(NUM_EXECUTIONS - NUM_DEQUEUES);
+    assertThat(fetched).isSortedAccordingTo(new ExecutableFlowPriorityComparator());
+  }
+
+  private List<Pair<ExecutionReference, ExecutableFlow>> createExecutions() {
+    final Random random = new Random(1);
+    final List<Pair<ExecutionReference, ExecutableFlow>> executions = new ArrayList<>();
+    for (int execId = 1; execId <= NUM_EXECUTIONS; execId++) {
+      final ExecutableFlow flow = new ExecutableFlow();
+      flow.setExecutionId(execId);
+      flow.setUpdateTime(random.nextInt(1000));
+      final ExecutionOptions options = new ExecutionOptions();
+      options.addAllFlowParameters(Collections.singletonMap(ExecutionOptions.FLOW_PRIORITY,
+          String.valueOf(random.nextInt(10))));
+      flow.setExecutionOptions(options);
+      executions.add(new Pair<>(new ExecutionReference(execId), flow));
+    }
+    return executions;
+  }
+
+  private List<Integer> pickExecIds() {
+    final List<Integer> execIds = new ArrayList<>();
+    for (int execId = 1; execId <= NUM_EXECUTIONS; execId++) {
+      execIds.add(execId);
+    }
+    Collections.shuffle(execIds, new Random(2));
+    return execIds.subList(0, NUM_DEQUEUES);
+  }
+
+  private long time(final Operation operation) throws Exception {
+    final long start = System.nanoTime();
+    operation.run();
+    return (System.nanoTime() - start) / 1000000;
+  }
+
+  private interface Operation {
+
+    void run() throws Exception;
+  }
+}
@@ -18,6 +18,7 @@ package azkaban.executor;
 
 import azkaban.utils.Pair;
 import azkaban.utils.TestUtils;
+import com.google.common.collect.ImmutableMap;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
@@ -148,6 +149,68 @@ public class QueuedExecutionsTest {
     Assert.assertEquals(queue.fetchHead(), dataList.get(1));
   }
 
+  /* Test the flows are fetched by priority after removals from the middle of the queue */
+  @Test
+  public void testFetchHeadAfterDequeue() throws IOException, ExecutorManagerException,
+      InterruptedException {
+    final QueuedExecutions queue = new QueuedExecutions(100);
+    final List<Pair<ExecutionReference, ExecutableFlow>> dataList = new ArrayList<>();
+    for (int execId = 1; execId <= 20; execId++) {
+      final Pair<ExecutionReference, ExecutableFlow> pair = createExecutablePair("exec1", execId);
+      setPriority(pair.getSecond(), execId % 4);
+      dataList.add(pair);
+      queue.enqueue(pair.getSecond(), pair.getFirst());
+    }
+    for (int execId = 1; execId <= 20; execId += 3) {
+      queue.dequeue(execId);
+    }
+
+    final List<Pair<ExecutionReference, ExecutableFlow>> expected = new ArrayList<>(dataList);
+    expected.removeIf(pair -> (pair.getFirst().getExecId() - 1) % 3 == 0);
+    expected.sort(new ExecutableFlowPriorityComparator());
+    Assert.assertEquals(expected.size(), queue.size());
+    for (final Pair<ExecutionReference, ExecutableFlow> pair : expected) {
+      Assert.assertEquals(pair, queue.fetchHead());
+    }
+    Assert.assertTrue(queue.isEmpty());
+  }
+
+  /* Test enqueueAll doesn't enqueue anything if an execution is already queued */
+  @Test
+  public void testEnqueueAllDuplicateExecution() throws IOException {
+    final QueuedExecutions queue = new QueuedExecutions(5);
+    final List<Pair<ExecutionReference, ExecutableFlow>> dataList = getDummyData();
+    dataList.add(createExecutablePair("exec1", 1));
+    try {
+      queue.enqueueAll(dataList);
+      Assert.fail("Expected ExecutorManagerException");
+    } catch (final ExecutorManagerException e) {
+      Assert.assertTrue(queue.isEmpty());
+    }
+  }
+
+  /* Test drainTo method */
+  @Test
+  public void testDrainTo() throws IOException, ExecutorManagerException {
+    final QueuedExecutions queue = new QueuedExecutions(5);
+    final List<Pair<ExecutionReference, ExecutableFlow>> dataList = getDummyData();
+    setPriority(dataList.get(1).getSecond(), 10);
+    queue.enqueueAll(dataList);
+
+    final List<Pair<ExecutionReference, ExecutableFlow>> drained = new ArrayList<>();
+    Assert.assertEquals(2, queue.drainTo(drained));
+    Assert.assertEquals(dataList.get(1), drained.get(0));
+    Assert.assertEquals(dataList.get(0), drained.get(1));
+    Assert.assertTrue(queue.isEmpty());
+  }
+
+  private void setPriority(final ExecutableFlow flow, final int priority) {
+    final ExecutionOptions options = new ExecutionOptions();
+    options.addAllFlowParameters(
+        ImmutableMap.of(ExecutionOptions.FLOW_PRIORITY, String.valueOf(priority)));
+    flow.setExecutionOptions(options);
+  }
+
   /* Test isFull method */
   @Test
   public void testIsFull() throws IOException, ExecutorManagerException,
@@ -17,6 +17,7 @@
 
 package azkaban.storage;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.mock;
@@ -100,4 +101,15 @@ public class LocalStorageTest {
     }
     assertTrue(exceptionThrown);
   }
+
+  @Test
+  public void testPutWithKey() throws Exception {
+    final ClassLoader classLoader = getClass().getClassLoader();
+    final File testFile = new File(classLoader.getResource(SAMPLE_FILE).getFile());
+
+    final String key = this.localStorage.put("execution_logs/1/segment.log", testFile);
+    assertEquals("execution_logs/1/segment.log", key);
+    assertTrue(FileUtils.contentEquals(testFile, new File(BASE_DIRECTORY, key)));
+    assertTrue(this.localStorage.delete(key));
+  }
 }
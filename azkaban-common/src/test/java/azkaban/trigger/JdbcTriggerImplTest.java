@@ -25,6 +25,7 @@ import azkaban.trigger.builtin.ExecuteFlowAction;
 import azkaban.utils.Utils;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -127,6 +128,30 @@ public class JdbcTriggerImplTest {
     assertTrue(ts.get(0).isResetOnExpire() == false);
   }
 
+  @Test
+  public void testUpdateTriggers() throws Exception {
+    final Trigger t1 = createTrigger("testProj1", "testFlow1", "source1");
+    final Trigger t2 = createTrigger("testProj2", "testFlow2", "source2");
+    final Trigger removed = createTrigger("testProj3", "testFlow3", "source3");
+    this.loader.addTrigger(t1);
+    this.loader.addTrigger(t2);
+    this.loader.addTrigger(removed);
+    this.loader.removeTrigger(removed);
+
+    t1.setResetOnExpire(false);
+    t2.setResetOnExpire(false);
+    final List<TriggerSnapshot> snapshots = Arrays.asList(new TriggerSnapshot(t1),
+        new TriggerSnapshot(t2), new TriggerSnapshot(removed));
+    // changed after its snapshot, which is written as it was
+    t1.setResetOnExpire(true);
+    this.loader.updateTriggers(snapshots);
+    final List<Trigger> ts = this.loader.loadTriggers();
+    assertTrue(ts.size() == 2);
+    for (final Trigger t : ts) {
+      assertTrue(t.isResetOnExpire() == false);
+    }
+  }
+
   private Trigger createTrigger(final String projName, final String flowName, final String source) {
     final DateTime now = DateTime.now();
     final ConditionChecker checker1 =
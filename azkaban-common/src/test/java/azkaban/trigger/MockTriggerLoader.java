@@ -47,6 +47,13 @@ public class MockTriggerLoader implements TriggerLoader {
     this.triggers.put(t.getTriggerId(), t);
   }
 
+  @Override
+  public synchronized List<Integer> updateTriggers(final List<TriggerSnapshot> snapshots)
+      throws TriggerLoaderException {
+    // the triggers are kept by reference, so they are up to date
+    return new ArrayList<>();
+  }
+
   @Override
   public synchronized List<Trigger> loadTriggers()
       throws TriggerLoaderException {
@@ -0,0 +1,142 @@
+/*
+ * Copyright 2018 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package azkaban.trigger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+import azkaban.Constants.ConfigurationKeys;
+import azkaban.executor.ExecutorManager;
+import azkaban.metrics.CommonMetrics;
+import azkaban.metrics.MetricsManager;
+import azkaban.utils.Props;
+import com.codahale.metrics.MetricRegistry;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TriggerManagerActionsTest {
+
+  private static final long SCAN_INTERVAL_MS = 50;
+
+  private final AtomicInteger updates = new AtomicInteger();
+  private final MetricRegistry metricRegistry = new MetricRegistry();
+  private TriggerManager triggerManager;
+  private Trigger trigger;
+
+  @Before
+  public void setUp() throws Exception {
+    final TriggerLoader loader = new MockTriggerLoader() {
+      @Override
+      public synchronized void updateTrigger(final Trigger t) throws TriggerLoaderException {
+        TriggerManagerActionsTest.this.updates.incrementAndGet();
+        super.updateTrigger(t);
+      }
+
+      @Override
+      public synchronized List<Integer> updateTriggers(final List<TriggerSnapshot> snapshots)
+          throws TriggerLoaderException {
+        TriggerManagerActionsTest.this.updates.addAndGet(snapshots.size());
+        return super.updateTriggers(snapshots);
+      }
+    };
+    final Props props = new Props();
+    props.put("trigger.scan.interval", SCAN_INTERVAL_MS);
+    props.put(ConfigurationKeys.TRIGGER_UPDATE_FLUSH_INTERVAL_MS, SCAN_INTERVAL_MS);
+    this.triggerManager = new TriggerManager(props, loader, mock(ExecutorManager.class),
+        new CommonMetrics(new MetricsManager(this.metricRegistry)));
+    this.triggerManager.start();
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    if (this.trigger != null) {
+      this.triggerManager.removeTrigger(this.trigger);
+    }
+    this.triggerManager.shutdown();
+  }
+
+  @Test(timeout = 10000)
+  public void testActionsRunOffTheScannerLock() throws Exception {
+    final BlockingAction action = new BlockingAction();
+    // always met, so due at every scan
+    ThresholdChecker.setVal(100);
+    this.trigger = createTrigger(new ThresholdChecker("ThresholdChecker_1", 10), action);
+    this.triggerManager.insertTrigger(this.trigger);
+    action.started.await();
+
+    // the trigger manager isn't locked by the running action
+    assertThat(this.triggerManager.getTrigger(this.trigger.getTriggerId()))
+        .isSameAs(this.trigger);
+    this.triggerManager.updateTrigger(this.trigger);
+    assertThat(this.updates.get()).isEqualTo(1);
+
+    // the trigger isn't fired again until its actions are done, nor persisted
+    Thread.sleep(SCAN_INTERVAL_MS * 5);
+    assertThat(action.runs.get()).isEqualTo(1);
+    assertThat(this.updates.get()).isEqualTo(1);
+    assertThat(this.metricRegistry.getGauges().get("trigger-action-queue-depth").getValue())
+        .isEqualTo(0L);
+
+    action.release.countDown();
+    while (this.updates.get() < 2) {
+      Thread.sleep(10);
+    }
+    assertThat(this.metricRegistry.getHistograms().get("trigger-action-lag-histogram")
+        .getCount()).isGreaterThanOrEqualTo(1);
+  }
+
+  private Trigger createTrigger(final ConditionChecker checker, final TriggerAction action) {
+    final Map<String, ConditionChecker> triggerCheckers = new HashMap<>();
+    triggerCheckers.put(checker.getId(), checker);
+    final Condition triggerCond = new Condition(triggerCheckers, checker.getId() + ".eval()");
+    final Condition expireCond = new Condition(new HashMap<>(), "false");
+    final Trigger t = new Trigger.TriggerBuilder("azkaban", "test", triggerCond, expireCond,
+        new ArrayList<>(Collections.singletonList(action))).build();
+    t.setResetOnTrigger(true);
+    return t;
+  }
+
+  private static class BlockingAction extends DummyTriggerAction {
+
+    private final AtomicInteger runs = new AtomicInteger();
+    private final CountDownLatch started = new CountDownLatch(1);
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    private BlockingAction() {
+      super("blocking");
+    }
+
+    @Override
+    public void doAction() {
+      this.runs.incrementAndGet();
+      this.started.countDown();
+      try {
+        this.release.await(10, TimeUnit.SECONDS);
+      } catch (final InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+}
@@ -59,7 +59,8 @@ public class TriggerManagerDeadlockTest {
     final ExecutorManager executorManager = new ExecutorManager(props, this.execLoader,
         new AlerterHolder(props, new Emailer(props, commonMetrics)),
         commonMetrics, this.apiGateway);
-    this.triggerManager = new TriggerManager(props, this.loader, executorManager);
+    this.triggerManager = new TriggerManager(props, this.loader, executorManager,
+        commonMetrics);
   }
 
   @After
@@ -0,0 +1,524 @@
+/*
+ * Copyright 2018 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package azkaban.trigger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+import azkaban.Constants.ConfigurationKeys;
+import azkaban.db.DatabaseOperator;
+import azkaban.executor.ExecutorManager;
+import azkaban.metrics.CommonMetrics;
+import azkaban.metrics.MetricsManager;
+import azkaban.utils.Props;
+import com.codahale.metrics.MetricRegistry;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Runs several trigger managers, as the web servers of a multi-node setup, against one db.
+ */
+public class TriggerManagerMultiNodeTest {
+
+  private static final int NUM_PARTITIONS = 8;
+  private static final long LEASE_MS = 900;
+  private static final long SCAN_INTERVAL_MS = 50;
+  private static final long TIMEOUT_MS = 20000;
+
+  private static DatabaseOperator dbOperator;
+  private final List<TriggerManager> nodes = new ArrayList<>();
+  private final Map<TriggerManager, FailingLeaseDao> leaseDaos = new HashMap<>();
+  private final Map<TriggerManager, FailingTriggerLoader> triggerLoaders = new HashMap<>();
+  private final Map<String, TriggerManager> nodesById = new HashMap<>();
+
+  @BeforeClass
+  public static void prepare() throws Exception {
+    dbOperator = azkaban.test.Utils.initTestDB();
+  }
+
+  @AfterClass
+  public static void destroyDB() throws Exception {
+    try {
+      dbOperator.update("DROP ALL OBJECTS");
+      dbOperator.update("SHUTDOWN");
+    } catch (final SQLException e) {
+      e.printStackTrace();
+    }
+  }
+
+  @Before
+  public void setUp() {
+    CountingAction.FIRES.clear();
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    for (final TriggerManager node : this.nodes) {
+      node.shutdown();
+    }
+    dbOperator.update("DELETE FROM triggers");
+    dbOperator.update("DELETE FROM trigger_partitions");
+    dbOperator.update("DELETE FROM trigger_nodes");
+  }
+
+  @Test(timeout = TIMEOUT_MS)
+  public void testPartitionsRebalanceWhenNodesJoinAndLeave() throws Exception {
+    final TriggerManager node0 = startNode("node-0");
+    startNode("node-1");
+    waitForBalancedPartitions("node-0", "node-1");
+
+    startNode("node-2");
+    waitForBalancedPartitions("node-0", "node-1", "node-2");
+
+    stopNode(node0);
+    waitForBalancedPartitions("node-1", "node-2");
+  }
+
+  @Test(timeout = TIMEOUT_MS)
+  public void testTriggersFireOnceWhenNodeShutsDown() throws Exception {
+    final TriggerManager node0 = startNode("node-0");
+    final TriggerManager node1 = startNode("node-1");
+    startNode("node-2");
+    waitForBalancedPartitions("node-0", "node-1", "node-2");
+
+    final int numTriggers = 40;
+    insertTriggers(node0, numTriggers, 3000);
+    Thread.sleep(1000);
+    stopNode(node1);
+
+    waitForFires(numTriggers);
+    // the fired triggers expired, and were removed by their owners
+    waitFor(() -> node0.getTriggers().isEmpty());
+    assertFiredOnce(numTriggers);
+  }
+
+  @Test(timeout = TIMEOUT_MS)
+  public void testTriggersFireOnceWhenNodeLosesItsLeases() throws Exception {
+    final TriggerManager node0 = startNode("node-0");
+    final TriggerManager node1 = startNode("node-1");
+    startNode("node-2");
+    waitForBalancedPartitions("node-0", "node-1", "node-2");
+
+    final int numTriggers = 40;
+    insertTriggers(node0, numTriggers, 3000);
+    Thread.sleep(1000);
+    // node-1 can't heartbeat anymore: it stops firing before its leases expire, and the other
+    // nodes take its partitions once they did
+    this.leaseDaos.get(node1).failing = true;
+    waitForBalancedPartitions("node-0", "node-2");
+
+    waitForFires(numTriggers);
+    waitFor(() -> node0.getTriggers().isEmpty());
+    assertFiredOnce(numTriggers);
+  }
+
+  @Test(timeout = TIMEOUT_MS)
+  public void testChangesAreSyncedBetweenNodes() throws Exception {
+    final TriggerManager node0 = startNode("node-0");
+    final TriggerManager node1 = startNode("node-1");
+    waitForBalancedPartitions("node-0", "node-1");
+
+    final Trigger t = createTrigger(Long.MAX_VALUE);
+    node0.insertTrigger(t);
+    waitFor(() -> node1.getTrigger(t.getTriggerId()) != null);
+    assertThat(node1.getTriggerUpdates("azkaban", 0)).hasSize(1);
+
+    final long lastUpdateTime = node1.getTrigger(t.getTriggerId()).getLastModifyTime();
+    node0.removeTrigger(t.getTriggerId());
+    waitFor(() -> node1.getTrigger(t.getTriggerId()) == null);
+    // the schedules of node-1 see the trigger expire
+    final List<Trigger> updates = node1.getTriggerUpdates("azkaban", lastUpdateTime);
+    assertThat(updates).hasSize(1);
+    assertThat(updates.get(0).getStatus()).isEqualTo(TriggerStatus.EXPIRED);
+  }
+
+  @Test(timeout = TIMEOUT_MS)
+  public void testChangeOnOtherNodeWinsOverFiredState() throws Exception {
+    final TriggerManager node0 = startNode("node-0");
+    final TriggerManager node1 = startNode("node-1");
+    waitForBalancedPartitions("node-0", "node-1");
+
+    // fired at every scan once due
+    final Trigger t = createTrigger(System.currentTimeMillis() + 200);
+    t.setResetOnTrigger(true);
+    node0.insertTrigger(t);
+    final int id = t.getTriggerId();
+    final String actionId = t.getTriggerActions().get(0).getId();
+    final TriggerManager owner = getOwner(id);
+    final TriggerManager other = owner == node0 ? node1 : node0;
+    waitFor(() -> other.getTrigger(id) != null);
+
+    // the owner fires the trigger, but can't persist it yet
+    this.triggerLoaders.get(owner).failing = true;
+    waitFor(() -> CountingAction.FIRES.containsKey(actionId));
+    // the other node pauses the trigger meanwhile
+    final Trigger paused = createTrigger(Long.MAX_VALUE);
+    paused.setTriggerId(id);
+    other.updateTrigger(paused);
+    this.triggerLoaders.get(owner).failing = false;
+
+    // the fired state of the owner doesn't overwrite the change, which the owner picks up
+    waitFor(() -> getDueTime(owner.getTrigger(id)) == Long.MAX_VALUE);
+    assertThat(getDueTime(new JdbcTriggerImpl(dbOperator).loadTrigger(id)))
+        .isEqualTo(Long.MAX_VALUE);
+    final int fires = CountingAction.FIRES.get(actionId).get();
+    Thread.sleep(LEASE_MS);
+    assertThat(CountingAction.FIRES.get(actionId).get()).isEqualTo(fires);
+  }
+
+  @Test(timeout = TIMEOUT_MS)
+  public void testExpiryOnOtherNodeIsApplied() throws Exception {
+    final TriggerManager node0 = startNode("node-0");
+    final TriggerManager node1 = startNode("node-1");
+    waitForBalancedPartitions("node-0", "node-1");
+
+    final Trigger t = createTrigger(Long.MAX_VALUE);
+    node0.insertTrigger(t);
+    final int id = t.getTriggerId();
+    final TriggerManager owner = getOwner(id);
+    final TriggerManager other = owner == node0 ? node1 : node0;
+    waitFor(() -> other.getTrigger(id) != null);
+
+    other.expireTrigger(id);
+    // the owner removes the expired trigger, and the other node syncs the removal
+    waitFor(() -> owner.getTrigger(id) == null);
+    waitFor(() -> other.getTrigger(id) == null);
+    assertThat(new JdbcTriggerImpl(dbOperator).loadTriggerIds()).doesNotContain(id);
+  }
+
+  private TriggerManager startNode(final String nodeId) throws Exception {
+    final Props props = new Props();
+    props.put("trigger.scan.interval", SCAN_INTERVAL_MS);
+    props.put(ConfigurationKeys.TRIGGER_UPDATE_FLUSH_INTERVAL_MS, SCAN_INTERVAL_MS);
+    props.put(ConfigurationKeys.TRIGGER_MULTINODE_ENABLED, "true");
+    props.put(ConfigurationKeys.TRIGGER_PARTITIONS, NUM_PARTITIONS);
+    props.put(ConfigurationKeys.TRIGGER_LEASE_MS, LEASE_MS);
+    props.put(ConfigurationKeys.TRIGGER_NODE_ID, nodeId);
+    final FailingLeaseDao leaseDao = new FailingLeaseDao(dbOperator);
+    final FailingTriggerLoader triggerLoader = new FailingTriggerLoader(dbOperator);
+    final TriggerManager node = new TriggerManager(props, triggerLoader,
+        mock(ExecutorManager.class), new CommonMetrics(new MetricsManager(new MetricRegistry())),
+        leaseDao);
+    node.registerCheckerType(DueChecker.type, DueChecker.class);
+    node.registerActionType(CountingAction.type, CountingAction.class);
+    node.start();
+    this.nodes.add(node);
+    this.leaseDaos.put(node, leaseDao);
+    this.triggerLoaders.put(node, triggerLoader);
+    this.nodesById.put(nodeId, node);
+    return node;
+  }
+
+  private void stopNode(final TriggerManager node) {
+    this.nodes.remove(node);
+    node.shutdown();
+  }
+
+  private void insertTriggers(final TriggerManager node, final int numTriggers,
+      final long periodMs) throws Exception {
+    final long now = System.currentTimeMillis();
+    for (int i = 0; i < numTriggers; i++) {
+      node.insertTrigger(createTrigger(now + 200 + i * periodMs / numTriggers));
+    }
+  }
+
+  private void waitForBalancedPartitions(final String... nodeIds) throws Exception {
+    final TriggerLeaseDao leaseDao = new TriggerLeaseDao(dbOperator);
+    final Set<String> expected = new HashSet<>();
+    Collections.addAll(expected, nodeIds);
+    waitFor(() -> {
+      final Map<Integer, String> owners;
+      try {
+        owners = leaseDao.fetchPartitionOwners();
+      } catch (final TriggerLoaderException e) {
+        throw new RuntimeException(e);
+      }
+      final Map<String, AtomicInteger> counts = new HashMap<>();
+      for (final String owner : owners.values()) {
+        if (owner == null) {
+          return false;
+        }
+        counts.computeIfAbsent(owner, o -> new AtomicInteger()).incrementAndGet();
+      }
+      if (owners.size() != NUM_PARTITIONS || !counts.keySet().equals(expected)) {
+        return false;
+      }
+      for (final AtomicInteger count : counts.values()) {
+        if (count.get() < NUM_PARTITIONS / nodeIds.length) {
+          return false;
+        }
+      }
+      return true;
+    });
+  }
+
+  private TriggerManager getOwner(final int triggerId) throws TriggerLoaderException {
+    final String owner = new TriggerLeaseDao(dbOperator).fetchPartitionOwners()
+        .get(Math.floorMod(triggerId, NUM_PARTITIONS));
+    return this.nodesById.get(owner);
+  }
+
+  private static long getDueTime(final Trigger t) {
+    return ((DueChecker) t.getTriggerCondition().getCheckers().get("DueChecker_1")).dueTime;
+  }
+
+  private void waitForFires(final int numTriggers) throws Exception {
+    waitFor(() -> CountingAction.FIRES.size() == numTriggers);
+  }
+
+  private void assertFiredOnce(final int numTriggers) throws Exception {
+    // no late fire of a trigger by a former owner
+    Thread.sleep(LEASE_MS);
+    assertThat(CountingAction.FIRES).hasSize(numTriggers);
+    for (final Map.Entry<String, AtomicInteger> fires : CountingAction.FIRES.entrySet()) {
+      assertThat(fires.getValue().get()).as(fires.getKey()).isEqualTo(1);
+    }
+  }
+
+  private static void waitFor(final BooleanSupplier condition) throws Exception {
+    while (!condition.getAsBoolean()) {
+      Thread.sleep(50);
+    }
+  }
+
+  /**
+   * @return the JSON object of a checker or an action, typed as their createFromJson expect it
+   */
+  private static HashMap<String, Object> toJsonObject(final Object obj) {
+    final HashMap<String, Object> jsonObj = new HashMap<>();
+    ((Map<?, ?>) obj).forEach((key, value) -> jsonObj.put((String) key, value));
+    return jsonObj;
+  }
+
+  private static final AtomicInteger nextActionId = new AtomicInteger();
+
+  private static Trigger createTrigger(final long dueTime) {
+    final DueChecker checker = new DueChecker("DueChecker_1", dueTime);
+    final Map<String, ConditionChecker> checkers = new HashMap<>();
+    checkers.put(checker.getId(), checker);
+    final Condition triggerCond = new Condition(checkers, checker.getId() + ".eval()");
+    final Condition expireCond = new Condition(new HashMap<>(), "false");
+    final List<TriggerAction> actions = new ArrayList<>();
+    actions.add(new CountingAction("action-" + nextActionId.incrementAndGet()));
+    final Trigger t = new Trigger.TriggerBuilder("azkaban", "azkaban", triggerCond, expireCond,
+        actions).build();
+    // fired once, then removed
+    t.setResetOnTrigger(false);
+    return t;
+  }
+
+  /**
+   * A lease dao whose db becomes unreachable.
+   */
+  private static class FailingLeaseDao extends TriggerLeaseDao {
+
+    private volatile boolean failing = false;
+
+    private FailingLeaseDao(final DatabaseOperator dbOperator) {
+      super(dbOperator);
+    }
+
+    @Override
+    void heartbeat(final String nodeId, final long time) throws TriggerLoaderException {
+      checkFailing();
+      super.heartbeat(nodeId, time);
+    }
+
+    @Override
+    boolean acquire(final int partition, final String nodeId, final long time, final long expiry)
+        throws TriggerLoaderException {
+      checkFailing();
+      return super.acquire(partition, nodeId, time, expiry);
+    }
+
+    @Override
+    void release(final int partition, final String nodeId) throws TriggerLoaderException {
+      checkFailing();
+      super.release(partition, nodeId);
+    }
+
+    @Override
+    void removeNode(final String nodeId) throws TriggerLoaderException {
+      checkFailing();
+      super.removeNode(nodeId);
+    }
+
+    private void checkFailing() throws TriggerLoaderException {
+      if (this.failing) {
+        throw new TriggerLoaderException("DB unreachable");
+      }
+    }
+  }
+
+  /**
+   * A trigger loader whose fired state writes fail.
+   */
+  private static class FailingTriggerLoader extends JdbcTriggerImpl {
+
+    private volatile boolean failing = false;
+
+    private FailingTriggerLoader(final DatabaseOperator dbOperator) {
+      super(dbOperator);
+    }
+
+    @Override
+    public List<Integer> updateTriggers(final List<TriggerSnapshot> snapshots)
+        throws TriggerLoaderException {
+      if (this.failing) {
+        throw new TriggerLoaderException("DB unreachable");
+      }
+      return super.updateTriggers(snapshots);
+    }
+  }
+
+  /**
+   * Met once its due time is past.
+   */
+  public static class DueChecker implements ConditionChecker {
+
+    public static final String type = "DueChecker";
+    private final String id;
+    private final long dueTime;
+
+    public DueChecker(final String id, final long dueTime) {
+      this.id = id;
+      this.dueTime = dueTime;
+    }
+
+    public static DueChecker createFromJson(final HashMap<String, Object> jsonObj) {
+      return new DueChecker((String) jsonObj.get("id"),
+          Long.valueOf((String) jsonObj.get("dueTime")));
+    }
+
+    @Override
+    public Object eval() {
+      return System.currentTimeMillis() >= this.dueTime;
+    }
+
+    @Override
+    public Object getNum() {
+      return null;
+    }
+
+    @Override
+    public void reset() {
+    }
+
+    @Override
+    public String getId() {
+      return this.id;
+    }
+
+    @Override
+    public String getType() {
+      return type;
+    }
+
+    @Override
+    public ConditionChecker fromJson(final Object obj) {
+      return createFromJson(toJsonObject(obj));
+    }
+
+    @Override
+    public Object toJson() {
+      final Map<String, Object> jsonObj = new HashMap<>();
+      jsonObj.put("id", this.id);
+      jsonObj.put("dueTime", String.valueOf(this.dueTime));
+      return jsonObj;
+    }
+
+    @Override
+    public void stopChecker() {
+    }
+
+    @Override
+    public void setContext(final Map<String, Object> context) {
+    }
+
+    @Override
+    public long getNextCheckTime() {
+      return this.dueTime;
+    }
+  }
+
+  /**
+   * Counts its fires.
+   */
+  public static class CountingAction implements TriggerAction {
+
+    public static final String type = "CountingAction";
+    private static final Map<String, AtomicInteger> FIRES = new ConcurrentHashMap<>();
+    private final String id;
+
+    public CountingAction(final String id) {
+      this.id = id;
+    }
+
+    public static CountingAction createFromJson(final HashMap<String, Object> jsonObj) {
+      return new CountingAction((String) jsonObj.get("id"));
+    }
+
+    @Override
+    public String getId() {
+      return this.id;
+    }
+
+    @Override
+    public String getType() {
+      return type;
+    }
+
+    @Override
+    public TriggerAction fromJson(final Object obj) {
+      return createFromJson(toJsonObject(obj));
+    }
+
+    @Override
+    public Object toJson() {
+      final Map<String, Object> jsonObj = new HashMap<>();
+      jsonObj.put("id", this.id);
+      return jsonObj;
+    }
+
+    @Override
+    public void doAction() {
+      FIRES.computeIfAbsent(this.id, id -> new AtomicInteger()).incrementAndGet();
+    }
+
+    @Override
+    public void setContext(final Map<String, Object> context) {
+    }
+
+    @Override
+    public String getDescription() {
+      return "counts its fires";
+    }
+  }
+}
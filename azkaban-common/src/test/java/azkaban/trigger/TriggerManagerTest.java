@@ -22,9 +22,12 @@ import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.mock;
 
 import azkaban.executor.ExecutorManager;
+import azkaban.metrics.CommonMetrics;
+import azkaban.metrics.MetricsManager;
 import azkaban.trigger.builtin.BasicTimeChecker;
 import azkaban.utils.Props;
 import azkaban.utils.Utils;
+import com.codahale.metrics.MetricRegistry;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -55,7 +58,8 @@ public class TriggerManagerTest {
   public void setup() throws TriggerException, TriggerManagerException {
     final Props props = new Props();
     props.put("trigger.scan.interval", 300);
-    this.triggerManager = new TriggerManager(props, triggerLoader, executorManager);
+    this.triggerManager = new TriggerManager(props, triggerLoader, executorManager,
+        new CommonMetrics(new MetricsManager(new MetricRegistry())));
     this.triggerManager.registerCheckerType(ThresholdChecker.type,
         ThresholdChecker.class);
     this.triggerManager.registerActionType(DummyTriggerAction.type,
@@ -220,6 +224,13 @@ public class TriggerManagerTest {
       this.triggers.put(t.getTriggerId(), t);
     }
 
+    @Override
+    public List<Integer> updateTriggers(final List<TriggerSnapshot> snapshots)
+        throws TriggerLoaderException {
+      // the triggers are kept by reference, so they are up to date
+      return new ArrayList<>();
+    }
+
     @Override
     public List<Trigger> loadTriggers() {
       return new ArrayList<>(this.triggers.values());
@@ -0,0 +1,124 @@
+/*
+ * Copyright 2018 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package azkaban.trigger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import azkaban.test.Benchmark;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.apache.log4j.Logger;
+import org.joda.time.DateTimeUtils;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+/**
+ * Measures the scan cycles of the trigger scanner with 100k triggers, against the full scan which
+ * checked every trigger at each cycle: a cycle firing the 1% of the triggers which are due, then a
+ * cycle with no trigger due.
+ */
+@Category(Benchmark.class)
+public class TriggerScheduleBenchmarkTest {
+
+  private static final Logger logger = Logger.getLogger(TriggerScheduleBenchmarkTest.class);
+  private static final int NUM_TRIGGERS = Integer.getInteger("azkaban.benchmark.triggers",
+      100000);
+  private static final int DUE_EVERY = 100;
+
+  @Test
+  public void testScanCycle() throws Exception {
+    final long now = DateTimeUtils.currentTimeMillis();
+    // warms up the evaluation of the conditions
+    for (final Trigger t : createTriggers(now, 1000)) {
+      checkTrigger(t);
+    }
+
+    final List<Trigger> triggers = createTriggers(now, NUM_TRIGGERS);
+    final TriggerSchedule schedule = new TriggerSchedule();
+    for (final Trigger t : triggers) {
+      schedule.schedule(t, t.getNextCheckTime());
+    }
+    final List<Trigger> fired = new ArrayList<>();
+    final Operation scheduleCycle = () -> {
+      for (final Trigger t : schedule.pollDue(now)) {
+        if (checkTrigger(t)) {
+          fired.add(t);
+        }
+        schedule.schedule(t, t.getNextCheckTime());
+      }
+    };
+    final long scheduleMs = time(scheduleCycle);
+    final long scheduleIdleMs = time(scheduleCycle);
+
+    final List<Trigger> baseline = createTriggers(now, NUM_TRIGGERS);
+    final List<Trigger> baselineFired = new ArrayList<>();
+    final Operation baselineCycle = () -> {
+      for (final Trigger t : baseline) {
+        if (checkTrigger(t)) {
+          baselineFired.add(t);
+        }
+        t.updateNextCheckTime();
+      }
+    };
+    final long baselineMs = time(baselineCycle);
+    final long baselineIdleMs = time(baselineCycle);
+
+    logger.info(String.format("%d triggers: cycle firing %d triggers %d ms (full scan %d ms), "
+            + "idle cycle %d ms (full scan %d ms)", NUM_TRIGGERS, fired.size(), scheduleMs,
+        baselineMs, scheduleIdleMs, baselineIdleMs));
+
+    assertThat(fired).hasSize(NUM_TRIGGERS / DUE_EVERY);
+    assertThat(baselineFired).hasSize(fired.size());
+    assertThat(schedule.size()).isEqualTo(NUM_TRIGGERS);
+    assertThat(schedule.getNextDueTime()).isGreaterThan(now);
+  }
+
+  // as the scanner does, without the actions
+  private boolean checkTrigger(final Trigger t) {
+    if (t.getExpireCondition().getExpression().contains("EndTimeChecker") && t
+        .expireConditionMet()) {
+      return false;
+    }
+    if (t.triggerConditionMet()) {
+      t.resetTriggerConditions();
+      return true;
+    }
+    return false;
+  }
+
+  private List<Trigger> createTriggers(final long now, final int numTriggers) {
+    final Random random = new Random(1);
+    final List<Trigger> triggers = new ArrayList<>();
+    for (int triggerId = 1; triggerId <= numTriggers; triggerId++) {
+      final long nextCheckTime = triggerId % DUE_EVERY == 0 ? now - 1000
+          : now + 60000 + random.nextInt(24 * 3600 * 1000);
+      triggers.add(TriggerScheduleTest.createTrigger(triggerId, nextCheckTime));
+    }
+    return triggers;
+  }
+
+  private long time(final Operation operation) throws Exception {
+    final long start = System.nanoTime();
+    operation.run();
+    return (System.nanoTime() - start) / 1000000;
+  }
+
+  private interface Operation {
+
+    void run() throws Exception;
+  }
+}
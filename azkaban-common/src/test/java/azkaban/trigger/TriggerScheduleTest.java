@@ -0,0 +1,100 @@
+/*
+ * Copyright 2018 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package azkaban.trigger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import azkaban.trigger.builtin.BasicTimeChecker;
+import azkaban.utils.Utils;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.joda.time.DateTimeUtils;
+import org.joda.time.DateTimeZone;
+import org.junit.Test;
+
+public class TriggerScheduleTest {
+
+  // the clock of the time checkers
+  private final long now = DateTimeUtils.currentTimeMillis();
+
+  @Test
+  public void testPollDueInDueTimeOrder() {
+    final TriggerSchedule schedule = new TriggerSchedule();
+    final Trigger first = createTrigger(1, this.now - 2000);
+    final Trigger second = createTrigger(2, this.now - 1000);
+    final Trigger later = createTrigger(3, this.now + 60000);
+    schedule.schedule(second, second.getNextCheckTime());
+    schedule.schedule(later, later.getNextCheckTime());
+    schedule.schedule(first, first.getNextCheckTime());
+
+    assertThat(schedule.pollDue(this.now)).containsExactly(first, second);
+    assertThat(schedule.pollDue(this.now)).isEmpty();
+    assertThat(schedule.size()).isEqualTo(1);
+    assertThat(schedule.getNextDueTime()).isEqualTo(this.now + 60000);
+  }
+
+  @Test
+  public void testScheduleAgainReplacesDueTime() {
+    final TriggerSchedule schedule = new TriggerSchedule();
+    final Trigger t = createTrigger(1, this.now - 1000);
+    schedule.schedule(t, t.getNextCheckTime());
+
+    // fired, its checker moves to the next period
+    t.resetTriggerConditions();
+    schedule.schedule(t, t.getNextCheckTime());
+
+    assertThat(schedule.size()).isEqualTo(1);
+    assertThat(schedule.pollDue(this.now)).isEmpty();
+    assertThat(schedule.getNextDueTime()).isGreaterThan(this.now);
+    assertThat(schedule.pollDue(schedule.getNextDueTime())).containsExactly(t);
+  }
+
+  @Test
+  public void testUnschedule() {
+    final TriggerSchedule schedule = new TriggerSchedule();
+    final Trigger t = createTrigger(1, this.now - 1000);
+    schedule.schedule(t, t.getNextCheckTime());
+    schedule.unschedule(t);
+    schedule.unschedule(null);
+
+    assertThat(schedule.size()).isEqualTo(0);
+    assertThat(schedule.pollDue(this.now)).isEmpty();
+    assertThat(schedule.getNextDueTime()).isEqualTo(Long.MAX_VALUE);
+  }
+
+  static Trigger createTrigger(final int triggerId, final long nextCheckTime) {
+    final ConditionChecker timeChecker = new BasicTimeChecker("BasicTimeChecker_1",
+        nextCheckTime, DateTimeZone.UTC, nextCheckTime, true, true,
+        Utils.parsePeriodString("1d"), null);
+    final ConditionChecker endTimeChecker = new BasicTimeChecker("EndTimeChecker_1", 111L,
+        DateTimeZone.UTC, 2536871155000L, false, false, null, null);
+    final Trigger t = new Trigger.TriggerBuilder("azkaban", "azkaban",
+        createCondition(timeChecker), createCondition(endTimeChecker),
+        new ArrayList<>(Collections.singletonList(new DummyTriggerAction(""))))
+        .setId(triggerId).build();
+    t.updateNextCheckTime();
+    return t;
+  }
+
+  private static Condition createCondition(final ConditionChecker checker) {
+    final Map<String, ConditionChecker> checkers = new HashMap<>();
+    checkers.put(checker.getId(), checker);
+    return new Condition(checkers, checker.getId() + ".eval()");
+  }
+}
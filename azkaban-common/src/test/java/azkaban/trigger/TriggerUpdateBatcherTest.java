@@ -0,0 +1,171 @@
+/*
+ * Copyright 2018 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package azkaban.trigger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TriggerUpdateBatcherTest {
+
+  private final List<List<Integer>> batches = new ArrayList<>();
+  private final List<TriggerSnapshot> snapshots = new ArrayList<>();
+  private final Set<Integer> changedInDb = new HashSet<>();
+  private final List<Integer> rejected = new ArrayList<>();
+  private boolean failing = false;
+  private TriggerUpdateBatcher batcher;
+
+  @Before
+  public void setUp() {
+    final TriggerLoader loader = new MockTriggerLoader() {
+      @Override
+      public List<Integer> updateTriggers(final List<TriggerSnapshot> snapshots)
+          throws TriggerLoaderException {
+        if (TriggerUpdateBatcherTest.this.failing) {
+          throw new TriggerLoaderException("DB is down");
+        }
+        TriggerUpdateBatcherTest.this.batches.add(snapshots.stream()
+            .map(TriggerSnapshot::getTriggerId).collect(Collectors.toList()));
+        TriggerUpdateBatcherTest.this.snapshots.addAll(snapshots);
+        return snapshots.stream().map(TriggerSnapshot::getTriggerId)
+            .filter(TriggerUpdateBatcherTest.this.changedInDb::contains)
+            .collect(Collectors.toList());
+      }
+    };
+    // flushed by the tests
+    this.batcher = new TriggerUpdateBatcher(loader, 3600 * 1000, this.rejected::addAll);
+  }
+
+  @After
+  public void tearDown() {
+    this.batcher.shutdown();
+  }
+
+  private void update(final Trigger t) {
+    this.batcher.update(t, t.getLastModifyTime());
+  }
+
+  @Test
+  public void testUpdatesCoalescedPerTrigger() {
+    final Trigger t1 = TriggerScheduleTest.createTrigger(1, 0);
+    final Trigger t2 = TriggerScheduleTest.createTrigger(2, 0);
+    update(t1);
+    update(t2);
+    update(t1);
+    assertThat(this.batcher.getNumPending()).isEqualTo(2);
+
+    this.batcher.flush();
+    assertThat(this.batches).containsExactly(Arrays.asList(1, 2));
+    assertThat(this.batcher.getNumPending()).isEqualTo(0);
+  }
+
+  @Test
+  public void testBatchesCapped() {
+    for (int i = 0; i < TriggerUpdateBatcher.MAX_BATCH_SIZE + 1; i++) {
+      update(TriggerScheduleTest.createTrigger(i, 0));
+    }
+    this.batcher.flush();
+    assertThat(this.batches).hasSize(2);
+    assertThat(this.batches.get(0)).hasSize(TriggerUpdateBatcher.MAX_BATCH_SIZE);
+    assertThat(this.batches.get(1)).hasSize(1);
+  }
+
+  @Test
+  public void testDiscard() {
+    final Trigger t1 = TriggerScheduleTest.createTrigger(1, 0);
+    update(t1);
+    this.batcher.discard(t1);
+    this.batcher.discard(null);
+    this.batcher.flush();
+    assertThat(this.batches).isEmpty();
+  }
+
+  @Test
+  public void testFailedBatchRetried() {
+    final Trigger t1 = TriggerScheduleTest.createTrigger(1, 0);
+    update(t1);
+    this.failing = true;
+    this.batcher.flush();
+    assertThat(this.batcher.getNumPending()).isEqualTo(1);
+
+    this.failing = false;
+    this.batcher.flush();
+    assertThat(this.batches).containsExactly(Collections.singletonList(1));
+  }
+
+  @Test
+  public void testWritesStateAtUpdate() {
+    final Trigger t1 = TriggerScheduleTest.createTrigger(1, 0);
+    update(t1);
+    final long modifyTime = t1.getLastModifyTime();
+    // fired again, but not updated yet
+    t1.setStatus(TriggerStatus.EXPIRED);
+    t1.setLastModifyTime(modifyTime + 1000);
+
+    this.batcher.flush();
+    assertThat(this.snapshots).hasSize(1);
+    assertThat(this.snapshots.get(0).getLastModifyTime()).isEqualTo(modifyTime);
+    assertThat(this.snapshots.get(0).getJson()).contains("\"status\":\"READY\"")
+        .doesNotContain(TriggerStatus.EXPIRED.toString());
+  }
+
+  @Test
+  public void testCoalescedUpdateKeepsItsBase() {
+    final Trigger t1 = TriggerScheduleTest.createTrigger(1, 0);
+    t1.setLastModifyTime(1000);
+    this.batcher.update(t1, 1000);
+    this.batcher.update(t1, t1.getLastModifyTime());
+    this.batcher.flush();
+    assertThat(this.snapshots).hasSize(1);
+    assertThat(this.snapshots.get(0).getBaseModifyTime()).isEqualTo(1000);
+  }
+
+  @Test
+  public void testFailedUpdateKeepsItsBase() {
+    final Trigger t1 = TriggerScheduleTest.createTrigger(1, 0);
+    t1.setLastModifyTime(1000);
+    this.batcher.update(t1, 1000);
+    this.failing = true;
+    this.batcher.flush();
+    // updated again after the failure, based on the state which wasn't written
+    this.batcher.update(t1, t1.getLastModifyTime());
+
+    this.failing = false;
+    this.batcher.flush();
+    assertThat(this.snapshots).hasSize(1);
+    assertThat(this.snapshots.get(0).getBaseModifyTime()).isEqualTo(1000);
+  }
+
+  @Test
+  public void testRejectedUpdatesReported() {
+    this.changedInDb.add(2);
+    update(TriggerScheduleTest.createTrigger(1, 0));
+    update(TriggerScheduleTest.createTrigger(2, 0));
+    this.batcher.flush();
+    assertThat(this.batches).containsExactly(Arrays.asList(1, 2));
+    assertThat(this.rejected).containsExactly(2);
+    assertThat(this.batcher.getNumPending()).isEqualTo(0);
+  }
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright 2018 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package azkaban.utils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.charset.StandardCharsets;
+import org.junit.Test;
+
+public class LogTailTest {
+
+  private final LogTail tail = new LogTail(10, 8);
+
+  @Test
+  public void testFollowersShareTheAppendedBytes() throws Exception {
+    final LogTail.Follower first = this.tail.follow(10);
+    final LogTail.Follower second = this.tail.follow(10);
+    append("abc");
+    assertThat(take(first)).isEqualTo("abc");
+    assertThat(take(second)).isEqualTo("abc");
+    assertThat(this.tail.getPosition()).isEqualTo(13L);
+    assertThat(first.take(0)).isEmpty();
+  }
+
+  @Test
+  public void testFollowFromOffset() throws Exception {
+    final LogTail.Follower follower = this.tail.follow(12);
+    assertThat(follower.getStartPosition()).isEqualTo(10L);
+    append("a");
+    append("bcd");
+    assertThat(take(follower)).isEqualTo("cd");
+  }
+
+  @Test
+  public void testFinish() throws Exception {
+    final LogTail.Follower follower = this.tail.follow(10);
+    append("abc");
+    this.tail.finish();
+    assertThat(follower.isComplete()).isFalse();
+    assertThat(take(follower)).isEqualTo("abc");
+    assertThat(follower.take(0)).isNull();
+    assertThat(follower.isComplete()).isTrue();
+    assertThat(this.tail.follow(13).isComplete()).isTrue();
+  }
+
+  @Test
+  public void testFollowerOverflows() throws Exception {
+    final LogTail.Follower slow = this.tail.follow(10);
+    final LogTail.Follower fast = this.tail.follow(10);
+    append("abcde");
+    assertThat(take(fast)).isEqualTo("abcde");
+    append("fghij");
+    assertThat(slow.isOverflowed()).isTrue();
+    assertThat(slow.take(0)).isNull();
+    assertThat(slow.isComplete()).isFalse();
+    assertThat(take(fast)).isEqualTo("fghij");
+    assertThat(this.tail.getNumFollowers()).isEqualTo(1);
+  }
+
+  @Test
+  public void testTakeWaitsForBytes() throws Exception {
+    final LogTail.Follower follower = this.tail.follow(10);
+    final Thread appender = new Thread(() -> {
+      try {
+        Thread.sleep(100);
+      } catch (final InterruptedException e) {
+        return;
+      }
+      append("abc");
+    });
+    appender.start();
+    assertThat(take(follower)).isEqualTo("abc");
+    appender.join();
+  }
+
+  @Test
+  public void testCloseFollower() throws Exception {
+    final LogTail.Follower follower = this.tail.follow(10);
+    follower.close();
+    assertThat(this.tail.getNumFollowers()).isEqualTo(0);
+    assertThat(follower.take(0)).isNull();
+  }
+
+  private void append(final String data) {
+    final byte[] bytes = data.getBytes(StandardCharsets.UTF_8);
+    this.tail.append(bytes, 0, bytes.length);
+  }
+
+  private static String take(final LogTail.Follower follower) throws Exception {
+    return new String(follower.take(5000), StandardCharsets.UTF_8);
+  }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright 2018 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package azkaban.utils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.log4j.AppenderSkeleton;
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+import org.apache.log4j.spi.LoggingEvent;
+import org.junit.Test;
+
+/**
+ * Runs a thousand processes writing lines at the same time, whose output is read by the threads of
+ * one {@link OutputPump}.
+ */
+public class OutputPumpStressTest {
+
+  private static final Logger logger = Logger.getLogger(OutputPumpStressTest.class);
+  private static final int NUM_PROCESSES = 1000;
+  private static final int NUM_LINES = 200;
+  private static final int NUM_PUMP_THREADS = 2;
+
+  @Test
+  public void testThousandChattyProcesses() throws Exception {
+    final OutputPump pump = new OutputPump(NUM_PUMP_THREADS);
+    final AtomicInteger numLines = new AtomicInteger();
+    final Logger processLogger = Logger.getLogger("OutputPumpStressTest.process");
+    processLogger.setAdditivity(false);
+    processLogger.addAppender(new AppenderSkeleton() {
+      @Override
+      protected void append(final LoggingEvent event) {
+        numLines.incrementAndGet();
+      }
+
+      @Override
+      public boolean requiresLayout() {
+        return false;
+      }
+
+      @Override
+      public void close() {
+      }
+    });
+
+    final int numPumpThreads = countPumpThreads();
+    final long start = System.currentTimeMillis();
+    final List<Process> processes = new ArrayList<>();
+    final List<OutputPump.PumpedStream> streams = new ArrayList<>();
+    try {
+      for (int i = 0; i < NUM_PROCESSES; i++) {
+        final ProcessBuilder builder = new ProcessBuilder("sh", "-c",
+            "i=0; while [ $i -lt " + NUM_LINES + " ]; do echo \"process " + i
+                + " line $i\"; i=$((i+1)); done");
+        builder.redirectErrorStream(true);
+        final Process process = builder.start();
+        processes.add(process);
+        streams.add(pump.pump(process.getInputStream(), StandardCharsets.UTF_8,
+            process::isAlive, processLogger, Level.INFO, 30));
+      }
+      // the threads of other pumps of the JVM may still be exiting, but no polling thread is
+      // added for the processes. The ends of their streams are read by short lived threads.
+      assertThat(countPumpThreads()).isLessThanOrEqualTo(numPumpThreads);
+
+      for (int i = 0; i < NUM_PROCESSES; i++) {
+        assertThat(processes.get(i).waitFor()).isEqualTo(0);
+        streams.get(i).awaitCompletion(60000);
+        assertThat(streams.get(i).isComplete()).isTrue();
+      }
+    } finally {
+      for (final Process process : processes) {
+        process.destroy();
+      }
+      pump.shutdown();
+    }
+
+    logger.info(String.format("%d processes wrote %d lines each, read by %d threads in %d ms",
+        NUM_PROCESSES, NUM_LINES, NUM_PUMP_THREADS, System.currentTimeMillis() - start));
+    assertThat(numLines.get()).isEqualTo(NUM_PROCESSES * NUM_LINES);
+    assertThat(streams.get(NUM_PROCESSES - 1).getRecentLog())
+        .endsWith("process " + (NUM_PROCESSES - 1) + " line " + (NUM_LINES - 1));
+  }
+
+  private static int countPumpThreads() {
+    int count = 0;
+    for (final Thread thread : Thread.getAllStackTraces().keySet()) {
+      if (thread.getName().matches("azk-output-pump-\\d+")) {
+        count++;
+      }
+    }
+    return count;
+  }
+}
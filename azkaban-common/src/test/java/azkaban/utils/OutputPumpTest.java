@@ -0,0 +1,251 @@
+/*
+ * Copyright 2018 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package azkaban.utils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.log4j.AppenderSkeleton;
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+import org.apache.log4j.spi.LoggingEvent;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class OutputPumpTest {
+
+  private final OutputPump pump = new OutputPump(2);
+  private final Logger logger = Logger.getLogger("OutputPumpTest");
+  private final List<String> lines = new ArrayList<>();
+  private final AppenderSkeleton appender = new AppenderSkeleton() {
+    @Override
+    protected void append(final LoggingEvent event) {
+      OutputPumpTest.this.lines.add(event.getRenderedMessage());
+    }
+
+    @Override
+    public boolean requiresLayout() {
+      return false;
+    }
+
+    @Override
+    public void close() {
+    }
+  };
+
+  @Before
+  public void setUp() {
+    this.logger.addAppender(this.appender);
+  }
+
+  @After
+  public void tearDown() {
+    this.logger.removeAppender(this.appender);
+    this.pump.shutdown();
+  }
+
+  @Test
+  public void testLinesAreLogged() throws Exception {
+    final byte[] output = "first\r\nsecond\rthird \u00e9\n\nlast"
+        .getBytes(StandardCharsets.UTF_8);
+    final OutputPump.PumpedStream stream = this.pump.pump(new ByteArrayInputStream(output),
+        StandardCharsets.UTF_8, () -> false, this.logger, Level.INFO, 2);
+    stream.awaitCompletion(5000);
+
+    assertThat(stream.isComplete()).isTrue();
+    assertThat(this.lines).containsExactly("first", "second", "third \u00e9", "", "last");
+    assertThat(stream.getRecentLog()).isEqualTo(System.lineSeparator() + "last");
+  }
+
+  @Test
+  public void testStreamIsReadUntilItsEnd() throws Exception {
+    final AtomicBoolean writing = new AtomicBoolean(true);
+    final PipedOutputStream out = new PipedOutputStream();
+    final OutputPump.PumpedStream stream = this.pump.pump(new PipedInputStream(out),
+        StandardCharsets.UTF_8, writing::get, this.logger, Level.INFO, 2);
+
+    // a character split between two reads
+    final byte[] bytes = "line \u00e9\n".getBytes(StandardCharsets.UTF_8);
+    out.write(bytes, 0, 6);
+    out.flush();
+    Thread.sleep(100);
+    assertThat(stream.isComplete()).isFalse();
+    out.write(bytes, 6, bytes.length - 6);
+    writing.set(false);
+
+    // a child which inherited the pipe still writes to it after the writer is gone
+    Thread.sleep(100);
+    assertThat(stream.isComplete()).isFalse();
+    out.write("child line\n".getBytes(StandardCharsets.UTF_8));
+    out.close();
+    stream.awaitCompletion(5000);
+
+    assertThat(stream.isComplete()).isTrue();
+    assertThat(this.lines).containsExactly("line \u00e9", "child line");
+  }
+
+  @Test
+  public void testSlowStreamDoesNotDelayTheOthers() throws Exception {
+    final OutputPump singleThreadPump = new OutputPump(1);
+    final CountDownLatch blocked = new CountDownLatch(1);
+    final CountDownLatch unblock = new CountDownLatch(1);
+    final AtomicInteger numSlowLines = new AtomicInteger();
+    final Logger slowLogger = Logger.getLogger("OutputPumpTest.slow");
+    slowLogger.setAdditivity(false);
+    // slow enough to be moved to a thread of its own, then blocked
+    final AppenderSkeleton slowAppender = new AppenderSkeleton() {
+      @Override
+      protected void append(final LoggingEvent event) {
+        try {
+          if (numSlowLines.incrementAndGet() <= 3) {
+            Thread.sleep(200);
+          } else {
+            blocked.countDown();
+            unblock.await(10, TimeUnit.SECONDS);
+          }
+        } catch (final InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+
+      @Override
+      public boolean requiresLayout() {
+        return false;
+      }
+
+      @Override
+      public void close() {
+      }
+    };
+    slowLogger.addAppender(slowAppender);
+    // a process writing a line whenever the previous one was read, until it's stopped
+    final AtomicBoolean writing = new AtomicBoolean(true);
+    final InputStream slowOutput = new InputStream() {
+      private final byte[] line = "slow\n".getBytes(StandardCharsets.UTF_8);
+      private int pos = 0;
+
+      @Override
+      public int read() {
+        if (!writing.get() && this.pos == 0) {
+          return -1;
+        }
+        final int b = this.line[this.pos];
+        this.pos = (this.pos + 1) % this.line.length;
+        return b;
+      }
+
+      @Override
+      public int available() {
+        return writing.get() || this.pos > 0 ? this.line.length - this.pos : 0;
+      }
+    };
+
+    final OutputPump.PumpedStream slowStream = singleThreadPump.pump(slowOutput,
+        StandardCharsets.UTF_8, writing::get, slowLogger, Level.INFO, 1);
+    try {
+      assertThat(blocked.await(5, TimeUnit.SECONDS)).isTrue();
+
+      final OutputPump.PumpedStream stream = singleThreadPump.pump(
+          new ByteArrayInputStream("fast".getBytes(StandardCharsets.UTF_8)),
+          StandardCharsets.UTF_8, () -> false, this.logger, Level.INFO, 1);
+      stream.awaitCompletion(5000);
+      assertThat(stream.isComplete()).isTrue();
+      assertThat(this.lines).containsExactly("fast");
+    } finally {
+      writing.set(false);
+      unblock.countDown();
+      slowStream.awaitCompletion(5000);
+      singleThreadPump.shutdown();
+      slowLogger.removeAppender(slowAppender);
+    }
+  }
+
+  @Test
+  public void testIdleSlowStreamIsHandedBack() throws Exception {
+    final List<String> threadNames = new ArrayList<>();
+    final Logger slowLogger = Logger.getLogger("OutputPumpTest.handedBack");
+    slowLogger.setAdditivity(false);
+    // slow for the first lines only
+    final AppenderSkeleton slowAppender = new AppenderSkeleton() {
+      @Override
+      protected void append(final LoggingEvent event) {
+        try {
+          if (threadNames.size() < 3) {
+            Thread.sleep(200);
+          }
+        } catch (final InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+        synchronized (threadNames) {
+          threadNames.add(Thread.currentThread().getName());
+        }
+      }
+
+      @Override
+      public boolean requiresLayout() {
+        return false;
+      }
+
+      @Override
+      public void close() {
+      }
+    };
+    slowLogger.addAppender(slowAppender);
+    final AtomicBoolean writing = new AtomicBoolean(true);
+    final PipedOutputStream out = new PipedOutputStream();
+    final OutputPump.PumpedStream stream = this.pump.pump(new PipedInputStream(out),
+        StandardCharsets.UTF_8, writing::get, slowLogger, Level.INFO, 1);
+    try {
+      for (int i = 1; i <= 3; i++) {
+        out.write("slow\n".getBytes(StandardCharsets.UTF_8));
+        out.flush();
+        final int numLines = i;
+        azkaban.test.TestUtils.await().until(() -> getSize(threadNames) == numLines);
+      }
+      // the stream was moved to a thread of its own, which finds nothing more to read
+      Thread.sleep(200);
+      out.write("fast\n".getBytes(StandardCharsets.UTF_8));
+      out.flush();
+      azkaban.test.TestUtils.await().until(() -> getSize(threadNames) == 4);
+
+      synchronized (threadNames) {
+        assertThat(threadNames.get(3)).startsWith("azk-output-pump-").doesNotContain("own");
+      }
+    } finally {
+      writing.set(false);
+      out.close();
+      stream.awaitCompletion(5000);
+      slowLogger.removeAppender(slowAppender);
+    }
+  }
+
+  private static int getSize(final List<String> list) {
+    synchronized (list) {
+      return list.size();
+    }
+  }
+}
@@ -129,6 +129,27 @@ public class DatabaseOperator {
     }
   }
 
+  /**
+   * Executes a batch of the given AZ related INSERT, UPDATE, or DELETE SQL statement, with one set
+   * of parameters per row. it will call {@link AzkabanDataSource#getConnection()} inside
+   * queryrunner.batch.
+   *
+   * @param updateClause sql statement to execute
+   * @param params the PreparedStatement's IN parameters of each row of the batch
+   * @return The number of rows updated per row of the batch.
+   */
+  public int[] batch(final String updateClause, final Object[][] params) throws SQLException {
+    try {
+      return this.queryRunner.batch(updateClause, params);
+    } catch (final SQLException ex) {
+      logger.error("batch update failed", ex);
+      if (this.dbMetrics != null) {
+        this.dbMetrics.markDBFailUpdate();
+      }
+      throw ex;
+    }
+  }
+
   /**
    * @return datasource wrapped in the database operator.
    */
@@ -107,6 +107,24 @@ public class DatabaseTransOperator {
     }
   }
 
+  /**
+   * Executes a batch of the given statement, with one set of parameters per row.
+   *
+   * @param updateClause sql statement to execute
+   * @param params the parameters of each row of the batch
+   * @return The number of rows updated per row of the batch.
+   */
+  public int[] batch(final String updateClause, final Object[][] params) throws SQLException {
+    try {
+      return this.queryRunner.batch(this.conn, updateClause, params);
+    } catch (final SQLException ex) {
+      //RETRY Logic should be implemented here if needed.
+      throw ex;
+    } finally {
+      // Note: CAN NOT CLOSE CONNECTION HERE.
+    }
+  }
+
   /**
    * @return the JDBC connection associated with this operator.
    */
@@ -17,12 +17,13 @@
 package azkaban.db;
 
 /**
- * Used for when we store text data. Plain uses UTF8 encoding.
+ * Used for when we store text data. Plain uses UTF8 encoding. Deflate is a zlib stream compressed
+ * at the fastest level, which only the execution logs use.
  */
 // TODO kunkun-tang: This class needs to move to azkaban-db module, as database module should be
 // Deprecated soon.
 public enum EncodingType {
-  PLAIN(1), GZIP(2);
+  PLAIN(1), GZIP(2), DEFLATE(3);
 
   private final int numVal;
 
@@ -36,6 +37,8 @@ public enum EncodingType {
         return PLAIN;
       case 2:
         return GZIP;
+      case 3:
+        return DEFLATE;
       default:
         return PLAIN;
     }
@@ -0,0 +1,11 @@
+CREATE TABLE execution_application_ids (
+  exec_id        INT          NOT NULL,
+  name           VARCHAR(128) NOT NULL,
+  attempt        INT          NOT NULL,
+  application_id VARCHAR(128) NOT NULL,
+  upload_time    BIGINT,
+  PRIMARY KEY (exec_id, name, attempt)
+);
+
+CREATE INDEX ex_app_id_upload_time
+  ON execution_application_ids (upload_time);
@@ -0,0 +1,14 @@
+CREATE TABLE execution_log_segments (
+  exec_id     INT NOT NULL,
+  name        VARCHAR(128),
+  attempt     INT,
+  enc_type    TINYINT,
+  start_byte  INT,
+  end_byte    INT,
+  storage_key VARCHAR(512) NOT NULL,
+  upload_time BIGINT,
+  PRIMARY KEY (exec_id, name, attempt, start_byte)
+);
+
+CREATE INDEX ex_log_segment_upload_time
+  ON execution_log_segments (upload_time);
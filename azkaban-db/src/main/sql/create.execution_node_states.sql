@@ -0,0 +1,8 @@
+CREATE TABLE execution_node_states (
+  exec_id     INT          NOT NULL,
+  node_id     VARCHAR(255) NOT NULL,
+  status      TINYINT,
+  update_time BIGINT,
+  node_data   LONGBLOB,
+  PRIMARY KEY (exec_id, node_id)
+);
@@ -0,0 +1,14 @@
+CREATE TABLE execution_search (
+  exec_id      INT NOT NULL,
+  project_term INT NOT NULL,
+  flow_term    INT NOT NULL,
+  user_term    INT NOT NULL,
+  PRIMARY KEY (exec_id)
+);
+
+CREATE INDEX ex_search_project
+  ON execution_search (project_term, exec_id);
+CREATE INDEX ex_search_flow
+  ON execution_search (flow_term, exec_id);
+CREATE INDEX ex_search_user
+  ON execution_search (user_term, exec_id);
@@ -0,0 +1,7 @@
+CREATE TABLE execution_search_terms (
+  id    INT          NOT NULL AUTO_INCREMENT,
+  field TINYINT      NOT NULL,
+  term  VARCHAR(128) NOT NULL,
+  PRIMARY KEY (id),
+  UNIQUE INDEX ex_search_term (field, term)
+);
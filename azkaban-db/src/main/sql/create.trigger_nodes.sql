@@ -0,0 +1,5 @@
+CREATE TABLE trigger_nodes (
+  node_id        VARCHAR(128) NOT NULL,
+  heartbeat_time BIGINT       NOT NULL,
+  PRIMARY KEY (node_id)
+);
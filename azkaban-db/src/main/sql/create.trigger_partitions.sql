@@ -0,0 +1,6 @@
+CREATE TABLE trigger_partitions (
+  partition_id INT    NOT NULL,
+  owner        VARCHAR(128),
+  lease_expiry BIGINT NOT NULL,
+  PRIMARY KEY (partition_id)
+);
@@ -0,0 +1,83 @@
+-- DB Migration from release 3.44.0 to 3.45.0
+--
+-- 1. Node states of running flows, see azkaban.execution.node.states.enabled.
+--
+CREATE TABLE execution_node_states (
+  exec_id     INT          NOT NULL,
+  node_id     VARCHAR(255) NOT NULL,
+  status      TINYINT,
+  update_time BIGINT,
+  node_data   LONGBLOB,
+  PRIMARY KEY (exec_id, node_id)
+);
+--
+-- 2. Index of the execution log segments kept in the Storage.
+--
+CREATE TABLE execution_log_segments (
+  exec_id     INT NOT NULL,
+  name        VARCHAR(128),
+  attempt     INT,
+  enc_type    TINYINT,
+  start_byte  INT,
+  end_byte    INT,
+  storage_key VARCHAR(512) NOT NULL,
+  upload_time BIGINT,
+  PRIMARY KEY (exec_id, name, attempt, start_byte)
+);
+
+CREATE INDEX ex_log_segment_upload_time
+  ON execution_log_segments (upload_time);
+--
+-- 3. YARN application ids found in the job logs.
+--
+CREATE TABLE execution_application_ids (
+  exec_id        INT          NOT NULL,
+  name           VARCHAR(128) NOT NULL,
+  attempt        INT          NOT NULL,
+  application_id VARCHAR(128) NOT NULL,
+  upload_time    BIGINT,
+  PRIMARY KEY (exec_id, name, attempt)
+);
+
+CREATE INDEX ex_app_id_upload_time
+  ON execution_application_ids (upload_time);
+--
+-- 4. Search index of the execution history.
+--
+CREATE TABLE execution_search_terms (
+  id    INT          NOT NULL AUTO_INCREMENT,
+  field TINYINT      NOT NULL,
+  term  VARCHAR(128) NOT NULL,
+  PRIMARY KEY (id),
+  UNIQUE INDEX ex_search_term (field, term)
+);
+
+CREATE TABLE execution_search (
+  exec_id      INT NOT NULL,
+  project_term INT NOT NULL,
+  flow_term    INT NOT NULL,
+  user_term    INT NOT NULL,
+  PRIMARY KEY (exec_id)
+);
+
+CREATE INDEX ex_search_project
+  ON execution_search (project_term, exec_id);
+CREATE INDEX ex_search_flow
+  ON execution_search (flow_term, exec_id);
+CREATE INDEX ex_search_user
+  ON execution_search (user_term, exec_id);
+--
+-- 5. Nodes and partitions of the trigger evaluation shared by the web servers.
+--
+CREATE TABLE trigger_nodes (
+  node_id        VARCHAR(128) NOT NULL,
+  heartbeat_time BIGINT       NOT NULL,
+  PRIMARY KEY (node_id)
+);
+
+CREATE TABLE trigger_partitions (
+  partition_id INT    NOT NULL,
+  owner        VARCHAR(128),
+  lease_expiry BIGINT NOT NULL,
+  PRIMARY KEY (partition_id)
+);
@@ -134,4 +134,15 @@ public class DatabaseOperatorTest {
     // 0 row is affected
     Assert.assertEquals(0, res);
   }
+
+  @Test
+  public void testBatch() throws Exception {
+    final Object[][] params = {{"1", 26}, {"2", 27}};
+    when(this.queryRunner.batch("update blah set ? = ?", params)).thenReturn(new int[]{1, 1});
+
+    final int[] res = this.dbOperator.batch("update blah set ? = ?", params);
+
+    Assert.assertArrayEquals(new int[]{1, 1}, res);
+    verify(this.queryRunner).batch("update blah set ? = ?", params);
+  }
 }
@@ -0,0 +1,106 @@
+/*
+ * Copyright 2018 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package azkaban.execapp;
+
+import azkaban.executor.ExecutorLoader;
+import azkaban.executor.ExecutorManagerException;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.apache.log4j.AppenderSkeleton;
+import org.apache.log4j.Logger;
+import org.apache.log4j.spi.LoggingEvent;
+
+/**
+ * Looks for the id of a YARN application in the messages logged by a job, e.g. when it submits a
+ * Hadoop or Spark job, and stores the first one it finds. The web server reads it to link the job
+ * to the application, instead of searching the log.
+ *
+ * The id is stored by a background thread, so a slow DB doesn't block the job's logging. If the
+ * insert fails, the next id logged by the job is stored instead.
+ */
+public class ApplicationIdAppender extends AppenderSkeleton {
+
+  private static final Logger logger = Logger.getLogger(ApplicationIdAppender.class);
+  private static final String APPLICATION_PREFIX = "application_";
+  private static final Pattern APPLICATION_ID_PATTERN = Pattern
+      .compile(APPLICATION_PREFIX + "\\d+_\\d+");
+  // one id per job attempt at most, so a single thread keeps up
+  private static final ExecutorService UPLOADER = Executors.newSingleThreadExecutor(
+      new ThreadFactoryBuilder().setDaemon(true).setNameFormat("azk-application-id-uploader")
+          .build());
+
+  private final ExecutorLoader loader;
+  private final int execId;
+  private final String name;
+  private final int attempt;
+  private final Executor uploader;
+  // set while an id is being stored, and left set once one is stored
+  private final AtomicBoolean uploading = new AtomicBoolean(false);
+
+  public ApplicationIdAppender(final ExecutorLoader loader, final int execId, final String name,
+      final int attempt) {
+    this(loader, execId, name, attempt, UPLOADER);
+  }
+
+  ApplicationIdAppender(final ExecutorLoader loader, final int execId, final String name,
+      final int attempt, final Executor uploader) {
+    this.loader = loader;
+    this.execId = execId;
+    this.name = name;
+    this.attempt = attempt;
+    this.uploader = uploader;
+  }
+
+  @Override
+  protected void append(final LoggingEvent event) {
+    final String message = event.getRenderedMessage();
+    // most messages don't hold an application id, and are skipped without running the regex
+    if (this.uploading.get() || message == null || !message.contains(APPLICATION_PREFIX)) {
+      return;
+    }
+    final Matcher matcher = APPLICATION_ID_PATTERN.matcher(message);
+    if (!matcher.find() || !this.uploading.compareAndSet(false, true)) {
+      return;
+    }
+
+    final String applicationId = matcher.group().substring(APPLICATION_PREFIX.length());
+    this.uploader.execute(() -> upload(applicationId));
+  }
+
+  private void upload(final String applicationId) {
+    try {
+      this.loader.uploadApplicationId(this.execId, this.name, this.attempt, applicationId);
+    } catch (final ExecutorManagerException e) {
+      logger.error("Error uploading application id " + applicationId + " of job " + this.name
+          + " of execution " + this.execId, e);
+      this.uploading.set(false);
+    }
+  }
+
+  @Override
+  public boolean requiresLayout() {
+    return false;
+  }
+
+  @Override
+  public void close() {
+  }
+}
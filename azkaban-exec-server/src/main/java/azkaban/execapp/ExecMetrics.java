@@ -43,5 +43,21 @@ public class ExecMetrics {
         .addGauge("EXEC-NumRunningFlows", flowRunnerManager::getNumRunningFlows);
     this.metricsManager
         .addGauge("EXEC-NumQueuedFlows", flowRunnerManager::getNumQueuedFlows);
+    this.metricsManager
+        .addGauge("EXEC-NumPreparingFlows", flowRunnerManager::getNumPreparingFlows);
+
+    final FlowPreparer flowPreparer = flowRunnerManager.getFlowPreparer();
+    this.metricsManager
+        .addHistogram("EXEC-FlowPrepareLatency", flowPreparer.getPrepareLatency());
+
+    final ProjectCacheManager projectCacheManager = flowRunnerManager.getProjectCacheManager();
+    this.metricsManager
+        .addGauge("EXEC-ProjectCacheHitRatio", projectCacheManager::getHitRatio);
+    this.metricsManager.addGauge("EXEC-ProjectCacheHits", projectCacheManager::getNumHits);
+    this.metricsManager.addGauge("EXEC-ProjectCacheMisses", projectCacheManager::getNumMisses);
+    this.metricsManager
+        .addGauge("EXEC-ProjectCacheEvictions", projectCacheManager::getNumEvictions);
+    this.metricsManager
+        .addGauge("EXEC-ProjectCacheSizeBytes", projectCacheManager::getTotalSizeBytes);
   }
 }
@@ -0,0 +1,213 @@
+/*
+ * Copyright 2018 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package azkaban.execapp;
+
+import azkaban.executor.ExecutableFlow;
+import azkaban.executor.ExecutorLoader;
+import azkaban.executor.ExecutorManagerException;
+import azkaban.executor.Status;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.apache.log4j.Logger;
+
+/**
+ * Write-behind persistence of the state of the flows running on this executor.
+ *
+ * A {@link FlowRunner} updates its flow after nearly every step of the graph, and every update
+ * rewrites the whole serialized flow in the DB. {@link #persist(ExecutableFlow)} only marks the
+ * flow as dirty. The dirty flows are written every flush interval, so all the updates of a flow
+ * during one interval are coalesced into a single write, and the flows of all executions are
+ * written together in JDBC batches. The jobs of a flow keep changing it while it waits for the next
+ * flush, so {@link #persist(ExecutableFlow)} queues a copy of the flow, taken while the caller holds
+ * the lock of its flow runner, and the flushes only write these copies.
+ *
+ * The state changes that must be durable right away (the flow finished, was paused or killed) are
+ * written with {@link #flush(ExecutableFlow)}, which returns once the flow is in the DB. A flush
+ * interval of 0 disables write-behind: every update is written synchronously.
+ *
+ * With writeNodeStates, the serialized flow is written only by the first update of a flow and
+ * when the flow finishes. The other updates only write the nodes which changed since the previous
+ * write of the flow (see {@link ExecutorLoader#updateExecutableFlowNodeStates}), one flow at a
+ * time.
+ */
+public class ExecutableFlowPersister {
+
+  private static final Logger logger = Logger.getLogger(ExecutableFlowPersister.class);
+
+  private final ExecutorLoader executorLoader;
+  private final long flushIntervalMs;
+  private final int maxBatchSize;
+  private final boolean writeNodeStates;
+  private final ScheduledExecutorService scheduler;
+
+  // copies of the dirty flows by execution id
+  private final Map<Integer, ExecutableFlow> pendingFlows = new ConcurrentHashMap<>();
+  // serializes the writes, so that an old state of a flow never overwrites a newer one
+  private final Object writeLock = new Object();
+  // time of the previous write of each running flow, when writing node states
+  private final Map<Integer, Long> lastWriteTimes = new ConcurrentHashMap<>();
+
+  public ExecutableFlowPersister(final ExecutorLoader executorLoader, final long flushIntervalMs,
+      final int maxBatchSize) {
+    this(executorLoader, flushIntervalMs, maxBatchSize, false);
+  }
+
+  public ExecutableFlowPersister(final ExecutorLoader executorLoader, final long flushIntervalMs,
+      final int maxBatchSize, final boolean writeNodeStates) {
+    this.executorLoader = executorLoader;
+    this.flushIntervalMs = flushIntervalMs;
+    this.maxBatchSize = maxBatchSize;
+    this.writeNodeStates = writeNodeStates;
+    if (flushIntervalMs > 0) {
+      this.scheduler = Executors.newSingleThreadScheduledExecutor(
+          new ThreadFactoryBuilder().setDaemon(true).setNameFormat("azk-flow-persister").build());
+      this.scheduler.scheduleWithFixedDelay(this::flushPendingFlows, flushIntervalMs,
+          flushIntervalMs, TimeUnit.MILLISECONDS);
+    } else {
+      this.scheduler = null;
+    }
+  }
+
+  /**
+   * Schedules the current state of the flow to be written with the next batch. The caller holds
+   * the lock which guards the updates of the flow.
+   */
+  public void persist(final ExecutableFlow flow) throws ExecutorManagerException {
+    if (this.scheduler == null) {
+      flush(flow);
+    } else {
+      this.pendingFlows.put(flow.getExecutionId(), snapshot(flow));
+    }
+  }
+
+  /**
+   * Writes the flow now, together with any update of it which is still pending. The caller holds
+   * the lock which guards the updates of the flow.
+   */
+  public void flush(final ExecutableFlow flow) throws ExecutorManagerException {
+    synchronized (this.writeLock) {
+      this.pendingFlows.remove(flow.getExecutionId());
+      if (this.writeNodeStates) {
+        writeNodeStates(flow);
+      } else {
+        this.executorLoader.updateExecutableFlow(flow);
+      }
+    }
+  }
+
+  public int getNumPendingFlows() {
+    return this.pendingFlows.size();
+  }
+
+  public long getFlushIntervalMs() {
+    return this.flushIntervalMs;
+  }
+
+  /**
+   * Stops the background writes and writes all the pending flows.
+   */
+  public void shutdown() {
+    if (this.scheduler != null) {
+      this.scheduler.shutdown();
+    }
+    flushPendingFlows();
+  }
+
+  /**
+   * Writes all the dirty flows, in batches of at most maxBatchSize flows. A batch which fails is
+   * retried with the next flush, unless the flow was updated again in the meantime.
+   */
+  void flushPendingFlows() {
+    synchronized (this.writeLock) {
+      if (this.writeNodeStates) {
+        flushPendingNodeStates();
+        return;
+      }
+      List<ExecutableFlow> batch = new ArrayList<>();
+      for (final Integer execId : new ArrayList<>(this.pendingFlows.keySet())) {
+        final ExecutableFlow flow = this.pendingFlows.remove(execId);
+        if (flow != null) {
+          batch.add(flow);
+        }
+        if (batch.size() >= this.maxBatchSize) {
+          writeBatch(batch);
+          batch = new ArrayList<>();
+        }
+      }
+      if (!batch.isEmpty()) {
+        writeBatch(batch);
+      }
+    }
+  }
+
+  private void flushPendingNodeStates() {
+    for (final Integer execId : new ArrayList<>(this.pendingFlows.keySet())) {
+      final ExecutableFlow flow = this.pendingFlows.remove(execId);
+      if (flow == null) {
+        continue;
+      }
+      try {
+        writeNodeStates(flow);
+      } catch (final Throwable t) {
+        logger.error("Error updating flow " + execId + ". Retrying with the next flush.", t);
+        this.pendingFlows.putIfAbsent(execId, flow);
+      }
+    }
+  }
+
+  private void writeNodeStates(final ExecutableFlow flow) throws ExecutorManagerException {
+    final int execId = flow.getExecutionId();
+    if (Status.isStatusFinished(flow.getStatus())) {
+      this.executorLoader.updateExecutableFlow(flow);
+      this.lastWriteTimes.remove(execId);
+      this.executorLoader.removeExecutableFlowNodeStates(execId);
+      return;
+    }
+
+    final long writeTime = System.currentTimeMillis();
+    final Long lastWriteTime = this.lastWriteTimes.get(execId);
+    if (lastWriteTime == null) {
+      // the first write also stores what the executor added to the flow, e.g. its execution path
+      this.executorLoader.updateExecutableFlow(flow);
+    } else {
+      // nodes updated during the millisecond of the previous write may not have been written
+      this.executorLoader.updateExecutableFlowNodeStates(flow, lastWriteTime - 1);
+    }
+    this.lastWriteTimes.put(execId, writeTime);
+  }
+
+  private static ExecutableFlow snapshot(final ExecutableFlow flow) {
+    return ExecutableFlow.createExecutableFlowFromObject(flow.toObject());
+  }
+
+  private void writeBatch(final List<ExecutableFlow> batch) {
+    try {
+      this.executorLoader.updateExecutableFlows(batch);
+    } catch (final Throwable t) {
+      logger.error("Error updating " + batch.size() + " flows. Retrying with the next flush.", t);
+      for (final ExecutableFlow flow : batch) {
+        this.pendingFlows.putIfAbsent(flow.getExecutionId(), flow);
+      }
+    }
+  }
+}
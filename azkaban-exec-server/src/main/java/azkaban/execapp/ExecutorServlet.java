@@ -27,9 +27,11 @@ import azkaban.executor.ExecutorManagerException;
 import azkaban.utils.FileIOUtils.JobMetaData;
 import azkaban.utils.FileIOUtils.LogData;
 import azkaban.utils.JSONUtils;
+import azkaban.utils.LogTail;
 import com.google.common.base.Preconditions;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.channels.Channels;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -47,6 +49,8 @@ public class ExecutorServlet extends HttpServlet implements ConnectorParams {
 
   public static final String JSON_MIME_TYPE = "application/json";
   private static final long serialVersionUID = 1L;
+  // upper bound of the time a stream request is held open, so it can't pin a jetty thread forever
+  private static final long MAX_STREAM_TIMEOUT_MS = 60 * 1000L;
   private static final Logger logger = Logger.getLogger(ExecutorServlet.class
       .getName());
   private AzkabanExecutorServer application;
@@ -96,6 +100,15 @@ public class ExecutorServlet extends HttpServlet implements ConnectorParams {
 
   public void handleRequest(final HttpServletRequest req, final HttpServletResponse resp)
       throws IOException {
+    if (LOG_STREAM_ACTION.equals(getParam(req, ACTION_PARAM, null))) {
+      handleStreamLogEvent(req, resp);
+      return;
+    }
+    if (LOG_FOLLOW_ACTION.equals(getParam(req, ACTION_PARAM, null))) {
+      handleFollowLogEvent(req, resp);
+      return;
+    }
+
     final HashMap<String, Object> respMap = new HashMap<>();
     try {
       if (!hasParam(req, ACTION_PARAM)) {
@@ -105,6 +118,8 @@ public class ExecutorServlet extends HttpServlet implements ConnectorParams {
         final String action = getParam(req, ACTION_PARAM);
         if (action.equals(UPDATE_ACTION)) {
           handleAjaxUpdateRequest(req, respMap);
+        } else if (action.equals(UPDATE_STREAM_ACTION)) {
+          handleAjaxUpdateStreamRequest(req, respMap);
         } else if (action.equals(PING_ACTION)) {
           respMap.put("status", "alive");
         } else if (action.equals(RELOAD_JOBTYPE_PLUGINS_ACTION)) {
@@ -214,6 +229,99 @@ public class ExecutorServlet extends HttpServlet implements ConnectorParams {
     }
   }
 
+  /**
+   * Writes the range of the log as it is in the file, instead of decoding it to the JSON of
+   * {@link LogData}. So the range may start or end in the middle of a character.
+   */
+  private void handleStreamLogEvent(final HttpServletRequest req, final HttpServletResponse resp)
+      throws IOException {
+    final LogFileRange range;
+    try {
+      final int execId = getIntParam(req, EXECID_PARAM);
+      final String type = getParam(req, "type");
+      final int startByte = getIntParam(req, "offset");
+      final int length = getIntParam(req, "length");
+      if (type.equals("flow")) {
+        range = this.flowRunnerManager.openFlowLogRange(execId, startByte, length);
+      } else {
+        range = this.flowRunnerManager.openJobLogRange(execId, getParam(req, "jobId"),
+            getIntParam(req, "attempt", 0), startByte, length);
+      }
+    } catch (final ServletException | ExecutorManagerException e) {
+      logger.error(e.getMessage(), e);
+      resp.sendError(HttpServletResponse.SC_NOT_FOUND, e.getMessage());
+      return;
+    }
+
+    try {
+      resp.setContentType("text/plain");
+      resp.setCharacterEncoding("utf-8");
+      resp.setContentLength((int) range.getLength());
+      range.transferTo(Channels.newChannel(resp.getOutputStream()));
+    } finally {
+      range.close();
+    }
+  }
+
+  /**
+   * Writes the bytes of the running job log from the offset as they are written, until the timeout.
+   * The {@link #LOG_FINISHED_HEADER} is true if the job had already finished writing the log, in
+   * which case the rest of the log is written at once. Otherwise the log is followed again from
+   * the offset reached.
+   */
+  private void handleFollowLogEvent(final HttpServletRequest req, final HttpServletResponse resp)
+      throws IOException {
+    LogTail.Follower follower = null;
+    final LogFileRange range;
+    final long timeoutMs;
+    try {
+      final int execId = getIntParam(req, EXECID_PARAM);
+      final String jobId = getParam(req, "jobId");
+      final int attempt = getIntParam(req, "attempt", 0);
+      final int offset = getIntParam(req, "offset");
+      timeoutMs = Math.min(MAX_STREAM_TIMEOUT_MS,
+          Long.parseLong(getParam(req, STREAM_TIMEOUT_PARAM, "0")));
+      follower = this.flowRunnerManager.followJobLog(execId, jobId, attempt, offset);
+      // the bytes written before the follower was added are read from the file
+      final long end = follower == null ? Integer.MAX_VALUE : follower.getStartPosition();
+      range = this.flowRunnerManager.openJobLogRange(execId, jobId, attempt, offset,
+          (int) Math.max(end - offset, 0));
+    } catch (final ServletException | ExecutorManagerException e) {
+      if (follower != null) {
+        follower.close();
+      }
+      logger.error(e.getMessage(), e);
+      resp.sendError(HttpServletResponse.SC_NOT_FOUND, e.getMessage());
+      return;
+    }
+
+    try {
+      resp.setContentType("text/plain");
+      resp.setCharacterEncoding("utf-8");
+      resp.setHeader(LOG_FINISHED_HEADER, String.valueOf(follower == null));
+      final OutputStream out = resp.getOutputStream();
+      range.transferTo(Channels.newChannel(out));
+      out.flush();
+      if (follower != null) {
+        final long deadline = System.currentTimeMillis() + timeoutMs;
+        long waitMs = timeoutMs;
+        byte[] data;
+        while (waitMs > 0 && (data = follower.take(waitMs)) != null) {
+          out.write(data);
+          out.flush();
+          waitMs = deadline - System.currentTimeMillis();
+        }
+      }
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } finally {
+      range.close();
+      if (follower != null) {
+        follower.close();
+      }
+    }
+  }
+
   private void handleFetchAttachmentsEvent(final int execId, final HttpServletRequest req,
       final HttpServletResponse resp, final Map<String, Object> respMap)
       throws ServletException {
@@ -254,13 +362,50 @@ public class ExecutorServlet extends HttpServlet implements ConnectorParams {
 
   private void handleAjaxUpdateRequest(final HttpServletRequest req,
       final Map<String, Object> respMap) throws ServletException, IOException {
-    final ArrayList<Object> updateTimesList =
-        (ArrayList<Object>) JSONUtils.parseJSONFromString(getParam(req,
-            UPDATE_TIME_LIST_PARAM));
-    final ArrayList<Object> execIDList =
-        (ArrayList<Object>) JSONUtils.parseJSONFromString(getParam(req,
-            EXEC_ID_LIST_PARAM));
+    final List<Object> updateTimesList = getJsonListParam(req, UPDATE_TIME_LIST_PARAM);
+    final List<Object> execIDList = getJsonListParam(req, EXEC_ID_LIST_PARAM);
+
+    respMap.put(RESPONSE_UPDATED_FLOWS, getFlowUpdates(execIDList, updateTimesList));
+  }
+
+  /**
+   * Same as {@link #handleAjaxUpdateRequest}, but if none of the given flows has changed since the
+   * given update times, holds the request until a flow on this executor changes or the timeout
+   * expires. The update times sent by the caller act as its cursor, so nothing is lost when a
+   * request fails and is retried.
+   */
+  private void handleAjaxUpdateStreamRequest(final HttpServletRequest req,
+      final Map<String, Object> respMap) throws ServletException, IOException {
+    final List<Object> updateTimesList = getJsonListParam(req, UPDATE_TIME_LIST_PARAM);
+    final List<Object> execIDList = getJsonListParam(req, EXEC_ID_LIST_PARAM);
+    final long timeoutMs = Math.min(MAX_STREAM_TIMEOUT_MS,
+        Long.parseLong(getParam(req, STREAM_TIMEOUT_PARAM, "0")));
+
+    final FlowUpdateNotifier notifier = this.flowRunnerManager.getUpdateNotifier();
+    // Read the sequence number before looking at the flows. An update made after that bumps the
+    // sequence number, so the wait below can't miss it.
+    final long sequence = notifier.getSequence();
+    List<Object> updateList = getFlowUpdates(execIDList, updateTimesList);
+    if (updateList.isEmpty()) {
+      try {
+        notifier.awaitUpdate(sequence, timeoutMs);
+      } catch (final InterruptedException e) {
+        throw new ServletException("Interrupted while waiting for flow updates.", e);
+      }
+      updateList = getFlowUpdates(execIDList, updateTimesList);
+    }
 
+    respMap.put(RESPONSE_UPDATED_FLOWS, updateList);
+  }
+
+  @SuppressWarnings("unchecked")
+  private List<Object> getJsonListParam(final HttpServletRequest req, final String name)
+      throws ServletException, IOException {
+    return (List<Object>) JSONUtils.parseJSONFromString(getParam(req, name));
+  }
+
+  private List<Object> getFlowUpdates(final List<Object> execIDList,
+      final List<Object> updateTimesList) {
     final ArrayList<Object> updateList = new ArrayList<>();
     for (int i = 0; i < execIDList.size(); ++i) {
       final long updateTime = JSONUtils.getLongFromObject(updateTimesList.get(i));
@@ -280,7 +425,7 @@ public class ExecutorServlet extends HttpServlet implements ConnectorParams {
       }
     }
 
-    respMap.put(RESPONSE_UPDATED_FLOWS, updateList);
+    return updateList;
   }
 
   private void handleAjaxExecute(final HttpServletRequest req,
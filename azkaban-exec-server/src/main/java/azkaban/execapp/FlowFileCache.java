@@ -0,0 +1,123 @@
+/*
+ * Copyright 2018 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package azkaban.execapp;
+
+import azkaban.project.FlowLoaderUtils;
+import azkaban.project.NodeBean;
+import azkaban.project.NodeBeanLoader;
+import azkaban.project.ProjectLoader;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.io.Files;
+import java.io.File;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import org.apache.log4j.Logger;
+
+/**
+ * Caches the parsed flow files ({@link NodeBean} trees) of Azkaban Flow 2.0 projects, so that a
+ * flow file isn't fetched from the DB and parsed again for every job of a flow. The least recently
+ * used flow files are evicted when the cache is full.
+ *
+ * A flow file is identified by project id, project version, file name and flow version. Overriding
+ * job properties from the UI uploads a new version of the flow file. The first version is the file
+ * from the project zip, which is read from the execution directory. Later versions are fetched
+ * from the DB.
+ */
+public class FlowFileCache {
+
+  private static final Logger logger = Logger.getLogger(FlowFileCache.class);
+
+  private final ProjectLoader projectLoader;
+  private final Cache<FlowFileKey, NodeBean> cache;
+
+  public FlowFileCache(final ProjectLoader projectLoader, final long maxSize) {
+    this.projectLoader = projectLoader;
+    this.cache = CacheBuilder.newBuilder().maximumSize(maxSize).build();
+  }
+
+  /**
+   * Returns the parsed flow file, loading it if it isn't cached. The node bean is shared, it must
+   * not be modified.
+   *
+   * @param execDir the execution directory of the flow, which contains the project files
+   */
+  public NodeBean getNodeBean(final int projectId, final int projectVersion, final String source,
+      final int flowVersion, final File execDir) throws ExecutionException {
+    return this.cache.get(new FlowFileKey(projectId, projectVersion, source, flowVersion),
+        () -> loadNodeBean(projectId, projectVersion, source, flowVersion, execDir));
+  }
+
+  public long size() {
+    return this.cache.size();
+  }
+
+  private NodeBean loadNodeBean(final int projectId, final int projectVersion,
+      final String source, final int flowVersion, final File execDir) throws Exception {
+    final NodeBeanLoader loader = new NodeBeanLoader();
+    final File installedFlowFile = new File(execDir, source);
+    if (flowVersion == 1 && installedFlowFile.exists()) {
+      return loader.load(installedFlowFile);
+    }
+
+    logger.info(String.format("Fetching version %d of flow file %s of project %d.%d", flowVersion,
+        source, projectId, projectVersion));
+    final File tempDir = Files.createTempDir();
+    try {
+      return loader.load(this.projectLoader
+          .getUploadedFlowFile(projectId, projectVersion, source, flowVersion, tempDir));
+    } finally {
+      FlowLoaderUtils.cleanUpDir(tempDir);
+    }
+  }
+
+  private static class FlowFileKey {
+
+    private final int projectId;
+    private final int projectVersion;
+    private final String source;
+    private final int flowVersion;
+
+    private FlowFileKey(final int projectId, final int projectVersion, final String source,
+        final int flowVersion) {
+      this.projectId = projectId;
+      this.projectVersion = projectVersion;
+      this.source = source;
+      this.flowVersion = flowVersion;
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (o == null || getClass() != o.getClass()) {
+        return false;
+      }
+      final FlowFileKey that = (FlowFileKey) o;
+      return this.projectId == that.projectId
+          && this.projectVersion == that.projectVersion
+          && this.flowVersion == that.flowVersion
+          && Objects.equals(this.source, that.source);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(this.projectId, this.projectVersion, this.source, this.flowVersion);
+    }
+  }
+}
@@ -27,12 +27,17 @@ import azkaban.storage.StorageManager;
 import azkaban.utils.FileIOUtils;
 import azkaban.utils.Pair;
 import azkaban.utils.Utils;
+import com.codahale.metrics.ExponentiallyDecayingReservoir;
+import com.codahale.metrics.Histogram;
 import com.google.common.annotations.VisibleForTesting;
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.StandardCopyOption;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
 import java.util.zip.ZipFile;
 import org.apache.commons.io.FileUtils;
 import org.apache.log4j.Logger;
@@ -47,16 +52,21 @@ public class FlowPreparer {
   // TODO spyne: move to config class
   private final File projectsDir;
 
-  private final Map<Pair<Integer, Integer>, ProjectVersion> installedProjects;
+  private final ProjectCacheManager projectCacheManager;
+  // installations in progress, so that the flows of a project version share one download
+  private final Map<Pair<Integer, Integer>, CompletableFuture<Void>> installations =
+      new ConcurrentHashMap<>();
   private final StorageManager storageManager;
 
+  private final Histogram prepareLatency = new Histogram(new ExponentiallyDecayingReservoir());
+
   public FlowPreparer(final StorageManager storageManager, final File executionsDir,
       final File projectsDir,
-      final Map<Pair<Integer, Integer>, ProjectVersion> installedProjects) {
+      final ProjectCacheManager projectCacheManager) {
     this.storageManager = storageManager;
     this.executionsDir = executionsDir;
     this.projectsDir = projectsDir;
-    this.installedProjects = installedProjects;
+    this.projectCacheManager = projectCacheManager;
   }
 
   /**
@@ -65,13 +75,14 @@ public class FlowPreparer {
    * @param flow Executable Flow instance.
    */
   void setup(final ExecutableFlow flow) {
+    final long startTime = System.currentTimeMillis();
     File execDir = null;
     try {
       // First get the ProjectVersion
       final ProjectVersion projectVersion = getProjectVersion(flow);
 
       // Setup the project
-      setupProject(projectVersion);
+      installProject(projectVersion);
 
       // Create the execution directory
       execDir = createExecDir(flow);
@@ -79,8 +90,10 @@ public class FlowPreparer {
       // Create the symlinks from the project
       copyCreateHardlinkDirectory(projectVersion.getInstalledDir(), execDir);
 
-      log.info(String.format("Flow Preparation complete. [execid: %d, path: %s]",
-          flow.getExecutionId(), execDir.getPath()));
+      final long latency = System.currentTimeMillis() - startTime;
+      this.prepareLatency.update(latency);
+      log.info(String.format("Flow Preparation complete. [execid: %d, path: %s, time: %d ms]",
+          flow.getExecutionId(), execDir.getPath(), latency));
     } catch (final Exception e) {
       log.error("Error in setting up project directory: " + this.projectsDir + ", Exception: " + e);
       cleanup(execDir);
@@ -88,6 +101,38 @@ public class FlowPreparer {
     }
   }
 
+  /**
+   * Installs the project, or waits for its installation if another flow of the same project
+   * version is installing it.
+   */
+  @VisibleForTesting
+  void installProject(final ProjectVersion pv)
+      throws ProjectManagerException, IOException, InterruptedException {
+    final Pair<Integer, Integer> key = new Pair<>(pv.getProjectId(), pv.getVersion());
+    final CompletableFuture<Void> installation = new CompletableFuture<>();
+    final CompletableFuture<Void> inProgress = this.installations.putIfAbsent(key, installation);
+    if (inProgress != null) {
+      log.info("Waiting for the installation of project " + pv + " by another flow.");
+      this.projectCacheManager.recordHit();
+      try {
+        inProgress.get();
+      } catch (final ExecutionException e) {
+        throw new IOException("Failed to install project " + pv, e.getCause());
+      }
+      return;
+    }
+
+    try {
+      setupProject(pv);
+      installation.complete(null);
+    } catch (final Throwable t) {
+      installation.completeExceptionally(t);
+      throw t;
+    } finally {
+      this.installations.remove(key, installation);
+    }
+  }
+
   /**
    * Prepare the project directory.
    *
@@ -107,6 +152,7 @@ public class FlowPreparer {
     // If directory exists. Assume its prepared and skip.
     if (pv.getInstalledDir().exists()) {
       log.info("Project already cached. Skipping download. " + pv);
+      this.projectCacheManager.recordHit();
       return;
     }
 
@@ -129,6 +175,7 @@ public class FlowPreparer {
       Utils.unzip(zip, tempDir);
 
       Files.move(tempDir.toPath(), pv.getInstalledDir().toPath(), StandardCopyOption.ATOMIC_MOVE);
+      this.projectCacheManager.addInstalledProject(pv);
 
       log.warn(String.format("Project Preparation complete. [%s]", pv));
     } finally {
@@ -147,7 +194,10 @@ public class FlowPreparer {
     FileIOUtils.createDeepHardlink(projectDir, execDir);
   }
 
-  private File createExecDir(final ExecutableFlow flow) {
+  /**
+   * Creates the execution directory of the flow and sets the execution path of the flow.
+   */
+  File createExecDir(final ExecutableFlow flow) {
     final int execId = flow.getExecutionId();
     final File execDir = new File(this.executionsDir, String.valueOf(execId));
     flow.setExecutionPath(execDir.getPath());
@@ -160,13 +210,7 @@ public class FlowPreparer {
   private ProjectVersion getProjectVersion(final ExecutableFlow flow) {
     // We're setting up the installed projects. First time, it may take a while
     // to set up.
-    final ProjectVersion projectVersion;
-    synchronized (this.installedProjects) {
-      projectVersion = this.installedProjects
-          .computeIfAbsent(new Pair<>(flow.getProjectId(), flow.getVersion()),
-              k -> new ProjectVersion(flow.getProjectId(), flow.getVersion()));
-    }
-    return projectVersion;
+    return this.projectCacheManager.getProjectVersion(flow.getProjectId(), flow.getVersion());
   }
 
   private void cleanup(final File execDir) {
@@ -178,4 +222,11 @@ public class FlowPreparer {
       }
     }
   }
+
+  /**
+   * @return the time taken by {@link #setup(ExecutableFlow)}, in milliseconds
+   */
+  public Histogram getPrepareLatency() {
+    return this.prepareLatency;
+  }
 }
@@ -44,6 +44,7 @@ import azkaban.jobExecutor.ProcessJob;
 import azkaban.jobtype.JobTypeManager;
 import azkaban.metric.MetricReportManager;
 import azkaban.project.FlowLoaderUtils;
+import azkaban.project.NodeBean;
 import azkaban.project.ProjectLoader;
 import azkaban.project.ProjectManagerException;
 import azkaban.sla.SlaOption;
@@ -53,7 +54,6 @@ import azkaban.utils.Props;
 import azkaban.utils.SwapQueue;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
-import com.google.common.io.Files;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
@@ -68,7 +68,6 @@ import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.RejectedExecutionException;
-import org.apache.commons.io.FileUtils;
 import org.apache.log4j.Appender;
 import org.apache.log4j.FileAppender;
 import org.apache.log4j.Layout;
@@ -117,6 +116,14 @@ public class FlowRunner extends EventHandler implements Runnable {
   private Integer pipelineExecId = null;
   // Watches external flows for execution.
   private FlowWatcher watcher = null;
+  // Wakes up the web server waiting for flow updates.
+  private FlowUpdateNotifier updateNotifier = null;
+  // Writes the state of the flow to the DB
+  private ExecutableFlowPersister flowPersister;
+  // Flow 2.0 flow file of the execution
+  private FlowFileCache flowFileCache;
+  // Uploads the logs while the flow runs
+  private LogShipper logShipper;
   private Set<String> proxyUsers = null;
   private boolean validateUserProxy;
   private String jobLogFileSize = "5MB";
@@ -152,6 +159,8 @@ public class FlowRunner extends EventHandler implements Runnable {
     this.flow = flow;
     this.executorLoader = executorLoader;
     this.projectLoader = projectLoader;
+    this.flowFileCache = new FlowFileCache(projectLoader, 1);
+    this.flowPersister = new ExecutableFlowPersister(executorLoader, 0, 1);
     this.execDir = new File(flow.getExecutionPath());
     this.jobtypeManager = jobtypeManager;
 
@@ -179,6 +188,38 @@ public class FlowRunner extends EventHandler implements Runnable {
     return this;
   }
 
+  public FlowRunner setUpdateNotifier(final FlowUpdateNotifier updateNotifier) {
+    this.updateNotifier = updateNotifier;
+    return this;
+  }
+
+  /**
+   * Writes the flow updates through the given persister. By default, every update is written to
+   * the DB synchronously.
+   */
+  public FlowRunner setFlowPersister(final ExecutableFlowPersister flowPersister) {
+    this.flowPersister = flowPersister;
+    return this;
+  }
+
+  /**
+   * Shares a cache of flow files with the other flows of the executor. By default, the flow runner
+   * only caches the flow file of its own flow.
+   */
+  public FlowRunner setFlowFileCache(final FlowFileCache flowFileCache) {
+    this.flowFileCache = flowFileCache;
+    return this;
+  }
+
+  /**
+   * Uploads the flow and job logs while the flow runs. By default, each log is uploaded when its
+   * job or flow finishes.
+   */
+  public FlowRunner setLogShipper(final LogShipper logShipper) {
+    this.logShipper = logShipper;
+    return this;
+  }
+
   public FlowRunner setNumJobThreads(final int jobs) {
     this.numJobThreads = jobs;
     return this;
@@ -240,7 +281,7 @@ public class FlowRunner extends EventHandler implements Runnable {
         this.logger.info("Setting end time for flow " + this.execId + " to "
             + System.currentTimeMillis());
         closeLogger();
-        updateFlow();
+        updateFlow(true);
       } finally {
         this.fireEventListeners(
             Event.create(this, EventType.FLOW_FINISHED, new EventData(this.flow)));
@@ -301,16 +342,27 @@ public class FlowRunner extends EventHandler implements Runnable {
   }
 
   private void updateFlow() {
-    updateFlow(System.currentTimeMillis());
+    updateFlow(false);
   }
 
-  private synchronized void updateFlow(final long time) {
+  /**
+   * @param flush whether the update must be in the DB when this method returns. Updates to a
+   * finished status are always flushed.
+   */
+  private synchronized void updateFlow(final boolean flush) {
     try {
-      this.flow.setUpdateTime(time);
-      this.executorLoader.updateExecutableFlow(this.flow);
+      this.flow.setUpdateTime(System.currentTimeMillis());
+      if (flush || Status.isStatusFinished(this.flow.getStatus())) {
+        this.flowPersister.flush(this.flow);
+      } else {
+        this.flowPersister.persist(this.flow);
+      }
     } catch (final ExecutorManagerException e) {
       this.logger.error("Error updating flow.", e);
     }
+    if (this.updateNotifier != null) {
+      this.updateNotifier.notifyUpdate();
+    }
   }
 
   /**
@@ -330,6 +382,9 @@ public class FlowRunner extends EventHandler implements Runnable {
     try {
       this.flowAppender = new FileAppender(this.loggerLayout, absolutePath, false);
       this.logger.addAppender(this.flowAppender);
+      if (this.logShipper != null) {
+        this.logShipper.register(this.execId, "", 0, this.logFile, null);
+      }
     } catch (final IOException e) {
       this.logger.error("Could not open log file in " + this.execDir, e);
     }
@@ -341,7 +396,9 @@ public class FlowRunner extends EventHandler implements Runnable {
       this.flowAppender.close();
 
       try {
-        this.executorLoader.uploadLogFile(this.execId, "", 0, this.logFile);
+        if (this.logShipper == null || !this.logShipper.finish(this.execId, "", 0)) {
+          this.executorLoader.uploadLogFile(this.execId, "", 0, this.logFile);
+        }
       } catch (final ExecutorManagerException e) {
         e.printStackTrace();
       }
@@ -761,27 +818,16 @@ public class FlowRunner extends EventHandler implements Runnable {
   }
 
   private Props loadPropsFromYamlFile(final String path) {
-    File tempDir = null;
     Props props = null;
     try {
-      tempDir = Files.createTempDir();
-      props = FlowLoaderUtils.getPropsFromYamlFile(path, getFlowFile(tempDir));
+      props = FlowLoaderUtils.getPropsFromNodeBean(path, getFlowNodeBean());
     } catch (final Exception e) {
       this.logger.error("Failed to get props from flow file. " + e);
-    } finally {
-      if (tempDir != null && tempDir.exists()) {
-        try {
-          FileUtils.deleteDirectory(tempDir);
-        } catch (final IOException e) {
-          this.logger.error("Failed to delete temp directory." + e);
-          tempDir.deleteOnExit();
-        }
-      }
     }
     return props;
   }
 
-  private File getFlowFile(final File tempDir) throws Exception {
+  private NodeBean getFlowNodeBean() throws Exception {
     final List<FlowProps> flowPropsList = ImmutableList.copyOf(this.flow.getFlowProps());
     // There should be exact one source (file name) for each flow file.
     if (flowPropsList.isEmpty() || flowPropsList.get(0) == null) {
@@ -791,11 +837,8 @@ public class FlowRunner extends EventHandler implements Runnable {
     final String source = flowPropsList.get(0).getSource();
     final int flowVersion = this.projectLoader
         .getLatestFlowVersion(this.flow.getProjectId(), this.flow.getVersion(), source);
-    final File flowFile = this.projectLoader
-        .getUploadedFlowFile(this.flow.getProjectId(), this.flow.getVersion(), source,
-            flowVersion, tempDir);
-
-    return flowFile;
+    return this.flowFileCache.getNodeBean(this.flow.getProjectId(), this.flow.getVersion(),
+        source, flowVersion, this.execDir);
   }
 
   @SuppressWarnings("FutureReturnValueIgnored")
@@ -897,6 +940,7 @@ public class FlowRunner extends EventHandler implements Runnable {
 
     jobRunner.setDelayStart(node.getDelayedExecution());
     jobRunner.setLogSettings(this.logger, this.jobLogFileSize, this.jobLogNumFiles);
+    jobRunner.setLogShipper(this.logShipper);
     jobRunner.addListener(this.listener);
 
     if (JobCallbackManager.isInitialized()) {
@@ -936,7 +980,7 @@ public class FlowRunner extends EventHandler implements Runnable {
         this.flowPaused = true;
         this.flow.setStatus(Status.PAUSED);
 
-        updateFlow();
+        updateFlow(true);
       } else {
         this.logger.info("Cannot pause finished flow. Called by user " + user);
       }
@@ -960,7 +1004,7 @@ public class FlowRunner extends EventHandler implements Runnable {
           this.flow.setStatus(Status.RUNNING);
         }
 
-        updateFlow();
+        updateFlow(true);
       }
     }
 
@@ -994,11 +1038,27 @@ public class FlowRunner extends EventHandler implements Runnable {
       for (final JobRunner runner : this.activeJobRunners) {
         runner.kill();
       }
-      updateFlow();
+      updateFlow(true);
     }
     interrupt();
   }
 
+  /**
+   * Fails the flow without running it, e.g. because its project files couldn't be set up.
+   */
+  public void failBeforeStart(final Throwable cause) {
+    this.logger.error("Failed to prepare the flow.", cause);
+    if (this.flowAppender != null) {
+      this.logger.removeAppender(this.flowAppender);
+      this.flowAppender.close();
+    }
+    this.flow.setStatus(Status.FAILED);
+    this.flow.setEndTime(System.currentTimeMillis());
+    updateFlow(true);
+    this.fireEventListeners(
+        Event.create(this, EventType.FLOW_FINISHED, new EventData(this.flow)));
+  }
+
   public void retryFailures(final String user) {
     synchronized (this.mainSyncObj) {
       this.logger.info("Retrying failures invoked by " + user);
@@ -1108,7 +1168,10 @@ public class FlowRunner extends EventHandler implements Runnable {
   }
 
   private void interrupt() {
-    this.flowRunnerThread.interrupt();
+    // the flow may not have started running yet
+    if (this.flowRunnerThread != null) {
+      this.flowRunnerThread.interrupt();
+    }
   }
 
   public boolean isKilled() {
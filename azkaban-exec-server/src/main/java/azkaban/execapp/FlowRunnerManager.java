@@ -24,6 +24,7 @@ import azkaban.execapp.event.LocalFlowWatcher;
 import azkaban.execapp.event.RemoteFlowWatcher;
 import azkaban.execapp.metric.NumFailedFlowMetric;
 import azkaban.executor.ExecutableFlow;
+import azkaban.executor.ExecutableNode;
 import azkaban.executor.ExecutionOptions;
 import azkaban.executor.ExecutorLoader;
 import azkaban.executor.ExecutorManagerException;
@@ -42,21 +43,26 @@ import azkaban.utils.FileIOUtils;
 import azkaban.utils.FileIOUtils.JobMetaData;
 import azkaban.utils.FileIOUtils.LogData;
 import azkaban.utils.JSONUtils;
-import azkaban.utils.Pair;
+import azkaban.utils.LogTail;
 import azkaban.utils.Props;
 import azkaban.utils.ThreadPoolExecutingListener;
 import azkaban.utils.TrackingThreadPool;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import java.io.File;
-import java.io.FilenameFilter;
 import java.io.IOException;
 import java.lang.Thread.State;
 import java.text.SimpleDateFormat;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.function.Function;
 import javax.annotation.Nullable;
 import javax.inject.Inject;
 import javax.inject.Singleton;
@@ -91,6 +97,35 @@ public class FlowRunnerManager implements EventListener,
   private static final String EXECUTOR_THREADPOOL_WORKQUEUE_SIZE = "executor.threadpool.workqueue.size";
   private static final String EXECUTOR_FLOW_THREADS = "executor.flow.threads";
   private static final String FLOW_NUM_JOB_THREADS = "flow.num.job.threads";
+  // Number of parsed Flow 2.0 flow files cached on the executor
+  private static final String FLOW_FILE_CACHE_SIZE = "executor.flow.file.cache.size";
+  private static final int DEFAULT_FLOW_FILE_CACHE_SIZE = 100;
+  // the updates of the running flows are written to the DB every flush interval, 0 to write them
+  // synchronously
+  private static final String FLOW_UPDATE_FLUSH_INTERVAL_MS =
+      "executor.flow.update.flush.interval.ms";
+  private static final long DEFAULT_FLOW_UPDATE_FLUSH_INTERVAL_MS = 1000;
+  private static final String FLOW_UPDATE_MAX_BATCH_SIZE = "executor.flow.update.max.batch.size";
+  private static final int DEFAULT_FLOW_UPDATE_MAX_BATCH_SIZE = 50;
+  // number of threads setting up the project files of the submitted flows
+  private static final String FLOW_PREPARER_THREADS = "executor.flow.preparer.threads";
+  private static final int DEFAULT_FLOW_PREPARER_THREADS = 4;
+  // the logs of the running flows and jobs are uploaded every interval, 0 to upload each log when
+  // its flow or job finishes
+  private static final String LOG_SHIPPER_INTERVAL_MS = "executor.log.shipper.interval.ms";
+  private static final long DEFAULT_LOG_SHIPPER_INTERVAL_MS = 10 * 1000;
+  // the logs being followed are read every interval
+  private static final String LOG_WATCHER_INTERVAL_MS = "executor.log.watcher.interval.ms";
+  private static final long DEFAULT_LOG_WATCHER_INTERVAL_MS = 500;
+  // size limit of the installed projects, in bytes and in percentage of the disk holding them.
+  // Unlimited by default.
+  private static final String PROJECT_CACHE_MAX_SIZE_BYTES =
+      "executor.project.cache.max.size.bytes";
+  private static final String PROJECT_CACHE_MAX_DISK_PERCENTAGE =
+      "executor.project.cache.max.disk.percentage";
+  private static final String EXECUTOR_FULL_MESSAGE = "Azkaban server can't execute any more flows. "
+      + "The number of running flows has reached the system configured limit."
+      + "Please notify Azkaban administrators";
 
   // recently finished secs to clean up. 1 minute
   private static final int RECENTLY_FINISHED_TIME_TO_LIVE = 60 * 1000;
@@ -104,14 +139,21 @@ public class FlowRunnerManager implements EventListener,
   private final Map<Future<?>, Integer> submittedFlows = new ConcurrentHashMap<>();
   private final Map<Integer, FlowRunner> runningFlows = new ConcurrentHashMap<>();
   private final Map<Integer, ExecutableFlow> recentlyFinishedFlows = new ConcurrentHashMap<>();
-  private final Map<Pair<Integer, Integer>, ProjectVersion> installedProjects;
+  private final ProjectCacheManager projectCacheManager;
 
   private final TrackingThreadPool executorService;
+  private final ExecutorService preparerService;
+  private final AtomicInteger numPreparingFlows = new AtomicInteger();
   private final CleanerThread cleanerThread;
   private final ExecutorLoader executorLoader;
   private final ProjectLoader projectLoader;
   private final JobTypeManager jobtypeManager;
   private final FlowPreparer flowPreparer;
+  private final FlowUpdateNotifier updateNotifier = new FlowUpdateNotifier();
+  private final FlowFileCache flowFileCache;
+  private final ExecutableFlowPersister flowPersister;
+  private final LogShipper logShipper;
+  private final LogWatcher logWatcher;
   private final TriggerManager triggerManager;
   private final AzkabanEventReporter azkabanEventReporter;
 
@@ -167,21 +209,39 @@ public class FlowRunnerManager implements EventListener,
       this.projectDirectory.mkdirs();
     }
 
-    this.installedProjects = loadExistingProjects();
+    this.projectCacheManager = new ProjectCacheManager(this.projectDirectory,
+        getProjectCacheMaxSizeBytes(props));
 
     // azkaban.temp.dir
     this.numThreads = props.getInt(EXECUTOR_FLOW_THREADS, DEFAULT_NUM_EXECUTING_FLOWS);
     this.numJobThreadPerFlow = props.getInt(FLOW_NUM_JOB_THREADS, DEFAULT_FLOW_NUM_JOB_TREADS);
     this.executorService = createExecutorService(this.numThreads);
+    this.preparerService = Executors.newFixedThreadPool(
+        props.getInt(FLOW_PREPARER_THREADS, DEFAULT_FLOW_PREPARER_THREADS),
+        new ThreadFactoryBuilder().setDaemon(true).setNameFormat("azk-flow-preparer-%d").build());
 
     // Create a flow preparer
     this.flowPreparer = new FlowPreparer(storageManager, this.executionDirectory,
         this.projectDirectory,
-        this.installedProjects);
+        this.projectCacheManager);
 
     this.executorLoader = executorLoader;
     this.projectLoader = projectLoader;
     this.triggerManager = triggerManager;
+    this.flowFileCache = new FlowFileCache(projectLoader,
+        props.getInt(FLOW_FILE_CACHE_SIZE, DEFAULT_FLOW_FILE_CACHE_SIZE));
+    this.flowPersister = new ExecutableFlowPersister(executorLoader,
+        props.getLong(FLOW_UPDATE_FLUSH_INTERVAL_MS, DEFAULT_FLOW_UPDATE_FLUSH_INTERVAL_MS),
+        props.getInt(FLOW_UPDATE_MAX_BATCH_SIZE, DEFAULT_FLOW_UPDATE_MAX_BATCH_SIZE),
+        props.getBoolean(Constants.ConfigurationKeys.EXECUTION_NODE_STATES_ENABLED, false));
+    this.logShipper = new LogShipper(executorLoader,
+        props.getLong(LOG_SHIPPER_INTERVAL_MS, DEFAULT_LOG_SHIPPER_INTERVAL_MS),
+        props.getInt(Constants.ConfigurationKeys.EXECUTION_LOGS_CHUNK_SIZE,
+            LogShipper.DEFAULT_CHUNK_SIZE));
+    this.logWatcher = new LogWatcher(
+        props.getLong(LOG_WATCHER_INTERVAL_MS, DEFAULT_LOG_WATCHER_INTERVAL_MS),
+        props.getLong(Constants.ConfigurationKeys.LOG_FOLLOW_MAX_BUFFER_BYTES,
+            Constants.DEFAULT_LOG_FOLLOW_MAX_BUFFER_BYTES));
 
     this.jobLogChunkSize = this.azkabanProps.getString("job.log.chunk.size", "5MB");
     this.jobLogNumFiles = this.azkabanProps.getInt("job.log.backup.index", 4);
@@ -247,33 +307,15 @@ public class FlowRunnerManager implements EventListener,
     }
   }
 
-  private Map<Pair<Integer, Integer>, ProjectVersion> loadExistingProjects() {
-    final Map<Pair<Integer, Integer>, ProjectVersion> allProjects =
-        new HashMap<>();
-    for (final File project : this.projectDirectory.listFiles(new FilenameFilter() {
-
-      String pattern = "[0-9]+\\.[0-9]+";
-
-      @Override
-      public boolean accept(final File dir, final String name) {
-        return name.matches(this.pattern);
-      }
-    })) {
-      if (project.isDirectory()) {
-        try {
-          final String fileName = new File(project.getAbsolutePath()).getName();
-          final int projectId = Integer.parseInt(fileName.split("\\.")[0]);
-          final int versionNum = Integer.parseInt(fileName.split("\\.")[1]);
-          final ProjectVersion version =
-              new ProjectVersion(projectId, versionNum, project);
-          allProjects.put(new Pair<>(projectId, versionNum),
-              version);
-        } catch (final Exception e) {
-          e.printStackTrace();
-        }
-      }
+  private long getProjectCacheMaxSizeBytes(final Props props) {
+    long maxSizeBytes = props.getLong(PROJECT_CACHE_MAX_SIZE_BYTES, 0);
+    final int maxDiskPercentage = props.getInt(PROJECT_CACHE_MAX_DISK_PERCENTAGE, 0);
+    if (maxDiskPercentage > 0) {
+      final long maxDiskBytes = this.projectDirectory.getTotalSpace() / 100 * maxDiskPercentage;
+      maxSizeBytes = maxSizeBytes > 0 ? Math.min(maxSizeBytes, maxDiskBytes) : maxDiskBytes;
     }
-    return allProjects;
+    logger.info("Project cache size limit: " + maxSizeBytes + " bytes");
+    return maxSizeBytes;
   }
 
   public void setExecutorActive(final boolean isActive) {
@@ -295,16 +337,6 @@ public class FlowRunnerManager implements EventListener,
     this.globalProps = globalProps;
   }
 
-  public void deleteDirectory(final ProjectVersion pv) throws IOException {
-    synchronized (pv) {
-      logger.warn("Deleting project: " + pv);
-      final File installedDir = pv.getInstalledDir();
-      if (installedDir != null && installedDir.exists()) {
-        FileUtils.deleteDirectory(installedDir);
-      }
-    }
-  }
-
   //任务实际执行方法
   public void submitFlow(final int execId) throws ExecutorManagerException {
     // Load file and submit
@@ -320,8 +352,9 @@ public class FlowRunnerManager implements EventListener,
           + execId);
     }
 
-    // Sets up the project files and execution directory.
-    this.flowPreparer.setup(flow);
+    // The project files are set up asynchronously, by prepareFlow. The flow runner only needs the
+    // execution directory.
+    this.flowPreparer.createExecDir(flow);
 
     // Setup flow runner
     FlowWatcher watcher = null;
@@ -408,6 +441,10 @@ public class FlowRunnerManager implements EventListener,
         new FlowRunner(flow, this.executorLoader, this.projectLoader, this.jobtypeManager,
             this.azkabanProps, this.azkabanEventReporter);
     runner.setFlowWatcher(watcher)
+        .setUpdateNotifier(this.updateNotifier)
+        .setFlowPersister(this.flowPersister)
+        .setFlowFileCache(this.flowFileCache)
+        .setLogShipper(this.logShipper)
         .setJobLogSettings(this.jobLogChunkSize, this.jobLogNumFiles)
         .setValidateProxyUser(this.validateProxyUser)
         .setNumJobThreads(numJobThreads).addListener(this);
@@ -420,9 +457,49 @@ public class FlowRunnerManager implements EventListener,
           + " is already running.");
     }
 
+    // The flows being prepared are queued once prepared. Reject the flow now if they would not
+    // fit in the queue.
+    if (this.threadPoolQueueSize > 0 && this.numPreparingFlows.get()
+        >= this.executorService.getQueue().remainingCapacity()
+        + this.numThreads - this.executorService.getActiveCount()) {
+      throw new ExecutorManagerException(EXECUTOR_FULL_MESSAGE);
+    }
+
     // Finally, queue the sucker.
     this.runningFlows.put(execId, runner);
+    prepareFlow(runner);
+  }
 
+  /**
+   * Sets up the project files of the flow in the preparer thread pool, then submits the flow
+   * runner. The flow is failed if it can't be set up.
+   */
+  private void prepareFlow(final FlowRunner runner) throws ExecutorManagerException {
+    final ExecutableFlow flow = runner.getExecutableFlow();
+    // unpinned when the flow finishes
+    this.projectCacheManager.pin(flow.getProjectId(), flow.getVersion());
+    this.numPreparingFlows.incrementAndGet();
+    try {
+      this.preparerService.submit(() -> {
+        try {
+          this.flowPreparer.setup(flow);
+          submitFlowRunner(runner);
+        } catch (final Throwable t) {
+          logger.error("Failed to prepare execution " + flow.getExecutionId(), t);
+          runner.failBeforeStart(t);
+        } finally {
+          this.numPreparingFlows.decrementAndGet();
+        }
+      });
+    } catch (final RejectedExecutionException re) {
+      this.numPreparingFlows.decrementAndGet();
+      this.projectCacheManager.unpin(flow.getProjectId(), flow.getVersion());
+      this.runningFlows.remove(flow.getExecutionId());
+      throw new ExecutorManagerException(EXECUTOR_FULL_MESSAGE);
+    }
+  }
+
+  private void submitFlowRunner(final FlowRunner runner) throws ExecutorManagerException {
     try {
       // The executorService already has a queue.
       // The submit method below actually returns an instance of FutureTask,
@@ -434,10 +511,7 @@ public class FlowRunnerManager implements EventListener,
       // update the last submitted time.
       this.lastFlowSubmittedDate = System.currentTimeMillis();
     } catch (final RejectedExecutionException re) {
-      throw new ExecutorManagerException(
-          "Azkaban server can't execute any more flows. "
-              + "The number of running flows has reached the system configured limit."
-              + "Please notify Azkaban administrators");
+      throw new ExecutorManagerException(EXECUTOR_FULL_MESSAGE);
     }
   }
 
@@ -523,6 +597,10 @@ public class FlowRunnerManager implements EventListener,
     runner.retryFailures(user);
   }
 
+  public FlowUpdateNotifier getUpdateNotifier() {
+    return this.updateNotifier;
+  }
+
   public ExecutableFlow getExecutableFlow(final int execId) {
     final FlowRunner runner = this.runningFlows.get(execId);
     if (runner == null) {
@@ -542,6 +620,7 @@ public class FlowRunnerManager implements EventListener,
         logger.info("Flow " + flow.getExecutionId()
             + " is finished. Adding it to recently finished flows list.");
         this.runningFlows.remove(flow.getExecutionId());
+        this.projectCacheManager.unpin(flow.getProjectId(), flow.getVersion());
       } else if (event.getType() == EventType.FLOW_STARTED) {
         // add flow level SLA checker
         this.triggerManager
@@ -583,8 +662,79 @@ public class FlowRunnerManager implements EventListener,
         "Error reading file. Log directory doesn't exist.");
   }
 
+  /**
+   * Reads the job log, including its rolled over backup files. So the offsets are the ones of
+   * {@link #openJobLogRange} and {@link #followJobLog}.
+   */
   public LogData readJobLogs(final int execId, final String jobId, final int attempt,
       final int startByte, final int length) throws ExecutorManagerException {
+    try (LogFileRange range = openJobLogRange(execId, jobId, attempt, startByte, length)) {
+      return range.readUtf8();
+    } catch (final IOException e) {
+      throw new ExecutorManagerException(e);
+    }
+  }
+
+  /**
+   * Opens the range of the flow log, to be streamed as raw bytes.
+   */
+  public LogFileRange openFlowLogRange(final int execId, final int startByte, final int length)
+      throws ExecutorManagerException {
+    return openLogRange(execId, FlowRunner::getFlowLogFile, "Flow", startByte, length);
+  }
+
+  /**
+   * Opens the range of the job log, including its rolled over backup files, to be streamed as raw
+   * bytes.
+   */
+  public LogFileRange openJobLogRange(final int execId, final String jobId, final int attempt,
+      final int startByte, final int length) throws ExecutorManagerException {
+    return openLogRange(execId, runner -> runner.getJobLogFile(jobId, attempt), "Job", startByte,
+        length);
+  }
+
+  /**
+   * Follows the job log from the offset while it's written. The followers of the same log share
+   * one watcher.
+   *
+   * @return null if the job isn't writing its log anymore
+   */
+  public LogTail.Follower followJobLog(final int execId, final String jobId, final int attempt,
+      final long offset) throws ExecutorManagerException {
+    final FlowRunner runner = this.runningFlows.get(execId);
+    if (runner == null) {
+      throw new ExecutorManagerException("Running flow " + execId
+          + " not found.");
+    }
+    final ExecutableNode node = runner.getExecutableFlow().getExecutableNodePath(jobId);
+    if (node == null) {
+      throw new ExecutorManagerException("Job " + jobId + " not found in " + execId);
+    }
+    final BooleanSupplier isWriting = () -> this.runningFlows.get(execId) == runner
+        && node.getAttempt() == attempt && !Status.isStatusFinished(node.getStatus());
+    if (!isWriting.getAsBoolean()) {
+      return null;
+    }
+
+    final File logFile = runner.getJobLogFile(jobId, attempt);
+    if (logFile == null || !logFile.exists()) {
+      throw new ExecutorManagerException("Job log file doesn't exist.");
+    }
+    try {
+      return this.logWatcher.follow(execId + ":" + jobId + ":" + attempt, logFile, offset,
+          isWriting);
+    } catch (final IOException e) {
+      throw new ExecutorManagerException(e);
+    }
+  }
+
+  public int getNumWatchedLogs() {
+    return this.logWatcher.getNumWatchedLogs();
+  }
+
+  private LogFileRange openLogRange(final int execId, final Function<FlowRunner, File> getLogFile,
+      final String logType, final int startByte, final int length)
+      throws ExecutorManagerException {
     final FlowRunner runner = this.runningFlows.get(execId);
     if (runner == null) {
       throw new ExecutorManagerException("Running flow " + execId
@@ -592,27 +742,27 @@ public class FlowRunnerManager implements EventListener,
     }
 
     final File dir = runner.getExecutionDir();
-    if (dir != null && dir.exists()) {
-      try {
-        synchronized (this.executionDirDeletionSync) {
-          if (!dir.exists()) {
-            throw new ExecutorManagerException(
-                "Execution dir file doesn't exist. Probably has beend deleted");
-          }
-          final File logFile = runner.getJobLogFile(jobId, attempt);
-          if (logFile != null && logFile.exists()) {
-            return FileIOUtils.readUtf8File(logFile, startByte, length);
-          } else {
-            throw new ExecutorManagerException("Job log file doesn't exist.");
-          }
+    if (dir == null || !dir.exists()) {
+      throw new ExecutorManagerException(
+          "Error reading file. Log directory doesn't exist.");
+    }
+
+    try {
+      // the files stay readable once opened, so only the opening holds the lock
+      synchronized (this.executionDirDeletionSync) {
+        if (!dir.exists()) {
+          throw new ExecutorManagerException(
+              "Execution dir file doesn't exist. Probably has beend deleted");
         }
-      } catch (final IOException e) {
-        throw new ExecutorManagerException(e);
+        final File logFile = getLogFile.apply(runner);
+        if (logFile == null || !logFile.exists()) {
+          throw new ExecutorManagerException(logType + " log file doesn't exist.");
+        }
+        return LogFileRange.open(logFile, startByte, length);
       }
+    } catch (final IOException e) {
+      throw new ExecutorManagerException(e);
     }
-
-    throw new ExecutorManagerException(
-        "Error reading file. Log directory doesn't exist.");
   }
 
   public List<Object> readJobAttachments(final int execId, final String jobId, final int attempt)
@@ -704,6 +854,18 @@ public class FlowRunnerManager implements EventListener,
     return this.executorService.getQueue().size();
   }
 
+  public int getNumPreparingFlows() {
+    return this.numPreparingFlows.get();
+  }
+
+  FlowPreparer getFlowPreparer() {
+    return this.flowPreparer;
+  }
+
+  ProjectCacheManager getProjectCacheManager() {
+    return this.projectCacheManager;
+  }
+
   public int getNumRunningFlows() {
     return this.executorService.getActiveCount();
   }
@@ -777,6 +939,12 @@ public class FlowRunnerManager implements EventListener,
    */
   public void shutdown() {
     logger.warn("Shutting down FlowRunnerManager...");
+    this.preparerService.shutdown();
+    try {
+      this.preparerService.awaitTermination(1, TimeUnit.MINUTES);
+    } catch (final InterruptedException e) {
+      logger.error(e);
+    }
     this.executorService.shutdown();
     boolean result = false;
     while (!result) {
@@ -787,6 +955,9 @@ public class FlowRunnerManager implements EventListener,
         logger.error(e);
       }
     }
+    this.flowPersister.shutdown();
+    this.logShipper.shutdown();
+    this.logWatcher.shutdown();
     logger.warn("Shutdown FlowRunnerManager complete.");
   }
 
@@ -796,8 +967,12 @@ public class FlowRunnerManager implements EventListener,
    */
   public void shutdownNow() {
     logger.warn("Shutting down FlowRunnerManager now...");
+    this.preparerService.shutdownNow();
     this.executorService.shutdownNow();
     this.triggerManager.shutdown();
+    this.flowPersister.shutdown();
+    this.logShipper.shutdown();
+    this.logWatcher.shutdown();
   }
 
   /**
@@ -959,55 +1134,7 @@ public class FlowRunnerManager implements EventListener,
     }
 
     private void cleanOlderProjects() {
-      final Map<Integer, ArrayList<ProjectVersion>> projectVersions =
-          new HashMap<>();
-      for (final ProjectVersion version : FlowRunnerManager.this.installedProjects.values()) {
-        ArrayList<ProjectVersion> versionList =
-            projectVersions.get(version.getProjectId());
-        if (versionList == null) {
-          versionList = new ArrayList<>();
-          projectVersions.put(version.getProjectId(), versionList);
-        }
-        versionList.add(version);
-      }
-
-      final HashSet<Pair<Integer, Integer>> activeProjectVersions =
-          new HashSet<>();
-      for (final FlowRunner runner : FlowRunnerManager.this.runningFlows.values()) {
-        final ExecutableFlow flow = runner.getExecutableFlow();
-        activeProjectVersions.add(new Pair<>(flow
-            .getProjectId(), flow.getVersion()));
-      }
-
-      for (final Map.Entry<Integer, ArrayList<ProjectVersion>> entry : projectVersions
-          .entrySet()) {
-        // Integer projectId = entry.getKey();
-        final ArrayList<ProjectVersion> installedVersions = entry.getValue();
-
-        // Keep one version of the project around.
-        if (installedVersions.size() == 1) {
-          continue;
-        }
-
-        Collections.sort(installedVersions);
-        for (int i = 0; i < installedVersions.size() - 1; ++i) {
-          final ProjectVersion version = installedVersions.get(i);
-          final Pair<Integer, Integer> versionKey =
-              new Pair<>(version.getProjectId(),
-                  version.getVersion());
-          if (!activeProjectVersions.contains(versionKey)) {
-            try {
-              logger.info("Removing old unused installed project "
-                  + version.getProjectId() + ":" + version.getVersion());
-              deleteDirectory(version);
-              FlowRunnerManager.this.installedProjects.remove(new Pair<>(version
-                  .getProjectId(), version.getVersion()));
-            } catch (final IOException e) {
-              logger.error(e);
-            }
-          }
-        }
-      }
+      FlowRunnerManager.this.projectCacheManager.removeOlderVersions();
     }
   }
 
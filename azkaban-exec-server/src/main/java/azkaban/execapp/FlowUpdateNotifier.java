@@ -0,0 +1,58 @@
+/*
+ * Copyright 2018 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package azkaban.execapp;
+
+/**
+ * Counts the state changes of all the flows running on this executor.
+ *
+ * Every time a {@link FlowRunner} updates its flow, the sequence number is incremented and the
+ * threads waiting in {@link #awaitUpdate(long, long)} are woken up. This lets the web server
+ * long-poll the executor (see {@link azkaban.executor.ConnectorParams#UPDATE_STREAM_ACTION}) and
+ * receive flow updates as soon as they happen, instead of polling at a fixed interval.
+ */
+public class FlowUpdateNotifier {
+
+  private long sequence = 0;
+
+  public synchronized long getSequence() {
+    return this.sequence;
+  }
+
+  /**
+   * Signals that the state of a flow has changed.
+   */
+  public synchronized void notifyUpdate() {
+    this.sequence++;
+    notifyAll();
+  }
+
+  /**
+   * Waits until there has been an update after the given sequence number.
+   *
+   * @return the current sequence number. It is larger than lastSequence unless the wait timed out.
+   */
+  public synchronized long awaitUpdate(final long lastSequence, final long timeoutMs)
+      throws InterruptedException {
+    final long deadline = System.currentTimeMillis() + timeoutMs;
+    long remainingMs = timeoutMs;
+    while (this.sequence <= lastSequence && remainingMs > 0) {
+      wait(remainingMs);
+      remainingMs = deadline - System.currentTimeMillis();
+    }
+    return this.sequence;
+  }
+}
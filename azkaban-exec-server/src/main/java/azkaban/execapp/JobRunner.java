@@ -55,7 +55,6 @@ import org.apache.log4j.EnhancedPatternLayout;
 import org.apache.log4j.FileAppender;
 import org.apache.log4j.Layout;
 import org.apache.log4j.Logger;
-import org.apache.log4j.RollingFileAppender;
 
 public class JobRunner extends EventHandler implements Runnable {
 
@@ -79,6 +78,7 @@ public class JobRunner extends EventHandler implements Runnable {
   private Logger flowLogger = null;
   private Appender jobAppender = null;
   private Optional<Appender> kafkaAppender = Optional.empty();
+  private Appender applicationIdAppender = null;
   private File logFile;
   private String attachmentFileName;
   private Job job;
@@ -90,6 +90,7 @@ public class JobRunner extends EventHandler implements Runnable {
 
   private String jobLogChunkSize;
   private int jobLogBackupIndex;
+  private LogShipper logShipper;
 
   private long delayStartMs = 0;
   private volatile boolean killed = false;
@@ -167,6 +168,14 @@ public class JobRunner extends EventHandler implements Runnable {
     this.jobLogBackupIndex = numLogBackup;
   }
 
+  /**
+   * Uploads the job log while the job runs. By default, the log is uploaded when the job
+   * finishes.
+   */
+  public void setLogShipper(final LogShipper logShipper) {
+    this.logShipper = logShipper;
+  }
+
   public Props getProps() {
     return this.props;
   }
@@ -264,13 +273,22 @@ public class JobRunner extends EventHandler implements Runnable {
       this.logger = Logger.getLogger(loggerName);
 
       try {
-        attachFileAppender(createFileAppender());
+        final LogShipper.RollingLogAppender fileAppender = createFileAppender();
+        attachFileAppender(fileAppender);
+        if (this.logShipper != null) {
+          this.logShipper.register(this.executionId, this.node.getNestedId(),
+              this.node.getAttempt(), this.logFile, fileAppender);
+        }
       } catch (final IOException e) {
         removeAppender(this.jobAppender);
         this.flowLogger.error("Could not open log file in " + this.workingDir
             + " for job " + this.jobId, e);
       }
 
+      this.applicationIdAppender = new ApplicationIdAppender(this.loader, this.executionId,
+          this.node.getNestedId(), this.node.getAttempt());
+      this.logger.addAppender(this.applicationIdAppender);
+
       if (this.props.getBoolean(Constants.JobProperties.AZKABAN_JOB_LOGGING_KAFKA_ENABLE, false)) {
         // Only attempt appender construction if required properties are present
         if (this.azkabanProps
@@ -310,15 +328,15 @@ public class JobRunner extends EventHandler implements Runnable {
     this.flowLogger.info("Attached file appender for job " + this.jobId);
   }
 
-  private FileAppender createFileAppender() throws IOException {
+  private LogShipper.RollingLogAppender createFileAppender() throws IOException {
     // Set up log files
     final String logName = createLogFileName(this.node);
     this.logFile = new File(this.workingDir, logName);
     final String absolutePath = this.logFile.getAbsolutePath();
 
     // Attempt to create FileAppender
-    final RollingFileAppender fileAppender =
-        new RollingFileAppender(this.loggerLayout, absolutePath, true);
+    final LogShipper.RollingLogAppender fileAppender =
+        new LogShipper.RollingLogAppender(this.loggerLayout, absolutePath);
     fileAppender.setMaxBackupIndex(this.jobLogBackupIndex);
     fileAppender.setMaxFileSize(this.jobLogChunkSize);
 
@@ -380,6 +398,9 @@ public class JobRunner extends EventHandler implements Runnable {
     if (this.kafkaAppender.isPresent()) {
       removeAppender(this.kafkaAppender);
     }
+    if (this.applicationIdAppender != null) {
+      removeAppender(this.applicationIdAppender);
+    }
   }
 
   private void writeStatus() {
@@ -510,6 +531,11 @@ public class JobRunner extends EventHandler implements Runnable {
     }
 
     try {
+      if (this.logShipper != null
+          && this.logShipper.finish(this.executionId, this.node.getNestedId(), attemptNo)) {
+        return;
+      }
+
       final File[] files = this.logFile.getParentFile().listFiles(new FilenameFilter() {
         @Override
         public boolean accept(final File dir, final String name) {
@@ -0,0 +1,168 @@
+/*
+ * Copyright 2018 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package azkaban.execapp;
+
+import azkaban.utils.FileIOUtils;
+import azkaban.utils.FileIOUtils.LogData;
+import azkaban.utils.Pair;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A byte range of a log file, transferred with {@link FileChannel#transferTo} instead of being read
+ * into a String.
+ *
+ * The log is the concatenation of the backup files rolled over by its appender, from the oldest
+ * log.N to log.1, and of the log file itself. The files of the range are opened, and their sizes
+ * fixed, when the range is opened. So the range can be transferred after the execution directory
+ * is deleted, and doesn't grow with the log. Note that the offsets move back when the oldest backup
+ * file is deleted by a roll over.
+ */
+public class LogFileRange implements Closeable {
+
+  private final long startByte;
+  private final List<FileChannel> channels = new ArrayList<>();
+  private final List<Long> positions = new ArrayList<>();
+  private final List<Long> counts = new ArrayList<>();
+  private long length = 0;
+
+  private LogFileRange(final long startByte) {
+    this.startByte = startByte;
+  }
+
+  /**
+   * Opens the range of the log between startByte and startByte + length, which is shorter if the
+   * log ends before.
+   */
+  public static LogFileRange open(final File logFile, final long startByte, final long length)
+      throws IOException {
+    final List<File> files = getLogFiles(logFile);
+    final LogFileRange range = new LogFileRange(startByte);
+    final long endByte = startByte + length;
+    long fileStart = 0;
+    try {
+      for (final File file : files) {
+        if (fileStart >= endByte) {
+          break;
+        }
+        final FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        final long fileEnd = fileStart + channel.size();
+        if (fileEnd <= startByte) {
+          channel.close();
+        } else {
+          final long position = Math.max(startByte - fileStart, 0);
+          range.add(channel, position, Math.min(endByte, fileEnd) - fileStart - position);
+        }
+        fileStart = fileEnd;
+      }
+    } catch (final IOException e) {
+      range.close();
+      throw e;
+    }
+    return range;
+  }
+
+  /**
+   * @return the backup files of the log, from the oldest, followed by the log file
+   */
+  static List<File> getLogFiles(final File logFile) {
+    final List<File> files = new ArrayList<>();
+    for (int backupIndex = 1; ; backupIndex++) {
+      final File backupFile = new File(logFile.getPath() + "." + backupIndex);
+      if (!backupFile.exists()) {
+        break;
+      }
+      files.add(backupFile);
+    }
+    Collections.reverse(files);
+    files.add(logFile);
+    return files;
+  }
+
+  public long getStartByte() {
+    return this.startByte;
+  }
+
+  public long getLength() {
+    return this.length;
+  }
+
+  /**
+   * Reads the range as {@link LogData}, without the partial characters at its ends. The offset of
+   * the data counts the backup files, like the offsets of the range.
+   */
+  public LogData readUtf8() throws IOException {
+    final ByteArrayOutputStream out = new ByteArrayOutputStream((int) this.length);
+    transferTo(Channels.newChannel(out));
+    final byte[] buffer = out.toByteArray();
+    final Pair<Integer, Integer> utf8Range = FileIOUtils.getUtf8Range(buffer, 0, buffer.length);
+    return new LogData((int) this.startByte + utf8Range.getFirst(), utf8Range.getSecond(),
+        new String(buffer, utf8Range.getFirst(), utf8Range.getSecond(), StandardCharsets.UTF_8));
+  }
+
+  /**
+   * Transfers the range to the target, which is only a copy in the kernel if the target is a file
+   * or a socket channel.
+   */
+  public void transferTo(final WritableByteChannel target) throws IOException {
+    for (int i = 0; i < this.channels.size(); i++) {
+      final FileChannel channel = this.channels.get(i);
+      long position = this.positions.get(i);
+      long count = this.counts.get(i);
+      while (count > 0) {
+        final long transferred = channel.transferTo(position, count, target);
+        if (transferred <= 0) {
+          throw new IOException("Log file was truncated during the transfer");
+        }
+        position += transferred;
+        count -= transferred;
+      }
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    IOException exception = null;
+    for (final FileChannel channel : this.channels) {
+      try {
+        channel.close();
+      } catch (final IOException e) {
+        exception = e;
+      }
+    }
+    if (exception != null) {
+      throw exception;
+    }
+  }
+
+  private void add(final FileChannel channel, final long position, final long count) {
+    this.channels.add(channel);
+    this.positions.add(position);
+    this.counts.add(count);
+    this.length += count;
+  }
+}
@@ -0,0 +1,311 @@
+/*
+ * Copyright 2018 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package azkaban.execapp;
+
+import azkaban.executor.ExecutorLoader;
+import azkaban.executor.ExecutorManagerException;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.commons.io.IOUtils;
+import org.apache.log4j.Layout;
+import org.apache.log4j.Logger;
+import org.apache.log4j.RollingFileAppender;
+
+/**
+ * Uploads the logs of the running jobs and flows to the DB while they are being written.
+ *
+ * Every interval, the complete chunks written to each registered log since its previous upload
+ * are inserted in one batch. When the job or flow finishes, {@link #finish(int, String, int)}
+ * only uploads the rest of its log. So an executor crash only loses the tail of the logs, and a
+ * large log doesn't have to be uploaded all at once when its job finishes.
+ *
+ * Job logs roll over: the log file is renamed to log.1, log.1 to log.2 and so on. The
+ * {@link RollingLogAppender} counts its roll overs, which tells the shipper the name of the file
+ * it was reading.
+ */
+public class LogShipper {
+
+  // same default chunk size as the upload of whole log files
+  public static final int DEFAULT_CHUNK_SIZE = 50 * 1024;
+  // limits the memory used by the upload of a log which grew a lot since the previous one
+  private static final int MAX_CHUNKS_PER_BATCH = 100;
+
+  private static final Logger logger = Logger.getLogger(LogShipper.class);
+
+  private final ExecutorLoader executorLoader;
+  private final int chunkSize;
+  private final ScheduledExecutorService scheduler;
+  private final Map<String, ShippedLog> logs = new ConcurrentHashMap<>();
+
+  public LogShipper(final ExecutorLoader executorLoader, final long intervalMs,
+      final int chunkSize) {
+    this.executorLoader = executorLoader;
+    this.chunkSize = chunkSize;
+    if (intervalMs > 0) {
+      this.scheduler = Executors.newSingleThreadScheduledExecutor(
+          new ThreadFactoryBuilder().setDaemon(true).setNameFormat("azk-log-shipper").build());
+      this.scheduler.scheduleWithFixedDelay(this::shipLogs, intervalMs, intervalMs,
+          TimeUnit.MILLISECONDS);
+    } else {
+      this.scheduler = null;
+    }
+  }
+
+  /**
+   * Starts shipping the log. The appender writing it is null if the log doesn't roll over.
+   */
+  public void register(final int execId, final String name, final int attempt,
+      final File logFile, final RollingLogAppender appender) {
+    if (this.scheduler != null) {
+      this.logs.put(getKey(execId, name, attempt),
+          new ShippedLog(execId, name, attempt, logFile, appender));
+    }
+  }
+
+  /**
+   * Uploads the rest of the log, whose appender must be closed. If the upload fails, the log stays
+   * registered and the rest of it is uploaded by the next runs.
+   *
+   * @return false if the log isn't shipped, in which case it has to be uploaded as a whole
+   */
+  public boolean finish(final int execId, final String name, final int attempt)
+      throws ExecutorManagerException {
+    final String key = getKey(execId, name, attempt);
+    final ShippedLog log = this.logs.get(key);
+    if (log == null) {
+      return false;
+    }
+    log.finished = true;
+    try {
+      ship(log, true);
+    } catch (final IOException e) {
+      throw new ExecutorManagerException("Error reading log " + log.logFile, e);
+    }
+    this.logs.remove(key, log);
+    return true;
+  }
+
+  public int getNumShippedLogs() {
+    return this.logs.size();
+  }
+
+  public void shutdown() {
+    if (this.scheduler != null) {
+      this.scheduler.shutdown();
+    }
+  }
+
+  /**
+   * Uploads the complete chunks of all the registered logs, and the rest of the finished logs.
+   * The logs which fail are retried with the next run.
+   */
+  void shipLogs() {
+    for (final ShippedLog log : this.logs.values()) {
+      try {
+        final boolean finished = log.finished;
+        ship(log, finished);
+        if (finished) {
+          this.logs.remove(getKey(log.execId, log.name, log.attempt), log);
+        }
+      } catch (final Throwable t) {
+        logger.error("Error uploading log " + log.logFile + ". Retrying with the next run.", t);
+      }
+    }
+  }
+
+  private void ship(final ShippedLog log, final boolean finish)
+      throws IOException, ExecutorManagerException {
+    synchronized (log) {
+      boolean moreChunks = true;
+      while (moreChunks) {
+        final long rollSequence = log.getRollSequence();
+        if (rollSequence % 2 != 0) {
+          // the log is rolling over. Its files are read with the next run.
+          return;
+        }
+        final LogPosition end = new LogPosition(log.generation, log.fileOffset);
+        final List<byte[]> chunks = readChunks(log, rollSequence / 2, end, finish);
+        if (log.getRollSequence() != rollSequence) {
+          return;
+        }
+        if (!chunks.isEmpty()) {
+          this.executorLoader
+              .uploadLogChunks(log.execId, log.name, log.attempt, log.uploadedBytes, chunks);
+          for (final byte[] chunk : chunks) {
+            log.uploadedBytes += chunk.length;
+          }
+          log.generation = end.generation;
+          log.fileOffset = end.fileOffset;
+        }
+        moreChunks = chunks.size() == MAX_CHUNKS_PER_BATCH;
+      }
+    }
+  }
+
+  /**
+   * Reads the chunks following the position of the log, and moves the end position to the end of
+   * the last chunk. The last chunk is incomplete only if the log is finished.
+   */
+  private List<byte[]> readChunks(final ShippedLog log, final long currentGeneration,
+      final LogPosition end, final boolean finish) throws IOException {
+    if (currentGeneration - end.generation > log.getMaxBackupIndex()) {
+      logger.warn("Part of log " + log.logFile + " rolled over before being uploaded.");
+      end.generation = currentGeneration - log.getMaxBackupIndex();
+      end.fileOffset = 0;
+    }
+
+    final long startGeneration = end.generation;
+    final long startOffset = end.fileOffset;
+    final List<byte[]> chunks = new ArrayList<>();
+    final byte[] buffer = new byte[this.chunkSize];
+    int pos = 0;
+    // position of the last byte read
+    long readGeneration = startGeneration;
+    long readOffset = startOffset;
+    for (long generation = startGeneration;
+        generation <= currentGeneration && chunks.size() < MAX_CHUNKS_PER_BATCH; generation++) {
+      final File file = log.getFile(currentGeneration - generation);
+      if (!file.exists()) {
+        continue;
+      }
+      long fileOffset = generation == startGeneration ? startOffset : 0;
+      final InputStream in = new FileInputStream(file);
+      try {
+        IOUtils.skipFully(in, fileOffset);
+        int size = in.read(buffer, pos, buffer.length - pos);
+        while (size >= 0) {
+          pos += size;
+          fileOffset += size;
+          if (pos == buffer.length) {
+            chunks.add(buffer.clone());
+            pos = 0;
+            end.generation = generation;
+            end.fileOffset = fileOffset;
+            if (chunks.size() == MAX_CHUNKS_PER_BATCH) {
+              break;
+            }
+          }
+          size = in.read(buffer, pos, buffer.length - pos);
+        }
+      } finally {
+        IOUtils.closeQuietly(in);
+      }
+      readGeneration = generation;
+      readOffset = fileOffset;
+    }
+
+    if (finish && pos > 0 && chunks.size() < MAX_CHUNKS_PER_BATCH) {
+      chunks.add(Arrays.copyOf(buffer, pos));
+      end.generation = readGeneration;
+      end.fileOffset = readOffset;
+    }
+    return chunks;
+  }
+
+  private static String getKey(final int execId, final String name, final int attempt) {
+    return execId + ":" + name + ":" + attempt;
+  }
+
+  /**
+   * A {@link RollingFileAppender} which counts its roll overs.
+   */
+  public static class RollingLogAppender extends RollingFileAppender {
+
+    // incremented before and after each roll over, so it's odd while rolling over
+    private final AtomicLong rollSequence = new AtomicLong();
+
+    public RollingLogAppender(final Layout layout, final String filename) throws IOException {
+      super(layout, filename, true);
+    }
+
+    @Override
+    public void rollOver() {
+      this.rollSequence.incrementAndGet();
+      try {
+        super.rollOver();
+      } finally {
+        this.rollSequence.incrementAndGet();
+      }
+    }
+
+    long getRollSequence() {
+      return this.rollSequence.get();
+    }
+  }
+
+  private static class LogPosition {
+
+    // number of roll overs of the log before the file was written
+    private long generation;
+    private long fileOffset;
+
+    private LogPosition(final long generation, final long fileOffset) {
+      this.generation = generation;
+      this.fileOffset = fileOffset;
+    }
+  }
+
+  private static class ShippedLog {
+
+    private final int execId;
+    private final String name;
+    private final int attempt;
+    private final File logFile;
+    private final RollingLogAppender appender;
+
+    // the log is uploaded up to this position, which is byte uploadedBytes of the log
+    private long generation = 0;
+    private long fileOffset = 0;
+    private int uploadedBytes = 0;
+    // set when the log is complete, so the runs also upload its last incomplete chunk
+    private volatile boolean finished = false;
+
+    private ShippedLog(final int execId, final String name, final int attempt,
+        final File logFile, final RollingLogAppender appender) {
+      this.execId = execId;
+      this.name = name;
+      this.attempt = attempt;
+      this.logFile = logFile;
+      this.appender = appender;
+    }
+
+    private long getRollSequence() {
+      return this.appender == null ? 0 : this.appender.getRollSequence();
+    }
+
+    private int getMaxBackupIndex() {
+      return this.appender == null ? 0 : this.appender.getMaxBackupIndex();
+    }
+
+    private File getFile(final long backupIndex) {
+      return backupIndex == 0 ? this.logFile
+          : new File(this.logFile.getPath() + "." + backupIndex);
+    }
+  }
+}
@@ -0,0 +1,195 @@
+/*
+ * Copyright 2018 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package azkaban.execapp;
+
+import azkaban.utils.LogTail;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import org.apache.log4j.Logger;
+
+/**
+ * Watches the logs being followed, and pushes the bytes appended to them to their followers.
+ *
+ * All the followers of a log share one {@link LogTail}, so the log is read once per interval
+ * whatever the number of connections following it. The watcher keeps the log file open, and
+ * notices a roll over when the log path names another file: it reads the rest of the file it has
+ * open, which is now the first backup file, then opens the new log file. The offsets are those of
+ * {@link LogFileRange}, which includes the backup files.
+ */
+public class LogWatcher {
+
+  private static final Logger logger = Logger.getLogger(LogWatcher.class);
+  private static final int READ_BUFFER_SIZE = 64 * 1024;
+
+  private final long maxBufferBytes;
+  private final ScheduledExecutorService scheduler;
+  private final Map<String, WatchedLog> logs = new HashMap<>();
+
+  public LogWatcher(final long intervalMs, final long maxBufferBytes) {
+    this.maxBufferBytes = maxBufferBytes;
+    this.scheduler = Executors.newSingleThreadScheduledExecutor(
+        new ThreadFactoryBuilder().setDaemon(true).setNameFormat("azk-log-watcher").build());
+    this.scheduler.scheduleWithFixedDelay(this::watchLogs, intervalMs, intervalMs,
+        TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Follows the log from the offset, starting to watch it if it's the first follower.
+   *
+   * @param key identifies the log among the watched ones
+   * @param isWriting tells if the log is still being written
+   */
+  public LogTail.Follower follow(final String key, final File logFile, final long offset,
+      final BooleanSupplier isWriting) throws IOException {
+    synchronized (this.logs) {
+      WatchedLog log = this.logs.get(key);
+      if (log == null) {
+        log = new WatchedLog(logFile, isWriting);
+        this.logs.put(key, log);
+      }
+      return log.tail.follow(offset);
+    }
+  }
+
+  public int getNumWatchedLogs() {
+    synchronized (this.logs) {
+      return this.logs.size();
+    }
+  }
+
+  public void shutdown() {
+    this.scheduler.shutdown();
+    synchronized (this.logs) {
+      for (final WatchedLog log : this.logs.values()) {
+        log.close();
+      }
+      this.logs.clear();
+    }
+  }
+
+  /**
+   * Reads the new bytes of the watched logs. The logs without followers are not watched anymore,
+   * and the logs which are not written anymore are ended after a last read.
+   */
+  void watchLogs() {
+    final Map<String, WatchedLog> watchedLogs;
+    synchronized (this.logs) {
+      watchedLogs = new HashMap<>(this.logs);
+    }
+    for (final Map.Entry<String, WatchedLog> entry : watchedLogs.entrySet()) {
+      final WatchedLog log = entry.getValue();
+      boolean ended = true;
+      try {
+        // checked before reading, so the last read gets all the log
+        final boolean writing = log.isWriting.getAsBoolean();
+        log.read();
+        if (!writing) {
+          log.tail.finish();
+        } else {
+          ended = log.tail.getNumFollowers() == 0;
+        }
+      } catch (final Throwable t) {
+        logger.error("Error reading log " + log.logFile, t);
+      }
+      if (ended) {
+        synchronized (this.logs) {
+          // new followers can't join the ended log
+          log.close();
+          this.logs.remove(entry.getKey(), log);
+        }
+      }
+    }
+  }
+
+  private class WatchedLog {
+
+    private final File logFile;
+    private final BooleanSupplier isWriting;
+    private final LogTail tail;
+    private final ByteBuffer buffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+    private FileChannel channel;
+    private Object fileKey;
+
+    private WatchedLog(final File logFile, final BooleanSupplier isWriting) throws IOException {
+      this.logFile = logFile;
+      this.isWriting = isWriting;
+      long position = 0;
+      for (final File file : LogFileRange.getLogFiles(logFile)) {
+        if (file != logFile) {
+          position += file.length();
+        }
+      }
+      open();
+      this.channel.position(this.channel.size());
+      this.tail = new LogTail(position + this.channel.position(),
+          LogWatcher.this.maxBufferBytes);
+    }
+
+    private void open() throws IOException {
+      this.channel = FileChannel.open(this.logFile.toPath(), StandardOpenOption.READ);
+      this.fileKey = Files.readAttributes(this.logFile.toPath(), BasicFileAttributes.class)
+          .fileKey();
+    }
+
+    private void read() throws IOException {
+      boolean rolledOver;
+      try {
+        rolledOver = this.fileKey != null && !this.fileKey.equals(
+            Files.readAttributes(this.logFile.toPath(), BasicFileAttributes.class).fileKey());
+      } catch (final NoSuchFileException e) {
+        // rolling over, the new log file is opened by the next read
+        rolledOver = false;
+      }
+      readToEnd();
+      if (rolledOver) {
+        this.channel.close();
+        open();
+        readToEnd();
+      }
+    }
+
+    private void readToEnd() throws IOException {
+      this.buffer.clear();
+      while (this.channel.read(this.buffer) > 0) {
+        this.tail.append(this.buffer.array(), 0, this.buffer.position());
+        this.buffer.clear();
+      }
+    }
+
+    private void close() {
+      this.tail.close();
+      try {
+        this.channel.close();
+      } catch (final IOException e) {
+        logger.warn("Error closing log " + this.logFile, e);
+      }
+    }
+  }
+}
@@ -0,0 +1,280 @@
+/*
+ * Copyright 2018 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package azkaban.execapp;
+
+import azkaban.utils.Pair;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.commons.io.FileUtils;
+import org.apache.log4j.Logger;
+
+/**
+ * Keeps track of the project versions installed in the projects directory of the executor.
+ *
+ * The installed versions are kept in least recently used order, together with their size on disk.
+ * When their total size exceeds maxSizeBytes, the least recently used versions are deleted, except
+ * the pinned ones: a version is pinned by each flow using it, from its submission until it
+ * finishes. A maxSizeBytes of 0 or less disables the size based eviction.
+ */
+public class ProjectCacheManager {
+
+  private static final Logger logger = Logger.getLogger(ProjectCacheManager.class);
+
+  private static final String PROJECT_DIR_PATTERN = "[0-9]+\\.[0-9]+";
+  // evicted versions are renamed with this prefix, and deleted outside of the lock
+  private static final String DELETED_DIR_PREFIX = "_deleted.";
+
+  private final File projectsDir;
+  private final long maxSizeBytes;
+
+  // the known project versions, in access order. Guarded by this.
+  private final LinkedHashMap<Pair<Integer, Integer>, ProjectVersion> projectVersions =
+      new LinkedHashMap<>(16, 0.75f, true);
+  // size on disk of the installed project versions. Guarded by this.
+  private final Map<Pair<Integer, Integer>, Long> installedSizes = new HashMap<>();
+  // number of flows using each project version. Guarded by this.
+  private final Map<Pair<Integer, Integer>, Integer> pinCounts = new HashMap<>();
+  private long totalSizeBytes = 0;
+
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+  private final AtomicLong evictions = new AtomicLong();
+
+  public ProjectCacheManager(final File projectsDir, final long maxSizeBytes) {
+    this.projectsDir = projectsDir;
+    this.maxSizeBytes = maxSizeBytes;
+    loadExistingProjects();
+  }
+
+  /**
+   * @return the project version, which is installed in {@link ProjectVersion#getInstalledDir()}
+   * unless that directory doesn't exist
+   */
+  public synchronized ProjectVersion getProjectVersion(final int projectId, final int version) {
+    return this.projectVersions.computeIfAbsent(new Pair<>(projectId, version),
+        k -> new ProjectVersion(projectId, version,
+            new File(this.projectsDir, projectId + "." + version)));
+  }
+
+  /**
+   * Prevents the project version from being deleted, until it's unpinned as many times.
+   */
+  public synchronized ProjectVersion pin(final int projectId, final int version) {
+    final ProjectVersion pv = getProjectVersion(projectId, version);
+    this.pinCounts.merge(new Pair<>(projectId, version), 1, Integer::sum);
+    return pv;
+  }
+
+  public synchronized void unpin(final int projectId, final int version) {
+    this.pinCounts.computeIfPresent(new Pair<>(projectId, version),
+        (k, count) -> count > 1 ? count - 1 : null);
+  }
+
+  public synchronized boolean isPinned(final int projectId, final int version) {
+    return this.pinCounts.containsKey(new Pair<>(projectId, version));
+  }
+
+  /**
+   * Records that a flow found its project version installed.
+   */
+  public void recordHit() {
+    this.hits.incrementAndGet();
+  }
+
+  /**
+   * Records the installation of the project version, and evicts the least recently used versions
+   * if the cache is over its size limit.
+   */
+  public void addInstalledProject(final ProjectVersion pv) {
+    this.misses.incrementAndGet();
+    final long size = FileUtils.sizeOfDirectory(pv.getInstalledDir());
+    final List<File> evictedDirs;
+    synchronized (this) {
+      final Pair<Integer, Integer> key = new Pair<>(pv.getProjectId(), pv.getVersion());
+      this.projectVersions.put(key, pv);
+      final Long previousSize = this.installedSizes.put(key, size);
+      this.totalSizeBytes += size - (previousSize == null ? 0 : previousSize);
+      evictedDirs = evictLeastRecentlyUsed();
+    }
+    deleteDirectories(evictedDirs);
+  }
+
+  /**
+   * Deletes the installed versions of each project which are older than its latest installed
+   * version, unless they are pinned.
+   */
+  public void removeOlderVersions() {
+    final List<File> removedDirs = new ArrayList<>();
+    synchronized (this) {
+      final Map<Integer, Integer> latestVersions = new HashMap<>();
+      for (final Pair<Integer, Integer> key : this.installedSizes.keySet()) {
+        latestVersions.merge(key.getFirst(), key.getSecond(), Math::max);
+      }
+      for (final Pair<Integer, Integer> key : new ArrayList<>(this.installedSizes.keySet())) {
+        if (key.getSecond() < latestVersions.get(key.getFirst())
+            && !this.pinCounts.containsKey(key)) {
+          logger.info("Removing old unused installed project " + key.getFirst() + ":"
+              + key.getSecond());
+          final File removedDir = remove(key, this.projectVersions.get(key));
+          if (removedDir != null) {
+            removedDirs.add(removedDir);
+          }
+        }
+      }
+    }
+    deleteDirectories(removedDirs);
+  }
+
+  public long getNumHits() {
+    return this.hits.get();
+  }
+
+  public long getNumMisses() {
+    return this.misses.get();
+  }
+
+  public long getNumEvictions() {
+    return this.evictions.get();
+  }
+
+  /**
+   * @return the ratio of flows whose project version was installed already, or being installed
+   */
+  public double getHitRatio() {
+    final long hits = this.hits.get();
+    final long total = hits + this.misses.get();
+    return total == 0 ? 0 : (double) hits / total;
+  }
+
+  public synchronized long getTotalSizeBytes() {
+    return this.totalSizeBytes;
+  }
+
+  public synchronized int getNumInstalledProjects() {
+    return this.installedSizes.size();
+  }
+
+  private List<File> evictLeastRecentlyUsed() {
+    final List<File> evictedDirs = new ArrayList<>();
+    if (this.maxSizeBytes <= 0) {
+      return evictedDirs;
+    }
+    final Iterator<Map.Entry<Pair<Integer, Integer>, ProjectVersion>> it =
+        this.projectVersions.entrySet().iterator();
+    while (this.totalSizeBytes > this.maxSizeBytes && it.hasNext()) {
+      final Map.Entry<Pair<Integer, Integer>, ProjectVersion> entry = it.next();
+      final Pair<Integer, Integer> key = entry.getKey();
+      if (this.pinCounts.containsKey(key) || !this.installedSizes.containsKey(key)) {
+        continue;
+      }
+      logger.info("Evicting least recently used project " + entry.getValue()
+          + ". Project cache size: " + this.totalSizeBytes + " bytes.");
+      it.remove();
+      final File evictedDir = moveToDeletedDir(entry.getValue());
+      this.totalSizeBytes -= this.installedSizes.remove(key);
+      this.evictions.incrementAndGet();
+      if (evictedDir != null) {
+        evictedDirs.add(evictedDir);
+      }
+    }
+    if (this.totalSizeBytes > this.maxSizeBytes) {
+      logger.warn("Project cache size " + this.totalSizeBytes + " bytes exceeds its limit of "
+          + this.maxSizeBytes + " bytes, but the remaining projects are in use.");
+    }
+    return evictedDirs;
+  }
+
+  private File remove(final Pair<Integer, Integer> key, final ProjectVersion pv) {
+    this.projectVersions.remove(key);
+    final Long size = this.installedSizes.remove(key);
+    if (size != null) {
+      this.totalSizeBytes -= size;
+    }
+    return pv == null ? null : moveToDeletedDir(pv);
+  }
+
+  /**
+   * Renames the installed directory of the project version, so that the version can be installed
+   * again while the old directory is being deleted.
+   */
+  private File moveToDeletedDir(final ProjectVersion pv) {
+    final File installedDir = pv.getInstalledDir();
+    final File deletedDir = new File(this.projectsDir,
+        DELETED_DIR_PREFIX + installedDir.getName() + "." + System.currentTimeMillis());
+    if (!installedDir.renameTo(deletedDir)) {
+      logger.error("Failed to move " + installedDir + " to " + deletedDir);
+      return null;
+    }
+    return deletedDir;
+  }
+
+  private void deleteDirectories(final List<File> dirs) {
+    for (final File dir : dirs) {
+      try {
+        FileUtils.deleteDirectory(dir);
+      } catch (final IOException e) {
+        logger.error("Error deleting project dir " + dir, e);
+      }
+    }
+  }
+
+  private void loadExistingProjects() {
+    final File[] deletedDirs = this.projectsDir
+        .listFiles((dir, name) -> name.startsWith(DELETED_DIR_PREFIX));
+    if (deletedDirs != null) {
+      deleteDirectories(Arrays.asList(deletedDirs));
+    }
+
+    final File[] projectDirs = this.projectsDir
+        .listFiles(file -> file.isDirectory() && file.getName().matches(PROJECT_DIR_PATTERN));
+    if (projectDirs == null) {
+      return;
+    }
+    // the least recently modified projects are evicted first
+    Arrays.sort(projectDirs, Comparator.comparingLong(File::lastModified));
+    final List<File> evictedDirs;
+    synchronized (this) {
+      for (final File projectDir : projectDirs) {
+        try {
+          final String[] parts = projectDir.getName().split("\\.");
+          final int projectId = Integer.parseInt(parts[0]);
+          final int version = Integer.parseInt(parts[1]);
+          final long size = FileUtils.sizeOfDirectory(projectDir);
+          final Pair<Integer, Integer> key = new Pair<>(projectId, version);
+          this.projectVersions.put(key, new ProjectVersion(projectId, version, projectDir));
+          this.installedSizes.put(key, size);
+          this.totalSizeBytes += size;
+        } catch (final Exception e) {
+          logger.error("Error loading installed project " + projectDir, e);
+        }
+      }
+      logger.info("Loaded " + this.installedSizes.size() + " installed projects, "
+          + this.totalSizeBytes + " bytes.");
+      evictedDirs = evictLeastRecentlyUsed();
+    }
+    deleteDirectories(evictedDirs);
+  }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright 2018 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package azkaban.execapp;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import azkaban.executor.ExecutorManagerException;
+import azkaban.executor.MockExecutorLoader;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.log4j.Logger;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ApplicationIdAppenderTest {
+
+  private final AtomicInteger failedUploads = new AtomicInteger(0);
+  private final MockExecutorLoader loader = new MockExecutorLoader() {
+    @Override
+    public void uploadApplicationId(final int execId, final String name, final int attempt,
+        final String applicationId) throws ExecutorManagerException {
+      if (ApplicationIdAppenderTest.this.failedUploads.getAndDecrement() > 0) {
+        throw new ExecutorManagerException("Failed to upload " + applicationId);
+      }
+      super.uploadApplicationId(execId, name, attempt, applicationId);
+    }
+  };
+  private final Logger logger = Logger.getLogger("ApplicationIdAppenderTest");
+  private ApplicationIdAppender appender;
+
+  @Before
+  public void setUp() {
+    this.appender = new ApplicationIdAppender(this.loader, 1, "job1", 0, Runnable::run);
+    this.logger.addAppender(this.appender);
+  }
+
+  @After
+  public void tearDown() {
+    this.logger.removeAppender(this.appender);
+  }
+
+  @Test
+  public void testFirstApplicationIdIsStored() throws Exception {
+    this.logger.info("Starting job");
+    assertThat(this.loader.fetchApplicationId(1, "job1", 0)).isNull();
+
+    this.logger.info("Submitted application application_1528000000000_0001 to ResourceManager");
+    this.logger.info("Submitted application application_1528000000000_0002 to ResourceManager");
+    assertThat(this.loader.fetchApplicationId(1, "job1", 0)).isEqualTo("1528000000000_0001");
+  }
+
+  @Test
+  public void testNextApplicationIdIsStoredAfterAFailedUpload() throws Exception {
+    this.failedUploads.set(1);
+    this.logger.info("Submitted application application_1528000000000_0001 to ResourceManager");
+    assertThat(this.loader.fetchApplicationId(1, "job1", 0)).isNull();
+
+    this.logger.info("Submitted application application_1528000000000_0002 to ResourceManager");
+    assertThat(this.loader.fetchApplicationId(1, "job1", 0)).isEqualTo("1528000000000_0002");
+  }
+}
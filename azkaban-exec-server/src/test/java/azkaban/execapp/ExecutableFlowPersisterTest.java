@@ -0,0 +1,186 @@
+/*
+ * Copyright 2018 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package azkaban.execapp;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import azkaban.executor.ExecutableFlow;
+import azkaban.executor.ExecutionOptions;
+import azkaban.executor.ExecutorLoader;
+import azkaban.executor.ExecutorManagerException;
+import azkaban.executor.Status;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ExecutableFlowPersisterTest {
+
+  // long enough for the background flush to never run during a test
+  private static final long FLUSH_INTERVAL_MS = 60 * 60 * 1000;
+
+  private ExecutorLoader executorLoader;
+  private ExecutableFlowPersister persister;
+
+  @Before
+  public void setUp() {
+    this.executorLoader = mock(ExecutorLoader.class);
+    this.persister = new ExecutableFlowPersister(this.executorLoader, FLUSH_INTERVAL_MS, 2);
+  }
+
+  @After
+  public void tearDown() {
+    this.persister.shutdown();
+  }
+
+  @Test
+  public void testUpdatesAreCoalesced() throws Exception {
+    final ExecutableFlow flow = createFlow(1);
+    this.persister.persist(flow);
+    this.persister.persist(flow);
+    this.persister.persist(flow);
+    verify(this.executorLoader, never()).updateExecutableFlows(any());
+
+    this.persister.flushPendingFlows();
+    verify(this.executorLoader).updateExecutableFlows(flowsWithIds(1));
+    assertThat(this.persister.getNumPendingFlows()).isEqualTo(0);
+  }
+
+  @Test
+  public void testPendingUpdateIsSnapshot() throws Exception {
+    final ExecutableFlow flow = createFlow(1);
+    flow.setStatus(Status.RUNNING);
+    this.persister.persist(flow);
+    flow.setStatus(Status.FAILED_FINISHING);
+
+    this.persister.flushPendingFlows();
+    verify(this.executorLoader).updateExecutableFlows(argThat(
+        flows -> flows.size() == 1 && flows.get(0).getStatus() == Status.RUNNING));
+  }
+
+  @Test
+  public void testFlowsAreWrittenInBatches() throws Exception {
+    for (int execId = 1; execId <= 5; execId++) {
+      this.persister.persist(createFlow(execId));
+    }
+
+    this.persister.flushPendingFlows();
+    verify(this.executorLoader, times(3)).updateExecutableFlows(any());
+  }
+
+  @Test
+  public void testFlushWritesSynchronously() throws Exception {
+    final ExecutableFlow flow = createFlow(1);
+    this.persister.persist(flow);
+    this.persister.flush(flow);
+    verify(this.executorLoader).updateExecutableFlow(flow);
+
+    // the pending update was written by the flush
+    this.persister.flushPendingFlows();
+    verify(this.executorLoader, never()).updateExecutableFlows(any());
+  }
+
+  @Test
+  public void testFailedBatchIsRetried() throws Exception {
+    final ExecutableFlow flow1 = createFlow(1);
+    final ExecutableFlow flow2 = createFlow(2);
+    doThrow(ExecutorManagerException.class).doNothing().when(this.executorLoader)
+        .updateExecutableFlows(any());
+    this.persister.persist(flow1);
+    this.persister.persist(flow2);
+
+    this.persister.flushPendingFlows();
+    assertThat(this.persister.getNumPendingFlows()).isEqualTo(2);
+    this.persister.flushPendingFlows();
+    verify(this.executorLoader, times(2)).updateExecutableFlows(flowsWithIds(1, 2));
+    assertThat(this.persister.getNumPendingFlows()).isEqualTo(0);
+  }
+
+  @Test
+  public void testShutdownWritesPendingFlows() throws Exception {
+    final ExecutableFlow flow = createFlow(1);
+    this.persister.persist(flow);
+
+    this.persister.shutdown();
+    verify(this.executorLoader).updateExecutableFlows(flowsWithIds(1));
+  }
+
+  @Test
+  public void testWriteThroughWithoutFlushInterval() throws Exception {
+    final ExecutableFlowPersister writeThrough =
+        new ExecutableFlowPersister(this.executorLoader, 0, 2);
+    final ExecutableFlow flow = createFlow(1);
+    doNothing().when(this.executorLoader).updateExecutableFlow(flow);
+
+    writeThrough.persist(flow);
+    verify(this.executorLoader).updateExecutableFlow(flow);
+    assertThat(writeThrough.getNumPendingFlows()).isEqualTo(0);
+  }
+
+  @Test
+  public void testNodeStatesBetweenFullWrites() throws Exception {
+    final ExecutableFlowPersister nodeStates =
+        new ExecutableFlowPersister(this.executorLoader, FLUSH_INTERVAL_MS, 2, true);
+    final ExecutableFlow flow = createFlow(1);
+    flow.setStatus(Status.RUNNING);
+
+    // the first write stores the whole flow
+    nodeStates.flush(flow);
+    verify(this.executorLoader).updateExecutableFlow(flow);
+
+    nodeStates.persist(flow);
+    nodeStates.flushPendingFlows();
+    nodeStates.flush(flow);
+    verify(this.executorLoader, times(2))
+        .updateExecutableFlowNodeStates(flowWithId(1), anyLong());
+    verify(this.executorLoader, never()).updateExecutableFlows(any());
+
+    // the final state is written as a whole and replaces the node states
+    flow.setStatus(Status.SUCCEEDED);
+    nodeStates.flush(flow);
+    verify(this.executorLoader, times(2)).updateExecutableFlow(flow);
+    verify(this.executorLoader).removeExecutableFlowNodeStates(1);
+    nodeStates.shutdown();
+  }
+
+  private static List<ExecutableFlow> flowsWithIds(final Integer... execIds) {
+    return argThat(flows -> flows.stream().map(ExecutableFlow::getExecutionId)
+        .collect(Collectors.toList()).equals(Arrays.asList(execIds)));
+  }
+
+  private static ExecutableFlow flowWithId(final int execId) {
+    return argThat(flow -> flow.getExecutionId() == execId);
+  }
+
+  private ExecutableFlow createFlow(final int execId) {
+    final ExecutableFlow flow = new ExecutableFlow();
+    flow.setExecutionId(execId);
+    flow.setExecutionOptions(new ExecutionOptions());
+    return flow;
+  }
+}
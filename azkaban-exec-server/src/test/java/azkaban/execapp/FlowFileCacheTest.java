@@ -0,0 +1,102 @@
+/*
+ * Copyright 2018 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package azkaban.execapp;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import azkaban.project.FlowLoaderUtils;
+import azkaban.project.NodeBean;
+import azkaban.project.ProjectLoader;
+import azkaban.test.executions.ExecutionsTestUtil;
+import java.io.File;
+import org.apache.commons.io.FileUtils;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class FlowFileCacheTest {
+
+  private static final String FLOW_FILE = "basic_flow.flow";
+  private static final int PROJECT_ID = 1;
+  private static final int PROJECT_VERSION = 2;
+
+  @Rule
+  public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+  private ProjectLoader projectLoader;
+  private File execDir;
+
+  @Before
+  public void setUp() throws Exception {
+    this.projectLoader = mock(ProjectLoader.class);
+    when(this.projectLoader.getUploadedFlowFile(anyInt(), anyInt(), anyString(), anyInt(), any()))
+        .thenAnswer(invocation -> {
+          final File tempDir = invocation.getArgument(4);
+          final File flowFile = new File(tempDir, FLOW_FILE);
+          FileUtils.copyFile(ExecutionsTestUtil.getFlowFile("basicflowyamltest", FLOW_FILE),
+              flowFile);
+          return flowFile;
+        });
+
+    this.execDir = this.temporaryFolder.newFolder("exec");
+    FileUtils.copyFile(ExecutionsTestUtil.getFlowFile("basicflowyamltest", FLOW_FILE),
+        new File(this.execDir, FLOW_FILE));
+  }
+
+  @Test
+  public void testFirstVersionIsLoadedFromExecDir() throws Exception {
+    final FlowFileCache cache = new FlowFileCache(this.projectLoader, 10);
+    final NodeBean nodeBean = cache.getNodeBean(PROJECT_ID, PROJECT_VERSION, FLOW_FILE, 1,
+        this.execDir);
+
+    assertThat(nodeBean.getName()).isEqualTo("basic_flow");
+    assertThat(FlowLoaderUtils.getPropsFromNodeBean("basic_flow", nodeBean)
+        .get("flow-level-parameter")).isEqualTo("value");
+    verify(this.projectLoader, never())
+        .getUploadedFlowFile(anyInt(), anyInt(), anyString(), anyInt(), any());
+  }
+
+  @Test
+  public void testLaterVersionIsFetchedOnce() throws Exception {
+    final FlowFileCache cache = new FlowFileCache(this.projectLoader, 10);
+    final NodeBean nodeBean = cache.getNodeBean(PROJECT_ID, PROJECT_VERSION, FLOW_FILE, 2,
+        this.execDir);
+    assertThat(cache.getNodeBean(PROJECT_ID, PROJECT_VERSION, FLOW_FILE, 2, this.execDir))
+        .isSameAs(nodeBean);
+
+    verify(this.projectLoader, times(1))
+        .getUploadedFlowFile(eq(PROJECT_ID), eq(PROJECT_VERSION), eq(FLOW_FILE), eq(2), any());
+  }
+
+  @Test
+  public void testEvictsWhenFull() throws Exception {
+    final FlowFileCache cache = new FlowFileCache(this.projectLoader, 2);
+    for (int flowVersion = 2; flowVersion <= 4; flowVersion++) {
+      cache.getNodeBean(PROJECT_ID, PROJECT_VERSION, FLOW_FILE, flowVersion, this.execDir);
+    }
+    assertThat(cache.size()).isEqualTo(2);
+  }
+}
@@ -17,17 +17,18 @@
 
 package azkaban.execapp;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import azkaban.executor.ExecutableFlow;
 import azkaban.project.ProjectFileHandler;
 import azkaban.storage.StorageManager;
-import azkaban.utils.Pair;
 import java.io.File;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.concurrent.CountDownLatch;
 import org.apache.commons.io.FileUtils;
 import org.junit.After;
 import org.junit.Before;
@@ -40,8 +41,10 @@ public class FlowPreparerTest {
 
   final File executionsDir = new File("executions");
   final File projectsDir = new File("projects");
-  final Map<Pair<Integer, Integer>, ProjectVersion> installedProjects = new HashMap<>();
 
+  private final CountDownLatch downloadStarted = new CountDownLatch(1);
+  private StorageManager storageManager;
+  private ProjectCacheManager projectCacheManager;
   private FlowPreparer instance;
 
   @Before
@@ -58,11 +61,17 @@ public class FlowPreparerTest {
     when(projectFileHandler.getFileType()).thenReturn("zip");
     when(projectFileHandler.getLocalFile()).thenReturn(file);
 
-    final StorageManager storageManager = mock(StorageManager.class);
-    when(storageManager.getProjectFile(12, 34)).thenReturn(projectFileHandler);
-
-    this.instance = new FlowPreparer(storageManager, this.executionsDir, this.projectsDir,
-        this.installedProjects);
+    this.storageManager = mock(StorageManager.class);
+    when(this.storageManager.getProjectFile(12, 34)).thenAnswer(invocation -> {
+      this.downloadStarted.countDown();
+      // give the concurrent installations time to wait for this one
+      Thread.sleep(200);
+      return projectFileHandler;
+    });
+
+    this.projectCacheManager = new ProjectCacheManager(this.projectsDir, 0);
+    this.instance = new FlowPreparer(this.storageManager, this.executionsDir, this.projectsDir,
+        this.projectCacheManager);
   }
 
   @After
@@ -92,5 +101,39 @@ public class FlowPreparerTest {
     final File execDir = new File(this.executionsDir, "12345");
     assertTrue(execDir.exists());
     assertTrue(new File(execDir, SAMPLE_FLOW_01).exists());
+    assertThat(this.projectCacheManager.getNumInstalledProjects()).isEqualTo(1);
+  }
+
+  @Test
+  public void testConcurrentInstallationsShareDownload() throws Exception {
+    final Thread installer = new Thread(() -> {
+      try {
+        this.instance.installProject(new ProjectVersion(12, 34));
+      } catch (final Exception e) {
+        throw new RuntimeException(e);
+      }
+    });
+    installer.start();
+    this.downloadStarted.await();
+
+    final ProjectVersion pv = new ProjectVersion(12, 34);
+    this.instance.installProject(pv);
+    installer.join();
+
+    verify(this.storageManager, times(1)).getProjectFile(12, 34);
+    assertTrue(new File(this.projectsDir, "12.34").exists());
+    assertThat(this.projectCacheManager.getHitRatio()).isEqualTo(0.5);
+  }
+
+  @Test
+  public void testPrepareLatencyIsRecorded() throws Exception {
+    final ExecutableFlow executableFlow = mock(ExecutableFlow.class);
+    when(executableFlow.getExecutionId()).thenReturn(12345);
+    when(executableFlow.getProjectId()).thenReturn(12);
+    when(executableFlow.getVersion()).thenReturn(34);
+
+    this.instance.setup(executableFlow);
+    assertThat(this.instance.getPrepareLatency().getCount()).isEqualTo(1);
+    assertThat(this.projectCacheManager.getHitRatio()).isEqualTo(0.0);
   }
 }
@@ -0,0 +1,58 @@
+/*
+ * Copyright 2018 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package azkaban.execapp;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+
+public class FlowUpdateNotifierTest {
+
+  private final FlowUpdateNotifier notifier = new FlowUpdateNotifier();
+
+  @Test
+  public void testAwaitReturnsImmediatelyIfAlreadyUpdated() throws Exception {
+    final long sequence = this.notifier.getSequence();
+    this.notifier.notifyUpdate();
+    final long start = System.currentTimeMillis();
+    assertThat(this.notifier.awaitUpdate(sequence, 10000)).isEqualTo(sequence + 1);
+    assertThat(System.currentTimeMillis() - start).isLessThan(5000);
+  }
+
+  @Test
+  public void testAwaitTimesOut() throws Exception {
+    final long sequence = this.notifier.getSequence();
+    assertThat(this.notifier.awaitUpdate(sequence, 50)).isEqualTo(sequence);
+  }
+
+  @Test
+  public void testAwaitIsWokenUpByUpdate() throws Exception {
+    final long sequence = this.notifier.getSequence();
+    final CompletableFuture<Long> result = CompletableFuture.supplyAsync(() -> {
+      try {
+        return this.notifier.awaitUpdate(sequence, 60000);
+      } catch (final InterruptedException e) {
+        throw new RuntimeException(e);
+      }
+    });
+    Thread.sleep(100);
+    this.notifier.notifyUpdate();
+    assertThat(result.get(10, TimeUnit.SECONDS)).isEqualTo(sequence + 1);
+  }
+}
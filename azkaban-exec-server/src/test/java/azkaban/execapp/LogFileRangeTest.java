@@ -0,0 +1,95 @@
+/*
+ * Copyright 2018 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package azkaban.execapp;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import azkaban.utils.FileIOUtils.LogData;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import org.apache.commons.io.FileUtils;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class LogFileRangeTest {
+
+  @Rule
+  public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+  private File logFile;
+
+  @Before
+  public void setUp() throws Exception {
+    this.logFile = new File(this.temporaryFolder.getRoot(), "_job.1.test.log");
+    // log.2 is the oldest backup file
+    write(new File(this.logFile.getPath() + ".2"), "first ");
+    write(new File(this.logFile.getPath() + ".1"), "second ");
+    write(this.logFile, "third");
+  }
+
+  @Test
+  public void testRangeAcrossBackupFiles() throws Exception {
+    assertThat(transfer(0, 100)).isEqualTo("first second third");
+    assertThat(transfer(3, 10)).isEqualTo("st second ");
+    assertThat(transfer(13, 3)).isEqualTo("thi");
+  }
+
+  @Test
+  public void testRangeAfterTheEndOfTheLog() throws Exception {
+    assertThat(transfer(18, 10)).isEmpty();
+    try (LogFileRange range = LogFileRange.open(this.logFile, 100, 10)) {
+      assertThat(range.getLength()).isEqualTo(0L);
+    }
+  }
+
+  @Test
+  public void testRangeDoesNotGrowWithTheLog() throws Exception {
+    try (LogFileRange range = LogFileRange.open(this.logFile, 10, 100)) {
+      FileUtils.writeStringToFile(this.logFile, " fourth", StandardCharsets.UTF_8, true);
+      final ByteArrayOutputStream out = new ByteArrayOutputStream();
+      range.transferTo(Channels.newChannel(out));
+      assertThat(out.toString(StandardCharsets.UTF_8.name())).isEqualTo("nd third");
+      assertThat(range.getLength()).isEqualTo(8L);
+    }
+  }
+
+  @Test
+  public void testReadUtf8CountsBackupFiles() throws Exception {
+    try (LogFileRange range = LogFileRange.open(this.logFile, 7, 100)) {
+      final LogData data = range.readUtf8();
+      assertThat(data.getOffset()).isEqualTo(7);
+      assertThat(data.getLength()).isEqualTo(11);
+      assertThat(data.getData()).isEqualTo("econd third");
+    }
+  }
+
+  private String transfer(final long startByte, final long length) throws Exception {
+    try (LogFileRange range = LogFileRange.open(this.logFile, startByte, length)) {
+      final ByteArrayOutputStream out = new ByteArrayOutputStream();
+      range.transferTo(Channels.newChannel(out));
+      assertThat((long) out.size()).isEqualTo(range.getLength());
+      return out.toString(StandardCharsets.UTF_8.name());
+    }
+  }
+
+  private static void write(final File file, final String data) throws Exception {
+    FileUtils.writeStringToFile(file, data, StandardCharsets.UTF_8);
+  }
+}
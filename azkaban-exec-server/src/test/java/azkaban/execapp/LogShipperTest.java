@@ -0,0 +1,179 @@
+/*
+ * Copyright 2018 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package azkaban.execapp;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+import azkaban.executor.ExecutorLoader;
+import azkaban.executor.ExecutorManagerException;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import org.apache.commons.io.FileUtils;
+import org.apache.log4j.Logger;
+import org.apache.log4j.PatternLayout;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class LogShipperTest {
+
+  // long enough for the background upload to never run during a test
+  private static final long INTERVAL_MS = 60 * 60 * 1000;
+  private static final int CHUNK_SIZE = 16 * 1024;
+
+  @Rule
+  public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+  private final ByteArrayOutputStream uploadedLog = new ByteArrayOutputStream();
+  private boolean failUploads = false;
+  private LogShipper logShipper;
+  private File logFile;
+
+  @Before
+  public void setUp() throws Exception {
+    final ExecutorLoader executorLoader = mock(ExecutorLoader.class);
+    doAnswer(invocation -> {
+      if (this.failUploads) {
+        throw new ExecutorManagerException("upload failed");
+      }
+      final int startByte = invocation.getArgument(3);
+      final List<byte[]> chunks = invocation.getArgument(4);
+      // the chunks must follow each other
+      assertThat(startByte).isEqualTo(this.uploadedLog.size());
+      for (final byte[] chunk : chunks) {
+        this.uploadedLog.write(chunk);
+      }
+      return null;
+    }).when(executorLoader).uploadLogChunks(anyInt(), anyString(), anyInt(), anyInt(), any());
+
+    this.logShipper = new LogShipper(executorLoader, INTERVAL_MS, CHUNK_SIZE);
+    this.logFile = new File(this.temporaryFolder.getRoot(), "_job.1.test.log");
+  }
+
+  @After
+  public void tearDown() {
+    this.logShipper.shutdown();
+  }
+
+  @Test
+  public void testOnlyCompleteChunksAreShippedWhileRunning() throws Exception {
+    final LogShipper.RollingLogAppender appender = createAppender("100MB", 4);
+    final Logger logger = createLogger(appender);
+    this.logShipper.register(1, "test", 0, this.logFile, appender);
+
+    final StringBuilder expected = new StringBuilder();
+    log(logger, expected, 3000);
+    this.logShipper.shipLogs();
+    final int shippedBytes = this.uploadedLog.size();
+    assertThat(shippedBytes).isGreaterThan(0);
+    assertThat(shippedBytes % CHUNK_SIZE).isEqualTo(0);
+
+    // nothing new to upload
+    this.logShipper.shipLogs();
+    assertThat(this.uploadedLog.size()).isEqualTo(shippedBytes);
+
+    appender.close();
+    assertThat(this.logShipper.finish(1, "test", 0)).isTrue();
+    assertThat(this.uploadedLog.toString(StandardCharsets.UTF_8.name()))
+        .isEqualTo(expected.toString());
+    assertThat(this.logShipper.getNumShippedLogs()).isEqualTo(0);
+  }
+
+  @Test
+  public void testRolledOverLogIsShippedInOrder() throws Exception {
+    final LogShipper.RollingLogAppender appender = createAppender("20KB", 10);
+    final Logger logger = createLogger(appender);
+    this.logShipper.register(1, "test", 0, this.logFile, appender);
+
+    final StringBuilder expected = new StringBuilder();
+    for (int i = 0; i < 5; i++) {
+      log(logger, expected, 1000);
+      this.logShipper.shipLogs();
+    }
+    assertThat(new File(this.logFile.getPath() + ".1")).exists();
+
+    appender.close();
+    this.logShipper.finish(1, "test", 0);
+    assertThat(this.uploadedLog.toString(StandardCharsets.UTF_8.name()))
+        .isEqualTo(expected.toString());
+  }
+
+  @Test
+  public void testFailedFinishIsRetried() throws Exception {
+    final LogShipper.RollingLogAppender appender = createAppender("100MB", 4);
+    final Logger logger = createLogger(appender);
+    this.logShipper.register(1, "test", 0, this.logFile, appender);
+
+    final StringBuilder expected = new StringBuilder();
+    log(logger, expected, 100);
+    appender.close();
+    this.failUploads = true;
+    assertThatThrownBy(() -> this.logShipper.finish(1, "test", 0))
+        .isInstanceOf(ExecutorManagerException.class);
+    assertThat(this.logShipper.getNumShippedLogs()).isEqualTo(1);
+
+    // the next run uploads the rest of the finished log
+    this.failUploads = false;
+    this.logShipper.shipLogs();
+    assertThat(this.uploadedLog.toString(StandardCharsets.UTF_8.name()))
+        .isEqualTo(expected.toString());
+    assertThat(this.logShipper.getNumShippedLogs()).isEqualTo(0);
+  }
+
+  @Test
+  public void testUnregisteredLogIsNotShipped() throws Exception {
+    assertThat(this.logShipper.finish(1, "test", 0)).isFalse();
+
+    final LogShipper disabled = new LogShipper(mock(ExecutorLoader.class), 0, CHUNK_SIZE);
+    FileUtils.writeStringToFile(this.logFile, "log", StandardCharsets.UTF_8);
+    disabled.register(1, "test", 0, this.logFile, null);
+    assertThat(disabled.finish(1, "test", 0)).isFalse();
+  }
+
+  private LogShipper.RollingLogAppender createAppender(final String maxFileSize,
+      final int maxBackupIndex) throws Exception {
+    final LogShipper.RollingLogAppender appender =
+        new LogShipper.RollingLogAppender(new PatternLayout("%m%n"), this.logFile.getPath());
+    appender.setMaxFileSize(maxFileSize);
+    appender.setMaxBackupIndex(maxBackupIndex);
+    return appender;
+  }
+
+  private Logger createLogger(final LogShipper.RollingLogAppender appender) {
+    final Logger logger = Logger.getLogger("LogShipperTest." + System.nanoTime());
+    logger.setAdditivity(false);
+    logger.addAppender(appender);
+    return logger;
+  }
+
+  private void log(final Logger logger, final StringBuilder expected, final int lines) {
+    for (int i = 0; i < lines; i++) {
+      final String line = "line " + expected.length() + " of the test log";
+      logger.info(line);
+      expected.append(line).append(System.lineSeparator());
+    }
+  }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright 2018 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package azkaban.execapp;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import azkaban.utils.LogTail;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class LogWatcherTest {
+
+  @Rule
+  public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+  private final AtomicBoolean writing = new AtomicBoolean(true);
+  private LogWatcher watcher;
+  private File logFile;
+
+  @Before
+  public void setUp() throws Exception {
+    // only watched when the test calls watchLogs
+    this.watcher = new LogWatcher(Long.MAX_VALUE / 2, 1024);
+    this.logFile = new File(this.temporaryFolder.getRoot(), "_job.1.test.log");
+    write(new File(this.logFile.getPath() + ".1"), "first ");
+    write(this.logFile, "second ");
+  }
+
+  @After
+  public void tearDown() {
+    this.watcher.shutdown();
+  }
+
+  @Test
+  public void testFollowersShareOneWatchedLog() throws Exception {
+    final LogTail.Follower first = follow(0);
+    final LogTail.Follower second = follow(15);
+    assertThat(first.getStartPosition()).isEqualTo(13L);
+    assertThat(this.watcher.getNumWatchedLogs()).isEqualTo(1);
+
+    append(this.logFile, "third");
+    this.watcher.watchLogs();
+    assertThat(take(first)).isEqualTo("third");
+    assertThat(take(second)).isEqualTo("ird");
+  }
+
+  @Test
+  public void testRollOver() throws Exception {
+    final LogTail.Follower follower = follow(13);
+    append(this.logFile, "end");
+    // the appender renames log.1 to log.2 and log to log.1, then creates a new log
+    FileUtils.moveFile(new File(this.logFile.getPath() + ".1"),
+        new File(this.logFile.getPath() + ".2"));
+    FileUtils.moveFile(this.logFile, new File(this.logFile.getPath() + ".1"));
+    write(this.logFile, "new");
+    this.watcher.watchLogs();
+    assertThat(take(follower) + take(follower)).isEqualTo("endnew");
+  }
+
+  @Test
+  public void testLogNotWrittenAnymore() throws Exception {
+    final LogTail.Follower follower = follow(13);
+    append(this.logFile, "last");
+    this.writing.set(false);
+    this.watcher.watchLogs();
+    assertThat(take(follower)).isEqualTo("last");
+    assertThat(follower.take(0)).isNull();
+    assertThat(follower.isComplete()).isTrue();
+    assertThat(this.watcher.getNumWatchedLogs()).isEqualTo(0);
+  }
+
+  @Test
+  public void testLogWithoutFollowers() throws Exception {
+    follow(13).close();
+    this.watcher.watchLogs();
+    assertThat(this.watcher.getNumWatchedLogs()).isEqualTo(0);
+  }
+
+  private LogTail.Follower follow(final long offset) throws Exception {
+    return this.watcher.follow("1:test:1", this.logFile, offset, this.writing::get);
+  }
+
+  private static String take(final LogTail.Follower follower) throws Exception {
+    return new String(follower.take(5000), StandardCharsets.UTF_8);
+  }
+
+  private static void write(final File file, final String data) throws Exception {
+    FileUtils.writeStringToFile(file, data, StandardCharsets.UTF_8);
+  }
+
+  private static void append(final File file, final String data) throws Exception {
+    FileUtils.writeStringToFile(file, data, StandardCharsets.UTF_8, true);
+  }
+}
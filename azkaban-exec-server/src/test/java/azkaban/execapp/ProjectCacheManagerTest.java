@@ -0,0 +1,122 @@
+/*
+ * Copyright 2018 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package azkaban.execapp;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import org.apache.commons.io.FileUtils;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ProjectCacheManagerTest {
+
+  private static final int PROJECT_SIZE = 100;
+
+  @Rule
+  public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+  private File projectsDir;
+
+  @Before
+  public void setUp() throws Exception {
+    this.projectsDir = this.temporaryFolder.newFolder("projects");
+  }
+
+  @Test
+  public void testEvictsLeastRecentlyUsed() throws Exception {
+    final ProjectCacheManager cache =
+        new ProjectCacheManager(this.projectsDir, 2 * PROJECT_SIZE);
+    final ProjectVersion pv1 = install(cache, 1, 1);
+    final ProjectVersion pv2 = install(cache, 2, 1);
+    // version 1.1 is now more recently used than 2.1
+    cache.getProjectVersion(1, 1);
+
+    final ProjectVersion pv3 = install(cache, 3, 1);
+    assertThat(pv1.getInstalledDir()).exists();
+    assertThat(pv2.getInstalledDir()).doesNotExist();
+    assertThat(pv3.getInstalledDir()).exists();
+    assertThat(cache.getNumEvictions()).isEqualTo(1);
+    assertThat(cache.getTotalSizeBytes()).isEqualTo(2 * PROJECT_SIZE);
+  }
+
+  @Test
+  public void testPinnedVersionsAreNotEvicted() throws Exception {
+    final ProjectCacheManager cache = new ProjectCacheManager(this.projectsDir, PROJECT_SIZE);
+    final ProjectVersion pv1 = install(cache, 1, 1);
+    cache.pin(1, 1);
+
+    final ProjectVersion pv2 = install(cache, 2, 1);
+    assertThat(pv1.getInstalledDir()).exists();
+    assertThat(pv2.getInstalledDir()).doesNotExist();
+
+    cache.unpin(1, 1);
+    assertThat(cache.isPinned(1, 1)).isFalse();
+    install(cache, 3, 1);
+    assertThat(pv1.getInstalledDir()).doesNotExist();
+  }
+
+  @Test
+  public void testEvictedVersionIsInstalledAgain() throws Exception {
+    final ProjectCacheManager cache = new ProjectCacheManager(this.projectsDir, PROJECT_SIZE);
+    install(cache, 1, 1);
+    install(cache, 2, 1);
+
+    final ProjectVersion pv = cache.getProjectVersion(1, 1);
+    assertThat(pv.getInstalledDir()).doesNotExist();
+    install(cache, 1, 1);
+    assertThat(pv.getInstalledDir()).exists();
+    assertThat(cache.getNumMisses()).isEqualTo(3);
+  }
+
+  @Test
+  public void testRemoveOlderVersions() throws Exception {
+    final ProjectCacheManager cache = new ProjectCacheManager(this.projectsDir, 0);
+    final ProjectVersion pv1 = install(cache, 1, 1);
+    final ProjectVersion pv2 = install(cache, 1, 2);
+    final ProjectVersion pv3 = install(cache, 1, 3);
+    cache.pin(1, 1);
+
+    cache.removeOlderVersions();
+    assertThat(pv1.getInstalledDir()).exists();
+    assertThat(pv2.getInstalledDir()).doesNotExist();
+    assertThat(pv3.getInstalledDir()).exists();
+    assertThat(cache.getNumInstalledProjects()).isEqualTo(2);
+  }
+
+  @Test
+  public void testLoadsExistingProjects() throws Exception {
+    install(new ProjectCacheManager(this.projectsDir, 0), 1, 1);
+    new File(this.projectsDir, "_deleted.1.2.1234").mkdirs();
+
+    final ProjectCacheManager cache = new ProjectCacheManager(this.projectsDir, 0);
+    assertThat(cache.getNumInstalledProjects()).isEqualTo(1);
+    assertThat(cache.getTotalSizeBytes()).isEqualTo(PROJECT_SIZE);
+    assertThat(new File(this.projectsDir, "_deleted.1.2.1234")).doesNotExist();
+  }
+
+  private ProjectVersion install(final ProjectCacheManager cache, final int projectId,
+      final int version) throws Exception {
+    final ProjectVersion pv = cache.getProjectVersion(projectId, version);
+    FileUtils.writeStringToFile(new File(pv.getInstalledDir(), "file"),
+        new String(new char[PROJECT_SIZE]).replace('\0', 'a'), StandardCharsets.UTF_8);
+    cache.addInstalledProject(pv);
+    return pv;
+  }
+}
@@ -0,0 +1,36 @@
+/*
+ * Copyright 2018 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+
+package azkaban.spi;
+
+import java.io.File;
+
+/**
+ * A {@link Storage} which can also put objects under keys chosen by the caller, such as the
+ * segments of execution logs. The storages which only store project artifacts don't implement it.
+ */
+public interface KeyedStorage extends Storage {
+
+  /**
+   * Put an object under the given key, replacing the object already stored under it.
+   *
+   * @param key The key is a relative path of the object in Storage.
+   * @param localFile Read data from a local file
+   * @return Key associated with the current object on successful put
+   */
+  String put(String key, File localFile);
+}
@@ -23,6 +23,8 @@ import azkaban.AzkabanCommonModule;
 import azkaban.Constants;
 import azkaban.Constants.ConfigurationKeys;
 import azkaban.database.AzkabanDatabaseSetup;
+import azkaban.executor.ExecutionAdmission;
+import azkaban.executor.ExecutionSearchIndex;
 import azkaban.executor.ExecutorManager;
 import azkaban.flowtrigger.FlowTriggerService;
 import azkaban.flowtrigger.quartz.FlowTriggerScheduler;
@@ -138,6 +140,8 @@ public class AzkabanWebServer extends AzkabanServer {
   private final UserManager userManager;
   private final ProjectManager projectManager;
   private final ExecutorManager executorManager;
+  private final ExecutionAdmission executionAdmission;
+  private final ExecutionSearchIndex executionSearchIndex;
   private final ScheduleManager scheduleManager;
   private final TriggerManager triggerManager;
   private final MetricsManager metricsManager;
@@ -153,6 +157,8 @@ public class AzkabanWebServer extends AzkabanServer {
   public AzkabanWebServer(final Props props,
       final Server server,
       final ExecutorManager executorManager,
+      final ExecutionAdmission executionAdmission,
+      final ExecutionSearchIndex executionSearchIndex,
       final ProjectManager projectManager,
       final TriggerManager triggerManager,
       final MetricsManager metricsManager,
@@ -166,6 +172,9 @@ public class AzkabanWebServer extends AzkabanServer {
     this.props = requireNonNull(props, "props is null.");
     this.server = requireNonNull(server, "server is null.");
     this.executorManager = requireNonNull(executorManager, "executorManager is null.");
+    this.executionAdmission = requireNonNull(executionAdmission, "executionAdmission is null.");
+    this.executionSearchIndex = requireNonNull(executionSearchIndex,
+        "executionSearchIndex is null.");
     this.projectManager = requireNonNull(projectManager, "projectManager is null.");
     this.triggerManager = requireNonNull(triggerManager, "triggerManager is null.");
     this.metricsManager = requireNonNull(metricsManager, "metricsManager is null.");
@@ -541,6 +550,7 @@ public class AzkabanWebServer extends AzkabanServer {
     validateDatabaseVersion();
     createThreadPool();
     configureRoutes();
+    this.executionSearchIndex.startBackfill();
 
     if (this.props.getBoolean(Constants.ConfigurationKeys.IS_METRICS_ENABLED, false)) {
       startWebMetrics();
@@ -605,6 +615,7 @@ public class AzkabanWebServer extends AzkabanServer {
   private void loadBuiltinCheckersAndActions() {
     logger.info("Loading built-in checker and action types");
     ExecuteFlowAction.setExecutorManager(this.executorManager);
+    ExecuteFlowAction.setExecutionAdmission(this.executionAdmission);
     ExecuteFlowAction.setProjectManager(this.projectManager);
     ExecuteFlowAction.setTriggerManager(this.triggerManager);
     KillExecutionAction.setExecutorManager(this.executorManager);
@@ -710,6 +721,7 @@ public class AzkabanWebServer extends AzkabanServer {
       logger.error("Failed to cleanup MBeanServer", e);
     }
     this.scheduleManager.shutdown();
+    this.executionAdmission.shutdown();
     this.executorManager.shutdown();
     try {
       this.server.stop();
@@ -0,0 +1,139 @@
+/*
+ * Copyright 2018 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package azkaban.webapp;
+
+import azkaban.Constants;
+import azkaban.executor.ExecutableFlow;
+import azkaban.executor.ExecutorManager;
+import azkaban.executor.ExecutorManagerAdapter;
+import azkaban.utils.LogTail;
+import azkaban.utils.Props;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import org.apache.log4j.Logger;
+
+/**
+ * Relays the running job logs followed from the web UI.
+ *
+ * All the connections following the same job log share one request to its executor, which pushes
+ * the bytes of the log as they are written to a {@link LogTail}. The request is made again from
+ * the offset reached until the log ends, or until the log has no followers left.
+ */
+@Singleton
+public class LogFollowRelay {
+
+  private static final Logger logger = Logger.getLogger(LogFollowRelay.class);
+  // wait before following again a log whose request returned nothing
+  private static final long RETRY_INTERVAL_MS = 1000;
+
+  private final ExecutorManagerAdapter executorManager;
+  private final long maxBufferBytes;
+  private final ExecutorService relayService = Executors.newCachedThreadPool(
+      new ThreadFactoryBuilder().setDaemon(true).setNameFormat("azk-log-relay-%d").build());
+  private final Map<String, LogTail> tails = new HashMap<>();
+
+  @Inject
+  public LogFollowRelay(final ExecutorManager executorManager, final Props props) {
+    this((ExecutorManagerAdapter) executorManager,
+        props.getLong(Constants.ConfigurationKeys.LOG_FOLLOW_MAX_BUFFER_BYTES,
+            Constants.DEFAULT_LOG_FOLLOW_MAX_BUFFER_BYTES));
+  }
+
+  LogFollowRelay(final ExecutorManagerAdapter executorManager, final long maxBufferBytes) {
+    this.executorManager = executorManager;
+    this.maxBufferBytes = maxBufferBytes;
+  }
+
+  /**
+   * Follows the job log from the offset, relaying it from its executor if it's the first follower.
+   * The bytes before {@link LogTail.Follower#getStartPosition()} have to be fetched separately.
+   */
+  public LogTail.Follower follow(final ExecutableFlow exFlow, final String jobId,
+      final int attempt, final long offset) {
+    final String key = exFlow.getExecutionId() + ":" + jobId + ":" + attempt;
+    synchronized (this.tails) {
+      final LogTail tail = this.tails.get(key);
+      if (tail != null) {
+        return tail.follow(offset);
+      }
+      final LogTail newTail = new LogTail(offset, this.maxBufferBytes);
+      this.tails.put(key, newTail);
+      // followed before the relay starts, which ends once the log has no followers
+      final LogTail.Follower follower = newTail.follow(offset);
+      this.relayService.execute(() -> relay(key, newTail, exFlow, jobId, attempt));
+      return follower;
+    }
+  }
+
+  public int getNumRelayedLogs() {
+    synchronized (this.tails) {
+      return this.tails.size();
+    }
+  }
+
+  private void relay(final String key, final LogTail tail, final ExecutableFlow exFlow,
+      final String jobId, final int attempt) {
+    final OutputStream out = new OutputStream() {
+      @Override
+      public void write(final int b) throws IOException {
+        write(new byte[]{(byte) b}, 0, 1);
+      }
+
+      @Override
+      public void write(final byte[] b, final int off, final int len) throws IOException {
+        if (tail.getNumFollowers() == 0) {
+          // ends the request to the executor
+          throw new IOException("Log " + key + " has no followers");
+        }
+        tail.append(b, off, len);
+      }
+    };
+
+    boolean finished = false;
+    try {
+      while (!finished && tail.getNumFollowers() > 0) {
+        final long position = tail.getPosition();
+        finished = this.executorManager.followExecutionJobLog(exFlow, jobId, position, attempt,
+            out);
+        if (!finished && tail.getPosition() == position) {
+          Thread.sleep(RETRY_INTERVAL_MS);
+        }
+      }
+    } catch (final Exception e) {
+      if (tail.getNumFollowers() > 0) {
+        logger.warn("Error relaying log " + key, e);
+      }
+    } finally {
+      synchronized (this.tails) {
+        // new followers can't join the ended log
+        if (finished) {
+          tail.finish();
+        } else {
+          tail.close();
+        }
+        this.tails.remove(key, tail);
+      }
+    }
+  }
+}
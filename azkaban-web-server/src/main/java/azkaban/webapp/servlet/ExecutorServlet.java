@@ -46,11 +46,15 @@ import azkaban.utils.ExternalLinkUtils;
 import azkaban.utils.FileIOUtils.LogData;
 import azkaban.utils.Pair;
 import azkaban.utils.Props;
+import azkaban.utils.LogTail;
 import azkaban.webapp.AzkabanWebServer;
+import azkaban.webapp.LogFollowRelay;
 import azkaban.webapp.WebMetrics;
 import azkaban.webapp.plugin.PluginRegistry;
 import azkaban.webapp.plugin.ViewerPlugin;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -68,11 +72,16 @@ public class ExecutorServlet extends LoginAbstractAzkabanServlet {
 
   private static final Logger logger = LoggerFactory.getLogger(ExecutorServlet.class.getName());
   private static final long serialVersionUID = 1L;
+  private static final String LOG_OFFSET_HEADER = "X-Log-Offset";
+  // comment sent to a log follower when the log didn't grow, to find out if it's still connected
+  private static final long LOG_FOLLOW_HEARTBEAT_MS = 15000;
+  private static final int LOG_FOLLOW_PAGE_SIZE = 50000;
   private WebMetrics webMetrics;
   private ProjectManager projectManager;
   private ExecutorManagerAdapter executorManager;
   private ScheduleManager scheduleManager;
   private UserManager userManager;
+  private LogFollowRelay logFollowRelay;
 
   @Override
   public void init(final ServletConfig config) throws ServletException {
@@ -84,6 +93,7 @@ public class ExecutorServlet extends LoginAbstractAzkabanServlet {
     this.scheduleManager = server.getScheduleManager();
     // TODO: reallocf fully guicify
     this.webMetrics = SERVICE_PROVIDER.getInstance(WebMetrics.class);
+    this.logFollowRelay = SERVICE_PROVIDER.getInstance(LogFollowRelay.class);
   }
 
   @Override
@@ -136,7 +146,15 @@ public class ExecutorServlet extends LoginAbstractAzkabanServlet {
         } else if (ajaxName.equals("fetchExecFlowLogs")) {
           ajaxFetchExecFlowLogs(req, resp, ret, session.getUser(), exFlow);
         } else if (ajaxName.equals("fetchExecJobLogs")) {
-          ajaxFetchJobLogs(req, resp, ret, session.getUser(), exFlow);
+          if (ajaxFetchJobLogs(req, resp, ret, session.getUser(), exFlow)) {
+            // the log was written as the response
+            return;
+          }
+        } else if (ajaxName.equals("followExecJobLogs")) {
+          if (ajaxFollowJobLogs(req, resp, ret, session.getUser(), exFlow)) {
+            // the log was written as the response
+            return;
+          }
         } else if (ajaxName.equals("fetchExecJobStats")) {
           ajaxFetchJobStats(req, resp, ret, session.getUser(), exFlow);
         } else if (ajaxName.equals("retryFailedJobs")) {
@@ -536,14 +554,16 @@ public class ExecutorServlet extends LoginAbstractAzkabanServlet {
 
   /**
    * Gets the logs through ajax plain text stream to reduce memory overhead.
+   *
+   * @return true if the log was streamed as the response, with the raw param
    */
-  private void ajaxFetchJobLogs(final HttpServletRequest req,
+  private boolean ajaxFetchJobLogs(final HttpServletRequest req,
       final HttpServletResponse resp, final HashMap<String, Object> ret, final User user,
-      final ExecutableFlow exFlow) throws ServletException {
+      final ExecutableFlow exFlow) throws ServletException, IOException {
     final Project project =
         getProjectAjaxByPermission(ret, exFlow.getProjectId(), user, Type.READ);
     if (project == null) {
-      return;
+      return false;
     }
 
     final int offset = this.getIntParam(req, "offset");
@@ -557,10 +577,14 @@ public class ExecutorServlet extends LoginAbstractAzkabanServlet {
       if (node == null) {
         ret.put("error",
             "Job " + jobId + " doesn't exist in " + exFlow.getExecutionId());
-        return;
+        return false;
       }
 
       final int attempt = this.getIntParam(req, "attempt", node.getAttempt());
+      if (HttpRequestUtils.getBooleanParam(req, "raw", false)) {
+        streamJobLogs(resp, exFlow, jobId, offset, length, attempt);
+        return true;
+      }
       final LogData data =
           this.executorManager.getExecutionJobLog(exFlow, jobId, offset, length,
               attempt);
@@ -576,6 +600,112 @@ public class ExecutorServlet extends LoginAbstractAzkabanServlet {
     } catch (final ExecutorManagerException e) {
       throw new ServletException(e);
     }
+    return false;
+  }
+
+  /**
+   * Writes the range of the job log as plain text, with the offset of its first byte in the
+   * X-Log-Offset header. The log of a running job is copied from its executor as it is, so it isn't
+   * HTML escaped and may start or end in the middle of a character.
+   */
+  private void streamJobLogs(final HttpServletResponse resp, final ExecutableFlow exFlow,
+      final String jobId, final int offset, final int length, final int attempt)
+      throws ExecutorManagerException, IOException {
+    resp.setContentType("text/plain");
+    resp.setCharacterEncoding("utf-8");
+    resp.setHeader(LOG_OFFSET_HEADER, String.valueOf(offset));
+    if (this.executorManager.streamExecutionJobLog(exFlow, jobId, offset, length, attempt,
+        resp.getOutputStream())) {
+      return;
+    }
+
+    final LogData data =
+        this.executorManager.getExecutionJobLog(exFlow, jobId, offset, length, attempt);
+    if (data != null) {
+      resp.setHeader(LOG_OFFSET_HEADER, String.valueOf(data.getOffset()));
+      resp.getOutputStream().write(data.getData().getBytes(StandardCharsets.UTF_8));
+    }
+  }
+
+  /**
+   * Follows the job log as Server-Sent Events from the offset, or from the Last-Event-ID of a
+   * reconnecting EventSource, until the log ends. The bytes of the log are pushed as they are
+   * written, and the events end with an eof event. The data of the events isn't HTML escaped.
+   *
+   * @return true if the log was followed as the response
+   */
+  private boolean ajaxFollowJobLogs(final HttpServletRequest req,
+      final HttpServletResponse resp, final HashMap<String, Object> ret, final User user,
+      final ExecutableFlow exFlow) throws ServletException, IOException {
+    final Project project =
+        getProjectAjaxByPermission(ret, exFlow.getProjectId(), user, Type.READ);
+    if (project == null) {
+      return false;
+    }
+
+    final String jobId = this.getParam(req, "jobId");
+    final ExecutableNode node = exFlow.getExecutableNodePath(jobId);
+    if (node == null) {
+      ret.put("error", "Job " + jobId + " doesn't exist in " + exFlow.getExecutionId());
+      return false;
+    }
+    final int attempt = this.getIntParam(req, "attempt", node.getAttempt());
+    final String lastEventId = req.getHeader("Last-Event-ID");
+    final long offset = lastEventId != null ? Long.parseLong(lastEventId)
+        : this.getIntParam(req, "offset", 0);
+
+    resp.setContentType("text/event-stream");
+    resp.setCharacterEncoding("utf-8");
+    resp.setHeader("Cache-Control", "no-cache");
+    final LogEventStream events = new LogEventStream(resp.getOutputStream(), offset);
+    final LogTail.Follower follower =
+        this.logFollowRelay.follow(exFlow, jobId, attempt, offset);
+    try {
+      if (offset < follower.getStartPosition()) {
+        copyJobLogs(exFlow, jobId, attempt, offset, follower.getStartPosition(), events);
+      }
+      byte[] data;
+      while ((data = follower.take(LOG_FOLLOW_HEARTBEAT_MS)) != null) {
+        if (data.length == 0) {
+          events.heartbeat();
+        } else {
+          events.write(data);
+        }
+      }
+      if (follower.isComplete()) {
+        events.end();
+      }
+    } catch (final ExecutorManagerException e) {
+      throw new ServletException(e);
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } finally {
+      follower.close();
+    }
+    return true;
+  }
+
+  /**
+   * Copies the job log between the offset and end as it is, from the executor if the flow is
+   * running, or else from the DB.
+   */
+  private void copyJobLogs(final ExecutableFlow exFlow, final String jobId, final int attempt,
+      final long offset, final long end, final OutputStream out)
+      throws ExecutorManagerException, IOException {
+    if (this.executorManager.streamExecutionJobLog(exFlow, jobId, (int) offset,
+        (int) (end - offset), attempt, out)) {
+      return;
+    }
+    long position = offset;
+    while (position < end) {
+      final LogData data = this.executorManager.getExecutionJobLog(exFlow, jobId, (int) position,
+          (int) Math.min(end - position, LOG_FOLLOW_PAGE_SIZE), attempt);
+      if (data == null || data.getLength() == 0) {
+        break;
+      }
+      out.write(data.getData().getBytes(StandardCharsets.UTF_8));
+      position += data.getLength();
+    }
   }
 
   private void ajaxFetchJobStats(final HttpServletRequest req,
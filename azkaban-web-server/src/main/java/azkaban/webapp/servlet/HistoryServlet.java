@@ -16,7 +16,7 @@
 
 package azkaban.webapp.servlet;
 
-import azkaban.executor.ExecutableFlow;
+import azkaban.executor.ExecutionSummary;
 import azkaban.executor.ExecutorManagerAdapter;
 import azkaban.executor.ExecutorManagerException;
 import azkaban.project.ProjectManager;
@@ -94,7 +94,7 @@ public class HistoryServlet extends LoginAbstractAzkabanServlet {
     if (pageNum < 0) {
       pageNum = 1;
     }
-    List<ExecutableFlow> history = null;
+    List<ExecutionSummary> history = null;
     if (hasParam(req, "advfilter")) {
       final String projContain = getParam(req, "projcontain");
       final String flowContain = getParam(req, "flowcontain");
@@ -112,7 +112,7 @@ public class HistoryServlet extends LoginAbstractAzkabanServlet {
               .parseDateTime(end).getMillis();
       try {
         history =
-            this.executorManager.getExecutableFlows(projContain, flowContain,
+            this.executorManager.getExecutionSummaries(projContain, flowContain,
                 userContain, status, beginTime, endTime, (pageNum - 1)
                     * pageSize, pageSize);
       } catch (final ExecutorManagerException e) {
@@ -122,7 +122,7 @@ public class HistoryServlet extends LoginAbstractAzkabanServlet {
       final String searchTerm = getParam(req, "searchterm");
       try {
         history =
-            this.executorManager.getExecutableFlows(searchTerm, (pageNum - 1)
+            this.executorManager.getExecutionSummaries(searchTerm, (pageNum - 1)
                 * pageSize, pageSize);
       } catch (final ExecutorManagerException e) {
         page.add("error", e.getMessage());
@@ -130,7 +130,7 @@ public class HistoryServlet extends LoginAbstractAzkabanServlet {
     } else {
       try {
         history =
-            this.executorManager.getExecutableFlows((pageNum - 1) * pageSize,
+            this.executorManager.getExecutionSummaries((pageNum - 1) * pageSize,
                 pageSize);
       } catch (final ExecutorManagerException e) {
         e.printStackTrace();
@@ -0,0 +1,124 @@
+/*
+ * Copyright 2018 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package azkaban.webapp.servlet;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Writes the bytes of a log as Server-Sent Events, one event per write.
+ *
+ * The data of an event is the text of the bytes, which the client appends to the log, so the lines
+ * of the log may be split across events. The id of an event is the offset of the end of its bytes
+ * in the log, which a reconnecting EventSource sends back as its Last-Event-ID. The bytes of a
+ * character split between two writes are held until the next write, so an event always ends on a
+ * character boundary.
+ */
+public class LogEventStream extends OutputStream {
+
+  private static final byte[] DATA_FIELD = "data: ".getBytes(StandardCharsets.UTF_8);
+  private static final byte[] HEARTBEAT = ": \n\n".getBytes(StandardCharsets.UTF_8);
+  private static final byte[] END_EVENT = "event: eof\ndata: \n\n".getBytes(StandardCharsets.UTF_8);
+
+  private final OutputStream out;
+  // offset of the end of the bytes written
+  private long position;
+  private byte[] pending = new byte[0];
+
+  public LogEventStream(final OutputStream out, final long position) {
+    this.out = out;
+    this.position = position;
+  }
+
+  /**
+   * @return the offset of the end of the bytes sent as events
+   */
+  public long getPosition() {
+    return this.position - this.pending.length;
+  }
+
+  @Override
+  public void write(final int b) throws IOException {
+    write(new byte[]{(byte) b}, 0, 1);
+  }
+
+  @Override
+  public void write(final byte[] b, final int off, final int len) throws IOException {
+    final byte[] bytes = new byte[this.pending.length + len];
+    System.arraycopy(this.pending, 0, bytes, 0, this.pending.length);
+    System.arraycopy(b, off, bytes, this.pending.length, len);
+    this.position += len;
+    final int end = getCompleteLength(bytes);
+    this.pending = Arrays.copyOfRange(bytes, end, bytes.length);
+    if (end == 0) {
+      return;
+    }
+
+    final ByteArrayOutputStream event = new ByteArrayOutputStream(end + 32);
+    event.write(("id: " + getPosition() + "\n").getBytes(StandardCharsets.UTF_8));
+    event.write(DATA_FIELD);
+    for (int i = 0; i < end; i++) {
+      // a carriage return would end the field
+      if (bytes[i] == '\n') {
+        event.write('\n');
+        event.write(DATA_FIELD);
+      } else if (bytes[i] != '\r') {
+        event.write(bytes[i]);
+      }
+    }
+    event.write('\n');
+    event.write('\n');
+    event.writeTo(this.out);
+    this.out.flush();
+  }
+
+  /**
+   * Writes a comment, which keeps the connection open and fails once the client is gone.
+   */
+  public void heartbeat() throws IOException {
+    this.out.write(HEARTBEAT);
+    this.out.flush();
+  }
+
+  /**
+   * Writes the eof event, telling the client the log won't grow anymore.
+   */
+  public void end() throws IOException {
+    this.out.write(END_EVENT);
+    this.out.flush();
+  }
+
+  @Override
+  public void flush() throws IOException {
+    this.out.flush();
+  }
+
+  // length of the bytes without the incomplete UTF-8 character at their end
+  private static int getCompleteLength(final byte[] bytes) {
+    for (int i = bytes.length - 1; i >= Math.max(bytes.length - 4, 0); i--) {
+      final int b = bytes[i] & 0xFF;
+      if ((b & 0xC0) != 0x80) {
+        final int charLength = b >= 0xF0 ? 4 : b >= 0xE0 ? 3 : b >= 0xC0 ? 2 : 1;
+        return i + charLength > bytes.length ? i : bytes.length;
+      }
+    }
+    return bytes.length;
+  }
+}
@@ -17,8 +17,8 @@
 package azkaban.webapp.servlet;
 
 import azkaban.Constants.ConfigurationKeys;
-import azkaban.executor.ExecutableFlow;
 import azkaban.executor.ExecutableJobInfo;
+import azkaban.executor.ExecutionSummary;
 import azkaban.executor.ExecutorManagerAdapter;
 import azkaban.executor.ExecutorManagerException;
 import azkaban.executor.Status;
@@ -383,10 +383,10 @@ public class ProjectManagerServlet extends LoginAbstractAzkabanServlet {
       final HashMap<String, Object> ret, final HttpServletRequest req)
       throws ServletException {
     final String flowId = getParam(req, "flow");
-    List<ExecutableFlow> exFlows = null;
+    List<ExecutionSummary> exFlows = null;
     try {
       exFlows =
-          this.executorManager.getExecutableFlows(project.getId(), flowId, 0, 1,
+          this.executorManager.getExecutionSummaries(project.getId(), flowId, 0, 1,
               Status.SUCCEEDED);
     } catch (final ExecutorManagerException e) {
       ret.put("error", "Error retrieving executable flows");
@@ -411,11 +411,11 @@ public class ProjectManagerServlet extends LoginAbstractAzkabanServlet {
     final int from = Integer.valueOf(getParam(req, "start"));
     final int length = Integer.valueOf(getParam(req, "length"));
 
-    final ArrayList<ExecutableFlow> exFlows = new ArrayList<>();
+    final ArrayList<ExecutionSummary> exFlows = new ArrayList<>();
     int total = 0;
     try {
       total =
-          this.executorManager.getExecutableFlows(project.getId(), flowId, from,
+          this.executorManager.getExecutionSummaries(project.getId(), flowId, from,
               length, exFlows);
     } catch (final ExecutorManagerException e) {
       ret.put("error", "Error retrieving executable flows");
@@ -427,7 +427,7 @@ public class ProjectManagerServlet extends LoginAbstractAzkabanServlet {
     ret.put("length", length);
 
     final ArrayList<Object> history = new ArrayList<>();
-    for (final ExecutableFlow flow : exFlows) {
+    for (final ExecutionSummary flow : exFlows) {
       final HashMap<String, Object> flowInfo = new HashMap<>();
       flowInfo.put("execId", flow.getExecutionId());
       flowInfo.put("flowId", flow.getFlowId());
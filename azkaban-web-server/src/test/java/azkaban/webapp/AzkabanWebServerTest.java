@@ -34,6 +34,9 @@ import azkaban.executor.AlerterHolder;
 import azkaban.executor.ExecutionFlowDao;
 import azkaban.executor.ExecutionJobDao;
 import azkaban.executor.ExecutionLogsDao;
+import azkaban.executor.ExecutionAdmission;
+import azkaban.executor.ExecutionSearchIndex;
+import azkaban.executor.ExecutionSummaryDao;
 import azkaban.executor.Executor;
 import azkaban.executor.ExecutorDao;
 import azkaban.executor.ExecutorEventsDao;
@@ -146,6 +149,9 @@ public class AzkabanWebServerTest {
     assertSingleton(AlerterHolder.class, injector);
     assertSingleton(Emailer.class, injector);
     assertSingleton(ExecutionFlowDao.class, injector);
+    assertSingleton(ExecutionSummaryDao.class, injector);
+    assertSingleton(ExecutionSearchIndex.class, injector);
+    assertSingleton(ExecutionAdmission.class, injector);
     assertSingleton(ExecutorDao.class, injector);
     assertSingleton(ExecutionJobDao.class, injector);
     assertSingleton(ExecutionLogsDao.class, injector);
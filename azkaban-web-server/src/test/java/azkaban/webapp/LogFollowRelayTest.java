@@ -0,0 +1,69 @@
+/*
+ * Copyright 2018 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package azkaban.webapp;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import azkaban.executor.ExecutableFlow;
+import azkaban.executor.ExecutorManagerAdapter;
+import azkaban.utils.LogTail;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CountDownLatch;
+import org.junit.Test;
+
+public class LogFollowRelayTest {
+
+  private final ExecutorManagerAdapter executorManager = mock(ExecutorManagerAdapter.class);
+  private final LogFollowRelay relay = new LogFollowRelay(this.executorManager, 1024);
+  private final ExecutableFlow exFlow = new ExecutableFlow();
+
+  @Test
+  public void testFollowersShareOneRelayedLog() throws Exception {
+    final CountDownLatch followed = new CountDownLatch(1);
+    when(this.executorManager.followExecutionJobLog(any(), eq("job"), anyLong(), anyInt(), any()))
+        .thenAnswer(invocation -> {
+          followed.await();
+          final OutputStream out = invocation.getArgument(4);
+          out.write("abc".getBytes(StandardCharsets.UTF_8));
+          return true;
+        });
+
+    final LogTail.Follower first = this.relay.follow(this.exFlow, "job", 1, 0);
+    final LogTail.Follower second = this.relay.follow(this.exFlow, "job", 1, 1);
+    assertThat(this.relay.getNumRelayedLogs()).isEqualTo(1);
+    followed.countDown();
+
+    assertThat(take(first)).isEqualTo("abc");
+    assertThat(take(second)).isEqualTo("bc");
+    assertThat(first.take(5000)).isNull();
+    assertThat(first.isComplete()).isTrue();
+    verify(this.executorManager, times(1))
+        .followExecutionJobLog(any(), eq("job"), eq(0L), eq(1), any());
+  }
+
+  private static String take(final LogTail.Follower follower) throws Exception {
+    return new String(follower.take(5000), StandardCharsets.UTF_8);
+  }
+}
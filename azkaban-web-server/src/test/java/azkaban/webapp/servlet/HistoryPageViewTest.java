@@ -0,0 +1,60 @@
+/*
+ * Copyright 2018 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package azkaban.webapp.servlet;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+import azkaban.executor.ExecutionSummary;
+import azkaban.executor.Status;
+import azkaban.fixture.VelocityContextTestUtil;
+import azkaban.fixture.VelocityTemplateTestUtil;
+import azkaban.project.ProjectManager;
+import java.util.Arrays;
+import org.apache.velocity.VelocityContext;
+import org.junit.Test;
+
+/**
+ * Test the execution history page.
+ */
+public class HistoryPageViewTest {
+
+  private static ExecutionSummary createSummary(final int execId, final Status status) {
+    return new ExecutionSummary(execId, 1, 1, "flow" + execId, status, "azkaban", 1000L, 3000L,
+        2000L, 3000L);
+  }
+
+  private static String render(final ExecutionSummary... history) {
+    final VelocityContext context = VelocityContextTestUtil.getInstance();
+    context.put("vmutils", new VelocityUtil(mock(ProjectManager.class)));
+    context.put("flowHistory", Arrays.asList(history));
+    return VelocityTemplateTestUtil.renderTemplate("historypage", context);
+  }
+
+  @Test
+  public void testRendersActionsFromSummaries() {
+    final String result = render(createSummary(1, Status.FAILED),
+        createSummary(2, Status.RUNNING));
+
+    assertThat(result).contains("onclick=\"redo(1)\"");
+    assertThat(result).doesNotContain("onclick=\"redo(2)\"");
+    // the cycle dates and the options of the redo are loaded on demand
+    assertThat(result).contains("onclick=\"showCycleDate(1, this); return false;\"");
+    assertThat(result).contains("id=\"flow1\">flow1</div>");
+    assertThat(result).doesNotContain("$utils");
+  }
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright 2018 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package azkaban.webapp.servlet;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import org.junit.Test;
+
+public class LogEventStreamTest {
+
+  private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+  private final LogEventStream events = new LogEventStream(this.out, 100);
+
+  @Test
+  public void testLinesAreDataFields() throws Exception {
+    this.events.write("first\r\nsecond\nthi".getBytes(StandardCharsets.UTF_8));
+    assertThat(output()).isEqualTo("id: 117\ndata: first\ndata: second\ndata: thi\n\n");
+    assertThat(this.events.getPosition()).isEqualTo(117L);
+  }
+
+  @Test
+  public void testSplitCharacterIsHeld() throws Exception {
+    final byte[] bytes = "a\u00e9".getBytes(StandardCharsets.UTF_8);
+    this.events.write(bytes, 0, 2);
+    assertThat(output()).isEqualTo("id: 101\ndata: a\n\n");
+    assertThat(this.events.getPosition()).isEqualTo(101L);
+    this.out.reset();
+    this.events.write(bytes, 2, 1);
+    assertThat(output()).isEqualTo("id: 103\ndata: \u00e9\n\n");
+  }
+
+  @Test
+  public void testHeartbeatAndEnd() throws Exception {
+    this.events.heartbeat();
+    this.events.end();
+    assertThat(output()).isEqualTo(": \n\nevent: eof\ndata: \n\n");
+  }
+
+  private String output() throws Exception {
+    return this.out.toString(StandardCharsets.UTF_8.name());
+  }
+}
@@ -67,4 +67,38 @@ azkaban.JobLogModel = Backbone.Model.extend({
       });
     }
   },
+
+  // Pushes the bytes of the log to logData as they are written, from the offset reached.
+  follow: function () {
+    if (this.eventSource || typeof EventSource === "undefined") {
+      return;
+    }
+    var requestURL = contextURL + "/executor?ajax=followExecJobLogs&execid=" + execId
+        + "&jobId=" + encodeURIComponent(jobId) + "&attempt=" + attempt
+        + "&offset=" + this.get("offset");
+    var self = this;
+    this.eventSource = new EventSource(requestURL);
+    this.eventSource.onmessage = function (event) {
+      self.set("offset", parseInt(event.lastEventId));
+      self.set("logData", self.get("logData") + self.escapeHtml(event.data));
+    };
+    this.eventSource.addEventListener("eof", function () {
+      self.unfollow();
+    });
+    this.set("following", true);
+  },
+
+  unfollow: function () {
+    if (this.eventSource) {
+      this.eventSource.close();
+      this.eventSource = null;
+    }
+    this.set("following", false);
+  },
+
+  // the events hold the log as it is written, unlike fetchExecJobLogs
+  escapeHtml: function (text) {
+    return text.replace(/&/g, "&amp;").replace(/</g, "&lt;").replace(/>/g, "&gt;")
+        .replace(/"/g, "&quot;");
+  },
 });
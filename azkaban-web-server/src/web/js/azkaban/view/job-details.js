@@ -19,17 +19,35 @@ $.namespace('azkaban');
 var jobLogView;
 azkaban.JobLogView = Backbone.View.extend({
   events: {
-    "click #updateLogBtn": "refresh"
+    "click #updateLogBtn": "refresh",
+    "click #followLogBtn": "toggleFollow"
   },
 
   initialize: function () {
     this.listenTo(this.model, "change:logData", this.render);
+    this.listenTo(this.model, "change:following", this.renderFollow);
   },
 
   refresh: function () {
     this.model.refresh();
   },
 
+  toggleFollow: function () {
+    if (this.model.get("following")) {
+      this.model.unfollow();
+    } else {
+      this.model.refresh();
+      this.model.follow();
+    }
+  },
+
+  renderFollow: function () {
+    var following = this.model.get("following");
+    $("#followLogBtn").text(following ? "Stop Following" : "Follow")
+        .toggleClass("btn-primary", following);
+    $("#updateLogBtn").prop("disabled", following);
+  },
+
   render: function () {
     var re = /(https?:\/\/(([-\w\.]+)+(:\d+)?(\/([\w/_\.]*(\?\S+)?)?)?))/g;
     var log = this.model.get("logData");